@@ -2,11 +2,18 @@ package top.fblue.watermelon.api;
 
 import top.fblue.common.annotation.RpcPublic;
 import top.fblue.common.response.ApiResponse;
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionDictionaryRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
+import top.fblue.watermelon.api.response.PermissionDictionaryResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
 
+import java.util.List;
+
 /**
- * 用户中心对外提供的权限快照查询接口。
+ * 用户中心对外提供的权限快照查询及权限判断接口。
  */
 public interface PermissionRpc {
 
@@ -18,4 +25,31 @@ public interface PermissionRpc {
      */
     @RpcPublic
     ApiResponse<PermissionSnapshotResponse> getPermissionSnapshot(PermissionSnapshotRequest request);
+
+    /**
+     * 查询调用方系统的权限编码字典，用于解码紧凑权限快照。
+     *
+     * @param request 系统标识及已缓存的字典版本
+     * @return 权限编码字典；已缓存版本为最新时只返回版本
+     */
+    @RpcPublic
+    ApiResponse<PermissionDictionaryResponse> getPermissionDictionary(PermissionDictionaryRequest request);
+
+    /**
+     * 批量判断单个用户在调用方系统内是否拥有指定资源权限。
+     *
+     * @param request 用户、系统标识及待判断资源编码
+     * @return 按资源编码给出的权限判断结果
+     */
+    @RpcPublic
+    ApiResponse<PermissionCheckResponse> checkPermissions(PermissionCheckRequest request);
+
+    /**
+     * 批量判断多个用户在调用方系统内是否拥有指定资源权限。
+     *
+     * @param request 用户列表、系统标识及待判断资源编码
+     * @return 按用户去重后的权限判断结果，顺序与请求中首次出现的顺序一致
+     */
+    @RpcPublic
+    ApiResponse<List<PermissionCheckResponse>> batchCheckPermissions(BatchPermissionCheckRequest request);
 }
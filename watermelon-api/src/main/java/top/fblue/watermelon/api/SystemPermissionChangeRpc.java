@@ -2,6 +2,10 @@ package top.fblue.watermelon.api;
 
 import top.fblue.common.annotation.RpcPublic;
 import top.fblue.watermelon.api.request.PermissionChangeRequest;
+import top.fblue.watermelon.api.response.PermissionChangeBatchResponse;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 用户中心向各业务系统发送权限缓存失效通知的回调接口。
@@ -15,4 +19,28 @@ public interface SystemPermissionChangeRpc {
      */
     @RpcPublic
     void permissionChanged(PermissionChangeRequest request);
+
+    /**
+     * 批量通知业务系统失效权限缓存。
+     *
+     * <p>默认逐条调用 {@link #permissionChanged}，单条失败不影响其余通知；
+     * 业务系统可覆盖为一次性处理整批通知。</p>
+     *
+     * @param requests 同一业务系统的权限变更通知
+     * @return 逐条处理结果
+     */
+    @RpcPublic
+    default PermissionChangeBatchResponse permissionChangedBatch(List<PermissionChangeRequest> requests) {
+        List<String> failedEventIds = new ArrayList<>();
+        for (PermissionChangeRequest request : requests) {
+            try {
+                permissionChanged(request);
+            } catch (RuntimeException exception) {
+                failedEventIds.add(request.getEventId());
+            }
+        }
+        return PermissionChangeBatchResponse.builder()
+                .failedEventIds(failedEventIds)
+                .build();
+    }
 }
@@ -0,0 +1,32 @@
+package top.fblue.watermelon.api.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量判断多个用户资源权限的 RPC 请求，用于列表视图。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPermissionCheckRequest implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 用户中心用户 ID 列表。 */
+    private List<Long> userIds;
+
+    /** 调用方系统编码，必须与 Dubbo 调用方应用名一致。 */
+    private String systemCode;
+
+    /** 待判断的完整资源编码，对每个用户使用同一组编码。 */
+    private List<String> resourceCodes;
+}
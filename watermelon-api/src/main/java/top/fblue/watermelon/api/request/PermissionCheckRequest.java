@@ -0,0 +1,32 @@
+package top.fblue.watermelon.api.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量判断单个用户资源权限的 RPC 请求。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionCheckRequest implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 用户中心用户 ID。 */
+    private Long userId;
+
+    /** 调用方系统编码，必须与 Dubbo 调用方应用名一致。 */
+    private String systemCode;
+
+    /** 待判断的完整资源编码，可混合页面、按钮和接口资源。 */
+    private List<String> resourceCodes;
+}
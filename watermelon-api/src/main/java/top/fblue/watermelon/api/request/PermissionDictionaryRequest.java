@@ -0,0 +1,28 @@
+package top.fblue.watermelon.api.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 查询业务系统权限编码字典的 RPC 请求。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionDictionaryRequest implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 调用方系统编码，必须与 Dubbo 调用方应用名一致。 */
+    private String systemCode;
+
+    /** 调用方已缓存的字典版本；与当前版本一致时响应不返回字典内容。 */
+    private String knownVersion;
+}
@@ -25,4 +25,19 @@ public class PermissionSnapshotRequest implements Serializable {
 
     /** 调用方系统编码，必须与 Dubbo 调用方应用名一致。 */
     private String systemCode;
+
+    /**
+     * 调用方已缓存的用户维度权限版本；与系统维度版本同时提供且均为最新时，
+     * 响应只返回未变化标记而不返回编码列表。
+     */
+    private Long knownUserPermissionVersion;
+
+    /** 调用方已缓存的系统维度权限版本。 */
+    private Long knownSystemPermissionVersion;
+
+    /**
+     * 是否使用字典编码的紧凑快照；为 {@code true} 时响应只携带资源 ID 数组及字典版本，
+     * 调用方在字典版本变化时通过 {@code getPermissionDictionary} 拉取字典。
+     */
+    private boolean compact;
 }
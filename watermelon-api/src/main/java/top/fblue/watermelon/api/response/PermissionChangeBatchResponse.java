@@ -0,0 +1,26 @@
+package top.fblue.watermelon.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 业务系统处理批量权限变更通知的结果。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionChangeBatchResponse implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 处理失败、需要用户中心重试的事件 ID；为空表示全部处理成功。 */
+    private List<String> failedEventIds;
+}
@@ -0,0 +1,38 @@
+package top.fblue.watermelon.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 单个用户的批量资源权限判断结果。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionCheckResponse implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 用户中心用户 ID。 */
+    private Long userId;
+
+    /** 权限所属系统。 */
+    private String systemCode;
+
+    /** 判断时使用的用户维度权限版本。 */
+    private long userPermissionVersion;
+
+    /** 判断时使用的系统维度权限版本。 */
+    private long systemPermissionVersion;
+
+    /** 资源编码到是否拥有权限的映射，保持请求中的编码顺序。 */
+    private Map<String, Boolean> decisions;
+}
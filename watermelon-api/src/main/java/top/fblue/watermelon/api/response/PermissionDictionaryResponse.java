@@ -0,0 +1,35 @@
+package top.fblue.watermelon.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 业务系统权限编码字典。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionDictionaryResponse implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 字典所属系统。 */
+    private String systemCode;
+
+    /** 字典内容摘要版本。 */
+    private String version;
+
+    /** 调用方已缓存的字典版本为最新时为 {@code true}，此时字典内容为空。 */
+    private boolean notModified;
+
+    /** 资源 ID 到完整资源编码的映射。 */
+    private Map<Integer, String> codes;
+}
@@ -33,6 +33,9 @@ public class PermissionSnapshotResponse implements Serializable {
     /** 当前系统维度的权限版本。 */
     private long systemPermissionVersion;
 
+    /** 调用方已缓存的版本均为最新时为 {@code true}，此时各编码列表为空。 */
+    private boolean notModified;
+
     /** 页面资源编码，保留系统前缀。 */
     private List<String> pageCodes;
 
@@ -41,4 +44,16 @@ public class PermissionSnapshotResponse implements Serializable {
 
     /** 接口资源编码，仅供业务系统后端鉴权。 */
     private List<String> apiCodes;
+
+    /** 紧凑快照使用的字典版本；非紧凑快照为空。 */
+    private String dictionaryVersion;
+
+    /** 紧凑快照中的页面资源 ID，升序排列。 */
+    private int[] pageIds;
+
+    /** 紧凑快照中的按钮资源 ID，升序排列。 */
+    private int[] buttonIds;
+
+    /** 紧凑快照中的接口资源 ID，升序排列。 */
+    private int[] apiIds;
 }
@@ -0,0 +1,31 @@
+package top.fblue.watermelon.auth.api;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.fblue.common.response.ApiResponse;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+
+/**
+ * 用户有效权限物化数据维护接口。
+ */
+@RestController
+@RequestMapping("/api/admin/permission/effective")
+@RequiredArgsConstructor
+public class EffectivePermissionController {
+
+    /** 权限变更下发应用服务。 */
+    private final PermissionChangeApplicationService permissionChangeApplicationService;
+
+    /**
+     * 提交全量有效权限重建，用于初始化回填及数据修复。
+     *
+     * @return 是否已提交
+     */
+    @PostMapping("/rebuild")
+    public ApiResponse<Boolean> rebuild() {
+        permissionChangeApplicationService.requestEffectivePermissionRebuild();
+        return ApiResponse.success(true);
+    }
+}
@@ -1,12 +1,20 @@
 package top.fblue.watermelon.auth.application.converter;
 
 import org.springframework.stereotype.Component;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
+import top.fblue.watermelon.api.response.PermissionDictionaryResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * 权限快照转换器。
+ * 权限快照及权限判断结果转换器。
  */
 @Component
 public class PermissionConverter {
@@ -28,4 +36,88 @@ public class PermissionConverter {
                 .apiCodes(snapshot.codesOfType(PermissionResourceTypeEnum.API))
                 .build();
     }
+
+    /**
+     * 将权限快照按字典编码为紧凑的对外权限快照。
+     *
+     * @param snapshot 权限领域快照
+     * @param dictionary 目标系统权限编码字典
+     * @return 紧凑权限快照；任一编码不在字典中时返回 {@code null}，由调用方回退为完整快照
+     */
+    public PermissionSnapshotResponse toCompactResponse(PermissionSnapshot snapshot, PermissionDictionary dictionary) {
+        int[] pageIds = dictionary.encode(snapshot.codesOfType(PermissionResourceTypeEnum.PAGE));
+        int[] buttonIds = dictionary.encode(snapshot.codesOfType(PermissionResourceTypeEnum.BUTTON));
+        int[] apiIds = dictionary.encode(snapshot.codesOfType(PermissionResourceTypeEnum.API));
+        if (pageIds == null || buttonIds == null || apiIds == null) {
+            return null;
+        }
+        return PermissionSnapshotResponse.builder()
+                .userId(snapshot.userId())
+                .systemCode(snapshot.systemCode())
+                .userPermissionVersion(snapshot.userPermissionVersion())
+                .systemPermissionVersion(snapshot.systemPermissionVersion())
+                .dictionaryVersion(dictionary.version())
+                .pageIds(pageIds)
+                .buttonIds(buttonIds)
+                .apiIds(apiIds)
+                .build();
+    }
+
+    /**
+     * 将权限编码字典转换为对外字典响应。
+     *
+     * @param dictionary 权限编码字典
+     * @param knownVersion 调用方已缓存的字典版本
+     * @return 字典响应；已缓存版本为最新时不含字典内容
+     */
+    public PermissionDictionaryResponse toDictionaryResponse(PermissionDictionary dictionary, String knownVersion) {
+        boolean notModified = dictionary.version().equals(knownVersion);
+        return PermissionDictionaryResponse.builder()
+                .systemCode(dictionary.systemCode())
+                .version(dictionary.version())
+                .notModified(notModified)
+                .codes(notModified ? null : dictionary.codesById())
+                .build();
+    }
+
+    /**
+     * 构建不含编码列表的未变化权限快照响应。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @param versions 当前权限版本
+     * @return 未变化权限快照响应
+     */
+    public PermissionSnapshotResponse toNotModifiedResponse(Long userId,
+                                                            String systemCode,
+                                                            PermissionVersions versions) {
+        return PermissionSnapshotResponse.builder()
+                .userId(userId)
+                .systemCode(systemCode)
+                .userPermissionVersion(versions.userPermissionVersion())
+                .systemPermissionVersion(versions.systemPermissionVersion())
+                .notModified(true)
+                .build();
+    }
+
+    /**
+     * 根据权限快照逐个判断资源编码并转换为对外判断结果。
+     *
+     * @param snapshot 权限领域快照
+     * @param resourceCodes 待判断的完整资源编码
+     * @return 对外权限判断结果
+     */
+    public PermissionCheckResponse toCheckResponse(PermissionSnapshot snapshot, List<String> resourceCodes) {
+        Map<String, Boolean> decisions = new LinkedHashMap<>();
+        for (String resourceCode : resourceCodes) {
+            decisions.put(resourceCode, snapshot.hasPermission(resourceCode));
+        }
+        return PermissionCheckResponse.builder()
+                .userId(snapshot.userId())
+                .systemCode(snapshot.systemCode())
+                .userPermissionVersion(snapshot.userPermissionVersion())
+                .systemPermissionVersion(snapshot.systemPermissionVersion())
+                .decisions(decisions)
+                .build();
+    }
 }
@@ -1,8 +1,15 @@
 package top.fblue.watermelon.auth.application.service;
 
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionDictionaryRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
+import top.fblue.watermelon.api.response.PermissionDictionaryResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
 
+import java.util.List;
+
 /**
  * 对外权限快照应用服务。
  */
@@ -16,6 +23,14 @@ public interface PermissionApplicationService {
      */
     PermissionSnapshotResponse getPermissionSnapshot(PermissionSnapshotRequest request);
 
+    /**
+     * 查询业务系统的权限编码字典。
+     *
+     * @param request 字典查询请求
+     * @return 权限编码字典；调用方已缓存最新版本时只返回版本
+     */
+    PermissionDictionaryResponse getPermissionDictionary(PermissionDictionaryRequest request);
+
     /**
      * 判断用户是否拥有目标系统中的指定接口权限。
      *
@@ -25,4 +40,20 @@ public interface PermissionApplicationService {
      * @return 是否拥有接口权限
      */
     boolean hasApiPermission(Long userId, String systemCode, String resourceCode);
+
+    /**
+     * 批量判断单个用户在指定业务系统中的资源权限。
+     *
+     * @param request 权限判断请求
+     * @return 按资源编码给出的判断结果
+     */
+    PermissionCheckResponse checkPermissions(PermissionCheckRequest request);
+
+    /**
+     * 批量判断多个用户在指定业务系统中的资源权限，每个用户只加载一次权限快照。
+     *
+     * @param request 多用户权限判断请求
+     * @return 按用户去重后的判断结果
+     */
+    List<PermissionCheckResponse> batchCheckPermissions(BatchPermissionCheckRequest request);
 }
@@ -1,15 +1,66 @@
 package top.fblue.watermelon.auth.application.service;
 
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeOutboxSize;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
+
+import java.time.Duration;
+import java.util.Map;
+
 /**
  * 权限变更事务发件箱下发应用服务。
  */
 public interface PermissionChangeApplicationService {
 
     /**
-     * 领取并处理一批到期权限变更记录。
+     * 领取并处理一批到期权限变更记录，并重发一批到期的按系统失败投递。
      *
-     * @param batchSize 单次最大处理数量
-     * @return 成功领取的记录数量
+     * @param batchSize 记录与投递各自的单次最大处理数量
+     * @return 成功领取的记录与投递数量之和
      */
     int processPendingChanges(int batchSize);
+
+    /**
+     * 提交一次全量有效权限重建。
+     *
+     * <p>重建通过系统级权限变更记录异步执行：下发时按用户分段刷新全部用户有效权限，
+     * 再递增各系统权限版本并通知接入系统，用于初始化回填及数据修复。</p>
+     */
+    void requestEffectivePermissionRebuild();
+
+    /**
+     * 计算各优先级队列的下发延迟。
+     *
+     * @return 每个优先级最早到期而仍未领取的记录已等待的时长
+     */
+    Map<PermissionChangePriorityEnum, Duration> measureDispatchLag();
+
+    /**
+     * 续约本实例的发件箱分片租约。
+     */
+    void renewDispatchShardLease();
+
+    /**
+     * 释放本实例的发件箱分片租约。
+     */
+    void releaseDispatchShardLease();
+
+    /**
+     * 分批删除处理成功超过保留时长的权限变更记录和按系统投递。
+     *
+     * <p>每批单独提交；某张表一批删不满即视为该表已清理完毕，达到最大批数时剩余数据留给下次清理。</p>
+     *
+     * @param retention 处理成功后的保留时长
+     * @param batchSize 每批每张表的最大删除数量
+     * @param maxBatches 本次最多执行的批数
+     * @return 本次删除的记录和投递数量
+     */
+    PermissionChangePurgeResult purgeExpiredChanges(Duration retention, int batchSize, int maxBatches);
+
+    /**
+     * 估算权限变更事务发件箱各表的当前行数。
+     *
+     * @return 记录表和投递表的估算行数
+     */
+    PermissionChangeOutboxSize estimateOutboxSize();
 }
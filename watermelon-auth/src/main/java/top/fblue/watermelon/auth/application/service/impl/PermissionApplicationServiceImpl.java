@@ -2,13 +2,22 @@ package top.fblue.watermelon.auth.application.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionDictionaryRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
+import top.fblue.watermelon.api.response.PermissionDictionaryResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
 import top.fblue.watermelon.auth.application.converter.PermissionConverter;
 import top.fblue.watermelon.auth.application.service.PermissionApplicationService;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionQueryDomainService;
 
+import java.util.List;
+
 /**
  * 计算用户在单个业务系统中的有效权限快照。
  */
@@ -27,14 +36,50 @@ public class PermissionApplicationServiceImpl implements PermissionApplicationSe
      */
     @Override
     public PermissionSnapshotResponse getPermissionSnapshot(PermissionSnapshotRequest request) {
-        // 1. 通过领域服务查询用户在目标业务系统中的权限快照
+        // 1. 调用方携带已知版本时先比较版本，均为最新则不加载权限资源
+        if (request.getKnownUserPermissionVersion() != null
+                && request.getKnownSystemPermissionVersion() != null) {
+            PermissionVersions versions = permissionQueryDomainService.getPermissionVersions(
+                    request.getUserId(), request.getSystemCode());
+            if (versions.matches(request.getKnownUserPermissionVersion(),
+                    request.getKnownSystemPermissionVersion())) {
+                return permissionConverter.toNotModifiedResponse(
+                        request.getUserId(), request.getSystemCode(), versions);
+            }
+        }
+
+        // 2. 通过领域服务查询用户在目标业务系统中的权限快照
         PermissionSnapshot snapshot = permissionQueryDomainService.getPermissionSnapshot(
                 request.getUserId(), request.getSystemCode());
 
-        // 2. 转换为对外权限快照并返回
+        // 3. 调用方要求紧凑编码时按字典编码，字典暂未包含全部编码时回退为完整快照
+        if (request.isCompact()) {
+            PermissionDictionary dictionary =
+                    permissionQueryDomainService.getPermissionDictionary(request.getSystemCode());
+            PermissionSnapshotResponse compactResponse =
+                    permissionConverter.toCompactResponse(snapshot, dictionary);
+            if (compactResponse != null) {
+                return compactResponse;
+            }
+        }
+
+        // 4. 转换为对外权限快照并返回
         return permissionConverter.toResponse(snapshot);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionDictionaryResponse getPermissionDictionary(PermissionDictionaryRequest request) {
+        // 1. 通过领域服务查询与当前系统版本一致的字典
+        PermissionDictionary dictionary =
+                permissionQueryDomainService.getPermissionDictionary(request.getSystemCode());
+
+        // 2. 比较调用方已缓存版本后转换为对外字典响应
+        return permissionConverter.toDictionaryResponse(dictionary, request.getKnownVersion());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -43,4 +88,32 @@ public class PermissionApplicationServiceImpl implements PermissionApplicationSe
         // 1. 委托权限查询领域服务完成接口权限判断
         return permissionQueryDomainService.hasApiPermission(userId, systemCode, resourceCode);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionCheckResponse checkPermissions(PermissionCheckRequest request) {
+        // 1. 通过领域服务加载一次用户权限快照
+        PermissionSnapshot snapshot = permissionQueryDomainService.getPermissionSnapshot(
+                request.getUserId(), request.getSystemCode());
+
+        // 2. 基于快照索引逐个判断资源编码并返回
+        return permissionConverter.toCheckResponse(snapshot, request.getResourceCodes());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionCheckResponse> batchCheckPermissions(BatchPermissionCheckRequest request) {
+        // 1. 用户去重后批量加载权限快照，全部用户的版本只读取一次
+        List<PermissionSnapshot> snapshots = permissionQueryDomainService.getPermissionSnapshots(
+                request.getUserIds().stream().distinct().toList(), request.getSystemCode());
+
+        // 2. 基于同一组资源编码生成每个用户的判断结果
+        return snapshots.stream()
+                .map(snapshot -> permissionConverter.toCheckResponse(snapshot, request.getResourceCodes()))
+                .toList();
+    }
 }
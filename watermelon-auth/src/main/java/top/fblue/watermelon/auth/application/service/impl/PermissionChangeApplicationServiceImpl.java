@@ -1,45 +1,243 @@
 package top.fblue.watermelon.auth.application.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeOutboxSize;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionChangeDomainService;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 权限变更事务发件箱下发应用服务实现。
+ *
+ * <p>领取成功的用户级记录按用户 ID 分片后在执行器上并行下发：同一用户的记录总落在同一分片，
+ * 由领域服务合并为一次下发；一个业务系统响应缓慢时，只会占用其自身的并发许可，
+ * 不再拖慢整批记录。批内存在系统级记录时，整批交给领域服务合并为一次系统级下发。</p>
+ *
+ * <p>角色级记录展开后会下发给任意成员，无法与用户级记录按同一分片键串行，
+ * 因此先在单独的有序通道中依次展开，完成后再并行下发用户分片，同一用户不会被并发下发。</p>
+ *
+ * <p>紧急优先级的记录先于同批其他记录单独下发，不等待系统级全量刷新或角色成员展开。</p>
+ *
+ * <p>每轮还会领取一批到期的按系统失败投递，只向通知失败的系统重发。</p>
  */
 @Service
-@RequiredArgsConstructor
 public class PermissionChangeApplicationServiceImpl implements PermissionChangeApplicationService {
 
     /** 权限变更领域服务。 */
     private final PermissionChangeDomainService permissionChangeDomainService;
 
+    /** 并行下发执行器。 */
+    private final Executor dispatchExecutor;
+
+    /** 单批最大并行分片数。 */
+    private final int parallelism;
+
+    /**
+     * 创建权限变更下发应用服务。
+     *
+     * @param permissionChangeDomainService 权限变更领域服务
+     * @param dispatchExecutor 并行下发执行器
+     * @param parallelism 单批最大并行分片数
+     */
+    public PermissionChangeApplicationServiceImpl(
+            PermissionChangeDomainService permissionChangeDomainService,
+            @Qualifier("permissionDispatchExecutor") Executor dispatchExecutor,
+            @Value("${permission.change-dispatch.parallelism:8}") int parallelism) {
+        this.permissionChangeDomainService = permissionChangeDomainService;
+        this.dispatchExecutor = dispatchExecutor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public int processPendingChanges(int batchSize) {
-        // 1. 通过领域服务查询可处理的权限变更记录
-        List<PermissionChangeRecord> records =
-                permissionChangeDomainService.findDispatchableChanges(batchSize);
+        // 1. 下发新的权限变更记录，再重发到期的按系统失败投递
+        int dispatchedCount = dispatchPendingRecords(batchSize);
+        int redeliveredCount = redeliverPendingDeliveries(batchSize);
+
+        // 2. 返回本次实际领取数量，便于调度日志和监控
+        return dispatchedCount + redeliveredCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void requestEffectivePermissionRebuild() {
+        permissionChangeDomainService.recordSystemPermissionChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<PermissionChangePriorityEnum, Duration> measureDispatchLag() {
+        return permissionChangeDomainService.measureDispatchLag();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void renewDispatchShardLease() {
+        permissionChangeDomainService.renewDispatchShardLease();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseDispatchShardLease() {
+        permissionChangeDomainService.releaseDispatchShardLease();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionChangePurgeResult purgeExpiredChanges(Duration retention, int batchSize, int maxBatches) {
+        PermissionChangePurgeResult total = new PermissionChangePurgeResult(0, 0);
+        for (int batch = 0; batch < maxBatches; batch++) {
+            // 1. 每批是独立的短语句，删除期间不长时间持有行锁，也不阻塞下发循环的领取
+            PermissionChangePurgeResult result =
+                    permissionChangeDomainService.purgeSucceededChanges(retention, batchSize);
+            total = total.plus(result);
 
-        // 2. 逐条原子领取，只有领取成功的实例可以执行下发
-        int claimedCount = 0;
+            // 2. 两张表都删不满一批时已无过期数据
+            if (result.purgedRecords() < batchSize && result.purgedDeliveries() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionChangeOutboxSize estimateOutboxSize() {
+        return permissionChangeDomainService.estimateOutboxSize();
+    }
+
+    /**
+     * 领取并下发一批权限变更记录。
+     *
+     * @param batchSize 单次最大领取数量
+     * @return 领取成功的记录数
+     */
+    private int dispatchPendingRecords(int batchSize) {
+        // 1. 批量领取可处理记录，只有领取成功的实例可以执行下发
+        List<PermissionChangeRecord> claimedRecords =
+                permissionChangeDomainService.claimDispatchableChanges(batchSize);
+        if (claimedRecords.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 紧急记录先单独下发，不被同批的系统级全量刷新或角色成员展开拖慢
+        List<PermissionChangeRecord> urgentRecords = new ArrayList<>();
+        List<PermissionChangeRecord> otherRecords = new ArrayList<>();
+        for (PermissionChangeRecord record : claimedRecords) {
+            if (PermissionChangePriorityEnum.URGENT == record.priority()) {
+                urgentRecords.add(record);
+            } else {
+                otherRecords.add(record);
+            }
+        }
+        if (!urgentRecords.isEmpty()) {
+            dispatchInPartitions(urgentRecords);
+        }
+        if (otherRecords.isEmpty()) {
+            return claimedRecords.size();
+        }
+
+        // 3. 存在系统级记录时其余记录整批交给领域服务合并为一次系统级下发，否则分片并行下发
+        boolean hasSystemRecord = otherRecords.stream()
+                .anyMatch(record -> PermissionChangeTypeEnum.SYSTEM == record.changeType());
+        if (hasSystemRecord) {
+            permissionChangeDomainService.dispatchAll(otherRecords);
+        } else {
+            dispatchInPartitions(otherRecords);
+        }
+        return claimedRecords.size();
+    }
+
+    /**
+     * 角色级记录先按领取顺序依次展开，再将用户级记录按用户分片并行下发，等待全部分片完成。
+     *
+     * @param records 不含系统级记录的已领取记录
+     */
+    private void dispatchInPartitions(List<PermissionChangeRecord> records) {
+        // 1. 角色展开涉及的成员可能落在任一用户分片，单独作为有序通道先行下发
+        List<PermissionChangeRecord> roleRecords = new ArrayList<>();
+        List<PermissionChangeRecord> userRecords = new ArrayList<>();
         for (PermissionChangeRecord record : records) {
-            if (!permissionChangeDomainService.tryClaim(record)) {
-                continue;
+            if (PermissionChangeTypeEnum.ROLE == record.changeType()) {
+                roleRecords.add(record);
+            } else {
+                userRecords.add(record);
             }
+        }
+        if (!roleRecords.isEmpty()) {
+            permissionChangeDomainService.dispatchAll(roleRecords);
+        }
+        if (userRecords.isEmpty()) {
+            return;
+        }
+
+        // 2. 角色通道完成后用户分片才开始，同一用户不会同时被角色展开和用户分片下发
+        List<CompletableFuture<Void>> futures = partitionByUser(userRecords).stream()
+                .map(partition -> CompletableFuture.runAsync(
+                        () -> permissionChangeDomainService.dispatchAll(partition), dispatchExecutor))
+                .toList();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
 
-            // 3. 通过领域服务更新版本、通知业务系统并记录结果
-            permissionChangeDomainService.dispatch(record);
-            claimedCount++;
+    /**
+     * 领取并重发一批到期的按系统失败投递。
+     *
+     * @param batchSize 单次最大领取数量
+     * @return 领取成功的投递数
+     */
+    private int redeliverPendingDeliveries(int batchSize) {
+        List<PermissionChangeDelivery> claimedDeliveries =
+                permissionChangeDomainService.claimDispatchableDeliveries(batchSize);
+        if (claimedDeliveries.isEmpty()) {
+            return 0;
         }
+        permissionChangeDomainService.redeliverAll(claimedDeliveries);
+        return claimedDeliveries.size();
+    }
 
-        // 4. 返回本次实际领取数量，便于调度日志和监控
-        return claimedCount;
+    /**
+     * 将记录按用户 ID 分片，同一用户的记录保持领取顺序并落在同一分片。
+     *
+     * @param records 已领取的用户级权限变更记录
+     * @return 非空分片列表
+     */
+    private List<List<PermissionChangeRecord>> partitionByUser(List<PermissionChangeRecord> records) {
+        List<List<PermissionChangeRecord>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (PermissionChangeRecord record : records) {
+            partitions.get(Math.floorMod(record.userId().hashCode(), parallelism)).add(record);
+        }
+        partitions.removeIf(List::isEmpty);
+        return partitions;
     }
 }
@@ -0,0 +1,10 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 角色级权限变更完成一段展开后的检查点。
+ *
+ * @param id 权限变更记录主键
+ * @param expandCursor 已展开到的最大用户 ID
+ */
+public record PermissionChangeCheckpoint(Long id, long expandCursor) {
+}
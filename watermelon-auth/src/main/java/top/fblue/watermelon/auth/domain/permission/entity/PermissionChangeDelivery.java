@@ -0,0 +1,76 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 权限变更向单个业务系统的待重试投递。
+ *
+ * <p>权限变更已完成物化刷新和版本递增，仅向该系统的通知失败；重试只重发本系统通知，
+ * 不再重复刷新权限、递增版本或通知其他系统。</p>
+ *
+ * @param id 数据库主键；首次保存前为空
+ * @param changeId 所属权限变更记录主键
+ * @param eventId 所属权限变更的幂等事件 ID
+ * @param systemCode 目标业务系统编码
+ * @param userId 受影响用户；系统级变更时为空
+ * @param userPermissionVersion 待通知的用户维度权限版本
+ * @param systemPermissionVersion 待通知的系统维度权限版本
+ * @param retryCount 已失败次数
+ * @param lastError 最近失败原因
+ * @param claimToken 领取该投递时写入的令牌，保存重试结果时用于确认投递仍归本次领取；未领取时为空
+ */
+public record PermissionChangeDelivery(Long id,
+                                       Long changeId,
+                                       String eventId,
+                                       String systemCode,
+                                       Long userId,
+                                       long userPermissionVersion,
+                                       long systemPermissionVersion,
+                                       int retryCount,
+                                       String lastError,
+                                       String claimToken) {
+
+    /**
+     * 创建尚未领取的投递。
+     *
+     * @param id 数据库主键
+     * @param changeId 所属权限变更记录主键
+     * @param eventId 所属权限变更的幂等事件 ID
+     * @param systemCode 目标业务系统编码
+     * @param userId 受影响用户
+     * @param userPermissionVersion 待通知的用户维度权限版本
+     * @param systemPermissionVersion 待通知的系统维度权限版本
+     * @param retryCount 已失败次数
+     * @param lastError 最近失败原因
+     */
+    public PermissionChangeDelivery(Long id,
+                                    Long changeId,
+                                    String eventId,
+                                    String systemCode,
+                                    Long userId,
+                                    long userPermissionVersion,
+                                    long systemPermissionVersion,
+                                    int retryCount,
+                                    String lastError) {
+        this(id, changeId, eventId, systemCode, userId, userPermissionVersion, systemPermissionVersion,
+                retryCount, lastError, null);
+    }
+
+    /**
+     * 创建首次失败的投递。
+     *
+     * @param record 所属权限变更记录
+     * @param systemCode 目标业务系统编码
+     * @param userPermissionVersion 待通知的用户维度权限版本
+     * @param systemPermissionVersion 待通知的系统维度权限版本
+     * @param lastError 失败原因
+     * @return 待持久化的失败投递
+     */
+    public static PermissionChangeDelivery firstFailure(PermissionChangeRecord record,
+                                                        String systemCode,
+                                                        long userPermissionVersion,
+                                                        long systemPermissionVersion,
+                                                        String lastError) {
+        return new PermissionChangeDelivery(
+                null, record.id(), record.eventId(), systemCode, record.userId(),
+                userPermissionVersion, systemPermissionVersion, 1, lastError);
+    }
+}
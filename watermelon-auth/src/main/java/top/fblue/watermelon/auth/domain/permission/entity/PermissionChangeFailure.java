@@ -0,0 +1,17 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一条权限变更记录或投递的下发失败结果，用于批量保存重试计划。
+ *
+ * @param id 权限变更记录或投递主键
+ * @param retryCount 最新失败次数
+ * @param nextRetryTime 下次重试时间
+ * @param lastError 最近错误摘要
+ */
+public record PermissionChangeFailure(Long id,
+                                      int retryCount,
+                                      LocalDateTime nextRetryTime,
+                                      String lastError) {
+}
@@ -0,0 +1,10 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 权限变更事务发件箱各表的估算行数。
+ *
+ * @param records 权限变更记录表估算行数
+ * @param deliveries 按系统投递表估算行数
+ */
+public record PermissionChangeOutboxSize(long records, long deliveries) {
+}
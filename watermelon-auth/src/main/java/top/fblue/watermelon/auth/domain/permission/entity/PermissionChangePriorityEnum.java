@@ -0,0 +1,42 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 权限变更下发优先级。
+ *
+ * <p>每个优先级是一条独立的领取队列，按权重分配每批领取配额；
+ * 配额未用完时按优先级顺序补给仍有积压的队列。</p>
+ */
+public enum PermissionChangePriorityEnum {
+    /** 用户禁用或删除等权限收回，须尽快生效。 */
+    URGENT(6),
+    /** 单个用户的角色或授权编辑。 */
+    NORMAL(3),
+    /** 角色或资源变更等按成员展开、影响大量用户的批量变更。 */
+    BULK(1);
+
+    /** 每批领取配额的权重。 */
+    private final int weight;
+
+    PermissionChangePriorityEnum(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * 获取每批领取配额的权重。
+     *
+     * @return 领取权重
+     */
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * 获取变更范围的默认优先级：用户级变更为普通，角色级和系统级变更为批量。
+     *
+     * @param changeType 权限变更范围
+     * @return 默认下发优先级
+     */
+    public static PermissionChangePriorityEnum defaultOf(PermissionChangeTypeEnum changeType) {
+        return PermissionChangeTypeEnum.USER == changeType ? NORMAL : BULK;
+    }
+}
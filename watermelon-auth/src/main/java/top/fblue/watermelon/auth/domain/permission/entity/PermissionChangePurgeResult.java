@@ -0,0 +1,21 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 一次过期权限变更清理删除的行数。
+ *
+ * @param purgedRecords 删除的已成功权限变更记录数
+ * @param purgedDeliveries 删除的已成功按系统投递数
+ */
+public record PermissionChangePurgeResult(int purgedRecords, int purgedDeliveries) {
+
+    /**
+     * 累加另一次清理的删除行数。
+     *
+     * @param other 另一次清理结果
+     * @return 两次清理的合计
+     */
+    public PermissionChangePurgeResult plus(PermissionChangePurgeResult other) {
+        return new PermissionChangePurgeResult(
+                purgedRecords + other.purgedRecords, purgedDeliveries + other.purgedDeliveries);
+    }
+}
@@ -9,16 +9,80 @@ package top.fblue.watermelon.auth.domain.permission.entity;
  * @param id 数据库主键；首次保存前为空
  * @param eventId 跨重试保持不变的幂等事件 ID
  * @param changeType 权限变更范围
- * @param userId 受影响用户；系统级变更时为空
+ * @param priority 下发优先级，决定记录所在的领取队列
+ * @param userId 受影响用户；非用户级变更时为空
+ * @param scopeId 变更范围主键；角色级变更时为角色 ID，其余为空
+ * @param systemCode 限定的业务系统编码；为空时版本递增和通知涉及全部业务系统
  * @param status 当前处理状态
  * @param retryCount 已失败次数
+ * @param expandCursor 角色级变更已展开或系统级变更已刷新到的最大用户 ID，下一段从其后继续
+ * @param claimToken 领取该记录时写入的令牌，保存处理结果时用于确认记录仍归本次领取；未领取时为空
  */
 public record PermissionChangeRecord(Long id,
                                      String eventId,
                                      PermissionChangeTypeEnum changeType,
+                                     PermissionChangePriorityEnum priority,
                                      Long userId,
+                                     Long scopeId,
+                                     String systemCode,
                                      PermissionChangeStatusEnum status,
-                                     int retryCount) {
+                                     int retryCount,
+                                     long expandCursor,
+                                     String claimToken) {
+
+    /**
+     * 发件箱的固定分片数。
+     *
+     * <p>分片号在写入时计算并持久化，修改该值需要同时重算未完成记录的分片号。</p>
+     */
+    public static final int SHARD_COUNT = 64;
+
+    /**
+     * 创建尚未领取的记录。
+     *
+     * @param id 数据库主键
+     * @param eventId 幂等事件 ID
+     * @param changeType 权限变更范围
+     * @param priority 下发优先级
+     * @param userId 受影响用户
+     * @param scopeId 变更范围主键
+     * @param systemCode 限定的业务系统编码
+     * @param status 当前处理状态
+     * @param retryCount 已失败次数
+     * @param expandCursor 已展开或已刷新到的最大用户 ID
+     */
+    public PermissionChangeRecord(Long id,
+                                  String eventId,
+                                  PermissionChangeTypeEnum changeType,
+                                  PermissionChangePriorityEnum priority,
+                                  Long userId,
+                                  Long scopeId,
+                                  String systemCode,
+                                  PermissionChangeStatusEnum status,
+                                  int retryCount,
+                                  long expandCursor) {
+        this(id, eventId, changeType, priority, userId, scopeId, systemCode, status, retryCount, expandCursor, null);
+    }
+
+    /**
+     * 创建使用默认优先级、不带变更范围主键和限定系统的记录。
+     *
+     * @param id 数据库主键
+     * @param eventId 幂等事件 ID
+     * @param changeType 权限变更范围
+     * @param userId 受影响用户
+     * @param status 当前处理状态
+     * @param retryCount 已失败次数
+     */
+    public PermissionChangeRecord(Long id,
+                                  String eventId,
+                                  PermissionChangeTypeEnum changeType,
+                                  Long userId,
+                                  PermissionChangeStatusEnum status,
+                                  int retryCount) {
+        this(id, eventId, changeType, PermissionChangePriorityEnum.defaultOf(changeType), userId, null, null,
+                status, retryCount, 0L);
+    }
 
     /**
      * 创建待处理的用户级权限变更记录。
@@ -28,9 +92,23 @@ public record PermissionChangeRecord(Long id,
      * @return 待持久化的用户级变更记录
      */
     public static PermissionChangeRecord pendingUserChange(String eventId, Long userId) {
+        return pendingUserChange(eventId, userId, PermissionChangePriorityEnum.NORMAL);
+    }
+
+    /**
+     * 创建指定优先级的待处理用户级权限变更记录。
+     *
+     * @param eventId 幂等事件 ID
+     * @param userId 受影响用户 ID
+     * @param priority 下发优先级
+     * @return 待持久化的用户级变更记录
+     */
+    public static PermissionChangeRecord pendingUserChange(String eventId,
+                                                           Long userId,
+                                                           PermissionChangePriorityEnum priority) {
         return new PermissionChangeRecord(
-                null, eventId, PermissionChangeTypeEnum.USER, userId,
-                PermissionChangeStatusEnum.PENDING, 0);
+                null, eventId, PermissionChangeTypeEnum.USER, priority, userId, null, null,
+                PermissionChangeStatusEnum.PENDING, 0, 0L);
     }
 
     /**
@@ -40,8 +118,79 @@ public record PermissionChangeRecord(Long id,
      * @return 待持久化的系统级变更记录
      */
     public static PermissionChangeRecord pendingSystemChange(String eventId) {
+        return pendingSystemChange(eventId, null);
+    }
+
+    /**
+     * 创建只递增并通知指定业务系统的待处理系统级权限变更记录。
+     *
+     * @param eventId 幂等事件 ID
+     * @param systemCode 限定的业务系统编码；为空时涉及全部业务系统
+     * @return 待持久化的系统级变更记录
+     */
+    public static PermissionChangeRecord pendingSystemChange(String eventId, String systemCode) {
+        return new PermissionChangeRecord(
+                null, eventId, PermissionChangeTypeEnum.SYSTEM, PermissionChangePriorityEnum.BULK,
+                null, null, systemCode, PermissionChangeStatusEnum.PENDING, 0, 0L);
+    }
+
+    /**
+     * 创建待处理的角色级权限变更记录，角色成员在下发时才分段展开。
+     *
+     * @param eventId 幂等事件 ID
+     * @param roleId 发生变化的角色 ID
+     * @return 待持久化的角色级变更记录
+     */
+    public static PermissionChangeRecord pendingRoleChange(String eventId, Long roleId) {
+        return pendingRoleChange(eventId, roleId, null);
+    }
+
+    /**
+     * 创建只通知指定业务系统的待处理角色级权限变更记录。
+     *
+     * @param eventId 幂等事件 ID
+     * @param roleId 受影响的角色 ID
+     * @param systemCode 限定的业务系统编码；为空时通知全部业务系统
+     * @return 待持久化的角色级变更记录
+     */
+    public static PermissionChangeRecord pendingRoleChange(String eventId, Long roleId, String systemCode) {
+        return new PermissionChangeRecord(
+                null, eventId, PermissionChangeTypeEnum.ROLE, PermissionChangePriorityEnum.BULK,
+                null, roleId, systemCode, PermissionChangeStatusEnum.PENDING, 0, 0L);
+    }
+
+    /**
+     * 将角色级变更展开为单个成员的用户级变更。
+     *
+     * <p>展开记录沿用本记录主键、限定系统和领取令牌，事件 ID 由本记录事件 ID 与用户 ID 拼接，
+     * 同一分段重试时版本递增和失败投递保持幂等。</p>
+     *
+     * @param memberUserId 角色成员用户 ID
+     * @return 不单独持久化的用户级变更
+     */
+    public PermissionChangeRecord expandToUser(Long memberUserId) {
         return new PermissionChangeRecord(
-                null, eventId, PermissionChangeTypeEnum.SYSTEM, null,
-                PermissionChangeStatusEnum.PENDING, 0);
+                id, eventId + ":" + memberUserId, PermissionChangeTypeEnum.USER, priority, memberUserId, null,
+                systemCode, status, retryCount, 0L, claimToken);
+    }
+
+    /**
+     * 计算记录所属的发件箱分片。
+     *
+     * <p>用户级记录按用户 ID 分片，同一用户的多条记录总由同一实例领取并合并下发；
+     * 角色级记录按角色 ID 分片，其余记录按事件 ID 分片。</p>
+     *
+     * @return 取值范围为 {@code [0, SHARD_COUNT)} 的分片号
+     */
+    public int shard() {
+        int shardKey;
+        if (userId != null) {
+            shardKey = Long.hashCode(userId);
+        } else if (scopeId != null) {
+            shardKey = Long.hashCode(scopeId);
+        } else {
+            shardKey = eventId.hashCode();
+        }
+        return Math.floorMod(shardKey, SHARD_COUNT);
     }
 }
@@ -6,6 +6,8 @@ package top.fblue.watermelon.auth.domain.permission.entity;
 public enum PermissionChangeTypeEnum {
     /** 指定用户的角色或资源授权发生变化。 */
     USER,
+    /** 角色的名称、状态或资源授权发生变化，下发时按角色成员分段展开为用户级变更。 */
+    ROLE,
     /** 资源定义等影响整个接入系统的权限策略发生变化。 */
     SYSTEM
 }
@@ -0,0 +1,86 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 按资源类型预先构建的权限编码索引。
+ *
+ * <p>索引在快照创建时一次性构建：哈希集合用于 O(1) 权限判断，去重排序后的
+ * 编码列表供对外快照直接复用。索引与来源资源一同不可变，因此使用 Java
+ * {@code record} 表达。</p>
+ *
+ * @param codeSets 每种资源类型的编码集合
+ * @param sortedCodes 每种资源类型去重并排序后的编码列表
+ */
+public record PermissionCodeIndex(Map<PermissionResourceTypeEnum, Set<String>> codeSets,
+                                  Map<PermissionResourceTypeEnum, List<String>> sortedCodes) {
+
+    /**
+     * 根据有效资源构建索引。
+     *
+     * @param resources 有效页面、按钮和接口资源
+     * @return 不可变权限编码索引
+     */
+    public static PermissionCodeIndex of(List<PermissionResource> resources) {
+        // 1. 按资源类型归集编码，TreeSet 同时完成去重和排序
+        Map<PermissionResourceTypeEnum, TreeSet<String>> codesByType =
+                new EnumMap<>(PermissionResourceTypeEnum.class);
+        for (PermissionResource resource : resources) {
+            codesByType.computeIfAbsent(resource.type(), ignored -> new TreeSet<>())
+                    .add(resource.code());
+        }
+
+        // 2. 为每种类型同时生成哈希集合和有序列表，缺失的类型使用空集合
+        Map<PermissionResourceTypeEnum, Set<String>> codeSets = new EnumMap<>(PermissionResourceTypeEnum.class);
+        Map<PermissionResourceTypeEnum, List<String>> sortedCodes = new EnumMap<>(PermissionResourceTypeEnum.class);
+        for (PermissionResourceTypeEnum type : PermissionResourceTypeEnum.values()) {
+            TreeSet<String> codes = codesByType.getOrDefault(type, new TreeSet<>());
+            codeSets.put(type, Set.copyOf(codes));
+            sortedCodes.put(type, List.copyOf(codes));
+        }
+        return new PermissionCodeIndex(Map.copyOf(codeSets), Map.copyOf(sortedCodes));
+    }
+
+    /**
+     * 判断索引中是否包含指定类型和编码。
+     *
+     * @param type 资源类型
+     * @param resourceCode 完整资源编码
+     * @return 是否包含
+     */
+    public boolean contains(PermissionResourceTypeEnum type, String resourceCode) {
+        return resourceCode != null && codeSets.get(type).contains(resourceCode);
+    }
+
+    /**
+     * 判断索引中任一资源类型是否包含指定编码。
+     *
+     * @param resourceCode 完整资源编码
+     * @return 是否包含
+     */
+    public boolean contains(String resourceCode) {
+        if (resourceCode == null) {
+            return false;
+        }
+        for (Set<String> codes : codeSets.values()) {
+            if (codes.contains(resourceCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查询指定类型去重并排序后的编码列表。
+     *
+     * @param type 资源类型
+     * @return 不可变编码列表
+     */
+    public List<String> codesOf(PermissionResourceTypeEnum type) {
+        return sortedCodes.get(type);
+    }
+}
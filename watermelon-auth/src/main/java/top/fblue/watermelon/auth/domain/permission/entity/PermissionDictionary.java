@@ -0,0 +1,94 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个业务系统的权限编码字典。
+ *
+ * <p>字典版本是按资源 ID 排序后全部条目的内容摘要，不同实例对相同数据计算出
+ * 相同版本，客户端只需在版本变化时重新拉取字典。</p>
+ *
+ * @param systemCode 业务系统编码
+ * @param version 字典内容摘要版本
+ * @param revision 构建字典前读取的字典修订号，用于校验缓存
+ * @param codesById 按资源 ID 升序排列的资源编码
+ * @param idsByCode 资源编码到资源 ID 的映射
+ */
+public record PermissionDictionary(String systemCode,
+                                   String version,
+                                   long revision,
+                                   Map<Integer, String> codesById,
+                                   Map<String, Integer> idsByCode) {
+
+    /**
+     * 根据字典条目构建字典并计算内容摘要版本。
+     *
+     * @param systemCode 业务系统编码
+     * @param revision 查询字典条目前读取的字典修订号
+     * @param entries 字典条目
+     * @return 不可变权限编码字典
+     */
+    public static PermissionDictionary of(String systemCode,
+                                          long revision,
+                                          List<PermissionDictionaryEntry> entries) {
+        // 1. 按资源 ID 排序，保证摘要与查询顺序无关
+        List<PermissionDictionaryEntry> sortedEntries = entries.stream()
+                .sorted(Comparator.comparingInt(PermissionDictionaryEntry::id))
+                .toList();
+
+        // 2. 同时构建正反向映射并计算内容摘要
+        MessageDigest digest = sha256();
+        Map<Integer, String> codesById = new LinkedHashMap<>();
+        Map<String, Integer> idsByCode = new HashMap<>();
+        for (PermissionDictionaryEntry entry : sortedEntries) {
+            codesById.put(entry.id(), entry.code());
+            idsByCode.put(entry.code(), entry.id());
+            digest.update((entry.id() + "=" + entry.code() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        String version = HexFormat.of().formatHex(digest.digest(), 0, 16);
+        return new PermissionDictionary(systemCode, version, revision,
+                Collections.unmodifiableMap(codesById), Map.copyOf(idsByCode));
+    }
+
+    /**
+     * 将资源编码编码为升序资源 ID 数组。
+     *
+     * @param codes 完整资源编码
+     * @return 升序资源 ID 数组；任一编码不在字典中时返回 {@code null}
+     */
+    public int[] encode(List<String> codes) {
+        int[] ids = new int[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            Integer id = idsByCode.get(codes.get(i));
+            if (id == null) {
+                return null;
+            }
+            ids[i] = id;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * 创建 SHA-256 摘要器。
+     *
+     * @return 摘要器
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("当前 JVM 不支持 SHA-256", exception);
+        }
+    }
+}
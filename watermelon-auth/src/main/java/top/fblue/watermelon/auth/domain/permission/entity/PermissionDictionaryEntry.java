@@ -0,0 +1,10 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 权限编码字典中的单个条目。
+ *
+ * @param id 资源 ID，跨版本保持稳定
+ * @param code 完整资源编码
+ */
+public record PermissionDictionaryEntry(int id, String code) {
+}
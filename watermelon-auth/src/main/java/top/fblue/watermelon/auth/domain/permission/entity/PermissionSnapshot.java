@@ -6,40 +6,58 @@ import java.util.List;
  * 用户在单个业务系统中的有效权限快照。
  *
  * <p>该快照创建后不再修改，因此使用 Java {@code record} 表达不可变领域值，
- * 不使用带 setter 的 Lombok {@code @Data}。</p>
+ * 不使用带 setter 的 Lombok {@code @Data}。按类型划分的编码索引在创建时一次性构建，
+ * 之后的权限判断和编码查询都不再遍历资源列表。</p>
  *
  * @param userId 用户 ID
  * @param systemCode 业务系统编码
  * @param resources 有效页面、按钮和接口资源
  * @param userPermissionVersion 用户维度权限版本
  * @param systemPermissionVersion 系统维度权限版本
+ * @param codeIndex 按资源类型预先构建的编码索引；为空时根据资源自动构建
  */
 public record PermissionSnapshot(Long userId,
                                  String systemCode,
                                  List<PermissionResource> resources,
                                  long userPermissionVersion,
-                                 long systemPermissionVersion) {
+                                 long systemPermissionVersion,
+                                 PermissionCodeIndex codeIndex) {
 
     /**
-     * 保证快照中的资源列表不可变且不为空。
+     * 保证快照中的资源列表不可变且不为空，并构建编码索引。
      */
     public PermissionSnapshot {
         resources = resources == null ? List.of() : List.copyOf(resources);
+        if (codeIndex == null) {
+            codeIndex = PermissionCodeIndex.of(resources);
+        }
     }
 
     /**
-     * 查询指定类型的资源编码，并去重、排序。
+     * 根据有效资源和权限版本创建快照，编码索引随之构建。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @param resources 有效页面、按钮和接口资源
+     * @param userPermissionVersion 用户维度权限版本
+     * @param systemPermissionVersion 系统维度权限版本
+     */
+    public PermissionSnapshot(Long userId,
+                              String systemCode,
+                              List<PermissionResource> resources,
+                              long userPermissionVersion,
+                              long systemPermissionVersion) {
+        this(userId, systemCode, resources, userPermissionVersion, systemPermissionVersion, null);
+    }
+
+    /**
+     * 查询指定类型的资源编码；结果在创建快照时已去重、排序。
      *
      * @param type 资源类型
-     * @return 资源编码列表
+     * @return 不可变资源编码列表
      */
     public List<String> codesOfType(PermissionResourceTypeEnum type) {
-        return resources.stream()
-                .filter(resource -> type == resource.type())
-                .map(PermissionResource::code)
-                .distinct()
-                .sorted()
-                .toList();
+        return codeIndex.codesOf(type);
     }
 
     /**
@@ -50,8 +68,16 @@ public record PermissionSnapshot(Long userId,
      * @return 是否拥有权限
      */
     public boolean hasPermission(PermissionResourceTypeEnum type, String resourceCode) {
-        return resources.stream()
-                .anyMatch(resource -> type == resource.type()
-                        && resourceCode.equals(resource.code()));
+        return codeIndex.contains(type, resourceCode);
+    }
+
+    /**
+     * 判断是否拥有指定编码的资源权限，不区分资源类型。
+     *
+     * @param resourceCode 完整资源编码
+     * @return 是否拥有权限
+     */
+    public boolean hasPermission(String resourceCode) {
+        return codeIndex.contains(resourceCode);
     }
 }
@@ -0,0 +1,24 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 用户在单个业务系统中的当前权限版本。
+ *
+ * @param userPermissionVersion 用户维度权限版本
+ * @param systemPermissionVersion 系统维度权限版本
+ */
+public record PermissionVersions(long userPermissionVersion, long systemPermissionVersion) {
+
+    /**
+     * 判断调用方已知版本是否与当前版本一致。
+     *
+     * @param knownUserPermissionVersion 调用方已知的用户维度版本
+     * @param knownSystemPermissionVersion 调用方已知的系统维度版本
+     * @return 两个版本均非空且与当前版本一致时返回 {@code true}
+     */
+    public boolean matches(Long knownUserPermissionVersion, Long knownSystemPermissionVersion) {
+        return knownUserPermissionVersion != null
+                && knownSystemPermissionVersion != null
+                && knownUserPermissionVersion == userPermissionVersion
+                && knownSystemPermissionVersion == systemPermissionVersion;
+    }
+}
@@ -0,0 +1,15 @@
+package top.fblue.watermelon.auth.domain.permission.entity;
+
+/**
+ * 发送给业务系统的一条用户级权限缓存失效通知。
+ *
+ * @param eventId 幂等事件 ID
+ * @param userId 受影响用户 ID
+ * @param userPermissionVersion 最新用户维度权限版本
+ * @param systemPermissionVersion 当前系统维度权限版本
+ */
+public record UserPermissionNotification(String eventId,
+                                         Long userId,
+                                         long userPermissionVersion,
+                                         long systemPermissionVersion) {
+}
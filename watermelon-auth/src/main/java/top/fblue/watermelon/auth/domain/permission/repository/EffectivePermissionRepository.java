@@ -0,0 +1,36 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import java.util.List;
+
+/**
+ * 维护用户有效权限物化数据的仓储端口。
+ *
+ * <p>接口定义在 Auth 模块，由权限变更下发流程在递增权限版本之前调用；
+ * 具体物化表由 Watermelon Service 模块实现，从而保持
+ * {@code watermelon-service -> watermelon-auth} 的单向依赖。</p>
+ */
+public interface EffectivePermissionRepository {
+
+    /**
+     * 按用户当前角色和资源重新计算并增量更新其有效权限。
+     *
+     * <p>实现必须幂等，发件箱重试时可以重复调用。</p>
+     *
+     * @param userId 用户 ID
+     */
+    void refreshUser(Long userId);
+
+    /**
+     * 按用户 ID 分段重新计算并增量更新启用用户的有效权限，用于系统级变更、初始化回填及数据修复。
+     *
+     * <p>从第一段开始刷新时（{@code afterUserId} 为 0），先用一条语句清除已删除或禁用用户的残留权限，
+     * 之后只逐个刷新启用用户。调用方以返回的最后一个用户 ID 作为下一段的起点，
+     * 返回数量少于 {@code limit} 时全部刷新完毕。实现必须幂等，同一段可以重复执行。</p>
+     *
+     * @param systemCode 限定刷新的业务系统编码；为空时刷新全部系统
+     * @param afterUserId 上一段最后一个用户 ID，首段为 0
+     * @param limit 本段最多刷新的用户数量
+     * @return 本段已刷新的用户 ID，按升序排列
+     */
+    List<Long> refreshUsersAfter(String systemCode, long afterUserId, int limit);
+}
@@ -0,0 +1,69 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 权限变更按业务系统的失败投递仓储。
+ */
+public interface PermissionChangeDeliveryRepository {
+
+    /**
+     * 批量保存首次失败的投递；同一事件与系统的投递已存在时忽略。
+     *
+     * @param deliveries 首次失败的投递
+     * @param nextRetryTime 下次重试时间
+     */
+    void saveFailed(List<PermissionChangeDelivery> deliveries, LocalDateTime nextRetryTime);
+
+    /**
+     * 批量领取到期或处理超时的投递。
+     *
+     * @param claimToken 本次领取令牌
+     * @param now 领取时间
+     * @param processingTimeoutBefore 早于该时间的处理中投递允许重新领取
+     * @param limit 最大领取数量
+     * @return 本次领取成功的投递，按主键升序
+     */
+    List<PermissionChangeDelivery> claimDispatchable(String claimToken,
+                                                     LocalDateTime now,
+                                                     LocalDateTime processingTimeoutBefore,
+                                                     int limit);
+
+    /**
+     * 批量标记投递成功；已被其他领取接管的投递不会被更新。
+     *
+     * @param claimToken 领取这些投递时写入的令牌
+     * @param ids 投递主键
+     * @param processedTime 完成时间
+     */
+    void markSucceeded(String claimToken, List<Long> ids, LocalDateTime processedTime);
+
+    /**
+     * 批量标记投递失败并安排下次重试；已被其他领取接管的投递不会被更新。
+     *
+     * @param claimToken 领取这些投递时写入的令牌
+     * @param failures 每条投递的失败结果
+     * @param updatedTime 更新时间
+     */
+    void markFailed(String claimToken, List<PermissionChangeFailure> failures, LocalDateTime updatedTime);
+
+    /**
+     * 物理删除一批在指定时间前投递成功的记录，一条语句最多删除 {@code limit} 条。
+     *
+     * @param processedBefore 早于该时间投递成功的记录允许删除
+     * @param limit 最大删除数量
+     * @return 实际删除数量
+     */
+    int deleteSucceededBefore(LocalDateTime processedBefore, int limit);
+
+    /**
+     * 估算按系统投递表的行数。
+     *
+     * @return 估算行数，来自存储引擎统计信息，不扫描表
+     */
+    long estimateRowCount();
+}
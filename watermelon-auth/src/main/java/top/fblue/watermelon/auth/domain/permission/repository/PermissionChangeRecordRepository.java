@@ -1,9 +1,14 @@
 package top.fblue.watermelon.auth.domain.permission.repository;
 
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 权限变更事务发件箱仓储。
@@ -18,47 +23,86 @@ public interface PermissionChangeRecordRepository {
     void saveAll(List<PermissionChangeRecord> records);
 
     /**
-     * 查询到期或处理超时的权限变更记录。
+     * 批量领取指定优先级队列中到期或处理超时的权限变更记录。
      *
-     * @param now 当前时间
+     * <p>实现需先领取已到期记录，再用剩余配额接管处理超时记录，两类记录分别按索引领取，
+     * 合计为最多 {@code limit} 条记录写入领取令牌及实例标识；并发实例领取到的记录互不重叠。
+     * 同一令牌可用于多次领取，领取结束后按令牌一次读回。</p>
+     *
+     * @param priority 下发优先级
+     * @param shards 限定领取的分片号；为空时领取全部分片
+     * @param claimToken 本次领取令牌
+     * @param now 领取时间
      * @param processingTimeoutBefore 早于该时间的处理中记录允许重新领取
-     * @param limit 最大查询数量
-     * @return 待领取的权限变更记录
+     * @param limit 最大领取数量
+     * @return 本次领取成功的记录数量
      */
-    List<PermissionChangeRecord> findDispatchable(LocalDateTime now,
-                                                  LocalDateTime processingTimeoutBefore,
-                                                  int limit);
+    int claimDispatchable(PermissionChangePriorityEnum priority,
+                          Collection<Integer> shards,
+                          String claimToken,
+                          LocalDateTime now,
+                          LocalDateTime processingTimeoutBefore,
+                          int limit);
 
     /**
-     * 原子领取一条权限变更记录。
+     * 查询指定令牌领取且仍在处理中的权限变更记录。
      *
-     * @param id 记录主键
-     * @param now 领取时间
-     * @param processingTimeoutBefore 处理中记录的超时边界
-     * @return 是否领取成功
+     * @param claimToken 领取令牌
+     * @return 该令牌领取的记录，按主键升序
      */
-    boolean tryMarkProcessing(Long id, LocalDateTime now, LocalDateTime processingTimeoutBefore);
+    List<PermissionChangeRecord> findClaimed(String claimToken);
 
     /**
-     * 标记权限变更处理成功。
+     * 按优先级查询已到期待处理记录中最早的可处理时间。
      *
-     * @param id 记录主键
+     * @param now 查询时间
+     * @return 存在积压的优先级到其最早可处理时间的映射；没有积压的优先级不包含在内
+     */
+    Map<PermissionChangePriorityEnum, LocalDateTime> findOldestDueTimes(LocalDateTime now);
+
+    /**
+     * 批量标记权限变更处理成功；已被其他领取接管的记录不会被更新。
+     *
+     * @param claimToken 领取这些记录时写入的令牌
+     * @param ids 记录主键
      * @param processedTime 完成时间
      */
-    void markSucceeded(Long id, LocalDateTime processedTime);
+    void markSucceeded(String claimToken, List<Long> ids, LocalDateTime processedTime);
 
     /**
-     * 标记权限变更处理失败并安排下次重试。
+     * 批量标记权限变更处理失败并安排下次重试；已被其他领取接管的记录不会被更新。
      *
-     * @param id 记录主键
-     * @param retryCount 最新失败次数
-     * @param nextRetryTime 下次重试时间
-     * @param lastError 最近错误信息
+     * @param claimToken 领取这些记录时写入的令牌
+     * @param failures 每条记录的失败结果
      * @param updatedTime 更新时间
      */
-    void markFailed(Long id,
-                    int retryCount,
-                    LocalDateTime nextRetryTime,
-                    String lastError,
-                    LocalDateTime updatedTime);
+    void markFailed(String claimToken, List<PermissionChangeFailure> failures, LocalDateTime updatedTime);
+
+    /**
+     * 批量保存角色级变更的展开检查点，记录立即回到待处理状态以继续展开下一段；
+     * 已被其他领取接管的记录不会被更新。
+     *
+     * @param claimToken 领取这些记录时写入的令牌
+     * @param checkpoints 每条记录的展开检查点
+     * @param updatedTime 更新时间
+     */
+    void markExpanded(String claimToken, List<PermissionChangeCheckpoint> checkpoints, LocalDateTime updatedTime);
+
+    /**
+     * 物理删除一批在指定时间前处理成功的权限变更记录。
+     *
+     * <p>实现需用一条语句最多删除 {@code limit} 条，每批单独提交，避免长事务和大范围锁。</p>
+     *
+     * @param processedBefore 早于该时间处理成功的记录允许删除
+     * @param limit 最大删除数量
+     * @return 实际删除数量
+     */
+    int deleteSucceededBefore(LocalDateTime processedBefore, int limit);
+
+    /**
+     * 估算权限变更记录表的行数。
+     *
+     * @return 估算行数，来自存储引擎统计信息，不扫描表
+     */
+    long estimateRowCount();
 }
@@ -0,0 +1,22 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionaryEntry;
+
+import java.util.List;
+
+/**
+ * 查询业务系统权限编码字典的仓储端口。
+ *
+ * <p>接口定义在 Auth 模块，具体资源数据查询由 Watermelon Service 模块实现，
+ * 从而保持 {@code watermelon-service -> watermelon-auth} 的单向依赖。</p>
+ */
+public interface PermissionDictionaryRepository {
+
+    /**
+     * 查询业务系统中全部启用的页面、按钮和接口资源编码。
+     *
+     * @param systemCode 业务系统编码
+     * @return 字典条目
+     */
+    List<PermissionDictionaryEntry> findSystemDictionaryEntries(String systemCode);
+}
@@ -0,0 +1,29 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 多实例之间分配权限变更发件箱分片的租约仓储。
+ */
+public interface PermissionDispatchShardRepository {
+
+    /**
+     * 续约本实例的下发成员租约，并按当前存活成员重新计算本实例负责的分片。
+     *
+     * <p>成员加入、退出或租约过期后，各实例在下一次续约时重新均分全部分片。</p>
+     */
+    void renewLease();
+
+    /**
+     * 释放本实例的下发成员租约，其他实例在下一次续约时接管其分片。
+     */
+    void releaseLease();
+
+    /**
+     * 查询本实例当前负责的分片。
+     *
+     * @return 本实例负责的分片号；尚未取得租约或租约已过期时为空，表示领取全部分片
+     */
+    Optional<Set<Integer>> findOwnedShards();
+}
@@ -0,0 +1,14 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+/**
+ * 权限变更写入事务发件箱后唤醒下发任务的信号仓储。
+ */
+public interface PermissionDispatchSignalRepository {
+
+    /**
+     * 当前事务提交后唤醒下发任务；不存在事务时立即唤醒。
+     *
+     * <p>事务回滚时不发送信号，发件箱记录也随之回滚。</p>
+     */
+    void signalAfterCommit();
+}
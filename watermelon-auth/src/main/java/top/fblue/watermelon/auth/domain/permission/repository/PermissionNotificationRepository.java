@@ -1,6 +1,9 @@
 package top.fblue.watermelon.auth.domain.permission.repository;
 
+import top.fblue.watermelon.auth.domain.permission.entity.UserPermissionNotification;
+
 import java.util.List;
+import java.util.Map;
 
 /**
  * 向已接入用户中心的业务系统发送权限缓存失效通知。
@@ -15,19 +18,15 @@ public interface PermissionNotificationRepository {
     List<String> findNotifiableSystemCodes();
 
     /**
-     * 通知指定业务系统失效用户权限缓存。
+     * 批量通知指定业务系统失效用户权限缓存。
+     *
+     * <p>单条通知失败不影响同批其余通知，也不会抛出异常；失败的事件通过返回值交由调用方重试。</p>
      *
      * @param systemCode 目标系统编码
-     * @param eventId 幂等事件 ID
-     * @param userId 受影响用户 ID
-     * @param userPermissionVersion 最新用户维度权限版本
-     * @param systemPermissionVersion 当前系统维度权限版本
+     * @param notifications 用户级权限变更通知
+     * @return 通知失败的事件 ID 到失败原因的映射；全部成功时为空
      */
-    void notifyUserChanged(String systemCode,
-                           String eventId,
-                           Long userId,
-                           long userPermissionVersion,
-                           long systemPermissionVersion);
+    Map<String, String> notifyUsersChanged(String systemCode, List<UserPermissionNotification> notifications);
 
     /**
      * 通知指定业务系统切换系统级权限缓存版本。
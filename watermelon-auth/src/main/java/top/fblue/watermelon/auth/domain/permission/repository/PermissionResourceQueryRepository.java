@@ -1,6 +1,7 @@
 package top.fblue.watermelon.auth.domain.permission.repository;
 
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 
 import java.util.List;
 
@@ -15,9 +16,13 @@ public interface PermissionResourceQueryRepository {
     /**
      * 查询用户在指定系统中的有效页面、按钮和接口资源。
      *
+     * <p>实现可以合并并发查询，但只能合并读取到相同权限版本的调用方；
+     * 否则读到新版本的调用方可能拿到旧版本查询的结果，并以新版本写入快照缓存。</p>
+     *
      * @param userId 用户 ID
      * @param systemCode 目标系统编码
+     * @param versions 调用方在查询前读取的权限版本，结果将以该版本缓存
      * @return 有效权限资源列表
      */
-    List<PermissionResource> findEffectiveResources(Long userId, String systemCode);
+    List<PermissionResource> findEffectiveResources(Long userId, String systemCode, PermissionVersions versions);
 }
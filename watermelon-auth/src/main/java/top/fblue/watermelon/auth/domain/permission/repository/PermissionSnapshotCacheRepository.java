@@ -0,0 +1,33 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+
+/**
+ * 缓存用户有效权限快照的仓储端口。
+ *
+ * <p>缓存条目以用户和系统定位，并携带构建时读取的用户级、系统级权限版本；
+ * 只有版本与调用方当前读取的版本完全一致时才允许命中。</p>
+ */
+public interface PermissionSnapshotCacheRepository {
+
+    /**
+     * 查询与指定权限版本一致的缓存快照。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @param userPermissionVersion 当前用户维度权限版本
+     * @param systemPermissionVersion 当前系统维度权限版本
+     * @return 版本一致且未过期的快照；不存在时返回 {@code null}
+     */
+    PermissionSnapshot find(Long userId,
+                            String systemCode,
+                            long userPermissionVersion,
+                            long systemPermissionVersion);
+
+    /**
+     * 保存权限快照，覆盖同一用户和系统的旧快照。
+     *
+     * @param snapshot 权限快照
+     */
+    void save(PermissionSnapshot snapshot);
+}
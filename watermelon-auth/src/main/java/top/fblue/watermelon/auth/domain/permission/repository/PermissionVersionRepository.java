@@ -1,5 +1,10 @@
 package top.fblue.watermelon.auth.domain.permission.repository;
 
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 维护用户级和系统级权限版本。
  */
@@ -22,6 +27,15 @@ public interface PermissionVersionRepository {
      */
     long incrementUserPermissionVersion(String eventId, Long userId);
 
+    /**
+     * 批量原子递增用户权限版本，每个用户仍按各自事件幂等。
+     *
+     * @param eventIds 幂等事件 ID，与用户 ID 一一对应
+     * @param userIds 用户 ID
+     * @return 与用户 ID 顺序一致的递增后用户权限版本
+     */
+    List<Long> incrementUserPermissionVersions(List<String> eventIds, List<Long> userIds);
+
     /**
      * 查询系统权限版本。
      *
@@ -38,4 +52,42 @@ public interface PermissionVersionRepository {
      * @return 递增后的系统权限版本
      */
     long incrementSystemPermissionVersion(String eventId, String systemCode);
+
+    /**
+     * 一次查询用户在目标系统中的用户级和系统级权限版本。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 系统编码
+     * @return 用户在目标系统中的当前权限版本
+     */
+    PermissionVersions getPermissionVersions(Long userId, String systemCode);
+
+    /**
+     * 一次查询多个用户在目标系统中的权限版本。
+     *
+     * @param userIds 用户 ID
+     * @param systemCode 系统编码
+     * @return 与用户 ID 顺序一致的当前权限版本
+     */
+    List<PermissionVersions> getPermissionVersions(List<Long> userIds, String systemCode);
+
+    /**
+     * 查询业务系统权限编码字典的修订号。
+     *
+     * <p>字典修订号只随资源新增、更新和删除递增，与系统维度权限版本无关，
+     * 用于校验按系统缓存的权限编码字典。</p>
+     *
+     * @param systemCode 系统编码
+     * @return 字典修订号，从未递增时为 0
+     */
+    long getDictionaryRevision(String systemCode);
+
+    /**
+     * 在当前事务提交后递增业务系统权限编码字典的修订号；不在事务中时立即递增。
+     *
+     * <p>提交前递增会让并发读取以新修订号缓存尚未提交前的资源，因此必须在提交后递增。</p>
+     *
+     * @param systemCodes 资源所属的业务系统编码；空元素表示资源不属于任何系统，忽略
+     */
+    void incrementDictionaryRevisionsAfterCommit(Collection<String> systemCodes);
 }
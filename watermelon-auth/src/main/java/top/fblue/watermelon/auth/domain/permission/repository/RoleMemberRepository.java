@@ -0,0 +1,32 @@
+package top.fblue.watermelon.auth.domain.permission.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 按角色分段读取成员用户的仓储端口。
+ *
+ * <p>接口定义在 Auth 模块，由角色级权限变更下发时逐段展开成员；
+ * 用户角色关系由 Watermelon Service 模块实现，保持
+ * {@code watermelon-service -> watermelon-auth} 的单向依赖。</p>
+ */
+public interface RoleMemberRepository {
+
+    /**
+     * 按用户 ID 升序读取角色中大于指定用户 ID 的下一段成员。
+     *
+     * @param roleId 角色 ID
+     * @param afterUserId 上一段最后一个用户 ID，首段传 0
+     * @param limit 最大读取数量
+     * @return 去重并按用户 ID 升序排列的成员用户 ID
+     */
+    List<Long> findUserIdsAfter(Long roleId, long afterUserId, int limit);
+
+    /**
+     * 统计多个角色去重后的成员数量，用于估算权限变更的影响范围。
+     *
+     * @param roleIds 角色 ID 集合
+     * @return 去重后的成员用户数量
+     */
+    long countUsersByRoleIds(Collection<Long> roleIds);
+}
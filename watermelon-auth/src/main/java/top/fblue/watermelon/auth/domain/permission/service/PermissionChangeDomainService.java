@@ -1,9 +1,15 @@
 package top.fblue.watermelon.auth.domain.permission.service;
 
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeOutboxSize;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 权限变更领域服务。
@@ -24,26 +30,74 @@ public interface PermissionChangeDomainService {
      */
     void recordUserPermissionChanges(Collection<Long> userIds);
 
+    /**
+     * 在当前业务事务中记录用户被禁用或删除导致的权限收回。
+     *
+     * <p>记录进入紧急优先级队列，领取和下发均先于普通及批量变更。</p>
+     *
+     * @param userId 被禁用或删除的用户 ID
+     */
+    void recordUserPermissionRevocation(Long userId);
+
     /**
      * 在当前业务事务中记录系统维度权限变更。
      */
     void recordSystemPermissionChange();
 
     /**
-     * 查询等待下发或处理超时的权限变更记录。
+     * 在当前业务事务中记录角色级权限变更。
+     *
+     * <p>无论角色有多少成员都只写入一条记录，成员在下发时按用户 ID 分段展开。</p>
+     *
+     * @param roleId 发生变化的角色 ID
+     */
+    void recordRoleChange(Long roleId);
+
+    /**
+     * 在当前业务事务中记录资源变更影响的权限变更。
+     *
+     * <p>资源变更只影响引用该资源的角色成员，且只涉及资源所属的业务系统：受影响成员不超过阈值时
+     * 为每个角色记录一条限定系统的角色级变更，超过阈值时退化为一条限定系统的系统级变更。
+     * 涉及多个业务系统或无法确定所属系统时不限定系统。</p>
+     *
+     * <p>资源新增、更新和删除都会改变所属系统的权限编码字典，即使没有角色引用也在事务提交后
+     * 递增这些系统的字典修订号；新增资源时角色集合传空即可。</p>
      *
-     * @param limit 最大查询数量
-     * @return 可尝试领取的权限变更记录
+     * @param roleIds 引用变更资源的角色 ID 集合
+     * @param systemCodes 变更资源所属的业务系统编码，变更前后的编码均需包含；元素为空表示无法确定所属系统
+     */
+    void recordResourceChange(Collection<Long> roleIds, Collection<String> systemCodes);
+
+    /**
+     * 批量领取等待下发或处理超时的权限变更记录。
+     *
+     * <p>每个优先级队列按权重分得领取配额，批量变更积压时紧急和普通变更仍能在下一批被领取；
+     * 某个队列不足配额时，剩余数量按优先级顺序补给仍有积压的队列。</p>
+     *
+     * @param limit 最大领取数量
+     * @return 当前实例领取成功的权限变更记录，按优先级从高到低排列
+     */
+    List<PermissionChangeRecord> claimDispatchableChanges(int limit);
+
+    /**
+     * 续约本实例的发件箱分片租约，成员变化时重新分配各实例负责的分片。
+     *
+     * <p>取得租约后，各优先级队列都只领取本实例负责的分片；
+     * 未取得租约或租约过期时领取全部分片。</p>
+     */
+    void renewDispatchShardLease();
+
+    /**
+     * 释放本实例的发件箱分片租约，供实例停止时让其他实例尽快接管。
      */
-    List<PermissionChangeRecord> findDispatchableChanges(int limit);
+    void releaseDispatchShardLease();
 
     /**
-     * 原子领取一条权限变更记录。
+     * 计算各优先级队列的下发延迟，即最早到期而仍未领取的记录已等待的时长。
      *
-     * @param record 待领取记录
-     * @return 是否领取成功
+     * @return 每个优先级的下发延迟；没有积压的优先级为零
      */
-    boolean tryClaim(PermissionChangeRecord record);
+    Map<PermissionChangePriorityEnum, Duration> measureDispatchLag();
 
     /**
      * 更新权限版本、通知业务系统并保存处理结果。
@@ -51,4 +105,51 @@ public interface PermissionChangeDomainService {
      * @param record 已领取的权限变更记录
      */
     void dispatch(PermissionChangeRecord record);
+
+    /**
+     * 批量下发已领取的权限变更记录。
+     *
+     * <p>同一用户的多条用户级记录合并为一次下发；批内存在不限定系统的系统级记录时只下发一次系统级变更，
+     * 其余记录均被吸收；限定系统的系统级记录按系统合并。系统级记录每次只刷新一段用户的物化权限，
+     * 未刷新完时保存检查点，被其吸收的记录放回待处理状态。被合并的记录跟随实际下发记录的成败，
+     * 全部处理完成后成功与失败结果各批量保存一次。版本递增成功后记录即视为成功，
+     * 个别系统的通知失败保存为按系统的失败投递。结果凭领取令牌保存，处理超时后已被重新领取的记录不会被覆盖，
+     * 因此同一批记录须来自同一次领取。</p>
+     *
+     * @param records 同一次领取的权限变更记录
+     */
+    void dispatchAll(List<PermissionChangeRecord> records);
+
+    /**
+     * 批量领取到期或处理超时的按系统失败投递。
+     *
+     * @param limit 最大领取数量
+     * @return 当前实例领取成功的投递
+     */
+    List<PermissionChangeDelivery> claimDispatchableDeliveries(int limit);
+
+    /**
+     * 向各自的业务系统重发已领取的失败投递，并按每条投递的结果独立保存成败与退避。
+     *
+     * @param deliveries 同一次领取的失败投递
+     */
+    void redeliverAll(List<PermissionChangeDelivery> deliveries);
+
+    /**
+     * 删除一批处理成功超过保留时长的权限变更记录和按系统投递。
+     *
+     * <p>待处理、失败和处理中的记录不受影响；记录与投递各自最多删除 {@code limit} 条。</p>
+     *
+     * @param retention 处理成功后的保留时长
+     * @param limit 每张表的最大删除数量
+     * @return 本批删除的记录和投递数量
+     */
+    PermissionChangePurgeResult purgeSucceededChanges(Duration retention, int limit);
+
+    /**
+     * 估算权限变更事务发件箱各表的当前行数。
+     *
+     * @return 记录表和投递表的估算行数
+     */
+    PermissionChangeOutboxSize estimateOutboxSize();
 }
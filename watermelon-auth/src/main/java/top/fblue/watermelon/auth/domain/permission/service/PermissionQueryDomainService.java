@@ -1,6 +1,10 @@
 package top.fblue.watermelon.auth.domain.permission.service;
 
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+
+import java.util.List;
 
 /**
  * 权限查询领域服务。
@@ -16,6 +20,15 @@ public interface PermissionQueryDomainService {
      */
     PermissionSnapshot getPermissionSnapshot(Long userId, String systemCode);
 
+    /**
+     * 查询多个用户在目标系统中的权限快照，全部用户的版本一次读取。
+     *
+     * @param userIds 用户 ID，调用方负责去重
+     * @param systemCode 目标系统编码
+     * @return 与用户 ID 顺序一致的权限领域快照
+     */
+    List<PermissionSnapshot> getPermissionSnapshots(List<Long> userIds, String systemCode);
+
     /**
      * 判断用户是否拥有指定接口权限。
      *
@@ -25,4 +38,21 @@ public interface PermissionQueryDomainService {
      * @return 是否拥有接口权限
      */
     boolean hasApiPermission(Long userId, String systemCode, String resourceCode);
+
+    /**
+     * 查询用户在指定系统中的当前权限版本，不加载权限资源。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @return 用户维度和系统维度权限版本
+     */
+    PermissionVersions getPermissionVersions(Long userId, String systemCode);
+
+    /**
+     * 查询业务系统的权限编码字典。
+     *
+     * @param systemCode 业务系统编码
+     * @return 与当前系统维度权限版本一致的权限编码字典
+     */
+    PermissionDictionary getPermissionDictionary(String systemCode);
 }
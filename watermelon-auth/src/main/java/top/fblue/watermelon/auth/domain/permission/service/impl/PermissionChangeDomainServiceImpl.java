@@ -2,24 +2,45 @@ package top.fblue.watermelon.auth.domain.permission.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeOutboxSize;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.UserPermissionNotification;
+import top.fblue.watermelon.auth.domain.permission.repository.EffectivePermissionRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeDeliveryRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeRecordRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchShardRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchSignalRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionNotificationRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionVersionRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.RoleMemberRepository;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionChangeDomainService;
 
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.function.Consumer;
 
 /**
  * 权限变更领域服务实现。
+ *
+ * <p>权限变更记录在物化刷新和版本递增完成后即视为成功；个别业务系统的通知失败单独登记为
+ * 按系统的失败投递，以各自的失败次数退避重试，已确认的系统不会被重复通知。</p>
  */
 @Service
 @RequiredArgsConstructor
@@ -34,15 +55,39 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
     /** 数据库错误信息字段最大长度。 */
     private static final int MAX_ERROR_LENGTH = 1000;
 
+    /** 角色级变更每次下发展开的成员数量。 */
+    private static final int ROLE_EXPAND_CHUNK_SIZE = 500;
+
+    /** 系统级变更每次下发刷新物化权限的用户数量，单段耗时须远小于处理超时时间。 */
+    private static final int SYSTEM_REFRESH_CHUNK_SIZE = 500;
+
+    /** 资源变更影响的成员超过该数量时退化为系统级变更，避免逐个展开刷新大量用户。 */
+    private static final long RESOURCE_CHANGE_MAX_SCOPED_USERS = 5_000L;
+
     /** 权限变更事务发件箱仓储。 */
     private final PermissionChangeRecordRepository permissionChangeRecordRepository;
 
+    /** 权限变更按业务系统的失败投递仓储。 */
+    private final PermissionChangeDeliveryRepository permissionChangeDeliveryRepository;
+
     /** 权限版本仓储。 */
     private final PermissionVersionRepository permissionVersionRepository;
 
     /** 业务系统权限缓存失效通知仓储。 */
     private final PermissionNotificationRepository permissionNotificationRepository;
 
+    /** 用户有效权限物化数据仓储。 */
+    private final EffectivePermissionRepository effectivePermissionRepository;
+
+    /** 角色成员分段读取仓储。 */
+    private final RoleMemberRepository roleMemberRepository;
+
+    /** 事务提交后唤醒下发任务的信号仓储。 */
+    private final PermissionDispatchSignalRepository permissionDispatchSignalRepository;
+
+    /** 多实例分配发件箱分片的租约仓储。 */
+    private final PermissionDispatchShardRepository permissionDispatchShardRepository;
+
     /** 统一提供可测试的当前时间。 */
     private final Clock clock;
 
@@ -62,6 +107,27 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
      */
     @Override
     public void recordUserPermissionChanges(Collection<Long> userIds) {
+        recordUserPermissionChanges(userIds, PermissionChangePriorityEnum.NORMAL);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordUserPermissionRevocation(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        recordUserPermissionChanges(List.of(userId), PermissionChangePriorityEnum.URGENT);
+    }
+
+    /**
+     * 在当前业务事务中记录指定优先级的用户级权限变更。
+     *
+     * @param userIds 受影响用户 ID 集合
+     * @param priority 下发优先级
+     */
+    private void recordUserPermissionChanges(Collection<Long> userIds, PermissionChangePriorityEnum priority) {
         if (userIds == null || userIds.isEmpty()) {
             return;
         }
@@ -71,11 +137,14 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
                 .filter(Objects::nonNull)
                 .distinct()
                 .map(userId -> PermissionChangeRecord.pendingUserChange(
-                        UUID.randomUUID().toString(), userId))
+                        UUID.randomUUID().toString(), userId, priority))
                 .toList();
 
         // 2. 与当前权限业务事务一起持久化事务发件箱记录
         permissionChangeRecordRepository.saveAll(records);
+
+        // 3. 事务提交后立即唤醒下发任务，无需等待下一次轮询
+        permissionDispatchSignalRepository.signalAfterCommit();
     }
 
     /**
@@ -89,26 +158,156 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
 
         // 2. 与当前权限业务事务一起持久化事务发件箱记录
         permissionChangeRecordRepository.saveAll(List.of(record));
+
+        // 3. 事务提交后立即唤醒下发任务，无需等待下一次轮询
+        permissionDispatchSignalRepository.signalAfterCommit();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<PermissionChangeRecord> findDispatchableChanges(int limit) {
+    public void recordRoleChange(Long roleId) {
+        if (roleId == null) {
+            return;
+        }
+
+        // 1. 创建角色级权限变更记录，成员留待下发时展开
+        PermissionChangeRecord record = PermissionChangeRecord.pendingRoleChange(
+                UUID.randomUUID().toString(), roleId);
+
+        // 2. 与当前权限业务事务一起持久化事务发件箱记录
+        permissionChangeRecordRepository.saveAll(List.of(record));
+
+        // 3. 事务提交后立即唤醒下发任务，无需等待下一次轮询
+        permissionDispatchSignalRepository.signalAfterCommit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordResourceChange(Collection<Long> roleIds, Collection<String> systemCodes) {
+        // 1. 无论是否影响用户权限，资源变化都会改变所属系统的权限编码字典
+        if (systemCodes != null) {
+            permissionVersionRepository.incrementDictionaryRevisionsAfterCommit(systemCodes);
+        }
+        if (roleIds == null || roleIds.isEmpty()) {
+            return;
+        }
+
+        // 2. 没有角色引用或引用角色没有成员时，资源变更不影响任何用户的权限
+        List<Long> distinctRoleIds = roleIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctRoleIds.isEmpty()) {
+            return;
+        }
+        long affectedUsers = roleMemberRepository.countUsersByRoleIds(distinctRoleIds);
+        if (affectedUsers == 0) {
+            return;
+        }
+
+        // 3. 资源只属于一个业务系统时限定该系统，涉及多个或无法确定所属系统时不限定系统
+        Set<String> distinctSystemCodes = systemCodes == null ? Set.of() : new HashSet<>(systemCodes);
+        String systemCode = distinctSystemCodes.size() == 1 ? distinctSystemCodes.iterator().next() : null;
+
+        // 4. 受影响成员不超过阈值时按角色记录并在下发时分段展开，否则退化为一条系统级变更
+        List<PermissionChangeRecord> records = affectedUsers > RESOURCE_CHANGE_MAX_SCOPED_USERS
+                ? List.of(PermissionChangeRecord.pendingSystemChange(UUID.randomUUID().toString(), systemCode))
+                : distinctRoleIds.stream()
+                        .map(roleId -> PermissionChangeRecord.pendingRoleChange(
+                                UUID.randomUUID().toString(), roleId, systemCode))
+                        .toList();
+
+        // 5. 与当前资源业务事务一起持久化事务发件箱记录
+        permissionChangeRecordRepository.saveAll(records);
+
+        // 6. 事务提交后立即唤醒下发任务，无需等待下一次轮询
+        permissionDispatchSignalRepository.signalAfterCommit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionChangeRecord> claimDispatchableChanges(int limit) {
         LocalDateTime now = LocalDateTime.now(clock);
-        return permissionChangeRecordRepository.findDispatchable(
-                now, now.minus(PROCESSING_TIMEOUT), limit);
+        LocalDateTime processingTimeoutBefore = now.minus(PROCESSING_TIMEOUT);
+        String claimToken = UUID.randomUUID().toString();
+        Set<Integer> ownedShards = permissionDispatchShardRepository.findOwnedShards().orElse(null);
+        int claimedCount = 0;
+
+        // 1. 各优先级按权重领取各自配额，每个队列至少一条，批量变更积压时不会挤占紧急变更；
+        //    紧急队列同样只领取本实例分片，提交后的广播唤醒会让负责该分片的实例立即下发
+        int totalWeight = Arrays.stream(PermissionChangePriorityEnum.values())
+                .mapToInt(PermissionChangePriorityEnum::weight)
+                .sum();
+        List<PermissionChangePriorityEnum> saturatedPriorities = new ArrayList<>();
+        for (PermissionChangePriorityEnum priority : PermissionChangePriorityEnum.values()) {
+            int quota = Math.min(Math.max(1, limit * priority.weight() / totalWeight), limit - claimedCount);
+            if (quota <= 0) {
+                break;
+            }
+            int priorityClaimedCount = permissionChangeRecordRepository.claimDispatchable(
+                    priority, ownedShards, claimToken, now, processingTimeoutBefore, quota);
+            claimedCount += priorityClaimedCount;
+            if (priorityClaimedCount == quota) {
+                saturatedPriorities.add(priority);
+            }
+        }
+
+        // 2. 配额未用完时按优先级顺序补给领满配额、可能仍有积压的队列
+        for (PermissionChangePriorityEnum priority : saturatedPriorities) {
+            int remaining = limit - claimedCount;
+            if (remaining <= 0) {
+                break;
+            }
+            claimedCount += permissionChangeRecordRepository.claimDispatchable(
+                    priority, ownedShards, claimToken, now, processingTimeoutBefore, remaining);
+        }
+
+        // 3. 全部队列共用一个领取令牌，按令牌一次读回，保存结果时凭该令牌确认记录仍归本次领取
+        if (claimedCount == 0) {
+            return List.of();
+        }
+        return permissionChangeRecordRepository.findClaimed(claimToken);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void renewDispatchShardLease() {
+        permissionDispatchShardRepository.renewLease();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean tryClaim(PermissionChangeRecord record) {
+    public void releaseDispatchShardLease() {
+        permissionDispatchShardRepository.releaseLease();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<PermissionChangePriorityEnum, Duration> measureDispatchLag() {
         LocalDateTime now = LocalDateTime.now(clock);
-        return permissionChangeRecordRepository.tryMarkProcessing(
-                record.id(), now, now.minus(PROCESSING_TIMEOUT));
+        Map<PermissionChangePriorityEnum, LocalDateTime> oldestDueTimes =
+                permissionChangeRecordRepository.findOldestDueTimes(now);
+        Map<PermissionChangePriorityEnum, Duration> dispatchLag = new EnumMap<>(PermissionChangePriorityEnum.class);
+        for (PermissionChangePriorityEnum priority : PermissionChangePriorityEnum.values()) {
+            LocalDateTime oldestDueTime = oldestDueTimes.get(priority);
+            dispatchLag.put(priority, oldestDueTime == null || oldestDueTime.isAfter(now)
+                    ? Duration.ZERO
+                    : Duration.between(oldestDueTime, now));
+        }
+        return dispatchLag;
     }
 
     /**
@@ -116,92 +315,419 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
      */
     @Override
     public void dispatch(PermissionChangeRecord record) {
+        dispatchAll(List.of(record));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispatchAll(List<PermissionChangeRecord> records) {
+        DispatchResults results = new DispatchResults(records.isEmpty() ? null : records.getFirst().claimToken());
         try {
-            // 1. 根据变更范围更新幂等权限版本并通知接入系统
-            if (PermissionChangeTypeEnum.USER == record.changeType()) {
-                dispatchUserChange(record);
-            } else {
-                dispatchSystemChange(record);
+            // 1. 不限定系统的系统级变更会全量刷新并失效全部系统，合并为一次下发并吸收本批全部记录
+            PermissionChangeRecord systemRecord = records.stream()
+                    .filter(record -> PermissionChangeTypeEnum.SYSTEM == record.changeType()
+                            && record.systemCode() == null)
+                    .findFirst()
+                    .orElse(null);
+            if (systemRecord != null) {
+                results.coalesce(systemRecord, records);
+                dispatchSystemChange(systemRecord, results);
+                return;
             }
 
-            // 2. 全部通知成功后标记发件箱记录完成
-            permissionChangeRecordRepository.markSucceeded(
-                    record.id(), LocalDateTime.now(clock));
+            // 2. 限定系统的系统级记录按系统合并；角色级记录每次展开一段成员；
+            //    同一用户的多条记录合并为一次下发，以最新记录的事件 ID 作为幂等键：较早事件可能已递增过版本
+            //    而记录仍停留在处理中或失败，沿用其事件 ID 会让本次合并的新变更拿不到新版本
+            Map<String, List<PermissionChangeRecord>> recordsBySystem = new LinkedHashMap<>();
+            Map<Long, PermissionChangeRecord> representatives = new LinkedHashMap<>();
+            Map<Long, List<PermissionChangeRecord>> recordsByUser = new LinkedHashMap<>();
+            for (PermissionChangeRecord record : records) {
+                if (PermissionChangeTypeEnum.SYSTEM == record.changeType()) {
+                    recordsBySystem.computeIfAbsent(record.systemCode(), ignored -> new ArrayList<>()).add(record);
+                    continue;
+                }
+                if (PermissionChangeTypeEnum.ROLE == record.changeType()) {
+                    dispatchRoleChange(record, results);
+                    continue;
+                }
+                representatives.merge(record.userId(), record,
+                        (current, candidate) -> candidate.id() > current.id() ? candidate : current);
+                recordsByUser.computeIfAbsent(record.userId(), ignored -> new ArrayList<>()).add(record);
+            }
+            recordsBySystem.values().forEach(systemRecords -> {
+                results.coalesce(systemRecords.getFirst(), systemRecords);
+                dispatchSystemChange(systemRecords.getFirst(), results);
+            });
+            representatives.forEach((userId, representative) ->
+                    results.coalesce(representative, recordsByUser.get(userId)));
+            if (!representatives.isEmpty()) {
+                dispatchUserChanges(List.copyOf(representatives.values()), null, results);
+            }
+        } finally {
+            // 3. 被合并的记录跟随代表记录的结果，失败投递、成功、检查点与失败各用一次批量写入保存
+            saveDispatchResults(results);
+        }
+    }
+
+    /**
+     * 展开并下发角色级权限变更的下一段成员。
+     *
+     * <p>每段成员按用户级变更下发，任一成员失败时整段从原检查点重试；展开记录的事件 ID
+     * 由角色级记录事件 ID 与用户 ID 组成，重试同一段时版本递增保持幂等。</p>
+     *
+     * @param record 角色级权限变更记录
+     * @param results 本批下发结果
+     */
+    private void dispatchRoleChange(PermissionChangeRecord record, DispatchResults results) {
+        // 1. 从检查点之后读取下一段成员，没有剩余成员时记录完成
+        List<Long> memberUserIds;
+        try {
+            memberUserIds = roleMemberRepository.findUserIdsAfter(
+                    record.scopeId(), record.expandCursor(), ROLE_EXPAND_CHUNK_SIZE);
         } catch (RuntimeException exception) {
-            // 3. 保存失败次数和指数退避时间，等待后台任务再次处理
-            markDispatchFailed(record, exception);
+            results.failed(record, exception);
+            return;
+        }
+        if (memberUserIds.isEmpty()) {
+            results.succeeded(record);
+            return;
+        }
+
+        // 2. 本段成员按用户级变更下发，个别系统的通知失败仍登记为失败投递
+        DispatchResults segmentResults = new DispatchResults(record.claimToken());
+        dispatchUserChanges(
+                memberUserIds.stream().map(record::expandToUser).toList(), record.systemCode(), segmentResults);
+        results.deliveries.addAll(segmentResults.deliveries);
+        if (!segmentResults.failures.isEmpty()) {
+            results.failed(record, new IllegalStateException(segmentResults.failures.getFirst().lastError()));
+            return;
+        }
+
+        // 3. 不足一段说明成员已展开完毕，否则保存检查点后继续下一段
+        if (memberUserIds.size() < ROLE_EXPAND_CHUNK_SIZE) {
+            results.succeeded(record);
+        } else {
+            results.expanded(record, memberUserIds.getLast());
         }
     }
 
     /**
-     * 下发用户级权限变更。
+     * 批量下发用户级权限变更，按系统分组发送通知，并记录每条代表记录的结果。
      *
-     * @param record 用户级权限变更记录
-     */
-    private void dispatchUserChange(PermissionChangeRecord record) {
-        long userPermissionVersion = permissionVersionRepository.incrementUserPermissionVersion(
-                record.eventId(), record.userId());
-        notifyEachSystem(systemCode -> {
-            long systemPermissionVersion =
-                    permissionVersionRepository.getSystemPermissionVersion(systemCode);
-            permissionNotificationRepository.notifyUserChanged(
-                    systemCode, record.eventId(), record.userId(),
-                    userPermissionVersion, systemPermissionVersion);
-        });
+     * @param userRecords 每个用户一条的代表记录
+     * @param systemCode 限定通知的业务系统编码；为空时通知全部可通知系统
+     * @param results 本批下发结果
+     */
+    private void dispatchUserChanges(List<PermissionChangeRecord> userRecords,
+                                     String systemCode,
+                                     DispatchResults results) {
+        // 1. 先逐个刷新物化权限，刷新失败的记录单独进入重试
+        List<PermissionChangeRecord> refreshedRecords = new ArrayList<>(userRecords.size());
+        for (PermissionChangeRecord record : userRecords) {
+            try {
+                effectivePermissionRepository.refreshUser(record.userId());
+                refreshedRecords.add(record);
+            } catch (RuntimeException exception) {
+                results.failed(record, exception);
+            }
+        }
+        if (refreshedRecords.isEmpty()) {
+            return;
+        }
+
+        // 2. 一次批量递增全部用户版本，并整批只读取一次通知系统及其版本；失败时整批进入重试
+        List<Long> userPermissionVersions;
+        Map<String, Long> systemPermissionVersions = new LinkedHashMap<>();
+        try {
+            userPermissionVersions = permissionVersionRepository.incrementUserPermissionVersions(
+                    refreshedRecords.stream().map(PermissionChangeRecord::eventId).toList(),
+                    refreshedRecords.stream().map(PermissionChangeRecord::userId).toList());
+            for (String notifiableSystemCode : notifiableSystemCodes(systemCode)) {
+                systemPermissionVersions.put(notifiableSystemCode,
+                        permissionVersionRepository.getSystemPermissionVersion(notifiableSystemCode));
+            }
+        } catch (RuntimeException exception) {
+            refreshedRecords.forEach(record -> results.failed(record, exception));
+            return;
+        }
+
+        // 3. 每个系统一次性接收本批全部用户通知，未确认的通知登记为该系统的失败投递；
+        //    按本批记录查找失败结果，业务系统返回的本批以外事件 ID 直接忽略
+        for (Map.Entry<String, Long> entry : systemPermissionVersions.entrySet()) {
+            List<UserPermissionNotification> notifications = new ArrayList<>(refreshedRecords.size());
+            for (int i = 0; i < refreshedRecords.size(); i++) {
+                PermissionChangeRecord record = refreshedRecords.get(i);
+                notifications.add(new UserPermissionNotification(
+                        record.eventId(), record.userId(), userPermissionVersions.get(i), entry.getValue()));
+            }
+            Map<String, String> failedEvents =
+                    permissionNotificationRepository.notifyUsersChanged(entry.getKey(), notifications);
+            for (int i = 0; i < refreshedRecords.size(); i++) {
+                String failure = failedEvents.get(refreshedRecords.get(i).eventId());
+                if (failure != null) {
+                    results.deliveryFailed(PermissionChangeDelivery.firstFailure(
+                            refreshedRecords.get(i), entry.getKey(), userPermissionVersions.get(i),
+                            entry.getValue(), truncate(failure)));
+                }
+            }
+        }
+
+        // 4. 版本已递增的记录均视为成功，个别系统的通知由失败投递单独重试
+        refreshedRecords.forEach(results::succeeded);
     }
 
     /**
-     * 下发系统级权限变更。
+     * 批量保存下发结果；失败投递须先于记录成功状态和检查点保存，任一步失败时仍尝试保存记录失败结果。
+     *
+     * @param results 本批下发结果
+     */
+    private void saveDispatchResults(DispatchResults results) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        try {
+            if (!results.deliveries.isEmpty()) {
+                permissionChangeDeliveryRepository.saveFailed(results.deliveries, nextRetryTime(1));
+            }
+            if (!results.succeededIds.isEmpty()) {
+                permissionChangeRecordRepository.markSucceeded(results.claimToken, results.succeededIds, now);
+            }
+            if (!results.checkpoints.isEmpty()) {
+                permissionChangeRecordRepository.markExpanded(results.claimToken, results.checkpoints, now);
+            }
+        } finally {
+            if (!results.failures.isEmpty()) {
+                permissionChangeRecordRepository.markFailed(results.claimToken, results.failures, now);
+            }
+        }
+    }
+
+    /**
+     * 分段下发系统级权限变更，并记录该记录的结果。
+     *
+     * <p>变化可能影响任意用户，每次下发按用户 ID 刷新一段物化权限并保存检查点，
+     * 单次处理时间不随用户规模增长，不会因处理超时被其他实例重复领取；全部用户刷新后才递增版本并通知。
+     * 限定系统的记录只刷新、递增并通知该系统。物化刷新或任一系统版本递增失败时从原检查点重试；
+     * 版本全部递增后，单个系统的通知失败只登记为该系统的失败投递。</p>
      *
      * @param record 系统级权限变更记录
+     * @param results 本批下发结果
      */
-    private void dispatchSystemChange(PermissionChangeRecord record) {
-        notifyEachSystem(systemCode -> {
-            long systemPermissionVersion = permissionVersionRepository.incrementSystemPermissionVersion(
-                    record.eventId(), systemCode);
-            permissionNotificationRepository.notifySystemChanged(
-                    systemCode, record.eventId(), systemPermissionVersion);
+    private void dispatchSystemChange(PermissionChangeRecord record, DispatchResults results) {
+        // 1. 从检查点之后刷新下一段用户，刷新满一段说明可能仍有剩余用户，保存检查点后继续
+        List<Long> refreshedUserIds;
+        try {
+            refreshedUserIds = effectivePermissionRepository.refreshUsersAfter(
+                    record.systemCode(), record.expandCursor(), SYSTEM_REFRESH_CHUNK_SIZE);
+        } catch (RuntimeException exception) {
+            results.failed(record, exception);
+            return;
+        }
+        if (refreshedUserIds.size() >= SYSTEM_REFRESH_CHUNK_SIZE) {
+            results.expanded(record, refreshedUserIds.getLast());
+            return;
+        }
+
+        // 2. 全部用户刷新完毕后递增各系统版本
+        Map<String, Long> systemPermissionVersions = new LinkedHashMap<>();
+        try {
+            for (String systemCode : notifiableSystemCodes(record.systemCode())) {
+                systemPermissionVersions.put(systemCode,
+                        permissionVersionRepository.incrementSystemPermissionVersion(record.eventId(), systemCode));
+            }
+        } catch (RuntimeException exception) {
+            results.failed(record, exception);
+            return;
+        }
+
+        // 3. 逐个系统通知，失败的系统单独登记投递
+        systemPermissionVersions.forEach((systemCode, systemPermissionVersion) -> {
+            try {
+                permissionNotificationRepository.notifySystemChanged(
+                        systemCode, record.eventId(), systemPermissionVersion);
+            } catch (RuntimeException exception) {
+                results.deliveryFailed(PermissionChangeDelivery.firstFailure(
+                        record, systemCode, 0L, systemPermissionVersion, errorMessage(exception)));
+            }
         });
+        results.succeeded(record);
     }
 
     /**
-     * 通知每个启用系统，并在全部系统尝试完成后汇总抛出失败。
+     * 读取需要通知的业务系统，限定系统时只保留该系统。
      *
-     * @param notification 单个系统通知操作
+     * @param systemCode 限定的业务系统编码；为空时返回全部可通知系统
+     * @return 需要递增版本并通知的业务系统编码
+     */
+    private List<String> notifiableSystemCodes(String systemCode) {
+        List<String> systemCodes = permissionNotificationRepository.findNotifiableSystemCodes();
+        return systemCode == null
+                ? systemCodes
+                : systemCodes.stream().filter(systemCode::equals).toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionChangeDelivery> claimDispatchableDeliveries(int limit) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return permissionChangeDeliveryRepository.claimDispatchable(
+                UUID.randomUUID().toString(), now, now.minus(PROCESSING_TIMEOUT), limit);
+    }
+
+    /**
+     * {@inheritDoc}
      */
-    private void notifyEachSystem(Consumer<String> notification) {
-        RuntimeException notificationFailure = null;
-        for (String systemCode : permissionNotificationRepository.findNotifiableSystemCodes()) {
+    @Override
+    public void redeliverAll(List<PermissionChangeDelivery> deliveries) {
+        String claimToken = deliveries.isEmpty() ? null : deliveries.getFirst().claimToken();
+        List<Long> succeededIds = new ArrayList<>();
+        List<PermissionChangeFailure> failures = new ArrayList<>();
+        try {
+            // 1. 读取当前可通知系统；读取失败时整批按各自失败次数退避
+            Set<String> notifiableSystemCodes;
             try {
-                notification.accept(systemCode);
+                notifiableSystemCodes = new HashSet<>(permissionNotificationRepository.findNotifiableSystemCodes());
             } catch (RuntimeException exception) {
-                if (notificationFailure == null) {
-                    notificationFailure = exception;
+                deliveries.forEach(delivery -> failures.add(deliveryFailure(delivery, errorMessage(exception))));
+                return;
+            }
+
+            // 2. 按系统分组，已停用或删除的系统不再需要通知，直接结束其投递
+            Map<String, List<PermissionChangeDelivery>> deliveriesBySystem = new LinkedHashMap<>();
+            for (PermissionChangeDelivery delivery : deliveries) {
+                deliveriesBySystem.computeIfAbsent(delivery.systemCode(), ignored -> new ArrayList<>())
+                        .add(delivery);
+            }
+            deliveriesBySystem.forEach((systemCode, systemDeliveries) -> {
+                if (!notifiableSystemCodes.contains(systemCode)) {
+                    systemDeliveries.forEach(delivery -> succeededIds.add(delivery.id()));
+                    return;
+                }
+                redeliver(systemCode, systemDeliveries, succeededIds, failures);
+            });
+        } finally {
+            // 3. 成功与失败各用一次批量更新保存
+            LocalDateTime now = LocalDateTime.now(clock);
+            try {
+                if (!succeededIds.isEmpty()) {
+                    permissionChangeDeliveryRepository.markSucceeded(claimToken, succeededIds, now);
+                }
+            } finally {
+                if (!failures.isEmpty()) {
+                    permissionChangeDeliveryRepository.markFailed(claimToken, failures, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionChangePurgeResult purgeSucceededChanges(Duration retention, int limit) {
+        LocalDateTime processedBefore = LocalDateTime.now(clock).minus(retention);
+        int purgedRecords = permissionChangeRecordRepository.deleteSucceededBefore(processedBefore, limit);
+        int purgedDeliveries = permissionChangeDeliveryRepository.deleteSucceededBefore(processedBefore, limit);
+        return new PermissionChangePurgeResult(purgedRecords, purgedDeliveries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionChangeOutboxSize estimateOutboxSize() {
+        return new PermissionChangeOutboxSize(
+                permissionChangeRecordRepository.estimateRowCount(),
+                permissionChangeDeliveryRepository.estimateRowCount());
+    }
+
+    /**
+     * 向单个系统重发已保存版本号的通知；版本号来自首次下发，客户端按版本比较，重复或迟到的通知不会回退缓存。
+     *
+     * @param systemCode 业务系统编码
+     * @param deliveries 该系统的待重试投递
+     * @param succeededIds 投递成功的主键
+     * @param failures 投递失败结果
+     */
+    private void redeliver(String systemCode,
+                           List<PermissionChangeDelivery> deliveries,
+                           List<Long> succeededIds,
+                           List<PermissionChangeFailure> failures) {
+        // 1. 用户级投递一次批量发送，按逐条结果判定成败
+        List<PermissionChangeDelivery> userDeliveries = deliveries.stream()
+                .filter(delivery -> delivery.userId() != null)
+                .toList();
+        if (!userDeliveries.isEmpty()) {
+            Map<String, String> failedEvents = permissionNotificationRepository.notifyUsersChanged(
+                    systemCode,
+                    userDeliveries.stream()
+                            .map(delivery -> new UserPermissionNotification(
+                                    delivery.eventId(), delivery.userId(),
+                                    delivery.userPermissionVersion(), delivery.systemPermissionVersion()))
+                            .toList());
+            for (PermissionChangeDelivery delivery : userDeliveries) {
+                String failure = failedEvents.get(delivery.eventId());
+                if (failure == null) {
+                    succeededIds.add(delivery.id());
                 } else {
-                    notificationFailure.addSuppressed(exception);
+                    failures.add(deliveryFailure(delivery, truncate(failure)));
                 }
             }
         }
-        if (notificationFailure != null) {
-            throw notificationFailure;
+
+        // 2. 系统级投递逐条发送
+        for (PermissionChangeDelivery delivery : deliveries) {
+            if (delivery.userId() != null) {
+                continue;
+            }
+            try {
+                permissionNotificationRepository.notifySystemChanged(
+                        systemCode, delivery.eventId(), delivery.systemPermissionVersion());
+                succeededIds.add(delivery.id());
+            } catch (RuntimeException exception) {
+                failures.add(deliveryFailure(delivery, errorMessage(exception)));
+            }
         }
     }
 
     /**
-     * 记录下发失败并计算指数退避时间。
+     * 生成下发失败结果并计算指数退避时间。
      *
      * @param record 当前权限变更记录
      * @param exception 下发异常
+     * @return 待批量保存的失败结果
      */
-    private void markDispatchFailed(PermissionChangeRecord record, RuntimeException exception) {
+    private PermissionChangeFailure dispatchFailure(PermissionChangeRecord record, RuntimeException exception) {
         int retryCount = record.retryCount() + 1;
+        return new PermissionChangeFailure(
+                record.id(), retryCount, nextRetryTime(retryCount), errorMessage(exception));
+    }
+
+    /**
+     * 生成投递失败结果，按该投递自身的失败次数计算指数退避时间。
+     *
+     * @param delivery 当前投递
+     * @param lastError 失败原因
+     * @return 待批量保存的失败结果
+     */
+    private PermissionChangeFailure deliveryFailure(PermissionChangeDelivery delivery, String lastError) {
+        int retryCount = delivery.retryCount() + 1;
+        return new PermissionChangeFailure(delivery.id(), retryCount, nextRetryTime(retryCount), lastError);
+    }
+
+    /**
+     * 计算第 {@code retryCount} 次失败后的下次重试时间。
+     *
+     * @param retryCount 累计失败次数
+     * @return 下次重试时间
+     */
+    private LocalDateTime nextRetryTime(int retryCount) {
         long retryDelaySeconds = Math.min(
                 MAX_RETRY_DELAY_SECONDS,
                 1L << Math.min(retryCount - 1, 8));
-        LocalDateTime now = LocalDateTime.now(clock);
-        permissionChangeRecordRepository.markFailed(
-                record.id(), retryCount, now.plusSeconds(retryDelaySeconds),
-                errorMessage(exception), now);
+        return LocalDateTime.now(clock).plusSeconds(retryDelaySeconds);
     }
 
     /**
@@ -215,8 +741,110 @@ public class PermissionChangeDomainServiceImpl implements PermissionChangeDomain
         if (message == null || message.isBlank()) {
             message = exception.getClass().getName();
         }
+        return truncate(message);
+    }
+
+    /**
+     * 截断超出数据库字段长度的错误信息。
+     *
+     * @param message 错误信息
+     * @return 最大一千字符的错误信息
+     */
+    private String truncate(String message) {
         return message.length() <= MAX_ERROR_LENGTH
                 ? message
                 : message.substring(0, MAX_ERROR_LENGTH);
     }
+
+    /**
+     * 一批权限变更的下发结果。
+     *
+     * <p>代表记录的成败会展开到被它合并的全部记录；失败时每条记录按各自的失败次数计算退避。</p>
+     */
+    private final class DispatchResults {
+
+        /** 本批记录的领取令牌。 */
+        private final String claimToken;
+
+        /** 代表记录主键到其合并记录的映射。 */
+        private final Map<Long, List<PermissionChangeRecord>> coalescedRecords = new LinkedHashMap<>();
+
+        /** 下发成功的记录主键。 */
+        private final List<Long> succeededIds = new ArrayList<>();
+
+        /** 下发失败结果。 */
+        private final List<PermissionChangeFailure> failures = new ArrayList<>();
+
+        /** 版本已递增但个别系统通知失败的首次失败投递。 */
+        private final List<PermissionChangeDelivery> deliveries = new ArrayList<>();
+
+        /** 已完成一段展开、需继续下一段的角色级记录检查点。 */
+        private final List<PermissionChangeCheckpoint> checkpoints = new ArrayList<>();
+
+        /**
+         * 创建一批下发结果。
+         *
+         * @param claimToken 本批记录的领取令牌
+         */
+        private DispatchResults(String claimToken) {
+            this.claimToken = claimToken;
+        }
+
+        /**
+         * 登记代表记录及被其合并的记录。
+         *
+         * @param representative 实际下发的代表记录
+         * @param records 共享代表记录结果的全部记录，包含代表记录本身
+         */
+        private void coalesce(PermissionChangeRecord representative, List<PermissionChangeRecord> records) {
+            coalescedRecords.put(representative.id(), records);
+        }
+
+        /**
+         * 记录代表记录下发成功。
+         *
+         * @param representative 代表记录
+         */
+        private void succeeded(PermissionChangeRecord representative) {
+            coalescedRecords.getOrDefault(representative.id(), List.of(representative))
+                    .forEach(record -> succeededIds.add(record.id()));
+        }
+
+        /**
+         * 记录代表记录下发失败。
+         *
+         * @param representative 代表记录
+         * @param exception 下发异常
+         */
+        private void failed(PermissionChangeRecord representative, RuntimeException exception) {
+            coalescedRecords.getOrDefault(representative.id(), List.of(representative))
+                    .forEach(record -> failures.add(dispatchFailure(record, exception)));
+        }
+
+        /**
+         * 记录角色级或系统级代表记录完成一段展开。
+         *
+         * <p>被代表记录合并的其他记录保持各自原检查点放回待处理状态，随后重新领取，
+         * 不会在全量刷新完成前被提前标记成功。</p>
+         *
+         * @param representative 代表记录
+         * @param expandCursor 本段最后一个用户 ID
+         */
+        private void expanded(PermissionChangeRecord representative, long expandCursor) {
+            for (PermissionChangeRecord record
+                    : coalescedRecords.getOrDefault(representative.id(), List.of(representative))) {
+                checkpoints.add(new PermissionChangeCheckpoint(
+                        record.id(), record == representative ? expandCursor : record.expandCursor()));
+            }
+        }
+
+        /**
+         * 登记向单个系统的首次失败投递。
+         *
+         * @param delivery 首次失败的投递
+         */
+        private void deliveryFailed(PermissionChangeDelivery delivery) {
+            deliveries.add(delivery);
+        }
+    }
 }
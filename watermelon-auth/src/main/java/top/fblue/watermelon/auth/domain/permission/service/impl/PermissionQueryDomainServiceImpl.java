@@ -2,14 +2,21 @@ package top.fblue.watermelon.auth.domain.permission.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDictionaryRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionResourceQueryRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionSnapshotCacheRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionVersionRepository;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionQueryDomainService;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 权限查询领域服务实现。
@@ -24,22 +31,37 @@ public class PermissionQueryDomainServiceImpl implements PermissionQueryDomainSe
     /** 权限版本仓储。 */
     private final PermissionVersionRepository permissionVersionRepository;
 
+    /** 按权限版本校验的快照缓存仓储。 */
+    private final PermissionSnapshotCacheRepository permissionSnapshotCacheRepository;
+
+    /** 权限编码字典仓储。 */
+    private final PermissionDictionaryRepository permissionDictionaryRepository;
+
+    /** 按业务系统缓存的权限编码字典，按字典修订号校验。 */
+    private final Map<String, PermissionDictionary> dictionaries = new ConcurrentHashMap<>();
+
     /**
      * {@inheritDoc}
      */
     @Override
     public PermissionSnapshot getPermissionSnapshot(Long userId, String systemCode) {
-        // 1. 查询用户在目标业务系统中的有效权限资源
-        List<PermissionResource> resources = permissionResourceQueryRepository.findEffectiveResources(
-                userId, systemCode);
+        return loadSnapshot(userId, systemCode);
+    }
 
-        // 2. 查询用户级和系统级权限版本
-        long userPermissionVersion = permissionVersionRepository.getUserPermissionVersion(userId);
-        long systemPermissionVersion = permissionVersionRepository.getSystemPermissionVersion(systemCode);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionSnapshot> getPermissionSnapshots(List<Long> userIds, String systemCode) {
+        // 1. 单次读取全部用户及目标系统的权限版本
+        List<PermissionVersions> versions = permissionVersionRepository.getPermissionVersions(userIds, systemCode);
 
-        // 3. 构建不可变权限领域快照并返回
-        return new PermissionSnapshot(
-                userId, systemCode, resources, userPermissionVersion, systemPermissionVersion);
+        // 2. 按各自版本读取缓存或加载快照
+        List<PermissionSnapshot> snapshots = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            snapshots.add(loadSnapshot(userIds.get(i), systemCode, versions.get(i)));
+        }
+        return snapshots;
     }
 
     /**
@@ -47,13 +69,86 @@ public class PermissionQueryDomainServiceImpl implements PermissionQueryDomainSe
      */
     @Override
     public boolean hasApiPermission(Long userId, String systemCode, String resourceCode) {
-        // 1. 查询用户在目标系统中的有效权限资源
+        // 1. 读取与当前权限版本一致的快照，缓存未命中时才查询有效资源
+        PermissionSnapshot snapshot = loadSnapshot(userId, systemCode);
+
+        // 2. 只匹配接口类型及完整资源编码
+        return snapshot.hasPermission(PermissionResourceTypeEnum.API, resourceCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionVersions getPermissionVersions(Long userId, String systemCode) {
+        return permissionVersionRepository.getPermissionVersions(userId, systemCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>资源新增、更新和删除会在事务提交后递增所属系统的字典修订号，因此字典按该修订号校验缓存，
+     * 修订号变化后重新查询并计算内容摘要。修订号必须在查询条目之前读取，查询期间资源再次变化时
+     * 以旧修订号缓存的字典会在下一次读取时失效。</p>
+     */
+    @Override
+    public PermissionDictionary getPermissionDictionary(String systemCode) {
+        // 1. 命中同修订号的字典时直接返回
+        long revision = permissionVersionRepository.getDictionaryRevision(systemCode);
+        PermissionDictionary cachedDictionary = dictionaries.get(systemCode);
+        if (cachedDictionary != null && cachedDictionary.revision() == revision) {
+            return cachedDictionary;
+        }
+
+        // 2. 查询字典条目并构建新的字典版本
+        PermissionDictionary dictionary = PermissionDictionary.of(systemCode, revision,
+                permissionDictionaryRepository.findSystemDictionaryEntries(systemCode));
+        dictionaries.put(systemCode, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * 读取用户在目标系统中的权限快照，优先使用版本一致的缓存。
+     *
+     * <p>版本必须在查询资源之前读取：若查询期间权限再次变化，版本会被递增，
+     * 以旧版本写入的缓存会在下一次读取时自然失效，不会把旧资源标记为新版本。</p>
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @return 权限领域快照
+     */
+    private PermissionSnapshot loadSnapshot(Long userId, String systemCode) {
+        // 1. 单次读取用户级和系统级权限版本
+        PermissionVersions versions = getPermissionVersions(userId, systemCode);
+
+        // 2. 按版本读取缓存或加载快照
+        return loadSnapshot(userId, systemCode, versions);
+    }
+
+    /**
+     * 按已读取的权限版本返回同版本缓存，缓存未命中时加载有效资源。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @param versions 查询资源前读取的权限版本
+     * @return 权限领域快照
+     */
+    private PermissionSnapshot loadSnapshot(Long userId, String systemCode, PermissionVersions versions) {
+        // 1. 命中同版本缓存时直接返回
+        PermissionSnapshot cachedSnapshot = permissionSnapshotCacheRepository.find(
+                userId, systemCode, versions.userPermissionVersion(), versions.systemPermissionVersion());
+        if (cachedSnapshot != null) {
+            return cachedSnapshot;
+        }
+
+        // 2. 查询用户在目标业务系统中的有效权限资源
         List<PermissionResource> resources = permissionResourceQueryRepository.findEffectiveResources(
-                userId, systemCode);
+                userId, systemCode, versions);
 
-        // 2. 只匹配接口类型及完整资源编码，接口鉴权不额外读取版本
-        return resources.stream()
-                .anyMatch(resource -> PermissionResourceTypeEnum.API == resource.type()
-                        && resourceCode.equals(resource.code()));
+        // 3. 构建不可变权限领域快照，写入缓存后返回
+        PermissionSnapshot snapshot = new PermissionSnapshot(userId, systemCode, resources,
+                versions.userPermissionVersion(), versions.systemPermissionVersion());
+        permissionSnapshotCacheRepository.save(snapshot);
+        return snapshot;
     }
 }
@@ -46,6 +46,10 @@ public class AuthProperties {
     /** 是否允许注册 HTTP 回调地址；仅建议在本地开发环境启用。 */
     private boolean allowInsecureRedirects;
 
+    /** 向业务系统发起 Dubbo 直连调用时的熔断与舱壁配置。 */
+    @Valid
+    private ClientGuard clientGuard = new ClientGuard();
+
     /**
      * 单个 SSO 客户端的授权与退出通知配置。
      */
@@ -60,6 +64,9 @@ public class AuthProperties {
         /** 用户中心发送 Back-Channel sid 撤销通知时使用的 Dubbo 直连地址。 */
         private String dubboUrl;
 
+        /** 业务系统已实现 permissionChangedBatch 时开启，用户级权限通知按批发送。 */
+        private boolean batchNotification;
+
         /**
          * 校验启用的 Client 是否同时配置回调白名单和退出通知地址。
          *
@@ -73,4 +80,26 @@ public class AuthProperties {
                     && StringUtils.hasText(dubboUrl));
         }
     }
+
+    /**
+     * 按业务系统生效的熔断与舱壁配置。
+     */
+    @Data
+    public static class ClientGuard {
+        /** 连续失败达到该次数后熔断。 */
+        @Min(1)
+        private int failureThreshold = 5;
+
+        /** 熔断持续时间（毫秒），到期后放行一次试探调用。 */
+        @Min(1)
+        private long openDurationMs = 30_000L;
+
+        /** 单个业务系统同时进行的最大调用数。 */
+        @Min(1)
+        private int maxConcurrentCalls = 4;
+
+        /** 等待并发许可的最长时间（毫秒），超时后拒绝调用。 */
+        @Min(0)
+        private long maxWaitMs = 3_000L;
+    }
 }
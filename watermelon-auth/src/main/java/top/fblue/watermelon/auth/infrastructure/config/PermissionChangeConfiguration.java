@@ -1,8 +1,12 @@
 package top.fblue.watermelon.auth.infrastructure.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * 权限变更事务发件箱调度配置。
  *
@@ -11,4 +15,17 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @Configuration
 @EnableScheduling
 public class PermissionChangeConfiguration {
+
+    /**
+     * 权限变更并行下发使用的虚拟线程执行器。
+     *
+     * <p>下发任务主要阻塞在数据库、Redis 和 Dubbo 调用上，虚拟线程不占用平台线程；
+     * 并发上限由应用服务的分片数及通知仓储的单系统并发许可共同约束。</p>
+     *
+     * @return 每个任务一个虚拟线程的执行器
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService permissionDispatchExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
 }
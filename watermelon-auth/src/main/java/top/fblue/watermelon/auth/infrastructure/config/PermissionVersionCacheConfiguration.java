@@ -0,0 +1,38 @@
+package top.fblue.watermelon.auth.infrastructure.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import top.fblue.watermelon.auth.infrastructure.repository.RedisPermissionDispatchSignalRepositoryImpl;
+import top.fblue.watermelon.auth.infrastructure.repository.RedisPermissionVersionRepositoryImpl;
+
+/**
+ * 系统权限版本近端缓存和权限变更下发唤醒的 Redis 订阅配置。
+ */
+@Configuration
+public class PermissionVersionCacheConfiguration {
+
+    /**
+     * 订阅系统版本广播频道和下发唤醒频道，使各实例及时刷新本地系统版本并立即下发新提交的变更。
+     *
+     * @param connectionFactory Redis 连接工厂
+     * @param permissionVersionRepository Redis 权限版本仓储
+     * @param permissionDispatchSignalRepository Redis 下发唤醒信号仓储
+     * @return Redis 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer permissionVersionListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            RedisPermissionVersionRepositoryImpl permissionVersionRepository,
+            RedisPermissionDispatchSignalRepositoryImpl permissionDispatchSignalRepository) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(permissionVersionRepository,
+                new ChannelTopic(permissionVersionRepository.systemVersionChannel()));
+        container.addMessageListener(permissionDispatchSignalRepository,
+                new ChannelTopic(permissionDispatchSignalRepository.dispatchSignalChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,82 @@
+package top.fblue.watermelon.auth.infrastructure.converter;
+
+import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
+import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeDeliveryPO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 权限变更投递领域对象与持久化对象转换器。
+ */
+@Component
+public class PermissionChangeDeliveryConverter {
+
+    /**
+     * 将首次失败的投递转换为持久化对象。
+     *
+     * @param delivery 首次失败的投递
+     * @param nextRetryTime 下次重试时间
+     * @param now 创建时间
+     * @return 待插入的持久化对象
+     */
+    public PermissionChangeDeliveryPO toFailedPO(PermissionChangeDelivery delivery,
+                                                 LocalDateTime nextRetryTime,
+                                                 LocalDateTime now) {
+        return PermissionChangeDeliveryPO.builder()
+                .changeId(delivery.changeId())
+                .eventId(delivery.eventId())
+                .systemCode(delivery.systemCode())
+                .userId(delivery.userId())
+                .userPermissionVersion(delivery.userPermissionVersion())
+                .systemPermissionVersion(delivery.systemPermissionVersion())
+                .status(PermissionChangeStatusEnum.FAILED)
+                .retryCount(delivery.retryCount())
+                .nextRetryTime(nextRetryTime)
+                .lastError(delivery.lastError())
+                .createdTime(now)
+                .updatedTime(now)
+                .build();
+    }
+
+    /**
+     * 将投递失败结果转换为用于批量更新的持久化对象。
+     *
+     * @param failure 投递失败结果
+     * @return 仅包含失败相关字段的持久化对象
+     */
+    public PermissionChangeDeliveryPO toFailedPO(PermissionChangeFailure failure) {
+        return PermissionChangeDeliveryPO.builder()
+                .id(failure.id())
+                .retryCount(failure.retryCount())
+                .nextRetryTime(failure.nextRetryTime())
+                .lastError(failure.lastError())
+                .build();
+    }
+
+    /**
+     * 将持久化对象列表转换为领域投递列表。
+     *
+     * @param deliveries 投递持久化对象列表
+     * @return 领域投递列表
+     */
+    public List<PermissionChangeDelivery> toDomainList(List<PermissionChangeDeliveryPO> deliveries) {
+        return deliveries.stream().map(this::toDomain).toList();
+    }
+
+    /**
+     * 将持久化对象转换为领域投递。
+     *
+     * @param delivery 投递持久化对象
+     * @return 领域投递
+     */
+    private PermissionChangeDelivery toDomain(PermissionChangeDeliveryPO delivery) {
+        return new PermissionChangeDelivery(
+                delivery.getId(), delivery.getChangeId(), delivery.getEventId(), delivery.getSystemCode(),
+                delivery.getUserId(), delivery.getUserPermissionVersion(), delivery.getSystemPermissionVersion(),
+                delivery.getRetryCount(), delivery.getLastError(), delivery.getClaimToken());
+    }
+}
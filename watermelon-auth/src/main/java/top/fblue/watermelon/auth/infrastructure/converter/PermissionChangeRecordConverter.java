@@ -1,6 +1,8 @@
 package top.fblue.watermelon.auth.infrastructure.converter;
 
 import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeRecordPO;
 
@@ -23,12 +25,45 @@ public class PermissionChangeRecordConverter {
                 .id(record.id())
                 .eventId(record.eventId())
                 .changeType(record.changeType())
+                .priority(record.priority())
+                .shard(record.shard())
                 .userId(record.userId())
+                .scopeId(record.scopeId())
+                .systemCode(record.systemCode())
+                .expandCursor(record.expandCursor())
                 .status(record.status())
                 .retryCount(record.retryCount())
                 .build();
     }
 
+    /**
+     * 将下发失败结果转换为用于批量更新的持久化对象。
+     *
+     * @param failure 下发失败结果
+     * @return 仅包含失败相关字段的持久化对象
+     */
+    public PermissionChangeRecordPO toFailedPO(PermissionChangeFailure failure) {
+        return PermissionChangeRecordPO.builder()
+                .id(failure.id())
+                .retryCount(failure.retryCount())
+                .nextRetryTime(failure.nextRetryTime())
+                .lastError(failure.lastError())
+                .build();
+    }
+
+    /**
+     * 将展开检查点转换为用于批量更新的持久化对象。
+     *
+     * @param checkpoint 展开检查点
+     * @return 仅包含主键和展开游标的持久化对象
+     */
+    public PermissionChangeRecordPO toExpandedPO(PermissionChangeCheckpoint checkpoint) {
+        return PermissionChangeRecordPO.builder()
+                .id(checkpoint.id())
+                .expandCursor(checkpoint.expandCursor())
+                .build();
+    }
+
     /**
      * 将持久化对象列表转换为领域记录列表。
      *
@@ -47,7 +82,8 @@ public class PermissionChangeRecordConverter {
      */
     private PermissionChangeRecord toDomain(PermissionChangeRecordPO record) {
         return new PermissionChangeRecord(
-                record.getId(), record.getEventId(), record.getChangeType(), record.getUserId(),
-                record.getStatus(), record.getRetryCount());
+                record.getId(), record.getEventId(), record.getChangeType(), record.getPriority(),
+                record.getUserId(), record.getScopeId(), record.getSystemCode(), record.getStatus(), record.getRetryCount(),
+                record.getExpandCursor() == null ? 0L : record.getExpandCursor(), record.getClaimToken());
     }
 }
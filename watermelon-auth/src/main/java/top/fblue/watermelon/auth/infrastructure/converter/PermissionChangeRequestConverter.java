@@ -2,6 +2,7 @@ package top.fblue.watermelon.auth.infrastructure.converter;
 
 import org.springframework.stereotype.Component;
 import top.fblue.watermelon.api.request.PermissionChangeRequest;
+import top.fblue.watermelon.auth.domain.permission.entity.UserPermissionNotification;
 
 /**
  * 权限变更通知请求转换器。
@@ -12,24 +13,18 @@ public class PermissionChangeRequestConverter {
     /**
      * 构造用户级权限变更通知。
      *
-     * @param eventId 事件 ID
      * @param systemCode 目标系统编码
-     * @param userId 受影响用户 ID
-     * @param userPermissionVersion 用户维度权限版本
-     * @param systemPermissionVersion 系统维度权限版本
+     * @param notification 用户级权限变更通知内容
      * @return 用户级权限变更通知
      */
-    public PermissionChangeRequest toUserChangedRequest(String eventId,
-                                                        String systemCode,
-                                                        Long userId,
-                                                        long userPermissionVersion,
-                                                        long systemPermissionVersion) {
+    public PermissionChangeRequest toUserChangedRequest(String systemCode,
+                                                        UserPermissionNotification notification) {
         return PermissionChangeRequest.builder()
-                .eventId(eventId)
+                .eventId(notification.eventId())
                 .systemCode(systemCode)
-                .userId(userId)
-                .userPermissionVersion(userPermissionVersion)
-                .systemPermissionVersion(systemPermissionVersion)
+                .userId(notification.userId())
+                .userPermissionVersion(notification.userPermissionVersion())
+                .systemPermissionVersion(notification.systemPermissionVersion())
                 .build();
     }
 
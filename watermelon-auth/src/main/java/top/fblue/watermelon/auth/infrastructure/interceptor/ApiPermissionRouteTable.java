@@ -0,0 +1,118 @@
+package top.fblue.watermelon.auth.infrastructure.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 启动时编译的接口权限路由表。
+ *
+ * <p>容器刷新后遍历 Spring MVC 的全部处理器方法，为每个 (处理器方法, URI 模板, HTTP 方法)
+ * 预先生成接口资源编码 {@code systemCode:METHOD:/uri/{template}}。路径变量由 Spring
+ * 的路径模式匹配器在分派时解析，拦截器只需按命中的模板查表，既避免每次请求拼接字符串，
+ * 也让携带 ID 的 URI 统一映射到同一个接口资源。</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ApiPermissionRouteTable implements ApplicationListener<ContextRefreshedEvent> {
+
+    /** Auth 模块及当前服务端 Client 配置。 */
+    private final AuthProperties authProperties;
+
+    /** 已编译的路由到接口资源编码映射；发布后不再修改。 */
+    private volatile Map<RouteKey, String> resourceCodes = Map.of();
+
+    /**
+     * 容器刷新后从全部注解处理器映射编译路由表。
+     *
+     * @param event 容器刷新事件
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+        for (RequestMappingHandlerMapping handlerMapping : event.getApplicationContext()
+                .getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            handlerMethods.putAll(handlerMapping.getHandlerMethods());
+        }
+        compile(handlerMethods);
+    }
+
+    /**
+     * 根据处理器方法映射编译路由表。
+     *
+     * <p>未声明 HTTP 方法的映射不预编译，请求时回退为按实际 HTTP 方法构造编码。</p>
+     *
+     * @param handlerMethods 请求映射到处理器方法的映射
+     */
+    public void compile(Map<RequestMappingInfo, HandlerMethod> handlerMethods) {
+        String systemCode = authProperties.getServerClientId();
+        Map<RouteKey, String> compiled = new HashMap<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMethods.entrySet()) {
+            Set<RequestMethod> httpMethods = entry.getKey().getMethodsCondition().getMethods();
+            for (String pattern : entry.getKey().getPatternValues()) {
+                for (RequestMethod httpMethod : httpMethods) {
+                    compiled.put(new RouteKey(entry.getValue().getMethod(), pattern, httpMethod.name()),
+                            toResourceCode(systemCode, httpMethod.name(), pattern));
+                }
+            }
+        }
+        resourceCodes = Map.copyOf(compiled);
+    }
+
+    /**
+     * 解析当前请求对应的接口资源编码。
+     *
+     * @param request HTTP 请求
+     * @param handler 当前请求处理器
+     * @return 预编译的接口资源编码；非注解处理器或未编译路由按请求 URI 构造
+     */
+    public String resolve(HttpServletRequest request, Object handler) {
+        // 1. 注解处理器按命中的 URI 模板查找预编译编码
+        if (handler instanceof HandlerMethod handlerMethod
+                && request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern) {
+            String resourceCode = resourceCodes.get(
+                    new RouteKey(handlerMethod.getMethod(), pattern, request.getMethod()));
+            if (resourceCode != null) {
+                return resourceCode;
+            }
+        }
+
+        // 2. 其余请求沿用完整请求 URI 构造编码
+        return toResourceCode(authProperties.getServerClientId(), request.getMethod(), request.getRequestURI());
+    }
+
+    /**
+     * 构造接口资源编码。
+     *
+     * @param systemCode 当前系统编码
+     * @param httpMethod HTTP 方法
+     * @param path URI 模板或请求 URI
+     * @return 完整接口资源编码
+     */
+    private String toResourceCode(String systemCode, String httpMethod, String path) {
+        return systemCode + ":" + httpMethod + ":" + path;
+    }
+
+    /**
+     * 路由表键。
+     *
+     * @param handlerMethod 处理器方法
+     * @param pattern URI 模板
+     * @param httpMethod HTTP 方法
+     */
+    private record RouteKey(Method handlerMethod, String pattern, String httpMethod) {
+    }
+}
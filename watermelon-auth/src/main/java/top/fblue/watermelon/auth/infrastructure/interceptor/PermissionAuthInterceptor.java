@@ -14,7 +14,7 @@ import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
 /**
  * 当前系统 HTTP 接口权限校验拦截器。
  *
- * <p>拦截器只负责从请求中提取身份和构造接口资源编码，实际权限判断统一委托给
+ * <p>拦截器只负责从请求中提取身份和解析接口资源编码，实际权限判断统一委托给
  * auth 应用服务；具体拦截路径仍由宿主 service 模块注册。</p>
  */
 @Slf4j
@@ -28,6 +28,9 @@ public class PermissionAuthInterceptor implements HandlerInterceptor {
     /** 运行时权限应用服务。 */
     private final PermissionApplicationService permissionApplicationService;
 
+    /** 启动时编译的接口权限路由表。 */
+    private final ApiPermissionRouteTable apiPermissionRouteTable;
+
     /**
      * 根据当前用户、HTTP 方法和请求路径校验接口资源权限。
      *
@@ -46,9 +49,9 @@ public class PermissionAuthInterceptor implements HandlerInterceptor {
             return false;
         }
 
-        // 2. 根据当前系统、HTTP 方法和请求路径构造完整接口权限编码
+        // 2. 按处理器方法和 URI 模板查找预编译的接口权限编码
         String systemCode = authProperties.getServerClientId();
-        String resourceCode = systemCode + ":" + request.getMethod() + ":" + request.getRequestURI();
+        String resourceCode = apiPermissionRouteTable.resolve(request, handler);
         log.debug("用户 {} 请求资源: {}", principal.getUserId(), resourceCode);
 
         // 3. 委托运行时鉴权应用服务判断接口权限
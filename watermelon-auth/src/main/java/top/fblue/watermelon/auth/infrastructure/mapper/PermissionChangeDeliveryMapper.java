@@ -0,0 +1,189 @@
+package top.fblue.watermelon.auth.infrastructure.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeDeliveryPO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 权限变更按业务系统的失败投递 Mapper。
+ */
+@Mapper
+public interface PermissionChangeDeliveryMapper {
+
+    /**
+     * 批量插入失败投递；同一事件与系统的投递已存在时忽略。
+     *
+     * @param deliveries 待插入投递
+     * @return 实际插入数量
+     */
+    @Insert({
+            "<script>",
+            "INSERT IGNORE INTO permission_change_delivery ",
+            "(change_id, event_id, system_code, user_id, user_permission_version, system_permission_version, ",
+            "status, retry_count, next_retry_time, last_error, created_time, updated_time) ",
+            "VALUES ",
+            "<foreach collection='deliveries' item='delivery' separator=','>",
+            "(#{delivery.changeId}, #{delivery.eventId}, #{delivery.systemCode}, #{delivery.userId}, ",
+            "#{delivery.userPermissionVersion}, #{delivery.systemPermissionVersion}, #{delivery.status}, ",
+            "#{delivery.retryCount}, #{delivery.nextRetryTime}, #{delivery.lastError}, ",
+            "#{delivery.createdTime}, #{delivery.updatedTime})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertIgnoreBatch(@Param("deliveries") List<PermissionChangeDeliveryPO> deliveries);
+
+    /**
+     * 为到期或处理超时的投递写入领取令牌，一条语句最多领取 {@code limit} 条。
+     *
+     * @param claimToken 本次领取令牌
+     * @param now 领取时间
+     * @param processingTimeoutBefore 处理超时边界
+     * @param limit 最大领取数量
+     * @return 领取数量
+     */
+    @Update("""
+            UPDATE permission_change_delivery
+            SET status = 'PROCESSING',
+                processing_started_time = #{now},
+                claim_token = #{claimToken},
+                updated_time = #{now}
+            WHERE is_deleted = 0
+              AND ((status = 'FAILED' AND next_retry_time <= #{now})
+                OR (status = 'PROCESSING' AND processing_started_time <= #{processingTimeoutBefore}))
+            ORDER BY id
+            LIMIT #{limit}
+            """)
+    int claimDispatchable(@Param("claimToken") String claimToken,
+                          @Param("now") LocalDateTime now,
+                          @Param("processingTimeoutBefore") LocalDateTime processingTimeoutBefore,
+                          @Param("limit") int limit);
+
+    /**
+     * 查询指定令牌领取的处理中投递。
+     *
+     * @param claimToken 领取令牌
+     * @return 本次领取的投递
+     */
+    @Select("""
+            SELECT id,
+                   change_id AS changeId,
+                   event_id AS eventId,
+                   system_code AS systemCode,
+                   user_id AS userId,
+                   user_permission_version AS userPermissionVersion,
+                   system_permission_version AS systemPermissionVersion,
+                   status,
+                   retry_count AS retryCount,
+                   next_retry_time AS nextRetryTime,
+                   processing_started_time AS processingStartedTime,
+                   claim_token AS claimToken,
+                   processed_time AS processedTime,
+                   last_error AS lastError,
+                   created_time AS createdTime,
+                   updated_time AS updatedTime,
+                   is_deleted AS isDeleted
+            FROM permission_change_delivery
+            WHERE claim_token = #{claimToken}
+              AND status = 'PROCESSING'
+              AND is_deleted = 0
+            ORDER BY id
+            """)
+    List<PermissionChangeDeliveryPO> selectByClaimToken(@Param("claimToken") String claimToken);
+
+    /**
+     * 批量标记投递成功。
+     *
+     * @param claimToken 领取令牌
+     * @param ids 投递主键
+     * @param processedTime 完成时间
+     * @return 更新数量
+     */
+    @Update({
+            "<script>",
+            "UPDATE permission_change_delivery ",
+            "SET status = 'SUCCEEDED', ",
+            "processing_started_time = NULL, ",
+            "processed_time = #{processedTime}, ",
+            "last_error = NULL, ",
+            "updated_time = #{processedTime} ",
+            "WHERE id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            " AND status = 'PROCESSING' ",
+            "AND claim_token = #{claimToken} ",
+            "AND is_deleted = 0",
+            "</script>"
+    })
+    int markSucceededBatch(@Param("claimToken") String claimToken,
+                           @Param("ids") List<Long> ids,
+                           @Param("processedTime") LocalDateTime processedTime);
+
+    /**
+     * 批量标记投递失败，每条投递使用各自的失败次数、重试时间和错误摘要。
+     *
+     * @param claimToken 领取令牌
+     * @param deliveries 携带主键、失败次数、下次重试时间和错误摘要的持久化对象
+     * @param updatedTime 更新时间
+     * @return 更新数量
+     */
+    @Update({
+            "<script>",
+            "UPDATE permission_change_delivery ",
+            "SET status = 'FAILED', ",
+            "retry_count = CASE id ",
+            "<foreach collection='deliveries' item='delivery'>WHEN #{delivery.id} THEN #{delivery.retryCount} </foreach>",
+            "END, ",
+            "next_retry_time = CASE id ",
+            "<foreach collection='deliveries' item='delivery'>WHEN #{delivery.id} THEN #{delivery.nextRetryTime} </foreach>",
+            "END, ",
+            "last_error = CASE id ",
+            "<foreach collection='deliveries' item='delivery'>WHEN #{delivery.id} THEN #{delivery.lastError} </foreach>",
+            "END, ",
+            "processing_started_time = NULL, ",
+            "updated_time = #{updatedTime} ",
+            "WHERE id IN ",
+            "<foreach collection='deliveries' item='delivery' open='(' separator=',' close=')'>#{delivery.id}</foreach>",
+            " AND status = 'PROCESSING' ",
+            "AND claim_token = #{claimToken} ",
+            "AND is_deleted = 0",
+            "</script>"
+    })
+    int markFailedBatch(@Param("claimToken") String claimToken,
+                        @Param("deliveries") List<PermissionChangeDeliveryPO> deliveries,
+                        @Param("updatedTime") LocalDateTime updatedTime);
+
+    /**
+     * 按投递时间从早到晚物理删除一批已成功的投递。
+     *
+     * @param processedBefore 投递成功时间上界（不含）
+     * @param limit 最大删除数量
+     * @return 删除数量
+     */
+    @Delete("""
+            DELETE FROM permission_change_delivery
+            WHERE status = 'SUCCEEDED'
+              AND processed_time < #{processedBefore}
+            ORDER BY processed_time
+            LIMIT #{limit}
+            """)
+    int deleteSucceededBefore(@Param("processedBefore") LocalDateTime processedBefore, @Param("limit") int limit);
+
+    /**
+     * 读取存储引擎统计的按系统投递表行数。
+     *
+     * @return 估算行数；统计信息缺失时为空
+     */
+    @Select("""
+            SELECT TABLE_ROWS
+            FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE()
+              AND TABLE_NAME = 'permission_change_delivery'
+            """)
+    Long selectEstimatedRowCount();
+}
@@ -1,13 +1,16 @@
 package top.fblue.watermelon.auth.infrastructure.mapper;
 
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
 import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeRecordPO;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,11 +28,14 @@ public interface PermissionChangeRecordMapper {
     @Insert({
             "<script>",
             "INSERT INTO permission_change_record ",
-            "(event_id, change_type, user_id, status, retry_count, next_retry_time, ",
-            "processing_started_time, processed_time, last_error, created_time, updated_time) ",
+            "(event_id, change_type, priority, shard, user_id, scope_id, system_code, expand_cursor, status, ",
+            "retry_count, next_retry_time, processing_started_time, processed_time, last_error, ",
+            "created_time, updated_time) ",
             "VALUES ",
             "<foreach collection='records' item='record' separator=','>",
-            "(#{record.eventId}, #{record.changeType}, #{record.userId}, #{record.status}, ",
+            "(#{record.eventId}, #{record.changeType}, #{record.priority}, #{record.shard}, #{record.userId}, ",
+            "#{record.scopeId}, ",
+            "#{record.systemCode}, #{record.expandCursor}, #{record.status}, ",
             "#{record.retryCount}, #{record.nextRetryTime}, #{record.processingStartedTime}, ",
             "#{record.processedTime}, #{record.lastError}, #{record.createdTime}, #{record.updatedTime})",
             "</foreach>",
@@ -38,105 +44,255 @@ public interface PermissionChangeRecordMapper {
     int insertBatch(@Param("records") List<PermissionChangeRecordPO> records);
 
     /**
-     * 查询到期或处理超时的权限变更记录。
+     * 为指定优先级队列中已到期的待处理或失败记录写入领取令牌，一条语句最多领取 {@code limit} 条。
      *
-     * @param now 当前时间
+     * <p>条件与排序均落在 {@code (priority, shard, status, next_retry_time)} 索引上，
+     * 各实例只扫描并锁定自身分片内已到期的索引区间。</p>
+     *
+     * @param priority 下发优先级
+     * @param shards 限定领取的分片号；为空时领取全部分片
+     * @param claimToken 本次领取令牌
+     * @param claimOwner 领取实例标识
+     * @param now 领取时间
+     * @param limit 最大领取数量
+     * @return 领取数量
+     */
+    @Update("""
+            <script>
+            UPDATE permission_change_record
+            SET status = 'PROCESSING',
+                processing_started_time = #{now},
+                claim_token = #{claimToken},
+                claim_owner = #{claimOwner},
+                updated_time = #{now}
+            WHERE priority = #{priority}
+              <if test='shards != null'>
+                AND shard IN
+                <foreach collection='shards' item='shard' open='(' separator=',' close=')'>#{shard}</foreach>
+              </if>
+              AND status IN ('PENDING', 'FAILED')
+              AND next_retry_time &lt;= #{now}
+              AND is_deleted = 0
+            ORDER BY next_retry_time
+            LIMIT #{limit}
+            </script>
+            """)
+    int claimDue(@Param("priority") PermissionChangePriorityEnum priority,
+                 @Param("shards") Collection<Integer> shards,
+                 @Param("claimToken") String claimToken,
+                 @Param("claimOwner") String claimOwner,
+                 @Param("now") LocalDateTime now,
+                 @Param("limit") int limit);
+
+    /**
+     * 为指定优先级队列中处理超时的记录重新写入领取令牌，一条语句最多领取 {@code limit} 条。
+     *
+     * <p>条件与排序均落在 {@code (priority, shard, status, processing_started_time)} 索引上，
+     * 与到期记录分开领取，避免 {@code OR} 条件退化为按主键扫描全部分片。</p>
+     *
+     * @param priority 下发优先级
+     * @param shards 限定领取的分片号；为空时领取全部分片
+     * @param claimToken 本次领取令牌
+     * @param claimOwner 领取实例标识
+     * @param now 领取时间
      * @param processingTimeoutBefore 处理超时边界
-     * @param limit 最大查询数量
-     * @return 可领取记录
+     * @param limit 最大领取数量
+     * @return 领取数量
+     */
+    @Update("""
+            <script>
+            UPDATE permission_change_record
+            SET processing_started_time = #{now},
+                claim_token = #{claimToken},
+                claim_owner = #{claimOwner},
+                updated_time = #{now}
+            WHERE priority = #{priority}
+              <if test='shards != null'>
+                AND shard IN
+                <foreach collection='shards' item='shard' open='(' separator=',' close=')'>#{shard}</foreach>
+              </if>
+              AND status = 'PROCESSING'
+              AND processing_started_time &lt;= #{processingTimeoutBefore}
+              AND is_deleted = 0
+            ORDER BY processing_started_time
+            LIMIT #{limit}
+            </script>
+            """)
+    int claimTimedOut(@Param("priority") PermissionChangePriorityEnum priority,
+                      @Param("shards") Collection<Integer> shards,
+                      @Param("claimToken") String claimToken,
+                      @Param("claimOwner") String claimOwner,
+                      @Param("now") LocalDateTime now,
+                      @Param("processingTimeoutBefore") LocalDateTime processingTimeoutBefore,
+                      @Param("limit") int limit);
+
+    /**
+     * 查询指定令牌领取的处理中记录。
+     *
+     * @param claimToken 领取令牌
+     * @return 本次领取的记录
      */
     @Select("""
             SELECT id,
                    event_id AS eventId,
                    change_type AS changeType,
+                   priority,
                    user_id AS userId,
+                   scope_id AS scopeId,
+                   system_code AS systemCode,
+                   expand_cursor AS expandCursor,
                    status,
                    retry_count AS retryCount,
                    next_retry_time AS nextRetryTime,
                    processing_started_time AS processingStartedTime,
+                   claim_token AS claimToken,
+                   claim_owner AS claimOwner,
                    processed_time AS processedTime,
                    last_error AS lastError,
                    created_time AS createdTime,
                    updated_time AS updatedTime,
                    is_deleted AS isDeleted
             FROM permission_change_record
-            WHERE is_deleted = 0
-              AND ((status IN ('PENDING', 'FAILED') AND next_retry_time <= #{now})
-               OR (status = 'PROCESSING' AND processing_started_time <= #{processingTimeoutBefore}))
+            WHERE claim_token = #{claimToken}
+              AND status = 'PROCESSING'
+              AND is_deleted = 0
             ORDER BY id
-            LIMIT #{limit}
             """)
-    List<PermissionChangeRecordPO> selectDispatchable(@Param("now") LocalDateTime now,
-                                                      @Param("processingTimeoutBefore") LocalDateTime processingTimeoutBefore,
-                                                      @Param("limit") int limit);
+    List<PermissionChangeRecordPO> selectByClaimToken(@Param("claimToken") String claimToken);
 
     /**
-     * 原子领取待处理或已超时记录。
+     * 按优先级查询已到期待处理记录中最早的可处理时间。
      *
-     * @param id 记录主键
-     * @param now 领取时间
-     * @param processingTimeoutBefore 处理超时边界
-     * @return 更新数量
+     * @param now 查询时间
+     * @return 每个存在积压的优先级一条，仅包含优先级和最早可处理时间
      */
-    @Update("""
-            UPDATE permission_change_record
-            SET status = 'PROCESSING',
-                processing_started_time = #{now},
-                updated_time = #{now}
-            WHERE id = #{id}
+    @Select("""
+            SELECT priority,
+                   MIN(next_retry_time) AS nextRetryTime
+            FROM permission_change_record
+            WHERE status IN ('PENDING', 'FAILED')
+              AND next_retry_time <= #{now}
               AND is_deleted = 0
-              AND ((status IN ('PENDING', 'FAILED') AND next_retry_time <= #{now})
-                OR (status = 'PROCESSING' AND processing_started_time <= #{processingTimeoutBefore}))
+            GROUP BY priority
             """)
-    int markProcessing(@Param("id") Long id,
-                       @Param("now") LocalDateTime now,
-                       @Param("processingTimeoutBefore") LocalDateTime processingTimeoutBefore);
+    List<PermissionChangeRecordPO> selectOldestDueTimeByPriority(@Param("now") LocalDateTime now);
 
     /**
-     * 标记权限变更记录处理成功。
+     * 批量标记权限变更记录处理成功。
      *
-     * @param id 记录主键
+     * @param claimToken 领取令牌
+     * @param ids 记录主键
      * @param processedTime 完成时间
      * @return 更新数量
      */
-    @Update("""
-            UPDATE permission_change_record
-            SET status = 'SUCCEEDED',
-                processing_started_time = NULL,
-                processed_time = #{processedTime},
-                last_error = NULL,
-                updated_time = #{processedTime}
-            WHERE id = #{id}
-              AND status = 'PROCESSING'
-              AND is_deleted = 0
-            """)
-    int markSucceeded(@Param("id") Long id, @Param("processedTime") LocalDateTime processedTime);
+    @Update({
+            "<script>",
+            "UPDATE permission_change_record ",
+            "SET status = 'SUCCEEDED', ",
+            "processing_started_time = NULL, ",
+            "processed_time = #{processedTime}, ",
+            "last_error = NULL, ",
+            "updated_time = #{processedTime} ",
+            "WHERE id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            " AND status = 'PROCESSING' ",
+            "AND claim_token = #{claimToken} ",
+            "AND is_deleted = 0",
+            "</script>"
+    })
+    int markSucceededBatch(@Param("claimToken") String claimToken,
+                           @Param("ids") List<Long> ids,
+                           @Param("processedTime") LocalDateTime processedTime);
 
     /**
-     * 标记权限变更处理失败并安排重试。
+     * 批量标记权限变更处理失败，每条记录使用各自的失败次数、重试时间和错误摘要。
      *
-     * @param id 记录主键
-     * @param retryCount 最新失败次数
-     * @param nextRetryTime 下次重试时间
-     * @param lastError 最近错误摘要
+     * @param claimToken 领取令牌
+     * @param records 携带主键、失败次数、下次重试时间和错误摘要的持久化对象
      * @param updatedTime 更新时间
      * @return 更新数量
      */
-    @Update("""
-            UPDATE permission_change_record
-            SET status = 'FAILED',
-                retry_count = #{retryCount},
-                next_retry_time = #{nextRetryTime},
-                processing_started_time = NULL,
-                last_error = #{lastError},
-                updated_time = #{updatedTime}
-            WHERE id = #{id}
-              AND status = 'PROCESSING'
-              AND is_deleted = 0
+    @Update({
+            "<script>",
+            "UPDATE permission_change_record ",
+            "SET status = 'FAILED', ",
+            "retry_count = CASE id ",
+            "<foreach collection='records' item='record'>WHEN #{record.id} THEN #{record.retryCount} </foreach>",
+            "END, ",
+            "next_retry_time = CASE id ",
+            "<foreach collection='records' item='record'>WHEN #{record.id} THEN #{record.nextRetryTime} </foreach>",
+            "END, ",
+            "last_error = CASE id ",
+            "<foreach collection='records' item='record'>WHEN #{record.id} THEN #{record.lastError} </foreach>",
+            "END, ",
+            "processing_started_time = NULL, ",
+            "updated_time = #{updatedTime} ",
+            "WHERE id IN ",
+            "<foreach collection='records' item='record' open='(' separator=',' close=')'>#{record.id}</foreach>",
+            " AND status = 'PROCESSING' ",
+            "AND claim_token = #{claimToken} ",
+            "AND is_deleted = 0",
+            "</script>"
+    })
+    int markFailedBatch(@Param("claimToken") String claimToken,
+                        @Param("records") List<PermissionChangeRecordPO> records,
+                        @Param("updatedTime") LocalDateTime updatedTime);
+
+    /**
+     * 批量保存角色级变更的展开检查点，并将记录放回待处理状态以继续展开下一段。
+     *
+     * @param claimToken 领取令牌
+     * @param records 携带主键和展开游标的持久化对象
+     * @param updatedTime 更新时间，同时作为下次可处理时间
+     * @return 更新数量
+     */
+    @Update({
+            "<script>",
+            "UPDATE permission_change_record ",
+            "SET status = 'PENDING', ",
+            "expand_cursor = CASE id ",
+            "<foreach collection='records' item='record'>WHEN #{record.id} THEN #{record.expandCursor} </foreach>",
+            "END, ",
+            "next_retry_time = #{updatedTime}, ",
+            "processing_started_time = NULL, ",
+            "updated_time = #{updatedTime} ",
+            "WHERE id IN ",
+            "<foreach collection='records' item='record' open='(' separator=',' close=')'>#{record.id}</foreach>",
+            " AND status = 'PROCESSING' ",
+            "AND claim_token = #{claimToken} ",
+            "AND is_deleted = 0",
+            "</script>"
+    })
+    int markExpandedBatch(@Param("claimToken") String claimToken,
+                          @Param("records") List<PermissionChangeRecordPO> records,
+                          @Param("updatedTime") LocalDateTime updatedTime);
+
+    /**
+     * 按处理时间从早到晚物理删除一批已成功的权限变更记录。
+     *
+     * @param processedBefore 处理时间上界（不含）
+     * @param limit 最大删除数量
+     * @return 删除数量
+     */
+    @Delete("""
+            DELETE FROM permission_change_record
+            WHERE status = 'SUCCEEDED'
+              AND processed_time < #{processedBefore}
+            ORDER BY processed_time
+            LIMIT #{limit}
+            """)
+    int deleteSucceededBefore(@Param("processedBefore") LocalDateTime processedBefore, @Param("limit") int limit);
+
+    /**
+     * 读取存储引擎统计的权限变更记录表行数。
+     *
+     * @return 估算行数；统计信息缺失时为空
+     */
+    @Select("""
+            SELECT TABLE_ROWS
+            FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE()
+              AND TABLE_NAME = 'permission_change_record'
             """)
-    int markFailed(@Param("id") Long id,
-                   @Param("retryCount") int retryCount,
-                   @Param("nextRetryTime") LocalDateTime nextRetryTime,
-                   @Param("lastError") String lastError,
-                   @Param("updatedTime") LocalDateTime updatedTime);
+    Long selectEstimatedRowCount();
 }
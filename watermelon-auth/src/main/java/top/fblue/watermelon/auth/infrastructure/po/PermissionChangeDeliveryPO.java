@@ -0,0 +1,83 @@
+package top.fblue.watermelon.auth.infrastructure.po;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableLogic;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
+
+import java.time.LocalDateTime;
+
+/**
+ * 权限变更按业务系统的失败投递持久化对象。
+ * 对应数据库表 permission_change_delivery。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("permission_change_delivery")
+public class PermissionChangeDeliveryPO {
+
+    /** 投递 ID。 */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 所属权限变更记录 ID。 */
+    private Long changeId;
+
+    /** 幂等事件 ID。 */
+    private String eventId;
+
+    /** 目标业务系统编码。 */
+    private String systemCode;
+
+    /** 受影响用户 ID。 */
+    private Long userId;
+
+    /** 待通知的用户维度权限版本。 */
+    private Long userPermissionVersion;
+
+    /** 待通知的系统维度权限版本。 */
+    private Long systemPermissionVersion;
+
+    /** 当前投递状态。 */
+    private PermissionChangeStatusEnum status;
+
+    /** 已失败次数。 */
+    private Integer retryCount;
+
+    /** 下次可投递时间。 */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime nextRetryTime;
+
+    /** 本次领取时间。 */
+    private LocalDateTime processingStartedTime;
+
+    /** 最近一次批量领取令牌。 */
+    private String claimToken;
+
+    /** 投递成功时间。 */
+    private LocalDateTime processedTime;
+
+    /** 最近失败原因。 */
+    private String lastError;
+
+    /** 创建时间。 */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdTime;
+
+    /** 更新时间。 */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedTime;
+
+    /** 是否删除：0 未删除，1 已删除。 */
+    @TableLogic
+    private Integer isDeleted;
+}
@@ -10,6 +10,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
 
@@ -36,9 +37,24 @@ public class PermissionChangeRecordPO {
     /** 权限变更范围。 */
     private PermissionChangeTypeEnum changeType;
 
+    /** 下发优先级。 */
+    private PermissionChangePriorityEnum priority;
+
+    /** 发件箱分片号。 */
+    private Integer shard;
+
     /** 受影响用户 ID。 */
     private Long userId;
 
+    /** 变更范围主键，角色级变更为角色 ID。 */
+    private Long scopeId;
+
+    /** 限定的业务系统编码，为空时涉及全部系统。 */
+    private String systemCode;
+
+    /** 角色级变更已展开到的最大用户 ID。 */
+    private Long expandCursor;
+
     /** 当前处理状态。 */
     private PermissionChangeStatusEnum status;
 
@@ -52,6 +68,12 @@ public class PermissionChangeRecordPO {
     /** 本次领取时间。 */
     private LocalDateTime processingStartedTime;
 
+    /** 最近一次批量领取令牌。 */
+    private String claimToken;
+
+    /** 最近一次领取的实例标识。 */
+    private String claimOwner;
+
     /** 成功处理时间。 */
     private LocalDateTime processedTime;
 
@@ -10,12 +10,16 @@ import top.fblue.watermelon.api.SystemTokenRevokeRpc;
 import top.fblue.watermelon.api.request.TokenRevokeRequest;
 import top.fblue.watermelon.auth.domain.user.repository.AuthRepository;
 import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
+import top.fblue.watermelon.auth.infrastructure.rpc.SystemRpcGuard;
+import top.fblue.watermelon.auth.infrastructure.rpc.SystemRpcRejectedException;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通过 Dubbo 直连方式向各 SSO 客户端发送全局会话撤销通知的仓储实现。
+ *
+ * <p>调用经过 {@link SystemRpcGuard}，已熔断的客户端不再让退出请求等待 RPC 超时。</p>
  */
 @Slf4j
 @Repository
@@ -24,6 +28,8 @@ public class AuthRepositoryImpl implements AuthRepository {
 
     /** SSO 客户端及其 Dubbo 地址配置。 */
     private final AuthProperties authProperties;
+    /** 按客户端生效的熔断器与并发舱壁。 */
+    private final SystemRpcGuard systemRpcGuard;
     /** 按客户端标识缓存的 Dubbo 引用和代理。 */
     private final Map<String, ClientReference> clients = new ConcurrentHashMap<>();
 
@@ -39,11 +45,17 @@ public class AuthRepositoryImpl implements AuthRepository {
             return;
         }
 
-        // 2. 复用或创建 Dubbo 引用，发送本地会话撤销通知
+        // 2. 复用或创建 Dubbo 引用，在熔断器与舱壁保护下发送本地会话撤销通知
         try {
-            clients.computeIfAbsent(clientId, ignored -> buildSystemRpc(client.getDubboUrl()))
-                    .proxy().revokeSession(request);
+            systemRpcGuard.call(clientId, () -> {
+                clients.computeIfAbsent(clientId, ignored -> buildSystemRpc(client.getDubboUrl()))
+                        .proxy().revokeSession(request);
+                return null;
+            });
             log.info("已通知 SSO Client {} 撤销 sidPrefix={}", clientId, sidPrefix(request.getSid()));
+        } catch (SystemRpcRejectedException e) {
+            log.warn("SSO Client {} 暂不可用，跳过 sidPrefix={} 的撤销通知：{}",
+                    clientId, sidPrefix(request.getSid()), e.getMessage());
         } catch (Exception e) {
             // 按当前实施范围，仅同步通知并记录错误；可靠重试队列后续实现。
             // todo 之后可以新增重试机制
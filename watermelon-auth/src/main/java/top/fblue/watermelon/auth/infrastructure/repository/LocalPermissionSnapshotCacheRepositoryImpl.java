@@ -0,0 +1,108 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionSnapshotCacheRepository;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于进程内 LRU 的权限快照缓存仓储。
+ *
+ * <p>缓存同时受最大条目数和存活时间约束：超过容量时淘汰最久未访问的条目，
+ * 超过存活时间的条目在下次读取时丢弃。版本校验保证权限变更下发后立即失效，
+ * 存活时间只作为版本号丢失或 Redis 被清空时的兜底。</p>
+ */
+@Repository
+public class LocalPermissionSnapshotCacheRepositoryImpl implements PermissionSnapshotCacheRepository {
+
+    /** 按访问顺序排列的缓存条目；读写均在对象锁内完成。 */
+    private final Map<CacheKey, CacheEntry> entries;
+
+    /** 单个缓存条目的存活毫秒数。 */
+    private final long ttlMillis;
+
+    /** 统一提供可测试的当前时间。 */
+    private final Clock clock;
+
+    /**
+     * 创建进程内权限快照缓存。
+     *
+     * @param maxSize 最大缓存条目数
+     * @param ttlSeconds 单个缓存条目存活秒数
+     * @param clock 应用统一时钟
+     */
+    public LocalPermissionSnapshotCacheRepositoryImpl(
+            @Value("${permission.local-cache.max-size:10000}") int maxSize,
+            @Value("${permission.local-cache.ttl-seconds:300}") long ttlSeconds,
+            Clock clock) {
+        this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionSnapshot find(Long userId,
+                                   String systemCode,
+                                   long userPermissionVersion,
+                                   long systemPermissionVersion) {
+        CacheKey key = new CacheKey(userId, systemCode);
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAtMillis() <= clock.millis()) {
+                entries.remove(key);
+                return null;
+            }
+            PermissionSnapshot snapshot = entry.snapshot();
+            if (snapshot.userPermissionVersion() != userPermissionVersion
+                    || snapshot.systemPermissionVersion() != systemPermissionVersion) {
+                return null;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(PermissionSnapshot snapshot) {
+        CacheKey key = new CacheKey(snapshot.userId(), snapshot.systemCode());
+        CacheEntry entry = new CacheEntry(snapshot, clock.millis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 缓存定位键。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     */
+    private record CacheKey(Long userId, String systemCode) {
+    }
+
+    /**
+     * 缓存条目及其过期时间。
+     *
+     * @param snapshot 权限快照
+     * @param expireAtMillis 过期时间戳
+     */
+    private record CacheEntry(PermissionSnapshot snapshot, long expireAtMillis) {
+    }
+}
@@ -0,0 +1,119 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeDeliveryRepository;
+import top.fblue.watermelon.auth.infrastructure.converter.PermissionChangeDeliveryConverter;
+import top.fblue.watermelon.auth.infrastructure.mapper.PermissionChangeDeliveryMapper;
+import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeDeliveryPO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 基于 MySQL 的权限变更失败投递仓储实现。
+ *
+ * <p>领取、成功和失败标记与权限变更记录使用相同的集合式语句，一批投递的数据库往返次数与批大小无关。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class MySqlPermissionChangeDeliveryRepositoryImpl implements PermissionChangeDeliveryRepository {
+
+    /** 失败投递 Mapper。 */
+    private final PermissionChangeDeliveryMapper permissionChangeDeliveryMapper;
+
+    /** 失败投递转换器。 */
+    private final PermissionChangeDeliveryConverter permissionChangeDeliveryConverter;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveFailed(List<PermissionChangeDelivery> deliveries, LocalDateTime nextRetryTime) {
+        if (deliveries == null || deliveries.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<PermissionChangeDeliveryPO> deliveryPOs = deliveries.stream()
+                .map(delivery -> permissionChangeDeliveryConverter.toFailedPO(delivery, nextRetryTime, now))
+                .toList();
+        permissionChangeDeliveryMapper.insertIgnoreBatch(deliveryPOs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionChangeDelivery> claimDispatchable(String claimToken,
+                                                            LocalDateTime now,
+                                                            LocalDateTime processingTimeoutBefore,
+                                                            int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // 1. 一条语句为最多 limit 条到期投递写入本次领取令牌
+        if (permissionChangeDeliveryMapper.claimDispatchable(
+                claimToken, now, processingTimeoutBefore, limit) == 0) {
+            return List.of();
+        }
+
+        // 2. 按令牌读回本实例领取的投递
+        return permissionChangeDeliveryConverter.toDomainList(
+                permissionChangeDeliveryMapper.selectByClaimToken(claimToken));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markSucceeded(String claimToken, List<Long> ids, LocalDateTime processedTime) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        int updatedCount = permissionChangeDeliveryMapper.markSucceededBatch(claimToken, ids, processedTime);
+        if (updatedCount != ids.size()) {
+            throw new IllegalStateException("权限变更投递成功状态更新数量不一致，期望 "
+                    + ids.size() + " 条，实际 " + updatedCount + " 条");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markFailed(String claimToken, List<PermissionChangeFailure> failures, LocalDateTime updatedTime) {
+        if (failures == null || failures.isEmpty()) {
+            return;
+        }
+        List<PermissionChangeDeliveryPO> deliveryPOs = failures.stream()
+                .map(permissionChangeDeliveryConverter::toFailedPO)
+                .toList();
+        int updatedCount = permissionChangeDeliveryMapper.markFailedBatch(claimToken, deliveryPOs, updatedTime);
+        if (updatedCount != failures.size()) {
+            throw new IllegalStateException("权限变更投递失败状态更新数量不一致，期望 "
+                    + failures.size() + " 条，实际 " + updatedCount + " 条");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteSucceededBefore(LocalDateTime processedBefore, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+        return permissionChangeDeliveryMapper.deleteSucceededBefore(processedBefore, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateRowCount() {
+        Long rowCount = permissionChangeDeliveryMapper.selectEstimatedRowCount();
+        return rowCount == null ? 0L : rowCount;
+    }
+}
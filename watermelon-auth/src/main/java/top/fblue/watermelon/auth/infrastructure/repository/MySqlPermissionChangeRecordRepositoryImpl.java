@@ -2,22 +2,37 @@ package top.fblue.watermelon.auth.infrastructure.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeRecordRepository;
 import top.fblue.watermelon.auth.infrastructure.converter.PermissionChangeRecordConverter;
 import top.fblue.watermelon.auth.infrastructure.mapper.PermissionChangeRecordMapper;
 import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeRecordPO;
 
+import java.lang.management.ManagementFactory;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 基于 MySQL 的权限变更事务发件箱仓储实现。
+ *
+ * <p>领取使用 {@code UPDATE ... ORDER BY id LIMIT n} 为一批记录写入随机令牌，再按令牌读回，
+ * 行锁保证并发实例不会领取到同一记录；成功与失败结果各用一条语句批量保存，
+ * 一批记录的数据库往返次数与批大小无关。保存结果时同时比对令牌，
+ * 处理超时后已被其他实例重新领取的记录不会被原领取者覆盖。</p>
  */
 @Repository
 @RequiredArgsConstructor
 public class MySqlPermissionChangeRecordRepositoryImpl implements PermissionChangeRecordRepository {
 
+    /** 领取实例标识，格式为 JVM 运行时名称 pid@host，便于排查记录由哪个实例处理。 */
+    private static final String CLAIM_OWNER = claimOwner();
+
     /** 权限变更记录 Mapper。 */
     private final PermissionChangeRecordMapper permissionChangeRecordMapper;
 
@@ -49,35 +64,100 @@ public class MySqlPermissionChangeRecordRepositoryImpl implements PermissionChan
      * {@inheritDoc}
      */
     @Override
-    public List<PermissionChangeRecord> findDispatchable(LocalDateTime now,
-                                                         LocalDateTime processingTimeoutBefore,
-                                                         int limit) {
-        if (limit <= 0) {
-            return List.of();
+    public int claimDispatchable(PermissionChangePriorityEnum priority,
+                                 Collection<Integer> shards,
+                                 String claimToken,
+                                 LocalDateTime now,
+                                 LocalDateTime processingTimeoutBefore,
+                                 int limit) {
+        if (limit <= 0 || (shards != null && shards.isEmpty())) {
+            return 0;
+        }
+
+        // 1. 先领取已到期的待处理或失败记录
+        int claimedCount = permissionChangeRecordMapper.claimDue(
+                priority, shards, claimToken, CLAIM_OWNER, now, limit);
+        if (claimedCount >= limit) {
+            return claimedCount;
+        }
+
+        // 2. 剩余配额接管处理超时的记录，两条语句各自使用对应索引
+        return claimedCount + permissionChangeRecordMapper.claimTimedOut(
+                priority, shards, claimToken, CLAIM_OWNER, now, processingTimeoutBefore, limit - claimedCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PermissionChangeRecord> findClaimed(String claimToken) {
+        return permissionChangeRecordConverter.toDomainList(
+                permissionChangeRecordMapper.selectByClaimToken(claimToken));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<PermissionChangePriorityEnum, LocalDateTime> findOldestDueTimes(LocalDateTime now) {
+        Map<PermissionChangePriorityEnum, LocalDateTime> oldestDueTimes =
+                new EnumMap<>(PermissionChangePriorityEnum.class);
+        for (PermissionChangeRecordPO recordPO : permissionChangeRecordMapper.selectOldestDueTimeByPriority(now)) {
+            oldestDueTimes.put(recordPO.getPriority(), recordPO.getNextRetryTime());
         }
-        // 1. 查询到期或处理超时记录
-        List<PermissionChangeRecordPO> records = permissionChangeRecordMapper.selectDispatchable(
-                now, processingTimeoutBefore, limit);
+        return oldestDueTimes;
+    }
 
-        // 2. 转换为领域记录并返回
-        return permissionChangeRecordConverter.toDomainList(records);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markSucceeded(String claimToken, List<Long> ids, LocalDateTime processedTime) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        int updatedCount = permissionChangeRecordMapper.markSucceededBatch(claimToken, ids, processedTime);
+        if (updatedCount != ids.size()) {
+            throw new IllegalStateException("权限变更记录成功状态更新数量不一致，期望 "
+                    + ids.size() + " 条，实际 " + updatedCount + " 条");
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean tryMarkProcessing(Long id, LocalDateTime now, LocalDateTime processingTimeoutBefore) {
-        return permissionChangeRecordMapper.markProcessing(id, now, processingTimeoutBefore) == 1;
+    public void markFailed(String claimToken, List<PermissionChangeFailure> failures, LocalDateTime updatedTime) {
+        if (failures == null || failures.isEmpty()) {
+            return;
+        }
+        List<PermissionChangeRecordPO> recordPOs = failures.stream()
+                .map(permissionChangeRecordConverter::toFailedPO)
+                .toList();
+        int updatedCount = permissionChangeRecordMapper.markFailedBatch(claimToken, recordPOs, updatedTime);
+        if (updatedCount != failures.size()) {
+            throw new IllegalStateException("权限变更记录失败状态更新数量不一致，期望 "
+                    + failures.size() + " 条，实际 " + updatedCount + " 条");
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void markSucceeded(Long id, LocalDateTime processedTime) {
-        if (permissionChangeRecordMapper.markSucceeded(id, processedTime) != 1) {
-            throw new IllegalStateException("权限变更记录成功状态更新失败，id=" + id);
+    public void markExpanded(String claimToken,
+                             List<PermissionChangeCheckpoint> checkpoints,
+                             LocalDateTime updatedTime) {
+        if (checkpoints == null || checkpoints.isEmpty()) {
+            return;
+        }
+        List<PermissionChangeRecordPO> recordPOs = checkpoints.stream()
+                .map(permissionChangeRecordConverter::toExpandedPO)
+                .toList();
+        int updatedCount = permissionChangeRecordMapper.markExpandedBatch(claimToken, recordPOs, updatedTime);
+        if (updatedCount != checkpoints.size()) {
+            throw new IllegalStateException("权限变更记录展开检查点更新数量不一致，期望 "
+                    + checkpoints.size() + " 条，实际 " + updatedCount + " 条");
         }
     }
 
@@ -85,14 +165,29 @@ public class MySqlPermissionChangeRecordRepositoryImpl implements PermissionChan
      * {@inheritDoc}
      */
     @Override
-    public void markFailed(Long id,
-                           int retryCount,
-                           LocalDateTime nextRetryTime,
-                           String lastError,
-                           LocalDateTime updatedTime) {
-        if (permissionChangeRecordMapper.markFailed(
-                id, retryCount, nextRetryTime, lastError, updatedTime) != 1) {
-            throw new IllegalStateException("权限变更记录失败状态更新失败，id=" + id);
+    public int deleteSucceededBefore(LocalDateTime processedBefore, int limit) {
+        if (limit <= 0) {
+            return 0;
         }
+        return permissionChangeRecordMapper.deleteSucceededBefore(processedBefore, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateRowCount() {
+        Long rowCount = permissionChangeRecordMapper.selectEstimatedRowCount();
+        return rowCount == null ? 0L : rowCount;
+    }
+
+    /**
+     * 生成不超过字段长度的领取实例标识。
+     *
+     * @return 领取实例标识
+     */
+    private static String claimOwner() {
+        String owner = ManagementFactory.getRuntimeMXBean().getName();
+        return owner.length() <= 128 ? owner : owner.substring(0, 128);
     }
 }
@@ -0,0 +1,139 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchShardRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * 基于 Redis 有序集合的权限变更发件箱分片租约仓储。
+ *
+ * <p>每个实例以租约到期时间为分值登记到同一个有序集合，续约时顺带清理已过期成员并读回存活成员。
+ * 存活成员按标识排序后，第 {@code i} 个成员负责分片号对成员数取模等于 {@code i} 的全部分片，
+ * 成员变化后各实例在下一次续约时得到新的均分结果。</p>
+ *
+ * <p>续约间隔内各实例看到的成员可能短暂不一致：同一分片被两个实例领取时由领取令牌保证不重复处理，
+ * 暂时无人负责的分片最多延迟一个续约间隔。Redis 不可用导致租约过期时退回领取全部分片。</p>
+ */
+@Slf4j
+@Repository
+public class RedisPermissionDispatchShardRepositoryImpl implements PermissionDispatchShardRepository {
+
+    /**
+     * 续约成员租约并返回存活成员的 Redis Lua 脚本。
+     *
+     * <p>租约时间使用 Redis 服务器时间，避免实例之间的时钟偏差让成员被提前清理。脚本依次：</p>
+     * <ol>
+     *     <li>执行 {@code ZREMRANGEBYSCORE KEYS[1] -inf now} 清理租约已过期的成员。</li>
+     *     <li>执行 {@code ZADD KEYS[1] now+ARGV[2] ARGV[1]} 登记或续约本实例。</li>
+     *     <li>执行 {@code PEXPIRE} 让所有实例都退出后集合自动删除。</li>
+     *     <li>执行 {@code ZRANGE KEYS[1] 0 -1} 返回全部存活成员。</li>
+     * </ol>
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final DefaultRedisScript<List> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local ttl = tonumber(ARGV[2])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+            redis.call('ZADD', KEYS[1], now + ttl, ARGV[1])
+            redis.call('PEXPIRE', KEYS[1], ttl * 2)
+            return redis.call('ZRANGE', KEYS[1], 0, -1)
+            """, List.class);
+
+    /** Redis 字符串操作模板。 */
+    private final StringRedisTemplate redisTemplate;
+    /** 下发成员有序集合的 Redis Key。 */
+    private final String membersKey;
+    /** 成员租约时长毫秒数。 */
+    private final long leaseTtlMillis;
+    /** 统一提供可测试的当前时间。 */
+    private final Clock clock;
+    /** 本实例的成员标识，格式为 JVM 运行时名称加随机后缀，重启后视为新成员。 */
+    private final String memberId;
+    /** 最近一次续约后本实例负责的分片；尚未续约成功时为空。 */
+    private volatile Set<Integer> ownedShards;
+    /** 本地估算的租约到期时间毫秒数，按发起续约的时间计算，偏保守。 */
+    private volatile long leaseExpiresAtMillis;
+
+    /**
+     * 创建 Redis 分片租约仓储。
+     *
+     * @param redisTemplate Redis 操作模板
+     * @param keyPrefix 权限 Redis Key 前缀
+     * @param leaseTtlMillis 成员租约时长毫秒数
+     * @param clock 应用统一时钟
+     */
+    public RedisPermissionDispatchShardRepositoryImpl(
+            StringRedisTemplate redisTemplate,
+            @Value("${permission.redis-key-prefix:permission:}") String keyPrefix,
+            @Value("${permission.change-dispatch.shard-lease-ttl-ms:15000}") long leaseTtlMillis,
+            Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.membersKey = keyPrefix + "dispatch:members";
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.clock = clock;
+        this.memberId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void renewLease() {
+        // 1. 续约并读回存活成员，租约有效期从发起续约时开始计算
+        long renewStartedAtMillis = clock.millis();
+        @SuppressWarnings("unchecked")
+        List<String> members = redisTemplate.execute(
+                RENEW_SCRIPT, List.of(membersKey), memberId, String.valueOf(leaseTtlMillis));
+        List<String> sortedMembers = members == null ? List.of() : new ArrayList<>(new TreeSet<>(members));
+        int memberIndex = sortedMembers.indexOf(memberId);
+        if (memberIndex < 0) {
+            throw new IllegalStateException("续约权限变更下发租约后未读到本实例成员标识");
+        }
+
+        // 2. 按排序后的成员位置均分分片
+        Set<Integer> shards = new TreeSet<>();
+        for (int shard = memberIndex; shard < PermissionChangeRecord.SHARD_COUNT; shard += sortedMembers.size()) {
+            shards.add(shard);
+        }
+        if (!shards.equals(ownedShards)) {
+            log.info("权限变更下发分片重新分配，存活实例 {} 个，本实例负责分片 {}", sortedMembers.size(), shards);
+        }
+        ownedShards = Set.copyOf(shards);
+        leaseExpiresAtMillis = renewStartedAtMillis + leaseTtlMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseLease() {
+        ownedShards = null;
+        redisTemplate.opsForZSet().remove(membersKey, memberId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Set<Integer>> findOwnedShards() {
+        Set<Integer> shards = ownedShards;
+        if (shards == null || clock.millis() >= leaseExpiresAtMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(shards);
+    }
+}
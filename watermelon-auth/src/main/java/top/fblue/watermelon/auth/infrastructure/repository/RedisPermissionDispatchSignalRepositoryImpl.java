@@ -0,0 +1,97 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchSignalRepository;
+import top.fblue.watermelon.auth.infrastructure.scheduler.PermissionDispatchWakeup;
+
+/**
+ * 在事务提交后通过 Redis 发布订阅唤醒全部实例权限变更下发循环的信号仓储。
+ *
+ * <p>发件箱记录按分片由不同实例领取，写入记录的实例不一定负责该记录所在分片，
+ * 因此提交后向全部实例广播唤醒信号，由负责该分片的实例立即下发。广播失败时只唤醒本实例，
+ * 其他实例仍按空闲退避间隔轮询，负责失败重试和宕机实例遗留记录的接管。</p>
+ */
+@Slf4j
+@Repository
+public class RedisPermissionDispatchSignalRepositoryImpl
+        implements PermissionDispatchSignalRepository, MessageListener {
+
+    /** 权限变更下发循环的唤醒信号。 */
+    private final PermissionDispatchWakeup permissionDispatchWakeup;
+    /** Redis 字符串操作模板。 */
+    private final StringRedisTemplate redisTemplate;
+    /** 下发唤醒广播频道。 */
+    private final String dispatchSignalChannel;
+
+    /**
+     * 创建 Redis 下发唤醒信号仓储。
+     *
+     * @param permissionDispatchWakeup 下发循环唤醒信号
+     * @param redisTemplate Redis 操作模板
+     * @param keyPrefix 权限 Redis Key 前缀
+     */
+    public RedisPermissionDispatchSignalRepositoryImpl(
+            PermissionDispatchWakeup permissionDispatchWakeup,
+            StringRedisTemplate redisTemplate,
+            @Value("${permission.redis-key-prefix:permission:}") String keyPrefix) {
+        this.permissionDispatchWakeup = permissionDispatchWakeup;
+        this.redisTemplate = redisTemplate;
+        this.dispatchSignalChannel = keyPrefix + "dispatch:signal:channel";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void signalAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                broadcast();
+            }
+        });
+    }
+
+    /**
+     * 接收任一实例广播的唤醒信号并唤醒本实例下发循环。
+     *
+     * @param message 频道消息，内容不参与处理
+     * @param pattern 订阅模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        permissionDispatchWakeup.signal();
+    }
+
+    /**
+     * 下发唤醒广播频道。
+     *
+     * @return Redis 发布订阅频道名
+     */
+    public String dispatchSignalChannel() {
+        return dispatchSignalChannel;
+    }
+
+    /**
+     * 向全部实例广播唤醒信号，本实例通过自身订阅收到；广播失败时退回只唤醒本实例。
+     */
+    private void broadcast() {
+        try {
+            redisTemplate.convertAndSend(dispatchSignalChannel, "1");
+        } catch (RuntimeException exception) {
+            log.warn("广播权限变更下发唤醒信号失败，仅唤醒本实例", exception);
+            permissionDispatchWakeup.signal();
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package top.fblue.watermelon.auth.infrastructure.repository;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionVersionRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于 Redis 的权限版本仓储。
+ *
+ * <p>系统维度权限版本只在系统级变更时递增，却在每次加载权限快照和下发用户变更时读取，
+ * 因此在进程内维护一份近端缓存：递增后通过 Redis 发布订阅频道广播新版本，各实例收到后
+ * 立即更新本地值；消息丢失时由较短的存活时间兜底回源 Redis。</p>
  */
 @Repository
-public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRepository {
+public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRepository, MessageListener {
 
     /**
      * 按权限变更事件幂等地递增权限版本的 Redis Lua 脚本。
@@ -45,12 +63,21 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
             return version
             """, Long.class);
 
+    /** 批量递增时单次管道发送的最大脚本数，避免单批占用过多客户端内存。 */
+    private static final int PIPELINE_BATCH_SIZE = 500;
+
     /** Redis 字符串操作模板。 */
     private final StringRedisTemplate redisTemplate;
     /** 权限版本 Redis Key 前缀。 */
     private final String keyPrefix;
     /** 单次变更事件版本结果保留秒数。 */
     private final long eventVersionTtlSeconds;
+    /** 系统版本近端缓存条目的存活毫秒数。 */
+    private final long systemVersionCacheTtlMillis;
+    /** 统一提供可测试的当前时间。 */
+    private final Clock clock;
+    /** 按系统编码缓存的系统维度权限版本。 */
+    private final Map<String, CachedVersion> systemVersions = new ConcurrentHashMap<>();
 
     /**
      * 创建 Redis 权限版本仓储。
@@ -58,14 +85,20 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
      * @param redisTemplate Redis 操作模板
      * @param keyPrefix 权限版本 Key 前缀
      * @param eventVersionTtlSeconds 事件版本结果保留秒数
+     * @param systemVersionCacheTtlSeconds 系统版本近端缓存存活秒数
+     * @param clock 应用统一时钟
      */
     public RedisPermissionVersionRepositoryImpl(
             StringRedisTemplate redisTemplate,
             @Value("${permission.redis-key-prefix:permission:}") String keyPrefix,
-            @Value("${permission.version-event-ttl-seconds:2592000}") long eventVersionTtlSeconds) {
+            @Value("${permission.version-event-ttl-seconds:2592000}") long eventVersionTtlSeconds,
+            @Value("${permission.system-version-cache.ttl-seconds:5}") long systemVersionCacheTtlSeconds,
+            Clock clock) {
         this.redisTemplate = redisTemplate;
         this.keyPrefix = keyPrefix;
         this.eventVersionTtlSeconds = eventVersionTtlSeconds;
+        this.systemVersionCacheTtlMillis = systemVersionCacheTtlSeconds * 1000L;
+        this.clock = clock;
     }
 
     /**
@@ -81,8 +114,29 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
      */
     @Override
     public long incrementUserPermissionVersion(String eventId, Long userId) {
-        return incrementOnce(
-                userPermissionKey(userId), eventVersionKey(eventId, "user:" + userId));
+        String versionKey = userPermissionKey(userId);
+        return incrementOnce(versionKey, eventVersionKey(eventId, versionKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>每个用户仍执行同一幂等脚本，但通过管道以 {@code EVALSHA} 一次性发送，只传脚本摘要，
+     * 大量用户变更只需少量网络往返；事件结果 Key 以用户版本 Key 作为哈希标签，两者落在同一槽，
+     * 各脚本在 Redis 集群中也不会跨槽。</p>
+     */
+    @Override
+    public List<Long> incrementUserPermissionVersions(List<String> eventIds, List<Long> userIds) {
+        if (eventIds.size() != userIds.size()) {
+            throw new IllegalArgumentException("事件 ID 与用户 ID 数量不一致");
+        }
+        List<Long> versions = new ArrayList<>(userIds.size());
+        for (int from = 0; from < userIds.size(); from += PIPELINE_BATCH_SIZE) {
+            int to = Math.min(from + PIPELINE_BATCH_SIZE, userIds.size());
+            versions.addAll(incrementUserPermissionVersionsPipelined(
+                    eventIds.subList(from, to), userIds.subList(from, to)));
+        }
+        return versions;
     }
 
     /**
@@ -90,7 +144,62 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
      */
     @Override
     public long getSystemPermissionVersion(String systemCode) {
-        return getLong(systemPermissionKey(systemCode));
+        // 1. 近端缓存未过期时直接返回
+        long now = clock.millis();
+        CachedVersion cached = findCachedSystemVersion(systemCode, now);
+        if (cached != null) {
+            return cached.version();
+        }
+
+        // 2. 回源 Redis 并写入近端缓存；广播先于回源到达时保留较新的版本
+        return cacheSystemVersion(systemCode, getLong(systemPermissionKey(systemCode)), now);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PermissionVersions getPermissionVersions(Long userId, String systemCode) {
+        return getPermissionVersions(List.of(userId), systemCode).get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>全部用户版本与近端缓存未命中的系统版本通过一次 {@code MGET} 读取。</p>
+     */
+    @Override
+    public List<PermissionVersions> getPermissionVersions(List<Long> userIds, String systemCode) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        // 1. 组装用户版本 Key，系统版本近端缓存未命中时一并读取
+        long now = clock.millis();
+        CachedVersion cached = findCachedSystemVersion(systemCode, now);
+        List<String> keys = new ArrayList<>(userIds.size() + 1);
+        for (Long userId : userIds) {
+            keys.add(userPermissionKey(userId));
+        }
+        if (cached == null) {
+            keys.add(systemPermissionKey(systemCode));
+        }
+
+        // 2. 单次往返读取全部版本
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        long systemVersion;
+        if (cached != null) {
+            systemVersion = cached.version();
+        } else {
+            systemVersion = cacheSystemVersion(systemCode, parseLong(valueAt(values, userIds.size())), now);
+        }
+
+        // 3. 按用户顺序组装权限版本
+        List<PermissionVersions> versions = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            versions.add(new PermissionVersions(parseLong(valueAt(values, i)), systemVersion));
+        }
+        return versions;
     }
 
     /**
@@ -98,8 +207,91 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
      */
     @Override
     public long incrementSystemPermissionVersion(String eventId, String systemCode) {
-        return incrementOnce(
-                systemPermissionKey(systemCode), eventVersionKey(eventId, "system:" + systemCode));
+        // 1. 按事件幂等递增系统版本
+        String versionKey = systemPermissionKey(systemCode);
+        long version = incrementOnce(versionKey, eventVersionKey(eventId, versionKey));
+
+        // 2. 更新本实例近端缓存并广播给其他实例
+        cacheSystemVersion(systemCode, version, clock.millis());
+        redisTemplate.convertAndSend(systemVersionChannel(), systemCode + "=" + version);
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDictionaryRevision(String systemCode) {
+        return getLong(dictionaryRevisionKey(systemCode));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementDictionaryRevisionsAfterCommit(Collection<String> systemCodes) {
+        // 1. 去除无法确定所属系统的资源，没有涉及任何系统时无需递增
+        List<String> distinctSystemCodes = systemCodes.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctSystemCodes.isEmpty()) {
+            return;
+        }
+
+        // 2. 不在事务中时立即递增，否则在事务提交后递增
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementDictionaryRevisions(distinctSystemCodes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                incrementDictionaryRevisions(distinctSystemCodes);
+            }
+        });
+    }
+
+    /**
+     * 接收其他实例广播的系统版本并更新近端缓存。
+     *
+     * @param message 频道消息，内容为 {@code systemCode=version}
+     * @param pattern 订阅模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf('=');
+        if (separator <= 0) {
+            return;
+        }
+        cacheSystemVersion(body.substring(0, separator),
+                Long.parseLong(body.substring(separator + 1)), clock.millis());
+    }
+
+    /**
+     * 系统版本变更广播频道。
+     *
+     * @return Redis 发布订阅频道名
+     */
+    public String systemVersionChannel() {
+        return keyPrefix + "version:system:channel";
+    }
+
+    /**
+     * 写入系统版本近端缓存；版本只增不减，乱序到达的旧版本只续期不回退。
+     *
+     * @param systemCode 系统编码
+     * @param version 系统维度权限版本
+     * @param now 当前时间戳
+     * @return 写入后近端缓存中的版本，不小于传入版本
+     */
+    private long cacheSystemVersion(String systemCode, long version, long now) {
+        long expireAtMillis = now + systemVersionCacheTtlMillis;
+        return systemVersions.merge(systemCode, new CachedVersion(version, expireAtMillis),
+                (existing, latest) -> existing.version() > latest.version()
+                        ? new CachedVersion(existing.version(), expireAtMillis)
+                        : latest).version();
     }
 
     /**
@@ -109,10 +301,42 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
      * @return long 值
      */
     private long getLong(String key) {
-        String value = redisTemplate.opsForValue().get(key);
+        return parseLong(redisTemplate.opsForValue().get(key));
+    }
+
+    /**
+     * 解析 Redis 中的 long 值，值不存在时返回 0。
+     *
+     * @param value Redis 字符串值
+     * @return long 值
+     */
+    private long parseLong(String value) {
         return value == null ? 0L : Long.parseLong(value);
     }
 
+    /**
+     * 读取 {@code MGET} 结果中的指定位置。
+     *
+     * @param values MGET 结果；管道或事务中可能为空
+     * @param index 位置
+     * @return Redis 字符串值
+     */
+    private String valueAt(List<String> values, int index) {
+        return values == null ? null : values.get(index);
+    }
+
+    /**
+     * 查询未过期的系统版本近端缓存。
+     *
+     * @param systemCode 系统编码
+     * @param now 当前时间戳
+     * @return 缓存条目；缺失或过期时返回 {@code null}
+     */
+    private CachedVersion findCachedSystemVersion(String systemCode, long now) {
+        CachedVersion cached = systemVersions.get(systemCode);
+        return cached != null && cached.expireAtMillis() > now ? cached : null;
+    }
+
     /**
      * 按事件幂等地递增指定权限版本；同一事件重试时返回首次生成的版本号。
      *
@@ -131,15 +355,101 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
         return value;
     }
 
+    /**
+     * 逐个递增业务系统的权限编码字典修订号。
+     *
+     * @param systemCodes 去重后的业务系统编码
+     */
+    private void incrementDictionaryRevisions(List<String> systemCodes) {
+        for (String systemCode : systemCodes) {
+            redisTemplate.opsForValue().increment(dictionaryRevisionKey(systemCode));
+        }
+    }
+
+    /**
+     * 通过单次管道批量执行用户版本幂等递增脚本；Redis 尚未缓存脚本时加载后整批重试。
+     *
+     * <p>脚本按事件幂等，整批重试时已执行成功的用户直接返回首次生成的版本号。</p>
+     *
+     * @param eventIds 幂等事件 ID
+     * @param userIds 用户 ID
+     * @return 与用户 ID 顺序一致的权限版本号
+     */
+    private List<Long> incrementUserPermissionVersionsPipelined(List<String> eventIds, List<Long> userIds) {
+        List<Object> results;
+        try {
+            results = evalShaPipelined(eventIds, userIds);
+        } catch (RuntimeException exception) {
+            if (!isNoScriptError(exception)) {
+                throw exception;
+            }
+            byte[] script = INCREMENT_ONCE_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(script));
+            results = evalShaPipelined(eventIds, userIds);
+        }
+        if (results.size() != userIds.size()) {
+            throw new IllegalStateException("权限版本批量更新失败");
+        }
+        List<Long> versions = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (!(result instanceof Long version)) {
+                throw new IllegalStateException("权限版本批量更新失败");
+            }
+            versions.add(version);
+        }
+        return versions;
+    }
+
+    /**
+     * 在单次管道中按脚本摘要执行用户版本幂等递增脚本。
+     *
+     * @param eventIds 幂等事件 ID
+     * @param userIds 用户 ID
+     * @return 管道中各脚本的执行结果
+     */
+    private List<Object> evalShaPipelined(List<String> eventIds, List<Long> userIds) {
+        String scriptSha = INCREMENT_ONCE_SCRIPT.getSha1();
+        byte[] ttl = String.valueOf(eventVersionTtlSeconds).getBytes(StandardCharsets.UTF_8);
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < userIds.size(); i++) {
+                String versionKey = userPermissionKey(userIds.get(i));
+                connection.scriptingCommands().evalSha(scriptSha, ReturnType.INTEGER, 2,
+                        versionKey.getBytes(StandardCharsets.UTF_8),
+                        eventVersionKey(eventIds.get(i), versionKey).getBytes(StandardCharsets.UTF_8),
+                        ttl);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 判断异常是否由 Redis 未缓存脚本的 {@code NOSCRIPT} 错误引起。
+     *
+     * @param exception 管道执行异常
+     * @return 异常链中包含 {@code NOSCRIPT} 错误时返回 {@code true}
+     */
+    private boolean isNoScriptError(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 构造事件幂等版本结果 Key。
      *
+     * <p>以权限版本 Key 作为哈希标签，Redis 集群只按标签计算槽位，事件结果 Key 与权限版本 Key
+     * 落在同一槽，脚本不会跨槽；权限版本 Key 本身保持不变，已有版本号无需迁移。</p>
+     *
      * @param eventId 幂等事件 ID
-     * @param scope 版本作用域
+     * @param versionKey 权限版本 Redis Key
      * @return 事件版本结果 Key
      */
-    private String eventVersionKey(String eventId, String scope) {
-        return keyPrefix + "version-event:" + eventId + ":" + scope;
+    private String eventVersionKey(String eventId, String versionKey) {
+        return keyPrefix + "version-event:" + eventId + ":{" + versionKey + "}";
     }
 
     /**
@@ -161,4 +471,23 @@ public class RedisPermissionVersionRepositoryImpl implements PermissionVersionRe
     private String systemPermissionKey(String systemCode) {
         return keyPrefix + "version:system:" + systemCode;
     }
+
+    /**
+     * 构造权限编码字典修订号 Redis Key。
+     *
+     * @param systemCode 系统编码
+     * @return 字典修订号 Key
+     */
+    private String dictionaryRevisionKey(String systemCode) {
+        return keyPrefix + "version:dictionary:" + systemCode;
+    }
+
+    /**
+     * 近端缓存的系统版本及其过期时间。
+     *
+     * @param version 系统维度权限版本
+     * @param expireAtMillis 过期时间戳
+     */
+    private record CachedVersion(long version, long expireAtMillis) {
+    }
 }
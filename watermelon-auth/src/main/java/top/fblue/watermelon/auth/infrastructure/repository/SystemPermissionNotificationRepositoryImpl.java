@@ -1,27 +1,36 @@
 package top.fblue.watermelon.auth.infrastructure.repository;
 
 import jakarta.annotation.PreDestroy;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.ReferenceConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 import top.fblue.watermelon.api.SystemPermissionChangeRpc;
 import top.fblue.watermelon.api.request.PermissionChangeRequest;
+import top.fblue.watermelon.api.response.PermissionChangeBatchResponse;
+import top.fblue.watermelon.auth.domain.permission.entity.UserPermissionNotification;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionNotificationRepository;
 import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
 import top.fblue.watermelon.auth.infrastructure.converter.PermissionChangeRequestConverter;
+import top.fblue.watermelon.auth.infrastructure.rpc.SystemRpcGuard;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通过 Dubbo 直连向业务系统发送权限缓存失效通知。
+ *
+ * <p>每次调用都经过 {@link SystemRpcGuard}：每个业务系统最多同时处理固定数量的通知，
+ * 连续失败的系统被熔断，熔断期内的通知不发出 RPC、直接按失败返回并转入延迟重试，
+ * 单个不可达系统不会占满下发线程或拉长整批下发耗时。开启批量通知的系统按批接收
+ * 用户级通知，一次 RPC 最多携带固定数量的通知，并逐条返回处理结果。</p>
  */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class SystemPermissionNotificationRepositoryImpl implements PermissionNotificationRepository {
 
     /** 用户中心认证及业务系统客户端配置。 */
@@ -30,9 +39,34 @@ public class SystemPermissionNotificationRepositoryImpl implements PermissionNot
     /** 权限变更通知请求转换器。 */
     private final PermissionChangeRequestConverter requestConverter;
 
+    /** 按业务系统生效的熔断器与并发舱壁。 */
+    private final SystemRpcGuard systemRpcGuard;
+
+    /** 批量通知时单次 RPC 携带的最大通知数。 */
+    private final int notifyBatchSize;
+
     /** 按业务系统缓存的动态 Dubbo 引用。 */
     private final Map<String, ClientReference> clients = new ConcurrentHashMap<>();
 
+    /**
+     * 创建业务系统权限通知仓储。
+     *
+     * @param authProperties 用户中心认证及业务系统客户端配置
+     * @param requestConverter 权限变更通知请求转换器
+     * @param systemRpcGuard 按业务系统生效的熔断器与并发舱壁
+     * @param notifyBatchSize 批量通知时单次 RPC 携带的最大通知数
+     */
+    public SystemPermissionNotificationRepositoryImpl(
+            AuthProperties authProperties,
+            PermissionChangeRequestConverter requestConverter,
+            SystemRpcGuard systemRpcGuard,
+            @Value("${permission.change-dispatch.notify-batch-size:200}") int notifyBatchSize) {
+        this.authProperties = authProperties;
+        this.requestConverter = requestConverter;
+        this.systemRpcGuard = systemRpcGuard;
+        this.notifyBatchSize = Math.max(1, notifyBatchSize);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -49,14 +83,57 @@ public class SystemPermissionNotificationRepositoryImpl implements PermissionNot
      * {@inheritDoc}
      */
     @Override
-    public void notifyUserChanged(String systemCode,
-                                  String eventId,
-                                  Long userId,
-                                  long userPermissionVersion,
-                                  long systemPermissionVersion) {
-        PermissionChangeRequest request = requestConverter.toUserChangedRequest(
-                eventId, systemCode, userId, userPermissionVersion, systemPermissionVersion);
-        notifyClient(systemCode, requiredClient(systemCode), request);
+    public Map<String, String> notifyUsersChanged(String systemCode,
+                                                  List<UserPermissionNotification> notifications) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        if (notifications == null || notifications.isEmpty()) {
+            return failures;
+        }
+
+        // 1. 目标系统不可通知时整批失败
+        AuthProperties.Client client;
+        try {
+            client = requiredClient(systemCode);
+        } catch (IllegalStateException exception) {
+            notifications.forEach(notification -> failures.put(notification.eventId(), exception.getMessage()));
+            return failures;
+        }
+        List<PermissionChangeRequest> requests = notifications.stream()
+                .map(notification -> requestConverter.toUserChangedRequest(systemCode, notification))
+                .toList();
+
+        // 2. 未开启批量通知的系统逐条发送，单条失败不影响其余通知
+        if (!client.isBatchNotification()) {
+            for (PermissionChangeRequest request : requests) {
+                try {
+                    notifyClient(systemCode, client, request);
+                } catch (RuntimeException exception) {
+                    failures.put(request.getEventId(), failureMessage(systemCode, exception));
+                }
+            }
+            return failures;
+        }
+
+        // 3. 开启批量通知的系统按批发送，记录每批中业务系统未确认的事件
+        for (int from = 0; from < requests.size(); from += notifyBatchSize) {
+            List<PermissionChangeRequest> batch = new ArrayList<>(requests.subList(
+                    from, Math.min(from + notifyBatchSize, requests.size())));
+            try {
+                PermissionChangeBatchResponse response = systemRpcGuard.call(systemCode,
+                        () -> systemRpc(systemCode, client).permissionChangedBatch(batch));
+                List<String> failedEventIds = response == null || response.getFailedEventIds() == null
+                        ? List.of()
+                        : response.getFailedEventIds();
+                failedEventIds.forEach(eventId ->
+                        failures.put(eventId, "系统 " + systemCode + " 未确认权限变更通知"));
+                log.info("已批量通知系统 {} 失效权限缓存，共 {} 条，失败 {} 条",
+                        systemCode, batch.size(), failedEventIds.size());
+            } catch (RuntimeException exception) {
+                String message = failureMessage(systemCode, exception);
+                batch.forEach(request -> failures.put(request.getEventId(), message));
+            }
+        }
+        return failures;
     }
 
     /**
@@ -105,13 +182,40 @@ public class SystemPermissionNotificationRepositoryImpl implements PermissionNot
      * @param request 权限变更请求
      */
     private void notifyClient(String systemCode, AuthProperties.Client client, PermissionChangeRequest request) {
-        clients.computeIfAbsent(systemCode, ignored -> buildSystemRpc(client.getDubboUrl()))
-                .proxy().permissionChanged(request);
+        systemRpcGuard.call(systemCode, () -> {
+            systemRpc(systemCode, client).permissionChanged(request);
+            return null;
+        });
         log.info("已通知系统 {} 失效权限缓存，userId={}，systemPermissionVersion={}，userPermissionVersion={}",
                 systemCode, request.getUserId(), request.getSystemPermissionVersion(),
                 request.getUserPermissionVersion());
     }
 
+    /**
+     * 获取目标系统的权限变更通知代理，首次使用时创建 Dubbo 引用。
+     *
+     * @param systemCode 目标系统编码
+     * @param client 客户端配置
+     * @return 权限变更通知代理
+     */
+    private SystemPermissionChangeRpc systemRpc(String systemCode, AuthProperties.Client client) {
+        return clients.computeIfAbsent(systemCode, ignored -> buildSystemRpc(client.getDubboUrl())).proxy();
+    }
+
+    /**
+     * 生成通知失败原因。
+     *
+     * @param systemCode 目标系统编码
+     * @param exception 通知异常
+     * @return 失败原因
+     */
+    private String failureMessage(String systemCode, RuntimeException exception) {
+        String message = exception.getMessage();
+        return message == null || message.isBlank()
+                ? "系统 " + systemCode + " 通知失败：" + exception.getClass().getName()
+                : message;
+    }
+
     /**
      * 获取目标系统通知配置。
      *
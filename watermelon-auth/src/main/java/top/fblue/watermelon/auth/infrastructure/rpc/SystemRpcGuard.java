@@ -0,0 +1,222 @@
+package top.fblue.watermelon.auth.infrastructure.rpc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按业务系统隔离 Dubbo 直连调用的熔断器与并发舱壁。
+ *
+ * <p>同一系统连续失败达到阈值后熔断，熔断期内的调用不发出 RPC、直接抛出
+ * {@link SystemRpcRejectedException}，由调用方转入延迟重试；熔断到期后只放行一次试探调用，
+ * 成功即恢复，失败则重新熔断；熔断前放行、熔断后才结束的调用不影响熔断状态，
+ * 试探资格只由试探调用自身释放。每个系统同时进行的调用数受舱壁限制，等待许可超时同样被拒绝，
+ * 单个不可达的系统无法占满调用线程。权限通知和会话撤销通知共用同一系统的熔断状态。</p>
+ */
+@Slf4j
+@Component
+public class SystemRpcGuard {
+
+    /** 熔断与舱壁配置。 */
+    private final AuthProperties.ClientGuard settings;
+
+    /** 统一提供可测试的当前时间。 */
+    private final Clock clock;
+
+    /** 按业务系统保存的熔断状态与并发许可。 */
+    private final Map<String, SystemState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 创建业务系统调用保护器。
+     *
+     * @param authProperties 用户中心认证及业务系统客户端配置
+     * @param clock 时钟
+     */
+    public SystemRpcGuard(AuthProperties authProperties, Clock clock) {
+        this.settings = authProperties.getClientGuard();
+        this.clock = clock;
+    }
+
+    /**
+     * 在目标系统的熔断器与舱壁保护下执行一次调用。
+     *
+     * @param systemCode 目标系统编码
+     * @param call RPC 调用
+     * @param <T> 调用结果类型
+     * @return 调用结果
+     * @throws SystemRpcRejectedException 系统熔断中或并发许可等待超时
+     */
+    public <T> T call(String systemCode, Supplier<T> call) {
+        SystemState state = states.computeIfAbsent(
+                systemCode, ignored -> new SystemState(settings.getMaxConcurrentCalls()));
+
+        // 1. 熔断期内直接拒绝，不占用并发许可
+        Admission admission = state.admit(clock.millis());
+        if (admission == Admission.REJECTED) {
+            throw new SystemRpcRejectedException("系统 " + systemCode + " 已熔断，稍后重试");
+        }
+
+        // 2. 在舱壁许可内执行调用，等待超时视为拒绝且不计入失败
+        if (!acquire(state.permits, systemCode)) {
+            state.abandonTrial(admission);
+            throw new SystemRpcRejectedException("系统 " + systemCode + " 并发调用已满，稍后重试");
+        }
+        try {
+            T result = call.get();
+            state.onSuccess(systemCode, admission);
+            return result;
+        } catch (RuntimeException exception) {
+            state.onFailure(systemCode, admission, clock.millis(), settings.getFailureThreshold(),
+                    settings.getOpenDurationMs());
+            throw exception;
+        } finally {
+            state.permits.release();
+        }
+    }
+
+    /**
+     * 在配置的最长等待时间内获取并发许可。
+     *
+     * @param permits 目标系统并发许可
+     * @param systemCode 目标系统编码
+     * @return 是否获取成功
+     */
+    private boolean acquire(Semaphore permits, String systemCode) {
+        try {
+            return permits.tryAcquire(settings.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待系统调用许可时被中断：" + systemCode, exception);
+        }
+    }
+
+    /**
+     * 熔断器对单次调用的判定。
+     */
+    private enum Admission {
+        /** 熔断关闭，正常放行。 */
+        CLOSED,
+        /** 熔断到期后的唯一试探调用。 */
+        TRIAL,
+        /** 熔断中，拒绝调用。 */
+        REJECTED
+    }
+
+    /**
+     * 单个业务系统的熔断状态与并发许可。
+     */
+    private static final class SystemState {
+
+        /** 并发调用许可。 */
+        private final Semaphore permits;
+
+        /** 连续失败次数。 */
+        private int consecutiveFailures;
+
+        /** 熔断截止时间戳；为 0 表示未熔断。 */
+        private long openUntilMillis;
+
+        /** 熔断到期后是否已有试探调用在进行。 */
+        private boolean trialInFlight;
+
+        /**
+         * 创建系统状态。
+         *
+         * @param maxConcurrentCalls 最大并发调用数
+         */
+        private SystemState(int maxConcurrentCalls) {
+            this.permits = new Semaphore(Math.max(1, maxConcurrentCalls));
+        }
+
+        /**
+         * 判定本次调用能否通过熔断器。
+         *
+         * @param nowMillis 当前时间戳
+         * @return 熔断器判定
+         */
+        private synchronized Admission admit(long nowMillis) {
+            if (openUntilMillis == 0) {
+                return Admission.CLOSED;
+            }
+            if (nowMillis < openUntilMillis || trialInFlight) {
+                return Admission.REJECTED;
+            }
+            trialInFlight = true;
+            return Admission.TRIAL;
+        }
+
+        /**
+         * 试探调用未能发出时释放试探资格。
+         *
+         * @param admission 本次调用的熔断器判定
+         */
+        private synchronized void abandonTrial(Admission admission) {
+            if (admission == Admission.TRIAL) {
+                trialInFlight = false;
+            }
+        }
+
+        /**
+         * 记录调用成功；试探调用成功时关闭熔断。
+         *
+         * <p>熔断关闭时放行、熔断后才结束的调用不代表试探结果，不关闭熔断也不释放试探资格。</p>
+         *
+         * @param systemCode 目标系统编码
+         * @param admission 本次调用的熔断器判定
+         */
+        private synchronized void onSuccess(String systemCode, Admission admission) {
+            if (admission == Admission.TRIAL) {
+                log.info("系统 {} 调用恢复，关闭熔断", systemCode);
+                consecutiveFailures = 0;
+                openUntilMillis = 0;
+                trialInFlight = false;
+                return;
+            }
+            if (openUntilMillis == 0) {
+                consecutiveFailures = 0;
+            }
+        }
+
+        /**
+         * 记录调用失败，连续失败达到阈值或试探失败时熔断。
+         *
+         * <p>熔断关闭时放行、熔断后才结束的调用失败已被本次熔断覆盖，不延长熔断也不释放试探资格，
+         * 避免试探进行中被其他调用的结果打断后放行第二次试探。</p>
+         *
+         * @param systemCode 目标系统编码
+         * @param admission 本次调用的熔断器判定
+         * @param nowMillis 当前时间戳
+         * @param failureThreshold 连续失败熔断阈值
+         * @param openDurationMs 熔断持续毫秒数
+         */
+        private synchronized void onFailure(String systemCode,
+                                            Admission admission,
+                                            long nowMillis,
+                                            int failureThreshold,
+                                            long openDurationMs) {
+            // 1. 试探失败时重新熔断并释放试探资格
+            if (admission == Admission.TRIAL) {
+                openUntilMillis = nowMillis + openDurationMs;
+                trialInFlight = false;
+                return;
+            }
+
+            // 2. 已熔断时忽略熔断前放行的调用结果，否则累计连续失败并在达到阈值时熔断
+            if (openUntilMillis != 0) {
+                return;
+            }
+            consecutiveFailures++;
+            if (consecutiveFailures >= failureThreshold) {
+                log.warn("系统 {} 连续调用失败 {} 次，熔断 {} ms", systemCode, consecutiveFailures, openDurationMs);
+                openUntilMillis = nowMillis + openDurationMs;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package top.fblue.watermelon.auth.infrastructure.rpc;
+
+/**
+ * 业务系统熔断或并发已满时，调用未发出即被拒绝。
+ */
+public class SystemRpcRejectedException extends IllegalStateException {
+
+    /**
+     * 创建调用拒绝异常。
+     *
+     * @param message 拒绝原因
+     */
+    public SystemRpcRejectedException(String message) {
+        super(message);
+    }
+}
@@ -2,50 +2,167 @@ package top.fblue.watermelon.auth.infrastructure.scheduler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
 
 /**
- * 周期扫描并下发权限变更事务发件箱记录。
+ * 持续下发权限变更事务发件箱记录。
+ *
+ * <p>下发循环在权限变更事务提交后被立即唤醒；领取满一批时不等待直接处理下一批，
+ * 空闲时轮询间隔从最小间隔按倍数退避到最大间隔，收到唤醒或处理到记录后恢复最小间隔。
+ * 轮询只负责失败重试、处理超时记录及其他实例写入的记录。</p>
  */
 @Slf4j
 @Component
-public class PermissionChangeDispatchScheduler {
+public class PermissionChangeDispatchScheduler implements SmartLifecycle {
 
     /** 权限变更下发应用服务。 */
     private final PermissionChangeApplicationService permissionChangeApplicationService;
 
+    /** 权限变更下发循环的唤醒信号。 */
+    private final PermissionDispatchWakeup permissionDispatchWakeup;
+
     /** 单次最大处理记录数。 */
     private final int batchSize;
 
+    /** 启动后首次扫描前的等待毫秒数。 */
+    private final long initialDelayMillis;
+
+    /** 最小轮询间隔毫秒数。 */
+    private final long minDelayMillis;
+
+    /** 空闲退避的最大轮询间隔毫秒数。 */
+    private final long maxDelayMillis;
+
+    /** 下发循环线程；未启动时为空。 */
+    private volatile Thread dispatchThread;
+
+    /** 下发循环是否运行。 */
+    private volatile boolean running;
+
     /**
      * 创建权限变更下发调度器。
      *
      * @param permissionChangeApplicationService 权限变更下发应用服务
+     * @param permissionDispatchWakeup 权限变更下发循环的唤醒信号
      * @param batchSize 单次最大处理记录数
+     * @param initialDelayMillis 启动后首次扫描前的等待毫秒数
+     * @param minDelayMillis 最小轮询间隔毫秒数
+     * @param maxDelayMillis 空闲退避的最大轮询间隔毫秒数
      */
     public PermissionChangeDispatchScheduler(
             PermissionChangeApplicationService permissionChangeApplicationService,
-            @Value("${permission.change-dispatch.batch-size:20}") int batchSize) {
+            PermissionDispatchWakeup permissionDispatchWakeup,
+            @Value("${permission.change-dispatch.batch-size:20}") int batchSize,
+            @Value("${permission.change-dispatch.initial-delay-ms:1000}") long initialDelayMillis,
+            @Value("${permission.change-dispatch.min-delay-ms:1000}") long minDelayMillis,
+            @Value("${permission.change-dispatch.max-delay-ms:10000}") long maxDelayMillis) {
         this.permissionChangeApplicationService = permissionChangeApplicationService;
+        this.permissionDispatchWakeup = permissionDispatchWakeup;
         this.batchSize = batchSize;
+        this.initialDelayMillis = initialDelayMillis;
+        this.minDelayMillis = Math.max(1L, minDelayMillis);
+        this.maxDelayMillis = Math.max(this.minDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * 启动下发循环线程。
+     */
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatchThread = Thread.ofPlatform()
+                .name("permission-change-dispatch")
+                .daemon()
+                .start(this::dispatchLoop);
+    }
+
+    /**
+     * 停止下发循环，并等待当前批次处理完成。
+     */
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Thread thread = dispatchThread;
+        if (thread == null) {
+            return;
+        }
+        permissionDispatchWakeup.signal();
+        try {
+            thread.join(maxDelayMillis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        dispatchThread = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 下发循环：处理一批后按结果决定立即继续、恢复最小间隔或退避等待。
+     */
+    private void dispatchLoop() {
+        long delayMillis = initialDelayMillis;
+        while (running) {
+            try {
+                if (delayMillis > 0 && permissionDispatchWakeup.await(delayMillis)) {
+                    delayMillis = minDelayMillis;
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!running) {
+                return;
+            }
+            delayMillis = nextDelayMillis(dispatchPendingChanges(), delayMillis);
+        }
     }
 
     /**
      * 扫描并处理一批权限变更；仓储异常会记录日志并等待下次调度重试。
+     *
+     * @return 本次处理记录数；失败时为 0
      */
-    @Scheduled(
-            fixedDelayString = "${permission.change-dispatch.fixed-delay-ms:1000}",
-            initialDelayString = "${permission.change-dispatch.initial-delay-ms:1000}")
-    public void dispatchPendingChanges() {
+    int dispatchPendingChanges() {
         try {
+            long startNanos = System.nanoTime();
             int processedCount = permissionChangeApplicationService.processPendingChanges(batchSize);
             if (processedCount > 0) {
-                log.info("本次处理权限变更记录 {} 条", processedCount);
+                log.info("本次处理权限变更记录 {} 条，耗时 {} ms",
+                        processedCount, (System.nanoTime() - startNanos) / 1_000_000);
             }
+            return processedCount;
         } catch (RuntimeException exception) {
             log.error("扫描或处理权限变更记录失败，将在下次调度时重试", exception);
+            return 0;
+        }
+    }
+
+    /**
+     * 计算下一轮等待时间。
+     *
+     * @param processedCount 本轮处理记录数
+     * @param delayMillis 本轮等待时间
+     * @return 下一轮等待毫秒数；0 表示立即处理下一批
+     */
+    long nextDelayMillis(int processedCount, long delayMillis) {
+        if (processedCount >= batchSize) {
+            return 0L;
+        }
+        if (processedCount > 0) {
+            return minDelayMillis;
         }
+        return Math.min(maxDelayMillis, Math.max(minDelayMillis, delayMillis * 2));
     }
 }
@@ -0,0 +1,69 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定时采样各优先级队列的下发延迟并发布为指标。
+ *
+ * <p>指标 {@code permission.change_dispatch.lag} 按 {@code lane} 标签区分优先级，
+ * 值为最早到期而仍未领取的记录已等待的秒数。采样由定时任务执行，
+ * 指标抓取只读取最近一次采样结果，不会访问数据库。</p>
+ */
+@Slf4j
+@Component
+public class PermissionChangeLagMonitor {
+
+    /** 权限变更下发应用服务。 */
+    private final PermissionChangeApplicationService permissionChangeApplicationService;
+
+    /** 各优先级最近一次采样的下发延迟毫秒数。 */
+    private final Map<PermissionChangePriorityEnum, AtomicLong> lagMillis =
+            new EnumMap<>(PermissionChangePriorityEnum.class);
+
+    /**
+     * 创建下发延迟监控并为每个优先级注册指标。
+     *
+     * @param permissionChangeApplicationService 权限变更下发应用服务
+     * @param meterRegistry 指标注册表
+     */
+    public PermissionChangeLagMonitor(PermissionChangeApplicationService permissionChangeApplicationService,
+                                      MeterRegistry meterRegistry) {
+        this.permissionChangeApplicationService = permissionChangeApplicationService;
+        for (PermissionChangePriorityEnum priority : PermissionChangePriorityEnum.values()) {
+            AtomicLong lag = new AtomicLong();
+            lagMillis.put(priority, lag);
+            Gauge.builder("permission.change_dispatch.lag", lag, value -> value.get() / 1000.0)
+                    .description("权限变更队列最早到期记录的等待时长")
+                    .baseUnit("seconds")
+                    .tag("lane", priority.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 采样各优先级队列的下发延迟；仓储异常只记录日志，指标保留上一次采样结果。
+     */
+    @Scheduled(initialDelayString = "${permission.change-dispatch.lag-sample-interval-ms:10000}",
+            fixedDelayString = "${permission.change-dispatch.lag-sample-interval-ms:10000}")
+    public void sample() {
+        try {
+            Map<PermissionChangePriorityEnum, Duration> dispatchLag =
+                    permissionChangeApplicationService.measureDispatchLag();
+            dispatchLag.forEach((priority, lag) -> lagMillis.get(priority).set(lag.toMillis()));
+        } catch (RuntimeException exception) {
+            log.warn("采样权限变更下发延迟失败，将在下次采样时重试", exception);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeOutboxSize;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定时清理处理成功超过保留时长的权限变更事务发件箱数据。
+ *
+ * <p>已成功的记录和投递只用于排查，不再参与领取；长期保留会让下发索引持续膨胀，拖慢领取语句。
+ * 清理按小批物理删除，每次最多执行固定批数，剩余数据留给下一次调度。</p>
+ *
+ * <p>指标 {@code permission.change_retention.purged} 按 {@code table} 标签累计删除行数，
+ * 其速率即清理吞吐；{@code permission.change_outbox.rows} 发布每次清理后各表的估算行数。</p>
+ */
+@Slf4j
+@Component
+public class PermissionChangeRetentionScheduler {
+
+    /** 权限变更下发应用服务。 */
+    private final PermissionChangeApplicationService permissionChangeApplicationService;
+
+    /** 处理成功后的保留时长。 */
+    private final Duration retention;
+
+    /** 每批每张表的最大删除数量。 */
+    private final int batchSize;
+
+    /** 单次清理最多执行的批数。 */
+    private final int maxBatches;
+
+    /** 累计删除的权限变更记录数。 */
+    private final Counter purgedRecords;
+
+    /** 累计删除的按系统投递数。 */
+    private final Counter purgedDeliveries;
+
+    /** 最近一次采样的权限变更记录表估算行数。 */
+    private final AtomicLong recordRows = new AtomicLong();
+
+    /** 最近一次采样的按系统投递表估算行数。 */
+    private final AtomicLong deliveryRows = new AtomicLong();
+
+    /**
+     * 创建权限变更保留期清理调度器并注册指标。
+     *
+     * @param permissionChangeApplicationService 权限变更下发应用服务
+     * @param meterRegistry 指标注册表
+     * @param retentionDays 处理成功后的保留天数
+     * @param batchSize 每批每张表的最大删除数量
+     * @param maxBatches 单次清理最多执行的批数
+     */
+    public PermissionChangeRetentionScheduler(
+            PermissionChangeApplicationService permissionChangeApplicationService,
+            MeterRegistry meterRegistry,
+            @Value("${permission.change-retention.retention-days:7}") long retentionDays,
+            @Value("${permission.change-retention.batch-size:500}") int batchSize,
+            @Value("${permission.change-retention.max-batches:20}") int maxBatches) {
+        this.permissionChangeApplicationService = permissionChangeApplicationService;
+        this.retention = Duration.ofDays(Math.max(1L, retentionDays));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+        this.purgedRecords = purgedCounter(meterRegistry, "permission_change_record");
+        this.purgedDeliveries = purgedCounter(meterRegistry, "permission_change_delivery");
+        registerRowGauge(meterRegistry, "permission_change_record", recordRows);
+        registerRowGauge(meterRegistry, "permission_change_delivery", deliveryRows);
+    }
+
+    /**
+     * 清理过期数据并采样各表行数；异常只记录日志，下次调度时重试。
+     */
+    @Scheduled(initialDelayString = "${permission.change-retention.interval-ms:600000}",
+            fixedDelayString = "${permission.change-retention.interval-ms:600000}")
+    public void purge() {
+        // 1. 分批删除过期数据，已删除的批次即使后续失败也计入指标
+        try {
+            PermissionChangePurgeResult result =
+                    permissionChangeApplicationService.purgeExpiredChanges(retention, batchSize, maxBatches);
+            purgedRecords.increment(result.purgedRecords());
+            purgedDeliveries.increment(result.purgedDeliveries());
+            if (result.purgedRecords() > 0 || result.purgedDeliveries() > 0) {
+                log.info("清理过期权限变更数据，记录 {} 条，投递 {} 条",
+                        result.purgedRecords(), result.purgedDeliveries());
+            }
+        } catch (RuntimeException exception) {
+            log.warn("清理过期权限变更数据失败，将在下次调度时重试", exception);
+        }
+
+        // 2. 采样清理后的表规模，观察保留期配置是否足以抵消写入增长
+        try {
+            PermissionChangeOutboxSize outboxSize = permissionChangeApplicationService.estimateOutboxSize();
+            recordRows.set(outboxSize.records());
+            deliveryRows.set(outboxSize.deliveries());
+        } catch (RuntimeException exception) {
+            log.warn("采样权限变更发件箱行数失败，将在下次调度时重试", exception);
+        }
+    }
+
+    /**
+     * 注册指定表的清理行数计数器。
+     *
+     * @param meterRegistry 指标注册表
+     * @param table 表名
+     * @return 清理行数计数器
+     */
+    private static Counter purgedCounter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("permission.change_retention.purged")
+                .description("保留期清理删除的权限变更发件箱行数")
+                .baseUnit("rows")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册指定表的估算行数指标。
+     *
+     * @param meterRegistry 指标注册表
+     * @param table 表名
+     * @param rows 最近一次采样的估算行数
+     */
+    private static void registerRowGauge(MeterRegistry meterRegistry, String table, AtomicLong rows) {
+        Gauge.builder("permission.change_outbox.rows", rows, AtomicLong::get)
+                .description("权限变更发件箱表的估算行数")
+                .baseUnit("rows")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,47 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+
+/**
+ * 定时续约本实例的权限变更发件箱分片租约。
+ *
+ * <p>续约间隔需明显短于租约时长，单次续约失败不会让租约过期；实例停止时主动释放租约，
+ * 其余实例在下一次续约时接管其分片，无需等待租约过期。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PermissionDispatchShardLeaseScheduler {
+
+    /** 权限变更下发应用服务。 */
+    private final PermissionChangeApplicationService permissionChangeApplicationService;
+
+    /**
+     * 续约分片租约；失败只记录日志，租约过期后本实例退回领取全部分片。
+     */
+    @Scheduled(fixedDelayString = "${permission.change-dispatch.shard-lease-renew-interval-ms:5000}")
+    public void renew() {
+        try {
+            permissionChangeApplicationService.renewDispatchShardLease();
+        } catch (RuntimeException exception) {
+            log.warn("续约权限变更下发分片租约失败，将在下次调度时重试", exception);
+        }
+    }
+
+    /**
+     * 应用关闭时释放分片租约；下发循环已先于该回调停止。
+     */
+    @PreDestroy
+    void release() {
+        try {
+            permissionChangeApplicationService.releaseDispatchShardLease();
+        } catch (RuntimeException exception) {
+            log.warn("释放权限变更下发分片租约失败，其他实例将在租约过期后接管", exception);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限变更下发循环的唤醒信号。
+ *
+ * <p>等待期间收到的多次信号合并为一次唤醒，下发循环每轮最多被提前唤醒一次。</p>
+ */
+@Component
+public class PermissionDispatchWakeup {
+
+    /** 至多持有一个许可的唤醒信号。 */
+    private final Semaphore signal = new Semaphore(0);
+
+    /**
+     * 发送唤醒信号。
+     */
+    public void signal() {
+        if (signal.availablePermits() == 0) {
+            signal.release();
+        }
+    }
+
+    /**
+     * 等待唤醒信号或超时。
+     *
+     * @param timeoutMillis 最长等待毫秒数
+     * @return 是否因收到信号而提前返回
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        boolean signalled = signal.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        signal.drainPermits();
+        return signalled;
+    }
+}
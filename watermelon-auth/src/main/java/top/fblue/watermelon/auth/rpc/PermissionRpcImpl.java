@@ -4,13 +4,20 @@ import lombok.RequiredArgsConstructor;
 import org.apache.dubbo.config.annotation.DubboService;
 import top.fblue.common.response.ApiResponse;
 import top.fblue.watermelon.api.PermissionRpc;
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionDictionaryRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
+import top.fblue.watermelon.api.response.PermissionDictionaryResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
 import top.fblue.watermelon.auth.application.service.PermissionApplicationService;
 import top.fblue.watermelon.auth.rpc.validator.PermissionRpcRequestValidator;
 
+import java.util.List;
+
 /**
- * 用户中心权限快照 RPC 实现。
+ * 用户中心权限快照及权限判断 RPC 实现。
  */
 @DubboService
 @RequiredArgsConstructor
@@ -33,4 +40,40 @@ public class PermissionRpcImpl implements PermissionRpc {
         // 2. 查询权限快照并封装统一响应
         return ApiResponse.success(permissionApplicationService.getPermissionSnapshot(request));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApiResponse<PermissionDictionaryResponse> getPermissionDictionary(PermissionDictionaryRequest request) {
+        // 1. 统一校验请求参数、客户端注册状态和 Dubbo 调用方身份
+        requestValidator.validateDictionaryRequest(request);
+
+        // 2. 查询权限编码字典并封装统一响应
+        return ApiResponse.success(permissionApplicationService.getPermissionDictionary(request));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApiResponse<PermissionCheckResponse> checkPermissions(PermissionCheckRequest request) {
+        // 1. 统一校验请求参数、客户端注册状态和 Dubbo 调用方身份
+        requestValidator.validateCheckRequest(request);
+
+        // 2. 批量判断资源权限并封装统一响应
+        return ApiResponse.success(permissionApplicationService.checkPermissions(request));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApiResponse<List<PermissionCheckResponse>> batchCheckPermissions(BatchPermissionCheckRequest request) {
+        // 1. 统一校验请求参数、客户端注册状态和 Dubbo 调用方身份
+        requestValidator.validateBatchCheckRequest(request);
+
+        // 2. 逐用户批量判断资源权限并封装统一响应
+        return ApiResponse.success(permissionApplicationService.batchCheckPermissions(request));
+    }
 }
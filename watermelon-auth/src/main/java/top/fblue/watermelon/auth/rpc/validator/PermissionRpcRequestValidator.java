@@ -6,9 +6,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import top.fblue.auth.exception.SsoAuthException;
 import top.fblue.common.enums.ApiCodeEnum;
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionDictionaryRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
 import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
 
+import java.util.List;
+
 /**
  * 权限 RPC 请求校验器。
  */
@@ -16,6 +21,12 @@ import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
 @RequiredArgsConstructor
 public class PermissionRpcRequestValidator {
 
+    /** 单次权限判断允许的最大资源编码数量。 */
+    private static final int MAX_CHECK_RESOURCE_CODES = 500;
+
+    /** 单次多用户权限判断允许的最大用户数量。 */
+    private static final int MAX_CHECK_USERS = 100;
+
     /** 已注册的 SSO 客户端配置。 */
     private final AuthProperties authProperties;
 
@@ -25,12 +36,82 @@ public class PermissionRpcRequestValidator {
      * @param request 权限快照请求
      */
     public void validateSnapshotRequest(PermissionSnapshotRequest request) {
-        if (request == null || request.getUserId() == null || request.getUserId() <= 0
+        if (request == null || !isValidUserId(request.getUserId())
                 || !StringUtils.hasText(request.getSystemCode())) {
             throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "用户和系统编码不能为空");
         }
+        validateCaller(request.getSystemCode());
+    }
+
+    /**
+     * 校验权限编码字典请求参数和 Dubbo 调用方身份。
+     *
+     * @param request 权限编码字典请求
+     */
+    public void validateDictionaryRequest(PermissionDictionaryRequest request) {
+        if (request == null || !StringUtils.hasText(request.getSystemCode())) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "系统编码不能为空");
+        }
+        validateCaller(request.getSystemCode());
+    }
+
+    /**
+     * 校验单用户权限判断请求参数和 Dubbo 调用方身份。
+     *
+     * @param request 权限判断请求
+     */
+    public void validateCheckRequest(PermissionCheckRequest request) {
+        if (request == null || !isValidUserId(request.getUserId())
+                || !StringUtils.hasText(request.getSystemCode())) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "用户和系统编码不能为空");
+        }
+        validateResourceCodes(request.getResourceCodes());
+        validateCaller(request.getSystemCode());
+    }
+
+    /**
+     * 校验多用户权限判断请求参数和 Dubbo 调用方身份。
+     *
+     * @param request 多用户权限判断请求
+     */
+    public void validateBatchCheckRequest(BatchPermissionCheckRequest request) {
+        if (request == null || request.getUserIds() == null || request.getUserIds().isEmpty()
+                || !StringUtils.hasText(request.getSystemCode())) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "用户列表和系统编码不能为空");
+        }
+        if (request.getUserIds().size() > MAX_CHECK_USERS) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST,
+                    "单次最多判断 " + MAX_CHECK_USERS + " 个用户");
+        }
+        if (!request.getUserIds().stream().allMatch(this::isValidUserId)) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "用户 ID 不合法");
+        }
+        validateResourceCodes(request.getResourceCodes());
+        validateCaller(request.getSystemCode());
+    }
 
-        String systemCode = request.getSystemCode();
+    /**
+     * 校验待判断的资源编码列表。
+     *
+     * @param resourceCodes 完整资源编码列表
+     */
+    private void validateResourceCodes(List<String> resourceCodes) {
+        if (resourceCodes == null || resourceCodes.isEmpty()
+                || !resourceCodes.stream().allMatch(StringUtils::hasText)) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST, "资源编码不能为空");
+        }
+        if (resourceCodes.size() > MAX_CHECK_RESOURCE_CODES) {
+            throw new SsoAuthException(ApiCodeEnum.BAD_REQUEST,
+                    "单次最多判断 " + MAX_CHECK_RESOURCE_CODES + " 个资源编码");
+        }
+    }
+
+    /**
+     * 校验 Dubbo 调用方与目标系统一致且客户端已启用。
+     *
+     * @param systemCode 目标系统编码
+     */
+    private void validateCaller(String systemCode) {
         String callerApplication = RpcContext.getServiceContext().getRemoteApplicationName();
         AuthProperties.Client client = authProperties.getClients().get(systemCode);
         if (!StringUtils.hasText(callerApplication)
@@ -41,4 +122,14 @@ public class PermissionRpcRequestValidator {
                     "RPC 调用方无权查询该系统权限");
         }
     }
+
+    /**
+     * 判断用户 ID 是否合法。
+     *
+     * @param userId 用户 ID
+     * @return 非空且大于 0 时返回 {@code true}
+     */
+    private boolean isValidUserId(Long userId) {
+        return userId != null && userId > 0;
+    }
 }
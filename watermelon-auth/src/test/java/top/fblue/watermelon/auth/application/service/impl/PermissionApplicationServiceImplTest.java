@@ -1,20 +1,32 @@
 package top.fblue.watermelon.auth.application.service.impl;
 
 import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.api.request.BatchPermissionCheckRequest;
+import top.fblue.watermelon.api.request.PermissionCheckRequest;
 import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionCheckResponse;
 import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
 import top.fblue.watermelon.auth.application.converter.PermissionConverter;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionaryEntry;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionQueryDomainService;
 
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class PermissionApplicationServiceImplTest {
@@ -54,4 +66,142 @@ class PermissionApplicationServiceImplTest {
         assertFalse(service.hasApiPermission(
                 7L, "watermelon", "watermelon:admin.users.page"));
     }
+
+    @Test
+    void shouldCheckMixedResourceCodesAgainstOneSnapshot() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        when(domainService.getPermissionSnapshot(7L, "banana")).thenReturn(new PermissionSnapshot(7L, "banana", List.of(
+                new PermissionResource("banana:admin.oss.add.button", PermissionResourceTypeEnum.BUTTON),
+                new PermissionResource("banana:POST:/api/admin/oss", PermissionResourceTypeEnum.API)
+        ), 3L, 5L));
+
+        PermissionCheckResponse result = service.checkPermissions(PermissionCheckRequest.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .resourceCodes(List.of("banana:admin.oss.add.button", "banana:admin.oss.delete.button",
+                        "banana:POST:/api/admin/oss"))
+                .build());
+
+        assertEquals(Map.of(
+                "banana:admin.oss.add.button", true,
+                "banana:admin.oss.delete.button", false,
+                "banana:POST:/api/admin/oss", true), result.getDecisions());
+        assertEquals(List.of("banana:admin.oss.add.button", "banana:admin.oss.delete.button",
+                "banana:POST:/api/admin/oss"), List.copyOf(result.getDecisions().keySet()));
+        assertEquals(3L, result.getUserPermissionVersion());
+    }
+
+    @Test
+    void shouldLoadEachDistinctUserSnapshotOnceForBatchCheck() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        when(domainService.getPermissionSnapshots(List.of(7L, 9L), "banana")).thenReturn(List.of(
+                new PermissionSnapshot(7L, "banana", List.of(
+                        new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE)
+                ), 3L, 5L),
+                new PermissionSnapshot(9L, "banana", List.of(), 1L, 5L)));
+
+        List<PermissionCheckResponse> result = service.batchCheckPermissions(BatchPermissionCheckRequest.builder()
+                .userIds(List.of(7L, 9L, 7L))
+                .systemCode("banana")
+                .resourceCodes(List.of("banana:home.page"))
+                .build());
+
+        assertEquals(List.of(7L, 9L), result.stream().map(PermissionCheckResponse::getUserId).toList());
+        assertTrue(result.get(0).getDecisions().get("banana:home.page"));
+        assertFalse(result.get(1).getDecisions().get("banana:home.page"));
+        verify(domainService, times(1)).getPermissionSnapshots(List.of(7L, 9L), "banana");
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWhenKnownVersionsAreCurrent() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        when(domainService.getPermissionVersions(7L, "banana")).thenReturn(new PermissionVersions(3L, 5L));
+
+        PermissionSnapshotResponse result = service.getPermissionSnapshot(PermissionSnapshotRequest.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .knownUserPermissionVersion(3L)
+                .knownSystemPermissionVersion(5L)
+                .build());
+
+        assertTrue(result.isNotModified());
+        assertEquals(3L, result.getUserPermissionVersion());
+        assertNull(result.getPageCodes());
+        verify(domainService, never()).getPermissionSnapshot(7L, "banana");
+    }
+
+    @Test
+    void shouldReturnFullSnapshotWhenKnownVersionIsStale() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        when(domainService.getPermissionVersions(7L, "banana")).thenReturn(new PermissionVersions(4L, 5L));
+        when(domainService.getPermissionSnapshot(7L, "banana")).thenReturn(new PermissionSnapshot(7L, "banana", List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE)
+        ), 4L, 5L));
+
+        PermissionSnapshotResponse result = service.getPermissionSnapshot(PermissionSnapshotRequest.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .knownUserPermissionVersion(3L)
+                .knownSystemPermissionVersion(5L)
+                .build());
+
+        assertFalse(result.isNotModified());
+        assertEquals(List.of("banana:home.page"), result.getPageCodes());
+    }
+
+    @Test
+    void shouldEncodeCompactSnapshotWithDictionaryIds() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        PermissionDictionary dictionary = PermissionDictionary.of("banana", 5L, List.of(
+                new PermissionDictionaryEntry(21, "banana:home.page"),
+                new PermissionDictionaryEntry(8, "banana:POST:/api/admin/oss")));
+        when(domainService.getPermissionSnapshot(7L, "banana")).thenReturn(new PermissionSnapshot(7L, "banana", List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("banana:POST:/api/admin/oss", PermissionResourceTypeEnum.API)
+        ), 3L, 5L));
+        when(domainService.getPermissionDictionary("banana")).thenReturn(dictionary);
+
+        PermissionSnapshotResponse result = service.getPermissionSnapshot(PermissionSnapshotRequest.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .compact(true)
+                .build());
+
+        assertEquals(dictionary.version(), result.getDictionaryVersion());
+        assertArrayEquals(new int[]{21}, result.getPageIds());
+        assertArrayEquals(new int[]{}, result.getButtonIds());
+        assertArrayEquals(new int[]{8}, result.getApiIds());
+        assertNull(result.getPageCodes());
+    }
+
+    @Test
+    void shouldFallBackToCodesWhenDictionaryMissesCode() {
+        PermissionQueryDomainService domainService = mock(PermissionQueryDomainService.class);
+        PermissionApplicationServiceImpl service =
+                new PermissionApplicationServiceImpl(domainService, new PermissionConverter());
+        when(domainService.getPermissionSnapshot(7L, "banana")).thenReturn(new PermissionSnapshot(7L, "banana", List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE)
+        ), 3L, 5L));
+        when(domainService.getPermissionDictionary("banana"))
+                .thenReturn(PermissionDictionary.of("banana", 5L, List.of()));
+
+        PermissionSnapshotResponse result = service.getPermissionSnapshot(PermissionSnapshotRequest.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .compact(true)
+                .build());
+
+        assertNull(result.getDictionaryVersion());
+        assertEquals(List.of("banana:home.page"), result.getPageCodes());
+    }
 }
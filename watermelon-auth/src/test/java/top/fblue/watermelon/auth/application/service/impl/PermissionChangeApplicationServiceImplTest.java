@@ -1,16 +1,24 @@
 package top.fblue.watermelon.auth.application.service.impl;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.service.PermissionChangeDomainService;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -20,24 +28,154 @@ class PermissionChangeApplicationServiceImplTest {
     void shouldDispatchOnlyRecordsClaimedByCurrentInstance() {
         PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
         PermissionChangeApplicationServiceImpl applicationService =
-                new PermissionChangeApplicationServiceImpl(domainService);
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 8);
         PermissionChangeRecord claimed = record(1L, "event-1");
-        PermissionChangeRecord claimedByOtherInstance = record(2L, "event-2");
-        when(domainService.findDispatchableChanges(20))
-                .thenReturn(List.of(claimed, claimedByOtherInstance));
-        when(domainService.tryClaim(claimed)).thenReturn(true);
-        when(domainService.tryClaim(claimedByOtherInstance)).thenReturn(false);
+        when(domainService.claimDispatchableChanges(20)).thenReturn(List.of(claimed));
 
         int result = applicationService.processPendingChanges(20);
 
         assertEquals(1, result);
-        verify(domainService).dispatch(claimed);
-        verify(domainService, never()).dispatch(claimedByOtherInstance);
+        verify(domainService).dispatchAll(List.of(claimed));
+    }
+
+    @Test
+    void shouldSkipDispatchWhenNothingIsClaimed() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 8);
+        when(domainService.claimDispatchableChanges(20)).thenReturn(List.of());
+
+        assertEquals(0, applicationService.processPendingChanges(20));
+        verify(domainService, never()).dispatchAll(anyList());
+        verify(domainService, never()).redeliverAll(anyList());
+    }
+
+    @Test
+    void shouldRedeliverDueDeliveriesEvenWithoutNewRecords() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 8);
+        PermissionChangeDelivery delivery = new PermissionChangeDelivery(
+                11L, 1L, "event-1", "banana", 7L, 4L, 5L, 1, "banana unavailable");
+        when(domainService.claimDispatchableChanges(20)).thenReturn(List.of());
+        when(domainService.claimDispatchableDeliveries(20)).thenReturn(List.of(delivery));
+
+        assertEquals(1, applicationService.processPendingChanges(20));
+        verify(domainService, never()).dispatchAll(anyList());
+        verify(domainService).redeliverAll(List.of(delivery));
+    }
+
+    @Test
+    void shouldKeepEachUserInOnePartition() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        PermissionChangeRecord firstOfUser7 = record(1L, "event-1", 7L);
+        PermissionChangeRecord user8 = record(2L, "event-2", 8L);
+        PermissionChangeRecord secondOfUser7 = record(3L, "event-3", 7L);
+        when(domainService.claimDispatchableChanges(20))
+                .thenReturn(List.of(firstOfUser7, user8, secondOfUser7));
+
+        int result = applicationService.processPendingChanges(20);
+
+        assertEquals(3, result);
+        InOrder inOrder = inOrder(domainService);
+        inOrder.verify(domainService).dispatchAll(List.of(user8));
+        inOrder.verify(domainService).dispatchAll(List.of(firstOfUser7, secondOfUser7));
+    }
+
+    @Test
+    void shouldHandWholeBatchToDomainWhenSystemRecordIsClaimed() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        PermissionChangeRecord system = new PermissionChangeRecord(
+                4L, "event-4", PermissionChangeTypeEnum.SYSTEM, null,
+                PermissionChangeStatusEnum.PENDING, 0);
+        List<PermissionChangeRecord> records = List.of(record(1L, "event-1", 7L), system);
+        when(domainService.claimDispatchableChanges(20)).thenReturn(records);
+
+        assertEquals(2, applicationService.processPendingChanges(20));
+        verify(domainService).dispatchAll(records);
+    }
+
+    @Test
+    void shouldExpandRoleRecordsInOrderedLaneBeforeUserPartitions() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        PermissionChangeRecord firstRole = role(4L, "event-4", 3L);
+        PermissionChangeRecord user = record(1L, "event-1", 8L);
+        PermissionChangeRecord secondRole = role(5L, "event-5", 6L);
+        when(domainService.claimDispatchableChanges(20)).thenReturn(List.of(firstRole, user, secondRole));
+
+        assertEquals(3, applicationService.processPendingChanges(20));
+        InOrder inOrder = inOrder(domainService);
+        inOrder.verify(domainService).dispatchAll(List.of(firstRole, secondRole));
+        inOrder.verify(domainService).dispatchAll(List.of(user));
+    }
+
+    @Test
+    void shouldDispatchUrgentRecordsBeforeSystemBatch() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        PermissionChangeRecord revocation = PermissionChangeRecord.pendingUserChange(
+                "event-1", 7L, PermissionChangePriorityEnum.URGENT);
+        PermissionChangeRecord system = new PermissionChangeRecord(
+                4L, "event-4", PermissionChangeTypeEnum.SYSTEM, null,
+                PermissionChangeStatusEnum.PENDING, 0);
+        PermissionChangeRecord user = record(2L, "event-2", 8L);
+        when(domainService.claimDispatchableChanges(20)).thenReturn(List.of(revocation, system, user));
+
+        assertEquals(3, applicationService.processPendingChanges(20));
+        InOrder inOrder = inOrder(domainService);
+        inOrder.verify(domainService).dispatchAll(List.of(revocation));
+        inOrder.verify(domainService).dispatchAll(List.of(system, user));
+    }
+
+    @Test
+    void shouldPurgeInBatchesUntilBothTablesRunShort() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        Duration retention = Duration.ofDays(7);
+        when(domainService.purgeSucceededChanges(retention, 100)).thenReturn(
+                new PermissionChangePurgeResult(100, 30),
+                new PermissionChangePurgeResult(40, 0));
+
+        assertEquals(new PermissionChangePurgeResult(140, 30),
+                applicationService.purgeExpiredChanges(retention, 100, 10));
+        verify(domainService, times(2)).purgeSucceededChanges(retention, 100);
+    }
+
+    @Test
+    void shouldStopPurgingAfterMaxBatches() {
+        PermissionChangeDomainService domainService = mock(PermissionChangeDomainService.class);
+        PermissionChangeApplicationServiceImpl applicationService =
+                new PermissionChangeApplicationServiceImpl(domainService, Runnable::run, 2);
+        Duration retention = Duration.ofDays(7);
+        when(domainService.purgeSucceededChanges(retention, 100))
+                .thenReturn(new PermissionChangePurgeResult(100, 100));
+
+        assertEquals(new PermissionChangePurgeResult(300, 300),
+                applicationService.purgeExpiredChanges(retention, 100, 3));
+        verify(domainService, times(3)).purgeSucceededChanges(retention, 100);
     }
 
     private PermissionChangeRecord record(Long id, String eventId) {
+        return record(id, eventId, 7L);
+    }
+
+    private PermissionChangeRecord role(Long id, String eventId, Long roleId) {
+        return new PermissionChangeRecord(
+                id, eventId, PermissionChangeTypeEnum.ROLE, PermissionChangePriorityEnum.BULK, null, roleId, null,
+                PermissionChangeStatusEnum.PENDING, 0, 0L);
+    }
+
+    private PermissionChangeRecord record(Long id, String eventId, Long userId) {
         return new PermissionChangeRecord(
-                id, eventId, PermissionChangeTypeEnum.USER, 7L,
+                id, eventId, PermissionChangeTypeEnum.USER, userId,
                 PermissionChangeStatusEnum.PENDING, 0);
     }
 }
@@ -3,27 +3,50 @@ package top.fblue.watermelon.auth.domain.permission.service.impl;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePurgeResult;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.UserPermissionNotification;
+import top.fblue.watermelon.auth.domain.permission.repository.EffectivePermissionRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeDeliveryRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionChangeRecordRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchShardRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDispatchSignalRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionNotificationRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionVersionRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.RoleMemberRepository;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -37,7 +60,13 @@ class PermissionChangeDomainServiceImplTest {
     @Test
     void shouldRecordDistinctUserChangesInTransactionalOutbox() {
         PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
-        PermissionChangeDomainServiceImpl domainService = service(recordRepository);
+        PermissionDispatchSignalRepository signalRepository = mock(PermissionDispatchSignalRepository.class);
+        PermissionChangeDomainServiceImpl domainService = new PermissionChangeDomainServiceImpl(
+                recordRepository, mock(PermissionChangeDeliveryRepository.class),
+                mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                mock(RoleMemberRepository.class), signalRepository, mock(PermissionDispatchShardRepository.class),
+                FIXED_CLOCK);
 
         domainService.recordUserPermissionChanges(Arrays.asList(7L, null, 7L, 9L));
 
@@ -49,6 +78,9 @@ class PermissionChangeDomainServiceImplTest {
         assertEquals(List.of(PermissionChangeTypeEnum.USER, PermissionChangeTypeEnum.USER),
                 records.stream().map(PermissionChangeRecord::changeType).toList());
         assertNotEquals(records.get(0).eventId(), records.get(1).eventId());
+        InOrder inOrder = inOrder(recordRepository, signalRepository);
+        inOrder.verify(recordRepository).saveAll(records);
+        inOrder.verify(signalRepository).signalAfterCommit();
     }
 
     @Test
@@ -56,45 +88,78 @@ class PermissionChangeDomainServiceImplTest {
         PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
         PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
         PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
         PermissionChangeDomainServiceImpl domainService = service(
-                recordRepository, versionRepository, notificationRepository);
+                recordRepository, versionRepository, notificationRepository, effectivePermissionRepository);
         PermissionChangeRecord record = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
-        when(versionRepository.incrementUserPermissionVersion("event-1", 7L)).thenReturn(4L);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-1"), List.of(7L)))
+                .thenReturn(List.of(4L));
         when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
         when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
 
         domainService.dispatch(record);
 
-        InOrder inOrder = inOrder(versionRepository, notificationRepository, recordRepository);
-        inOrder.verify(versionRepository).incrementUserPermissionVersion("event-1", 7L);
+        InOrder inOrder = inOrder(
+                effectivePermissionRepository, versionRepository, notificationRepository, recordRepository);
+        inOrder.verify(effectivePermissionRepository).refreshUser(7L);
+        inOrder.verify(versionRepository).incrementUserPermissionVersions(List.of("event-1"), List.of(7L));
         inOrder.verify(notificationRepository).findNotifiableSystemCodes();
         inOrder.verify(versionRepository).getSystemPermissionVersion("banana");
-        inOrder.verify(notificationRepository).notifyUserChanged(
-                "banana", "event-1", 7L, 4L, 5L);
-        inOrder.verify(recordRepository).markSucceeded(1L, FIXED_TIME);
+        inOrder.verify(notificationRepository).notifyUsersChanged(
+                "banana", List.of(new UserPermissionNotification("event-1", 7L, 4L, 5L)));
+        inOrder.verify(recordRepository).markSucceeded(null, List.of(1L), FIXED_TIME);
     }
 
     @Test
-    void shouldScheduleRetryWhenNotificationFails() {
+    void shouldRecordDeliveryAndMarkSucceededWhenNotificationFails() {
         PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
         PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
         PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
         PermissionChangeDomainServiceImpl domainService = service(
-                recordRepository, versionRepository, notificationRepository);
+                recordRepository, deliveryRepository, versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class));
         PermissionChangeRecord record = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
-        when(versionRepository.incrementUserPermissionVersion("event-1", 7L)).thenReturn(4L);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-1"), List.of(7L)))
+                .thenReturn(List.of(4L));
         when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
         when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
-        org.mockito.Mockito.doThrow(new IllegalStateException("banana unavailable"))
-                .when(notificationRepository).notifyUserChanged(
-                        "banana", "event-1", 7L, 4L, 5L);
+        when(notificationRepository.notifyUsersChanged(
+                "banana", List.of(new UserPermissionNotification("event-1", 7L, 4L, 5L))))
+                .thenReturn(Map.of("event-1", "banana unavailable"));
 
         domainService.dispatch(record);
 
-        verify(recordRepository).markFailed(
-                eq(1L), eq(1), eq(FIXED_TIME.plusSeconds(1)),
-                eq("banana unavailable"), eq(FIXED_TIME));
-        verify(recordRepository, never()).markSucceeded(eq(1L), org.mockito.ArgumentMatchers.any());
+        InOrder inOrder = inOrder(deliveryRepository, recordRepository);
+        inOrder.verify(deliveryRepository).saveFailed(List.of(new PermissionChangeDelivery(
+                null, 1L, "event-1", "banana", 7L, 4L, 5L, 1, "banana unavailable")),
+                FIXED_TIME.plusSeconds(1));
+        inOrder.verify(recordRepository).markSucceeded(null, List.of(1L), FIXED_TIME);
+        verify(recordRepository, never()).markFailed(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldIgnoreFailedEventIdsOutsideTheBatch() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, deliveryRepository, versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class));
+        PermissionChangeRecord record = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-1"), List.of(7L)))
+                .thenReturn(List.of(4L));
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+        when(notificationRepository.notifyUsersChanged(eq("banana"), anyList()))
+                .thenReturn(Map.of("event-unknown", "banana unavailable"));
+
+        domainService.dispatch(record);
+
+        verify(deliveryRepository, never()).saveFailed(anyList(), any());
+        verify(recordRepository).markSucceeded(null, List.of(1L), FIXED_TIME);
+        verify(recordRepository, never()).markFailed(any(), anyList(), any());
     }
 
     @Test
@@ -102,30 +167,575 @@ class PermissionChangeDomainServiceImplTest {
         PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
         PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
         PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
         PermissionChangeDomainServiceImpl domainService = service(
-                recordRepository, versionRepository, notificationRepository);
+                recordRepository, versionRepository, notificationRepository, effectivePermissionRepository);
         PermissionChangeRecord record = record(2L, "event-2", PermissionChangeTypeEnum.SYSTEM, null, 0);
         when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
         when(versionRepository.incrementSystemPermissionVersion("event-2", "banana")).thenReturn(6L);
 
         domainService.dispatch(record);
 
+        InOrder inOrder = inOrder(effectivePermissionRepository, versionRepository);
+        inOrder.verify(effectivePermissionRepository).refreshUsersAfter(null, 0L, 500);
+        inOrder.verify(versionRepository).incrementSystemPermissionVersion("event-2", "banana");
+        verify(notificationRepository).notifySystemChanged("banana", "event-2", 6L);
+        verify(recordRepository).markSucceeded(null, List.of(2L), FIXED_TIME);
+    }
+
+    @Test
+    void shouldCheckpointSystemRefreshAndReleaseAbsorbedRecordsUntilAllUsersAreRefreshed() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, versionRepository, notificationRepository, effectivePermissionRepository);
+        PermissionChangeRecord user = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
+        PermissionChangeRecord system = new PermissionChangeRecord(
+                2L, "event-2", PermissionChangeTypeEnum.SYSTEM, PermissionChangePriorityEnum.BULK, null, null,
+                null, PermissionChangeStatusEnum.PROCESSING, 0, 1_000L);
+        when(effectivePermissionRepository.refreshUsersAfter(null, 1_000L, 500))
+                .thenReturn(LongStream.rangeClosed(1_001L, 1_500L).boxed().toList());
+
+        domainService.dispatchAll(List.of(user, system));
+
+        verify(recordRepository).markExpanded(null, List.of(
+                new PermissionChangeCheckpoint(1L, 0L),
+                new PermissionChangeCheckpoint(2L, 1_500L)), FIXED_TIME);
+        verify(versionRepository, never()).incrementSystemPermissionVersion(any(), any());
+        verify(notificationRepository, never()).notifySystemChanged(any(), any(), anyLong());
+        verify(recordRepository, never()).markSucceeded(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldIncrementUserVersionsInOneBatchAndTrackFailedSystemPerRecord() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, deliveryRepository, versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class));
+        PermissionChangeRecord first = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
+        PermissionChangeRecord second = record(2L, "event-2", PermissionChangeTypeEnum.USER, 9L, 0);
+        when(versionRepository.incrementUserPermissionVersions(
+                List.of("event-1", "event-2"), List.of(7L, 9L))).thenReturn(List.of(4L, 8L));
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana", "cherry"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+        when(versionRepository.getSystemPermissionVersion("cherry")).thenReturn(3L);
+        when(notificationRepository.notifyUsersChanged("banana", List.of(
+                new UserPermissionNotification("event-1", 7L, 4L, 5L),
+                new UserPermissionNotification("event-2", 9L, 8L, 5L))))
+                .thenReturn(Map.of("event-2", "banana unavailable"));
+        when(notificationRepository.notifyUsersChanged("cherry", List.of(
+                new UserPermissionNotification("event-1", 7L, 4L, 3L),
+                new UserPermissionNotification("event-2", 9L, 8L, 3L))))
+                .thenReturn(Map.of());
+
+        domainService.dispatchAll(List.of(first, second));
+
+        verify(deliveryRepository).saveFailed(List.of(new PermissionChangeDelivery(
+                null, 2L, "event-2", "banana", 9L, 8L, 5L, 1, "banana unavailable")),
+                FIXED_TIME.plusSeconds(1));
+        verify(recordRepository).markSucceeded(null, List.of(1L, 2L), FIXED_TIME);
+        verify(recordRepository, never()).markFailed(any(), anyList(), any());
+        verify(versionRepository, never()).incrementUserPermissionVersion(
+                any(), any());
+    }
+
+    @Test
+    void shouldCoalesceRecordsOfSameUserIntoOneDispatch() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, versionRepository, notificationRepository);
+        PermissionChangeRecord first = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
+        PermissionChangeRecord second = record(2L, "event-2", PermissionChangeTypeEnum.USER, 7L, 0);
+        PermissionChangeRecord third = record(3L, "event-3", PermissionChangeTypeEnum.USER, 7L, 0);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-3"), List.of(7L)))
+                .thenReturn(List.of(4L));
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+
+        domainService.dispatchAll(List.of(second, first, third));
+
+        verify(notificationRepository).notifyUsersChanged(
+                "banana", List.of(new UserPermissionNotification("event-3", 7L, 4L, 5L)));
+        verify(recordRepository).markSucceeded(null, List.of(2L, 1L, 3L), FIXED_TIME);
+        verify(recordRepository, never()).markFailed(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldAbsorbUserChangesIntoPendingSystemChange() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository, deliveryRepository,
+                versionRepository, notificationRepository, effectivePermissionRepository);
+        PermissionChangeRecord user = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 2);
+        PermissionChangeRecord system = record(2L, "event-2", PermissionChangeTypeEnum.SYSTEM, null, 0);
+        PermissionChangeRecord duplicateSystem = record(3L, "event-3", PermissionChangeTypeEnum.SYSTEM, null, 0);
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
+        when(versionRepository.incrementSystemPermissionVersion("event-2", "banana")).thenReturn(6L);
+        org.mockito.Mockito.doThrow(new IllegalStateException("banana unavailable"))
+                .when(notificationRepository).notifySystemChanged(
+                        eq("banana"), eq("event-2"),
+                        anyLong());
+
+        domainService.dispatchAll(List.of(user, system, duplicateSystem));
+
+        verify(effectivePermissionRepository).refreshUsersAfter(null, 0L, 500);
+        verify(effectivePermissionRepository, never()).refreshUser(7L);
+        verify(versionRepository).incrementSystemPermissionVersion("event-2", "banana");
+        verify(notificationRepository, never()).notifyUsersChanged(
+                any(), anyList());
+        verify(deliveryRepository).saveFailed(List.of(new PermissionChangeDelivery(
+                null, 2L, "event-2", "banana", null, 0L, 6L, 1, "banana unavailable")),
+                FIXED_TIME.plusSeconds(1));
+        verify(recordRepository).markSucceeded(null, List.of(1L, 2L, 3L), FIXED_TIME);
+    }
+
+    @Test
+    void shouldRetryWholeSystemChangeWhenVersionIncrementFails() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository, deliveryRepository,
+                versionRepository, notificationRepository, mock(EffectivePermissionRepository.class));
+        PermissionChangeRecord record = record(2L, "event-2", PermissionChangeTypeEnum.SYSTEM, null, 0);
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana", "cherry"));
+        when(versionRepository.incrementSystemPermissionVersion("event-2", "banana")).thenReturn(6L);
+        when(versionRepository.incrementSystemPermissionVersion("event-2", "cherry"))
+                .thenThrow(new IllegalStateException("redis unavailable"));
+
+        domainService.dispatch(record);
+
+        verify(notificationRepository, never()).notifySystemChanged(
+                any(), any(),
+                anyLong());
+        verify(deliveryRepository, never()).saveFailed(anyList(), any());
+        verify(recordRepository).markFailed(null, List.of(new PermissionChangeFailure(
+                2L, 1, FIXED_TIME.plusSeconds(1), "redis unavailable")), FIXED_TIME);
+    }
+
+    @Test
+    void shouldRedeliverOnlyToFailedSystemAndBackOffPerDelivery() {
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(mock(PermissionChangeRecordRepository.class),
+                deliveryRepository, mock(PermissionVersionRepository.class), notificationRepository,
+                mock(EffectivePermissionRepository.class));
+        PermissionChangeDelivery first = new PermissionChangeDelivery(
+                11L, 1L, "event-1", "banana", 7L, 4L, 5L, 1, "banana unavailable");
+        PermissionChangeDelivery second = new PermissionChangeDelivery(
+                12L, 2L, "event-2", "banana", 9L, 8L, 5L, 3, "banana unavailable");
+        PermissionChangeDelivery system = new PermissionChangeDelivery(
+                13L, 3L, "event-3", "banana", null, 0L, 6L, 1, "banana unavailable");
+        PermissionChangeDelivery disabled = new PermissionChangeDelivery(
+                14L, 4L, "event-4", "durian", 7L, 2L, 1L, 5, "durian unavailable");
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana", "cherry"));
+        when(notificationRepository.notifyUsersChanged("banana", List.of(
+                new UserPermissionNotification("event-1", 7L, 4L, 5L),
+                new UserPermissionNotification("event-2", 9L, 8L, 5L))))
+                .thenReturn(Map.of("event-2", "still unavailable"));
+
+        domainService.redeliverAll(List.of(first, second, system, disabled));
+
+        verify(notificationRepository).notifySystemChanged("banana", "event-3", 6L);
+        verify(notificationRepository, never()).notifyUsersChanged(
+                eq("cherry"), anyList());
+        verify(deliveryRepository).markSucceeded(null, List.of(11L, 13L, 14L), FIXED_TIME);
+        verify(deliveryRepository).markFailed(null, List.of(new PermissionChangeFailure(
+                12L, 4, FIXED_TIME.plusSeconds(8), "still unavailable")), FIXED_TIME);
+    }
+
+    @Test
+    void shouldRecordOneRowForRoleChangeRegardlessOfMembers() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+
+        domainService.recordRoleChange(2L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recordRepository).saveAll(captor.capture());
+        PermissionChangeRecord record = captor.getValue().getFirst();
+        assertEquals(PermissionChangeTypeEnum.ROLE, record.changeType());
+        assertEquals(2L, record.scopeId());
+        assertEquals(0L, record.expandCursor());
+        org.mockito.Mockito.verifyNoInteractions(roleMemberRepository);
+    }
+
+    @Test
+    void shouldExpandFullRoleSegmentAndSaveCheckpoint() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class), roleMemberRepository);
+        PermissionChangeRecord record = roleRecord(5L, "event-5", 2L, 100L);
+        List<Long> members = LongStream.rangeClosed(101L, 600L).boxed().toList();
+        when(roleMemberRepository.findUserIdsAfter(2L, 100L, 500)).thenReturn(members);
+        when(versionRepository.incrementUserPermissionVersions(anyList(), eq(members)))
+                .thenReturn(members);
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of());
+
+        domainService.dispatch(record);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> eventIdsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(versionRepository).incrementUserPermissionVersions(
+                eventIdsCaptor.capture(), eq(members));
+        assertEquals("event-5:101", eventIdsCaptor.getValue().getFirst());
+        verify(recordRepository).markExpanded(null, List.of(new PermissionChangeCheckpoint(5L, 600L)), FIXED_TIME);
+        verify(recordRepository, never()).markSucceeded(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldSaveClaimedRoleSegmentWithItsClaimTokenAndKeepFailedDeliveries() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository, deliveryRepository,
+                versionRepository, notificationRepository, mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+        PermissionChangeRecord record = new PermissionChangeRecord(
+                5L, "event-5", PermissionChangeTypeEnum.ROLE, PermissionChangePriorityEnum.BULK, null, 2L,
+                "banana", PermissionChangeStatusEnum.PROCESSING, 0, 0L, "claim-1");
+        List<Long> members = LongStream.rangeClosed(1L, 500L).boxed().toList();
+        when(roleMemberRepository.findUserIdsAfter(2L, 0L, 500)).thenReturn(members);
+        when(versionRepository.incrementUserPermissionVersions(anyList(), eq(members))).thenReturn(members);
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("apple", "banana"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+        when(notificationRepository.notifyUsersChanged(eq("banana"), anyList()))
+                .thenReturn(Map.of("event-5:7", "timeout"));
+
+        domainService.dispatchAll(List.of(record));
+
+        verify(deliveryRepository).saveFailed(eq(List.of(new PermissionChangeDelivery(
+                null, 5L, "event-5:7", "banana", 7L, 7L, 5L, 1, "timeout"))), any());
+        verify(recordRepository).markExpanded(
+                "claim-1", List.of(new PermissionChangeCheckpoint(5L, 500L)), FIXED_TIME);
+        verify(notificationRepository, never()).notifyUsersChanged(eq("apple"), anyList());
+        verify(recordRepository, never()).markFailed(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldCompleteRoleChangeOnLastPartialSegment() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class), roleMemberRepository);
+        PermissionChangeRecord record = roleRecord(5L, "event-5", 2L, 600L);
+        when(roleMemberRepository.findUserIdsAfter(2L, 600L, 500)).thenReturn(List.of(601L));
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-5:601"), List.of(601L)))
+                .thenReturn(List.of(3L));
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+
+        domainService.dispatch(record);
+
+        verify(notificationRepository).notifyUsersChanged(
+                "banana", List.of(new UserPermissionNotification("event-5:601", 601L, 3L, 5L)));
+        verify(recordRepository).markSucceeded(null, List.of(5L), FIXED_TIME);
+        verify(recordRepository, never()).markExpanded(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldRetryRoleSegmentFromCheckpointWhenAnyMemberFails() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), versionRepository,
+                mock(PermissionNotificationRepository.class), effectivePermissionRepository, roleMemberRepository);
+        PermissionChangeRecord record = roleRecord(5L, "event-5", 2L, 0L);
+        when(roleMemberRepository.findUserIdsAfter(2L, 0L, 500)).thenReturn(List.of(7L, 9L));
+        org.mockito.Mockito.doThrow(new IllegalStateException("refresh failed"))
+                .when(effectivePermissionRepository).refreshUser(9L);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-5:7"), List.of(7L)))
+                .thenReturn(List.of(3L));
+
+        domainService.dispatch(record);
+
+        verify(recordRepository).markFailed(null, List.of(new PermissionChangeFailure(
+                5L, 1, FIXED_TIME.plusSeconds(1), "refresh failed")), FIXED_TIME);
+        verify(recordRepository, never()).markExpanded(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldRecordRoleChangesScopedToResourceSystemWithinThreshold() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+        when(roleMemberRepository.countUsersByRoleIds(List.of(2L, 3L))).thenReturn(40L);
+
+        domainService.recordResourceChange(Arrays.asList(2L, null, 3L, 2L), List.of("banana", "banana"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recordRepository).saveAll(captor.capture());
+        List<PermissionChangeRecord> records = captor.getValue();
+        assertEquals(List.of(2L, 3L), records.stream().map(PermissionChangeRecord::scopeId).toList());
+        assertEquals(List.of(PermissionChangeTypeEnum.ROLE, PermissionChangeTypeEnum.ROLE),
+                records.stream().map(PermissionChangeRecord::changeType).toList());
+        assertEquals(List.of("banana", "banana"), records.stream().map(PermissionChangeRecord::systemCode).toList());
+    }
+
+    @Test
+    void shouldFallBackToSystemChangeWhenResourceAffectsTooManyUsers() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+        when(roleMemberRepository.countUsersByRoleIds(List.of(2L))).thenReturn(5_001L);
+
+        domainService.recordResourceChange(List.of(2L), List.of("banana", "cherry"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recordRepository).saveAll(captor.capture());
+        PermissionChangeRecord record = captor.getValue().getFirst();
+        assertEquals(1, captor.getValue().size());
+        assertEquals(PermissionChangeTypeEnum.SYSTEM, record.changeType());
+        assertNull(record.systemCode());
+    }
+
+    @Test
+    void shouldSkipResourceChangeWithoutAffectedUsers() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+        when(roleMemberRepository.countUsersByRoleIds(List.of(2L))).thenReturn(0L);
+
+        domainService.recordResourceChange(List.of(2L), List.of("banana"));
+        domainService.recordResourceChange(List.of(), List.of("banana"));
+
+        verify(recordRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void shouldInvalidateDictionaryOfResourceSystemsEvenWithoutAffectedUsers() {
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(mock(PermissionChangeRecordRepository.class),
+                mock(PermissionChangeDeliveryRepository.class), versionRepository,
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class),
+                roleMemberRepository);
+        when(roleMemberRepository.countUsersByRoleIds(List.of(2L))).thenReturn(0L);
+
+        domainService.recordResourceChange(List.of(2L), List.of("banana", "cherry"));
+        domainService.recordResourceChange(List.of(), List.of("banana"));
+
+        verify(versionRepository).incrementDictionaryRevisionsAfterCommit(List.of("banana", "cherry"));
+        verify(versionRepository).incrementDictionaryRevisionsAfterCommit(List.of("banana"));
+    }
+
+    @Test
+    void shouldIncrementOnlyScopedSystemWithoutAbsorbingUserChanges() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        EffectivePermissionRepository effectivePermissionRepository = mock(EffectivePermissionRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, versionRepository, notificationRepository, effectivePermissionRepository);
+        PermissionChangeRecord user = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
+        PermissionChangeRecord system = systemRecord(2L, "event-2", "banana");
+        PermissionChangeRecord duplicateSystem = systemRecord(3L, "event-3", "banana");
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana", "cherry"));
+        when(versionRepository.incrementSystemPermissionVersion("event-2", "banana")).thenReturn(6L);
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-1"), List.of(7L)))
+                .thenReturn(List.of(4L));
+
+        domainService.dispatchAll(List.of(user, system, duplicateSystem));
+
+        verify(effectivePermissionRepository).refreshUsersAfter("banana", 0L, 500);
+        verify(versionRepository).incrementSystemPermissionVersion("event-2", "banana");
+        verify(versionRepository, never()).incrementSystemPermissionVersion("event-2", "cherry");
+        verify(versionRepository, never()).incrementSystemPermissionVersion(
+                eq("event-3"), any());
         verify(notificationRepository).notifySystemChanged("banana", "event-2", 6L);
-        verify(recordRepository).markSucceeded(2L, FIXED_TIME);
+        verify(effectivePermissionRepository).refreshUser(7L);
+        verify(notificationRepository).notifyUsersChanged(
+                eq("cherry"), anyList());
+        verify(recordRepository).markSucceeded(null, List.of(2L, 3L, 1L), FIXED_TIME);
     }
 
     @Test
-    void shouldUseRepositoryToFindAndClaimDispatchableChanges() {
+    void shouldNotifyScopedRoleMembersOnlyInItsSystem() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionNotificationRepository notificationRepository = mock(PermissionNotificationRepository.class);
+        RoleMemberRepository roleMemberRepository = mock(RoleMemberRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository,
+                mock(PermissionChangeDeliveryRepository.class), versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class), roleMemberRepository);
+        PermissionChangeRecord record = roleRecord(5L, "event-5", 2L, "banana", 0L);
+        when(roleMemberRepository.findUserIdsAfter(2L, 0L, 500)).thenReturn(List.of(7L));
+        when(versionRepository.incrementUserPermissionVersions(List.of("event-5:7"), List.of(7L)))
+                .thenReturn(List.of(3L));
+        when(notificationRepository.findNotifiableSystemCodes()).thenReturn(List.of("banana", "cherry"));
+        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+
+        domainService.dispatch(record);
+
+        verify(notificationRepository).notifyUsersChanged(
+                "banana", List.of(new UserPermissionNotification("event-5:7", 7L, 3L, 5L)));
+        verify(notificationRepository, never()).notifyUsersChanged(
+                eq("cherry"), anyList());
+        verify(versionRepository, never()).getSystemPermissionVersion("cherry");
+        verify(recordRepository).markSucceeded(null, List.of(5L), FIXED_TIME);
+    }
+
+    @Test
+    void shouldClaimEachLaneByWeightAndRefillSaturatedLanesWithOneClaimToken() {
         PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
         PermissionChangeDomainServiceImpl domainService = service(recordRepository);
-        PermissionChangeRecord record = record(1L, "event-1", PermissionChangeTypeEnum.USER, 7L, 0);
-        when(recordRepository.findDispatchable(
-                FIXED_TIME, FIXED_TIME.minusMinutes(1), 20)).thenReturn(List.of(record));
-        when(recordRepository.tryMarkProcessing(
-                1L, FIXED_TIME, FIXED_TIME.minusMinutes(1))).thenReturn(true);
+        LocalDateTime timeoutBefore = FIXED_TIME.minusMinutes(1);
+        when(recordRepository.claimDispatchable(eq(PermissionChangePriorityEnum.URGENT), isNull(), anyString(),
+                eq(FIXED_TIME), eq(timeoutBefore), eq(12)))
+                .thenReturn(1);
+        when(recordRepository.claimDispatchable(eq(PermissionChangePriorityEnum.NORMAL), isNull(), anyString(),
+                eq(FIXED_TIME), eq(timeoutBefore), eq(6)))
+                .thenReturn(6);
+        when(recordRepository.claimDispatchable(eq(PermissionChangePriorityEnum.BULK), isNull(), anyString(),
+                eq(FIXED_TIME), eq(timeoutBefore), eq(2)))
+                .thenReturn(2);
+        when(recordRepository.claimDispatchable(eq(PermissionChangePriorityEnum.BULK), isNull(), anyString(),
+                eq(FIXED_TIME), eq(timeoutBefore), eq(11)))
+                .thenReturn(3);
+        List<PermissionChangeRecord> claimedRecords = records(1L, 12);
+        when(recordRepository.findClaimed(anyString())).thenReturn(claimedRecords);
+
+        assertEquals(claimedRecords, domainService.claimDispatchableChanges(20));
 
-        assertEquals(List.of(record), domainService.findDispatchableChanges(20));
-        assertTrue(domainService.tryClaim(record));
+        ArgumentCaptor<String> claimTokenCaptor = ArgumentCaptor.forClass(String.class);
+        verify(recordRepository, times(5)).claimDispatchable(
+                any(), any(), claimTokenCaptor.capture(), any(), any(), anyInt());
+        assertEquals(1, Set.copyOf(claimTokenCaptor.getAllValues()).size());
+        verify(recordRepository).findClaimed(claimTokenCaptor.getValue());
+        verify(recordRepository, never()).claimDispatchable(
+                eq(PermissionChangePriorityEnum.URGENT), any(), any(), any(), any(), eq(11));
+    }
+
+    @Test
+    void shouldSkipReadBackWhenNothingIsClaimed() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository);
+
+        assertEquals(List.of(), domainService.claimDispatchableChanges(20));
+        verify(recordRepository, never()).findClaimed(any());
+    }
+
+    @Test
+    void shouldSaveResultsWithTheClaimTokenOfTheBatch() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, versionRepository, mock(PermissionNotificationRepository.class));
+        PermissionChangeRecord claimed = new PermissionChangeRecord(
+                1L, "event-1", PermissionChangeTypeEnum.USER, PermissionChangePriorityEnum.NORMAL, 7L, null,
+                null, PermissionChangeStatusEnum.PROCESSING, 0, 0L, "claim-1");
+        when(versionRepository.incrementUserPermissionVersions(any(), any()))
+                .thenThrow(new IllegalStateException("redis unavailable"));
+
+        domainService.dispatchAll(List.of(claimed));
+
+        verify(recordRepository).markFailed("claim-1", List.of(new PermissionChangeFailure(
+                1L, 1, FIXED_TIME.plusSeconds(1), "redis unavailable")), FIXED_TIME);
+        verify(recordRepository, never()).markSucceeded(any(), anyList(), any());
+    }
+
+    @Test
+    void shouldClaimOnlyOwnedShardsInEveryLane() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionDispatchShardRepository shardRepository = mock(PermissionDispatchShardRepository.class);
+        PermissionChangeDomainServiceImpl domainService = new PermissionChangeDomainServiceImpl(
+                recordRepository, mock(PermissionChangeDeliveryRepository.class),
+                mock(PermissionVersionRepository.class), mock(PermissionNotificationRepository.class),
+                mock(EffectivePermissionRepository.class), mock(RoleMemberRepository.class),
+                mock(PermissionDispatchSignalRepository.class), shardRepository, FIXED_CLOCK);
+        Set<Integer> ownedShards = Set.of(1, 3);
+        LocalDateTime timeoutBefore = FIXED_TIME.minusMinutes(1);
+        when(shardRepository.findOwnedShards()).thenReturn(Optional.of(ownedShards));
+
+        domainService.claimDispatchableChanges(20);
+
+        verify(recordRepository).claimDispatchable(eq(PermissionChangePriorityEnum.URGENT), eq(ownedShards),
+                anyString(), eq(FIXED_TIME), eq(timeoutBefore), eq(12));
+        verify(recordRepository).claimDispatchable(eq(PermissionChangePriorityEnum.NORMAL), eq(ownedShards),
+                anyString(), eq(FIXED_TIME), eq(timeoutBefore), eq(6));
+        verify(recordRepository).claimDispatchable(eq(PermissionChangePriorityEnum.BULK), eq(ownedShards),
+                anyString(), eq(FIXED_TIME), eq(timeoutBefore), eq(2));
+    }
+
+    @Test
+    void shouldRecordUserRevocationInUrgentLane() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository);
+
+        domainService.recordUserPermissionRevocation(7L);
+        domainService.recordUserPermissionChange(9L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recordRepository, times(2)).saveAll(captor.capture());
+        assertEquals(PermissionChangePriorityEnum.URGENT, captor.getAllValues().get(0).getFirst().priority());
+        assertEquals(PermissionChangePriorityEnum.NORMAL, captor.getAllValues().get(1).getFirst().priority());
+    }
+
+    @Test
+    void shouldMeasureDispatchLagPerLane() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(recordRepository);
+        when(recordRepository.findOldestDueTimes(FIXED_TIME)).thenReturn(
+                Map.of(PermissionChangePriorityEnum.BULK, FIXED_TIME.minusMinutes(3)));
+
+        assertEquals(Map.of(
+                        PermissionChangePriorityEnum.URGENT, Duration.ZERO,
+                        PermissionChangePriorityEnum.NORMAL, Duration.ZERO,
+                        PermissionChangePriorityEnum.BULK, Duration.ofMinutes(3)),
+                domainService.measureDispatchLag());
+    }
+
+    @Test
+    void shouldPurgeRecordsAndDeliveriesSucceededBeforeRetention() {
+        PermissionChangeRecordRepository recordRepository = mock(PermissionChangeRecordRepository.class);
+        PermissionChangeDeliveryRepository deliveryRepository = mock(PermissionChangeDeliveryRepository.class);
+        PermissionChangeDomainServiceImpl domainService = service(
+                recordRepository, deliveryRepository, mock(PermissionVersionRepository.class),
+                mock(PermissionNotificationRepository.class), mock(EffectivePermissionRepository.class));
+        LocalDateTime processedBefore = FIXED_TIME.minusDays(7);
+        when(recordRepository.deleteSucceededBefore(processedBefore, 500)).thenReturn(500);
+        when(deliveryRepository.deleteSucceededBefore(processedBefore, 500)).thenReturn(12);
+
+        assertEquals(new PermissionChangePurgeResult(500, 12),
+                domainService.purgeSucceededChanges(Duration.ofDays(7), 500));
     }
 
     private PermissionChangeDomainServiceImpl service(PermissionChangeRecordRepository recordRepository) {
@@ -139,8 +749,67 @@ class PermissionChangeDomainServiceImplTest {
             PermissionChangeRecordRepository recordRepository,
             PermissionVersionRepository versionRepository,
             PermissionNotificationRepository notificationRepository) {
+        return service(recordRepository, versionRepository, notificationRepository,
+                mock(EffectivePermissionRepository.class));
+    }
+
+    private PermissionChangeDomainServiceImpl service(
+            PermissionChangeRecordRepository recordRepository,
+            PermissionVersionRepository versionRepository,
+            PermissionNotificationRepository notificationRepository,
+            EffectivePermissionRepository effectivePermissionRepository) {
+        return service(recordRepository, mock(PermissionChangeDeliveryRepository.class), versionRepository,
+                notificationRepository, effectivePermissionRepository);
+    }
+
+    private PermissionChangeDomainServiceImpl service(
+            PermissionChangeRecordRepository recordRepository,
+            PermissionChangeDeliveryRepository deliveryRepository,
+            PermissionVersionRepository versionRepository,
+            PermissionNotificationRepository notificationRepository,
+            EffectivePermissionRepository effectivePermissionRepository) {
+        return service(recordRepository, deliveryRepository, versionRepository, notificationRepository,
+                effectivePermissionRepository, mock(RoleMemberRepository.class));
+    }
+
+    private PermissionChangeDomainServiceImpl service(
+            PermissionChangeRecordRepository recordRepository,
+            PermissionChangeDeliveryRepository deliveryRepository,
+            PermissionVersionRepository versionRepository,
+            PermissionNotificationRepository notificationRepository,
+            EffectivePermissionRepository effectivePermissionRepository,
+            RoleMemberRepository roleMemberRepository) {
         return new PermissionChangeDomainServiceImpl(
-                recordRepository, versionRepository, notificationRepository, FIXED_CLOCK);
+                recordRepository, deliveryRepository, versionRepository, notificationRepository,
+                effectivePermissionRepository, roleMemberRepository,
+                mock(PermissionDispatchSignalRepository.class), mock(PermissionDispatchShardRepository.class),
+                FIXED_CLOCK);
+    }
+
+    private PermissionChangeRecord roleRecord(Long id, String eventId, Long roleId, long expandCursor) {
+        return roleRecord(id, eventId, roleId, null, expandCursor);
+    }
+
+    private PermissionChangeRecord roleRecord(Long id,
+                                              String eventId,
+                                              Long roleId,
+                                              String systemCode,
+                                              long expandCursor) {
+        return new PermissionChangeRecord(
+                id, eventId, PermissionChangeTypeEnum.ROLE, PermissionChangePriorityEnum.BULK, null, roleId,
+                systemCode, PermissionChangeStatusEnum.PROCESSING, 0, expandCursor);
+    }
+
+    private PermissionChangeRecord systemRecord(Long id, String eventId, String systemCode) {
+        return new PermissionChangeRecord(
+                id, eventId, PermissionChangeTypeEnum.SYSTEM, PermissionChangePriorityEnum.BULK, null, null,
+                systemCode, PermissionChangeStatusEnum.PROCESSING, 0, 0L);
+    }
+
+    private List<PermissionChangeRecord> records(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(id -> record(id, "event-" + id, PermissionChangeTypeEnum.USER, id, 0))
+                .toList();
     }
 
     private PermissionChangeRecord record(Long id,
@@ -1,18 +1,33 @@
 package top.fblue.watermelon.auth.domain.permission.service.impl;
 
 import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionary;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionaryEntry;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDictionaryRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionResourceQueryRepository;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionSnapshotCacheRepository;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionVersionRepository;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class PermissionQueryDomainServiceImplTest {
@@ -21,28 +36,34 @@ class PermissionQueryDomainServiceImplTest {
     void shouldBuildPermissionSnapshotThroughRepositories() {
         PermissionResourceQueryRepository resourceRepository = mock(PermissionResourceQueryRepository.class);
         PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionSnapshotCacheRepository cacheRepository = mock(PermissionSnapshotCacheRepository.class);
         PermissionQueryDomainServiceImpl domainService =
-                new PermissionQueryDomainServiceImpl(resourceRepository, versionRepository);
+                new PermissionQueryDomainServiceImpl(resourceRepository, versionRepository, cacheRepository,
+                        mock(PermissionDictionaryRepository.class));
         List<PermissionResource> resources = List.of(
                 new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE));
-        when(resourceRepository.findEffectiveResources(7L, "banana")).thenReturn(resources);
-        when(versionRepository.getUserPermissionVersion(7L)).thenReturn(3L);
-        when(versionRepository.getSystemPermissionVersion("banana")).thenReturn(5L);
+        when(resourceRepository.findEffectiveResources(7L, "banana", new PermissionVersions(3L, 5L)))
+                .thenReturn(resources);
+        when(versionRepository.getPermissionVersions(7L, "banana")).thenReturn(new PermissionVersions(3L, 5L));
 
         PermissionSnapshot snapshot = domainService.getPermissionSnapshot(7L, "banana");
 
         assertEquals(resources, snapshot.resources());
         assertEquals(3L, snapshot.userPermissionVersion());
         assertEquals(5L, snapshot.systemPermissionVersion());
+        verify(cacheRepository).save(snapshot);
     }
 
     @Test
     void shouldOnlyMatchApiResource() {
         PermissionResourceQueryRepository resourceRepository = mock(PermissionResourceQueryRepository.class);
         PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
-        PermissionQueryDomainServiceImpl domainService =
-                new PermissionQueryDomainServiceImpl(resourceRepository, versionRepository);
-        when(resourceRepository.findEffectiveResources(7L, "watermelon")).thenReturn(List.of(
+        PermissionQueryDomainServiceImpl domainService = new PermissionQueryDomainServiceImpl(
+                resourceRepository, versionRepository, mock(PermissionSnapshotCacheRepository.class),
+                mock(PermissionDictionaryRepository.class));
+        when(versionRepository.getPermissionVersions(7L, "watermelon")).thenReturn(new PermissionVersions(0L, 0L));
+        when(resourceRepository.findEffectiveResources(
+                7L, "watermelon", new PermissionVersions(0L, 0L))).thenReturn(List.of(
                 new PermissionResource("watermelon:admin.users.page", PermissionResourceTypeEnum.PAGE),
                 new PermissionResource("watermelon:GET:/api/admin/users", PermissionResourceTypeEnum.API)
         ));
@@ -52,4 +73,96 @@ class PermissionQueryDomainServiceImplTest {
         assertFalse(domainService.hasApiPermission(
                 7L, "watermelon", "watermelon:admin.users.page"));
     }
+
+    @Test
+    void shouldIndexDistinctSortedCodesByType() {
+        PermissionResourceQueryRepository resourceRepository = mock(PermissionResourceQueryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionQueryDomainServiceImpl domainService = new PermissionQueryDomainServiceImpl(
+                resourceRepository, versionRepository,
+                mock(PermissionSnapshotCacheRepository.class), mock(PermissionDictionaryRepository.class));
+        when(versionRepository.getPermissionVersions(7L, "watermelon")).thenReturn(new PermissionVersions(0L, 0L));
+        when(resourceRepository.findEffectiveResources(
+                7L, "watermelon", new PermissionVersions(0L, 0L))).thenReturn(List.of(
+                new PermissionResource("watermelon:users.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("watermelon:admin.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("watermelon:users.page", PermissionResourceTypeEnum.PAGE)
+        ));
+
+        PermissionSnapshot snapshot = domainService.getPermissionSnapshot(7L, "watermelon");
+
+        assertEquals(List.of("watermelon:admin.page", "watermelon:users.page"),
+                snapshot.codesOfType(PermissionResourceTypeEnum.PAGE));
+        assertEquals(List.of(), snapshot.codesOfType(PermissionResourceTypeEnum.API));
+        assertTrue(snapshot.hasPermission(PermissionResourceTypeEnum.PAGE, "watermelon:users.page"));
+        assertFalse(snapshot.hasPermission(PermissionResourceTypeEnum.PAGE, null));
+    }
+
+    @Test
+    void shouldUseCachedSnapshotWhenVersionsMatch() {
+        PermissionResourceQueryRepository resourceRepository = mock(PermissionResourceQueryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionSnapshotCacheRepository cacheRepository = mock(PermissionSnapshotCacheRepository.class);
+        PermissionQueryDomainServiceImpl domainService =
+                new PermissionQueryDomainServiceImpl(resourceRepository, versionRepository, cacheRepository,
+                        mock(PermissionDictionaryRepository.class));
+        PermissionSnapshot cachedSnapshot = new PermissionSnapshot(7L, "watermelon", List.of(
+                new PermissionResource("watermelon:GET:/api/admin/users", PermissionResourceTypeEnum.API)
+        ), 3L, 5L);
+        when(versionRepository.getPermissionVersions(7L, "watermelon")).thenReturn(new PermissionVersions(3L, 5L));
+        when(cacheRepository.find(7L, "watermelon", 3L, 5L)).thenReturn(cachedSnapshot);
+
+        assertTrue(domainService.hasApiPermission(
+                7L, "watermelon", "watermelon:GET:/api/admin/users"));
+        verify(resourceRepository, never()).findEffectiveResources(anyLong(), any(), any());
+        verify(cacheRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldReuseDictionaryUntilDictionaryRevisionChanges() {
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionDictionaryRepository dictionaryRepository = mock(PermissionDictionaryRepository.class);
+        PermissionQueryDomainServiceImpl domainService = new PermissionQueryDomainServiceImpl(
+                mock(PermissionResourceQueryRepository.class), versionRepository,
+                mock(PermissionSnapshotCacheRepository.class), dictionaryRepository);
+        when(versionRepository.getDictionaryRevision("watermelon")).thenReturn(5L, 5L, 6L);
+        when(dictionaryRepository.findSystemDictionaryEntries("watermelon")).thenReturn(
+                List.of(new PermissionDictionaryEntry(12, "watermelon:users.page"),
+                        new PermissionDictionaryEntry(3, "watermelon:admin.page")),
+                List.of(new PermissionDictionaryEntry(12, "watermelon:users.page")));
+
+        PermissionDictionary first = domainService.getPermissionDictionary("watermelon");
+        PermissionDictionary cached = domainService.getPermissionDictionary("watermelon");
+        PermissionDictionary rebuilt = domainService.getPermissionDictionary("watermelon");
+
+        assertSame(first, cached);
+        assertArrayEquals(new int[]{3, 12},
+                first.encode(List.of("watermelon:users.page", "watermelon:admin.page")));
+        assertNotEquals(first.version(), rebuilt.version());
+        assertNull(rebuilt.encode(List.of("watermelon:admin.page")));
+        verify(dictionaryRepository, times(2)).findSystemDictionaryEntries("watermelon");
+        verify(versionRepository, never()).getSystemPermissionVersion(any());
+    }
+
+    @Test
+    void shouldReadVersionsOnceForBatchSnapshots() {
+        PermissionResourceQueryRepository resourceRepository = mock(PermissionResourceQueryRepository.class);
+        PermissionVersionRepository versionRepository = mock(PermissionVersionRepository.class);
+        PermissionSnapshotCacheRepository cacheRepository = mock(PermissionSnapshotCacheRepository.class);
+        PermissionQueryDomainServiceImpl domainService = new PermissionQueryDomainServiceImpl(
+                resourceRepository, versionRepository, cacheRepository, mock(PermissionDictionaryRepository.class));
+        PermissionSnapshot cachedSnapshot = new PermissionSnapshot(7L, "banana", List.of(), 3L, 5L);
+        when(versionRepository.getPermissionVersions(List.of(7L, 9L), "banana")).thenReturn(List.of(
+                new PermissionVersions(3L, 5L), new PermissionVersions(1L, 5L)));
+        when(cacheRepository.find(7L, "banana", 3L, 5L)).thenReturn(cachedSnapshot);
+        when(resourceRepository.findEffectiveResources(9L, "banana", new PermissionVersions(1L, 5L)))
+                .thenReturn(List.of());
+
+        List<PermissionSnapshot> snapshots = domainService.getPermissionSnapshots(List.of(7L, 9L), "banana");
+
+        assertSame(cachedSnapshot, snapshots.get(0));
+        assertEquals(1L, snapshots.get(1).userPermissionVersion());
+        verify(resourceRepository, never()).findEffectiveResources(eq(7L), eq("banana"), any());
+        verify(versionRepository, never()).getPermissionVersions(anyLong(), any());
+    }
 }
@@ -3,11 +3,17 @@ package top.fblue.watermelon.auth.infrastructure.interceptor;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import top.fblue.auth.common.SsoConstants;
 import top.fblue.auth.context.SsoPrincipal;
 import top.fblue.watermelon.auth.application.service.PermissionApplicationService;
 import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -21,7 +27,8 @@ class PermissionAuthInterceptorTest {
     void shouldReturnUnauthorizedWhenAuthenticationPrincipalIsMissing() {
         AuthProperties authProperties = new AuthProperties();
         PermissionApplicationService permissionService = mock(PermissionApplicationService.class);
-        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(authProperties, permissionService);
+        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(
+                authProperties, permissionService, new ApiPermissionRouteTable(authProperties));
         HttpServletRequest request = mock(HttpServletRequest.class);
         HttpServletResponse response = mock(HttpServletResponse.class);
 
@@ -40,7 +47,8 @@ class PermissionAuthInterceptorTest {
         AuthProperties authProperties = new AuthProperties();
         authProperties.setServerClientId("watermelon");
         PermissionApplicationService permissionService = mock(PermissionApplicationService.class);
-        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(authProperties, permissionService);
+        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(
+                authProperties, permissionService, new ApiPermissionRouteTable(authProperties));
         HttpServletRequest request = mock(HttpServletRequest.class);
         HttpServletResponse response = mock(HttpServletResponse.class);
         SsoPrincipal principal = mock(SsoPrincipal.class);
@@ -64,7 +72,8 @@ class PermissionAuthInterceptorTest {
         AuthProperties authProperties = new AuthProperties();
         authProperties.setServerClientId("watermelon");
         PermissionApplicationService permissionService = mock(PermissionApplicationService.class);
-        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(authProperties, permissionService);
+        PermissionAuthInterceptor interceptor = new PermissionAuthInterceptor(
+                authProperties, permissionService, new ApiPermissionRouteTable(authProperties));
         HttpServletRequest request = mock(HttpServletRequest.class);
         HttpServletResponse response = mock(HttpServletResponse.class);
         SsoPrincipal principal = mock(SsoPrincipal.class);
@@ -78,4 +87,39 @@ class PermissionAuthInterceptorTest {
         assertFalse(result);
         verify(response).setStatus(HttpServletResponse.SC_FORBIDDEN);
     }
+
+    @Test
+    void shouldResolveTemplateResourceCodeForPathVariableRoute() throws NoSuchMethodException {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setServerClientId("watermelon");
+        PermissionApplicationService permissionService = mock(PermissionApplicationService.class);
+        ApiPermissionRouteTable routeTable = new ApiPermissionRouteTable(authProperties);
+        HandlerMethod handlerMethod = new HandlerMethod(
+                new UserController(), UserController.class.getMethod("delete", Long.class));
+        routeTable.compile(Map.of(RequestMappingInfo.paths("/api/admin/users/{id}")
+                .methods(RequestMethod.DELETE).build(), handlerMethod));
+        PermissionAuthInterceptor interceptor =
+                new PermissionAuthInterceptor(authProperties, permissionService, routeTable);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        SsoPrincipal principal = mock(SsoPrincipal.class);
+        when(principal.getUserId()).thenReturn(7L);
+        when(request.getAttribute(SsoConstants.CURRENT_USER_ATTRIBUTE)).thenReturn(principal);
+        when(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))
+                .thenReturn("/api/admin/users/{id}");
+        when(request.getMethod()).thenReturn("DELETE");
+        when(permissionService.hasApiPermission(
+                7L, "watermelon", "watermelon:DELETE:/api/admin/users/{id}")).thenReturn(true);
+
+        boolean result = interceptor.preHandle(request, response, handlerMethod);
+
+        assertTrue(result);
+        verify(request, never()).getRequestURI();
+    }
+
+    static class UserController {
+
+        public void delete(Long id) {
+        }
+    }
 }
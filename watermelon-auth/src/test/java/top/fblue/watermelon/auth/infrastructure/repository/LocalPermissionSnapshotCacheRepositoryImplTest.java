@@ -0,0 +1,55 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionSnapshot;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalPermissionSnapshotCacheRepositoryImplTest {
+
+    private static final Clock FIXED_CLOCK = Clock.fixed(
+            Instant.parse("2026-08-07T08:00:00Z"), ZoneId.of("Asia/Shanghai"));
+
+    @Test
+    void shouldOnlyReturnSnapshotWithSameVersions() {
+        LocalPermissionSnapshotCacheRepositoryImpl repository =
+                new LocalPermissionSnapshotCacheRepositoryImpl(10, 60, FIXED_CLOCK);
+        PermissionSnapshot snapshot = new PermissionSnapshot(7L, "banana", List.of(), 3L, 5L);
+
+        repository.save(snapshot);
+
+        assertSame(snapshot, repository.find(7L, "banana", 3L, 5L));
+        assertNull(repository.find(7L, "banana", 4L, 5L));
+        assertNull(repository.find(7L, "banana", 3L, 6L));
+        assertNull(repository.find(7L, "watermelon", 3L, 5L));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedSnapshotWhenFull() {
+        LocalPermissionSnapshotCacheRepositoryImpl repository =
+                new LocalPermissionSnapshotCacheRepositoryImpl(1, 60, FIXED_CLOCK);
+        repository.save(new PermissionSnapshot(7L, "banana", List.of(), 3L, 5L));
+        repository.save(new PermissionSnapshot(8L, "banana", List.of(), 3L, 5L));
+
+        assertNull(repository.find(7L, "banana", 3L, 5L));
+    }
+
+    @Test
+    void shouldDropExpiredSnapshot() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L, 60_000L);
+        LocalPermissionSnapshotCacheRepositoryImpl repository =
+                new LocalPermissionSnapshotCacheRepositoryImpl(10, 60, clock);
+        repository.save(new PermissionSnapshot(7L, "banana", List.of(), 3L, 5L));
+
+        assertNull(repository.find(7L, "banana", 3L, 5L));
+    }
+}
@@ -0,0 +1,79 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeDelivery;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
+import top.fblue.watermelon.auth.infrastructure.converter.PermissionChangeDeliveryConverter;
+import top.fblue.watermelon.auth.infrastructure.mapper.PermissionChangeDeliveryMapper;
+import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeDeliveryPO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MySqlPermissionChangeDeliveryRepositoryImplTest {
+
+    @Test
+    void shouldInsertFirstFailuresAsFailedDeliveries() {
+        PermissionChangeDeliveryMapper mapper = mock(PermissionChangeDeliveryMapper.class);
+        MySqlPermissionChangeDeliveryRepositoryImpl repository =
+                new MySqlPermissionChangeDeliveryRepositoryImpl(mapper, new PermissionChangeDeliveryConverter());
+        LocalDateTime nextRetryTime = LocalDateTime.of(2026, 8, 7, 16, 0, 1);
+
+        repository.saveFailed(List.of(new PermissionChangeDelivery(
+                null, 1L, "event-1", "banana", 7L, 4L, 5L, 1, "banana unavailable")), nextRetryTime);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeDeliveryPO>> deliveriesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mapper).insertIgnoreBatch(deliveriesCaptor.capture());
+        PermissionChangeDeliveryPO deliveryPO = deliveriesCaptor.getValue().getFirst();
+        assertEquals(PermissionChangeStatusEnum.FAILED, deliveryPO.getStatus());
+        assertEquals("banana", deliveryPO.getSystemCode());
+        assertEquals(nextRetryTime, deliveryPO.getNextRetryTime());
+    }
+
+    @Test
+    void shouldReadBackDeliveriesStampedWithTheSameClaimToken() {
+        PermissionChangeDeliveryMapper mapper = mock(PermissionChangeDeliveryMapper.class);
+        MySqlPermissionChangeDeliveryRepositoryImpl repository =
+                new MySqlPermissionChangeDeliveryRepositoryImpl(mapper, new PermissionChangeDeliveryConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        PermissionChangeDeliveryPO claimed = PermissionChangeDeliveryPO.builder()
+                .id(11L)
+                .changeId(1L)
+                .eventId("event-1")
+                .systemCode("banana")
+                .userId(7L)
+                .userPermissionVersion(4L)
+                .systemPermissionVersion(5L)
+                .status(PermissionChangeStatusEnum.PROCESSING)
+                .retryCount(1)
+                .claimToken("claim-1")
+                .build();
+        when(mapper.claimDispatchable("claim-1", now, now.minusMinutes(1), 500)).thenReturn(1);
+        when(mapper.selectByClaimToken("claim-1")).thenReturn(List.of(claimed));
+
+        List<PermissionChangeDelivery> deliveries =
+                repository.claimDispatchable("claim-1", now, now.minusMinutes(1), 500);
+
+        assertEquals(List.of(new PermissionChangeDelivery(
+                11L, 1L, "event-1", "banana", 7L, 4L, 5L, 1, null, "claim-1")), deliveries);
+    }
+
+    @Test
+    void shouldRejectPartialSuccessUpdate() {
+        PermissionChangeDeliveryMapper mapper = mock(PermissionChangeDeliveryMapper.class);
+        MySqlPermissionChangeDeliveryRepositoryImpl repository =
+                new MySqlPermissionChangeDeliveryRepositoryImpl(mapper, new PermissionChangeDeliveryConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        when(mapper.markSucceededBatch("claim-1", List.of(11L, 12L), now)).thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> repository.markSucceeded("claim-1", List.of(11L, 12L), now));
+    }
+}
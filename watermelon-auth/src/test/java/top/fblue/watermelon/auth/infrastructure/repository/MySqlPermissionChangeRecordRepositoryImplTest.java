@@ -2,17 +2,33 @@ package top.fblue.watermelon.auth.infrastructure.repository;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeCheckpoint;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeFailure;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeRecord;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeStatusEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangeTypeEnum;
 import top.fblue.watermelon.auth.infrastructure.converter.PermissionChangeRecordConverter;
 import top.fblue.watermelon.auth.infrastructure.mapper.PermissionChangeRecordMapper;
 import top.fblue.watermelon.auth.infrastructure.po.PermissionChangeRecordPO;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class MySqlPermissionChangeRecordRepositoryImplTest {
@@ -34,5 +50,138 @@ class MySqlPermissionChangeRecordRepositoryImplTest {
         PermissionChangeRecordPO recordPO = recordsCaptor.getValue().getFirst();
         assertEquals("event-1", recordPO.getEventId());
         assertEquals(7L, recordPO.getUserId());
+        assertEquals(7, recordPO.getShard());
+        assertEquals(PermissionChangePriorityEnum.NORMAL, recordPO.getPriority());
+    }
+
+    @Test
+    void shouldStampClaimTokenAndReadBackClaimedRecords() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        PermissionChangeRecordPO claimed = PermissionChangeRecordPO.builder()
+                .id(1L)
+                .eventId("event-1")
+                .changeType(PermissionChangeTypeEnum.USER)
+                .priority(PermissionChangePriorityEnum.URGENT)
+                .userId(7L)
+                .status(PermissionChangeStatusEnum.PROCESSING)
+                .retryCount(0)
+                .claimToken("claim-1")
+                .build();
+        when(mapper.claimDue(eq(PermissionChangePriorityEnum.URGENT), isNull(), eq("claim-1"), anyString(),
+                eq(now), eq(500)))
+                .thenReturn(1);
+        when(mapper.claimTimedOut(eq(PermissionChangePriorityEnum.URGENT), isNull(), eq("claim-1"), anyString(),
+                eq(now), eq(now.minusMinutes(1)), eq(499)))
+                .thenReturn(0);
+        when(mapper.selectByClaimToken("claim-1")).thenReturn(List.of(claimed));
+
+        assertEquals(1, repository.claimDispatchable(
+                PermissionChangePriorityEnum.URGENT, null, "claim-1", now, now.minusMinutes(1), 500));
+        List<PermissionChangeRecord> records = repository.findClaimed("claim-1");
+
+        assertEquals(List.of(1L), records.stream().map(PermissionChangeRecord::id).toList());
+        assertEquals(PermissionChangePriorityEnum.URGENT, records.getFirst().priority());
+        assertEquals("claim-1", records.getFirst().claimToken());
+    }
+
+    @Test
+    void shouldSkipTimedOutClaimWhenDueRecordsFillLimit() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        Set<Integer> shards = Set.of(1, 3);
+        when(mapper.claimDue(eq(PermissionChangePriorityEnum.NORMAL), eq(shards), eq("claim-1"), anyString(),
+                eq(now), eq(2)))
+                .thenReturn(2);
+
+        assertEquals(2, repository.claimDispatchable(
+                PermissionChangePriorityEnum.NORMAL, shards, "claim-1", now, now.minusMinutes(1), 2));
+        verify(mapper, never()).claimTimedOut(any(), any(), anyString(), anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    void shouldSkipClaimWhenInstanceOwnsNoShard() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+
+        assertEquals(0, repository.claimDispatchable(
+                PermissionChangePriorityEnum.NORMAL, Set.of(), "claim-1", now, now.minusMinutes(1), 500));
+        verifyNoInteractions(mapper);
+    }
+
+    @Test
+    void shouldMapOldestDueTimePerPriority() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        when(mapper.selectOldestDueTimeByPriority(now)).thenReturn(List.of(
+                PermissionChangeRecordPO.builder()
+                        .priority(PermissionChangePriorityEnum.BULK)
+                        .nextRetryTime(now.minusMinutes(3))
+                        .build()));
+
+        assertEquals(Map.of(PermissionChangePriorityEnum.BULK, now.minusMinutes(3)),
+                repository.findOldestDueTimes(now));
+    }
+
+    @Test
+    void shouldMarkFailuresWithOneStatementGuardedByClaimToken() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        when(mapper.markFailedBatch(eq("claim-1"), anyList(), eq(now))).thenReturn(2);
+
+        repository.markFailed("claim-1", List.of(
+                new PermissionChangeFailure(1L, 1, now.plusSeconds(1), "banana unavailable"),
+                new PermissionChangeFailure(2L, 3, now.plusSeconds(4), "apple unavailable")), now);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PermissionChangeRecordPO>> recordsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mapper).markFailedBatch(eq("claim-1"), recordsCaptor.capture(), eq(now));
+        assertEquals(List.of(1, 3), recordsCaptor.getValue().stream()
+                .map(PermissionChangeRecordPO::getRetryCount).toList());
+        assertEquals("apple unavailable", recordsCaptor.getValue().get(1).getLastError());
+    }
+
+    @Test
+    void shouldRejectCheckpointsOfRecordsReclaimedByAnotherClaim() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime now = LocalDateTime.of(2026, 8, 7, 16, 0);
+        when(mapper.markExpandedBatch(eq("claim-1"), anyList(), eq(now))).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> repository.markExpanded(
+                "claim-1", List.of(new PermissionChangeCheckpoint(1L, 500L)), now));
+    }
+
+    @Test
+    void shouldDeleteSucceededRecordsInOneBoundedStatement() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        LocalDateTime processedBefore = LocalDateTime.of(2026, 8, 1, 0, 0);
+        when(mapper.deleteSucceededBefore(processedBefore, 500)).thenReturn(321);
+
+        assertEquals(321, repository.deleteSucceededBefore(processedBefore, 500));
+        assertEquals(0, repository.deleteSucceededBefore(processedBefore, 0));
+    }
+
+    @Test
+    void shouldTreatMissingTableStatisticsAsEmpty() {
+        PermissionChangeRecordMapper mapper = mock(PermissionChangeRecordMapper.class);
+        MySqlPermissionChangeRecordRepositoryImpl repository =
+                new MySqlPermissionChangeRecordRepositoryImpl(mapper, new PermissionChangeRecordConverter());
+        when(mapper.selectEstimatedRowCount()).thenReturn(null);
+
+        assertEquals(0L, repository.estimateRowCount());
     }
 }
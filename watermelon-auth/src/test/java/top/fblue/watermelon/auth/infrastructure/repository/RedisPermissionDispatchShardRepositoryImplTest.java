@@ -0,0 +1,69 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisPermissionDispatchShardRepositoryImplTest {
+
+    @Test
+    void shouldOwnEveryShardBeforeFirstLease() {
+        RedisPermissionDispatchShardRepositoryImpl repository =
+                new RedisPermissionDispatchShardRepositoryImpl(
+                        mock(StringRedisTemplate.class), "permission:", 15_000L, mock(Clock.class));
+
+        assertEquals(Optional.empty(), repository.findOwnedShards());
+    }
+
+    @Test
+    void shouldSplitShardsBySortedMemberPosition() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L, 14_999L);
+        stubLiveMembers(redisTemplate);
+        RedisPermissionDispatchShardRepositoryImpl repository =
+                new RedisPermissionDispatchShardRepositoryImpl(redisTemplate, "permission:", 15_000L, clock);
+
+        repository.renewLease();
+
+        Set<Integer> ownedShards = repository.findOwnedShards().orElseThrow();
+        assertEquals(21, ownedShards.size());
+        assertTrue(ownedShards.containsAll(Set.of(1, 4, 61)));
+        ownedShards.forEach(shard -> assertEquals(1, shard % 3));
+    }
+
+    @Test
+    void shouldFallBackToEveryShardAfterLeaseExpires() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L, 15_000L);
+        stubLiveMembers(redisTemplate);
+        RedisPermissionDispatchShardRepositoryImpl repository =
+                new RedisPermissionDispatchShardRepositoryImpl(redisTemplate, "permission:", 15_000L, clock);
+
+        repository.renewLease();
+
+        assertEquals(Optional.empty(), repository.findOwnedShards());
+    }
+
+    /**
+     * 存活成员为本实例及排序在其前后的各一个实例；本实例标识以进程号开头，排在 {@code 0} 与 {@code ~} 之间。
+     */
+    @SuppressWarnings("unchecked")
+    private void stubLiveMembers(StringRedisTemplate redisTemplate) {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("permission:dispatch:members")), any(), any()))
+                .thenAnswer(invocation -> List.of("~last", invocation.getArgument(2), "0first"));
+    }
+}
@@ -0,0 +1,71 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.infrastructure.scheduler.PermissionDispatchWakeup;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RedisPermissionDispatchSignalRepositoryImplTest {
+
+    private static final String CHANNEL = "permission:dispatch:signal:channel";
+
+    @Test
+    void shouldBroadcastWakeupOnlyAfterCommit() throws InterruptedException {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        PermissionDispatchWakeup wakeup = new PermissionDispatchWakeup();
+        RedisPermissionDispatchSignalRepositoryImpl repository =
+                new RedisPermissionDispatchSignalRepositoryImpl(wakeup, redisTemplate, "permission:");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.signalAfterCommit();
+            verifyNoInteractions(redisTemplate);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(redisTemplate).convertAndSend(CHANNEL, "1");
+        assertFalse(wakeup.await(0L));
+    }
+
+    @Test
+    void shouldWakeLocalLoopOnBroadcastMessage() throws InterruptedException {
+        PermissionDispatchWakeup wakeup = new PermissionDispatchWakeup();
+        RedisPermissionDispatchSignalRepositoryImpl repository = new RedisPermissionDispatchSignalRepositoryImpl(
+                wakeup, mock(StringRedisTemplate.class), "permission:");
+
+        repository.onMessage(new DefaultMessage(
+                CHANNEL.getBytes(StandardCharsets.UTF_8), "1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(wakeup.await(0L));
+    }
+
+    @Test
+    void shouldWakeLocalLoopWhenBroadcastFails() throws InterruptedException {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        PermissionDispatchWakeup wakeup = new PermissionDispatchWakeup();
+        RedisPermissionDispatchSignalRepositoryImpl repository =
+                new RedisPermissionDispatchSignalRepositoryImpl(wakeup, redisTemplate, "permission:");
+        doThrow(new RedisConnectionFailureException("redis unavailable"))
+                .when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        repository.signalAfterCommit();
+
+        assertTrue(wakeup.await(0L));
+    }
+}
@@ -0,0 +1,188 @@
+package top.fblue.watermelon.auth.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class RedisPermissionVersionRepositoryImplTest {
+
+    private static final String SYSTEM_VERSION_KEY = "permission:version:system:banana";
+
+    @Test
+    void shouldServeSystemVersionFromNearCacheUntilExpired() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        Clock clock = mock(Clock.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(SYSTEM_VERSION_KEY)).thenReturn("5", "6");
+        when(clock.millis()).thenReturn(0L, 4_999L, 5_000L);
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, clock);
+
+        assertEquals(5L, repository.getSystemPermissionVersion("banana"));
+        assertEquals(5L, repository.getSystemPermissionVersion("banana"));
+        assertEquals(6L, repository.getSystemPermissionVersion("banana"));
+        verify(valueOperations, times(2)).get(SYSTEM_VERSION_KEY);
+    }
+
+    @Test
+    void shouldApplyBroadcastVersionWithoutReadingRedis() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        Clock clock = mock(Clock.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(SYSTEM_VERSION_KEY)).thenReturn("5");
+        when(clock.millis()).thenReturn(0L);
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, clock);
+        repository.getSystemPermissionVersion("banana");
+
+        repository.onMessage(message("banana=7"), null);
+        repository.onMessage(message("banana=6"), null);
+
+        assertEquals(7L, repository.getSystemPermissionVersion("banana"));
+        verify(valueOperations, times(1)).get(SYSTEM_VERSION_KEY);
+    }
+
+    @Test
+    void shouldNotRollBackBroadcastVersionWhenRedisReadIsOlder() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        Clock clock = mock(Clock.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(SYSTEM_VERSION_KEY)).thenReturn("6");
+        when(clock.millis()).thenReturn(0L, 5_000L, 5_001L);
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, clock);
+        repository.onMessage(message("banana=7"), null);
+
+        assertEquals(7L, repository.getSystemPermissionVersion("banana"));
+        assertEquals(7L, repository.getSystemPermissionVersion("banana"));
+        verify(valueOperations, times(1)).get(SYSTEM_VERSION_KEY);
+    }
+
+    @Test
+    void shouldReadUserAndSystemVersionsWithOneMultiGet() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        Clock clock = mock(Clock.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(clock.millis()).thenReturn(0L);
+        when(valueOperations.multiGet(List.of(
+                "permission:version:user:7", "permission:version:user:9", SYSTEM_VERSION_KEY)))
+                .thenReturn(Arrays.asList("3", null, "5"));
+        when(valueOperations.multiGet(List.of("permission:version:user:7"))).thenReturn(List.of("4"));
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, clock);
+
+        assertEquals(List.of(new PermissionVersions(3L, 5L), new PermissionVersions(0L, 5L)),
+                repository.getPermissionVersions(List.of(7L, 9L), "banana"));
+        assertEquals(new PermissionVersions(4L, 5L), repository.getPermissionVersions(7L, "banana"));
+    }
+
+    @Test
+    void shouldIncrementDictionaryRevisionOnlyAfterCommit() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, mock(Clock.class));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.incrementDictionaryRevisionsAfterCommit(Arrays.asList("banana", null, "banana", "cherry"));
+            verifyNoInteractions(valueOperations);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(valueOperations).increment("permission:version:dictionary:banana");
+        verify(valueOperations).increment("permission:version:dictionary:cherry");
+        verify(valueOperations, never()).increment("permission:version:dictionary:null");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPipelineScriptShaWithEventKeyInUserVersionSlot() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of(3L);
+        });
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, mock(Clock.class));
+
+        assertEquals(List.of(3L), repository.incrementUserPermissionVersions(List.of("event-1"), List.of(7L)));
+        verify(scriptingCommands).evalSha(anyString(), eq(ReturnType.INTEGER), eq(2),
+                aryEq(bytes("permission:version:user:7")),
+                aryEq(bytes("permission:version-event:event-1:{permission:version:user:7}")),
+                aryEq(bytes("60")));
+        verifyNoMoreInteractions(scriptingCommands);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldLoadScriptAndRetryBatchOnNoScript() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisSystemException("pipeline failed",
+                        new IllegalStateException("NOSCRIPT No matching script. Please use EVAL.")))
+                .thenReturn(List.of(3L, 4L));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(
+                invocation -> invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection));
+        RedisPermissionVersionRepositoryImpl repository = repository(redisTemplate, mock(Clock.class));
+
+        assertEquals(List.of(3L, 4L), repository.incrementUserPermissionVersions(
+                List.of("event-1", "event-2"), List.of(7L, 8L)));
+        verify(scriptingCommands).scriptLoad(any(byte[].class));
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+    }
+
+    private RedisPermissionVersionRepositoryImpl repository(StringRedisTemplate redisTemplate, Clock clock) {
+        return new RedisPermissionVersionRepositoryImpl(redisTemplate, "permission:", 60L, 5L, clock);
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(
+                "permission:version:system:channel".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
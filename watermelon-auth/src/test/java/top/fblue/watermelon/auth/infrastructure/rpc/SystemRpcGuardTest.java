@@ -0,0 +1,115 @@
+package top.fblue.watermelon.auth.infrastructure.rpc;
+
+import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.auth.infrastructure.config.AuthProperties;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SystemRpcGuardTest {
+
+    @Test
+    void shouldOpenAfterConsecutiveFailuresAndRejectWithoutCalling() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        SystemRpcGuard guard = new SystemRpcGuard(properties(2, 1), clock);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> guard.call("banana", () -> fail(calls)));
+        assertThrows(IllegalStateException.class, () -> guard.call("banana", () -> fail(calls)));
+        assertThrows(SystemRpcRejectedException.class, () -> guard.call("banana", () -> fail(calls)));
+
+        assertEquals(2, calls.get());
+        assertEquals("ok", guard.call("cherry", () -> "ok"));
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulTrialOnceOpenDurationElapsed() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L, 0L, 29_999L, 30_000L, 30_000L);
+        SystemRpcGuard guard = new SystemRpcGuard(properties(1, 1), clock);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> guard.call("banana", () -> fail(calls)));
+        assertThrows(SystemRpcRejectedException.class, () -> guard.call("banana", () -> "ok"));
+        assertEquals("ok", guard.call("banana", () -> "ok"));
+        assertEquals("ok", guard.call("banana", () -> "ok"));
+    }
+
+    @Test
+    void shouldRejectCallsBeyondBulkheadWithoutCountingFailure() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        SystemRpcGuard guard = new SystemRpcGuard(properties(1, 1), clock);
+
+        String result = guard.call("banana", () -> {
+            assertThrows(SystemRpcRejectedException.class, () -> guard.call("banana", () -> "nested"));
+            return "outer";
+        });
+
+        assertEquals("outer", result);
+        assertEquals("ok", guard.call("banana", () -> "ok"));
+    }
+
+    @Test
+    void shouldKeepTrialExclusiveWhenEarlierCallFailsDuringTrial() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenAnswer(invocation -> now.get());
+        SystemRpcGuard guard = new SystemRpcGuard(properties(1, 2), clock);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slowCall = CompletableFuture.supplyAsync(() -> guard.call("banana", () -> {
+            admitted.countDown();
+            await(release);
+            return fail(calls);
+        }));
+        admitted.await();
+        assertThrows(IllegalStateException.class, () -> guard.call("banana", () -> fail(calls)));
+        now.set(30_000L);
+
+        String result = guard.call("banana", () -> {
+            release.countDown();
+            assertThrows(CompletionException.class, slowCall::join);
+            now.set(60_000L);
+            assertThrows(SystemRpcRejectedException.class, () -> guard.call("banana", () -> "second trial"));
+            return "trial";
+        });
+
+        assertEquals("trial", result);
+        assertEquals("ok", guard.call("banana", () -> "ok"));
+    }
+
+    private AuthProperties properties(int failureThreshold, int maxConcurrentCalls) {
+        AuthProperties properties = new AuthProperties();
+        properties.getClientGuard().setFailureThreshold(failureThreshold);
+        properties.getClientGuard().setOpenDurationMs(30_000L);
+        properties.getClientGuard().setMaxConcurrentCalls(maxConcurrentCalls);
+        properties.getClientGuard().setMaxWaitMs(0L);
+        return properties;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private String fail(AtomicInteger calls) {
+        calls.incrementAndGet();
+        throw new IllegalStateException("banana unavailable");
+    }
+}
@@ -0,0 +1,36 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PermissionChangeDispatchSchedulerTest {
+
+    @Test
+    void shouldContinueImmediatelyOnFullBatchAndBackOffWhenIdle() {
+        PermissionChangeDispatchScheduler scheduler = new PermissionChangeDispatchScheduler(
+                mock(PermissionChangeApplicationService.class), new PermissionDispatchWakeup(),
+                20, 1000L, 1000L, 10_000L);
+
+        assertEquals(0L, scheduler.nextDelayMillis(20, 1000L));
+        assertEquals(1000L, scheduler.nextDelayMillis(3, 8000L));
+        assertEquals(1000L, scheduler.nextDelayMillis(0, 0L));
+        assertEquals(4000L, scheduler.nextDelayMillis(0, 2000L));
+        assertEquals(10_000L, scheduler.nextDelayMillis(0, 8000L));
+    }
+
+    @Test
+    void shouldCollapseSignalsIntoOneWakeup() throws InterruptedException {
+        PermissionDispatchWakeup wakeup = new PermissionDispatchWakeup();
+
+        wakeup.signal();
+        wakeup.signal();
+
+        assertTrue(wakeup.await(1000L));
+        assertFalse(wakeup.await(1L));
+    }
+}
@@ -0,0 +1,52 @@
+package top.fblue.watermelon.auth.infrastructure.scheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import top.fblue.watermelon.auth.application.service.PermissionChangeApplicationService;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionChangePriorityEnum;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PermissionChangeLagMonitorTest {
+
+    @Test
+    void shouldPublishSampledLagPerLane() {
+        PermissionChangeApplicationService applicationService = mock(PermissionChangeApplicationService.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PermissionChangeLagMonitor monitor = new PermissionChangeLagMonitor(applicationService, meterRegistry);
+        when(applicationService.measureDispatchLag()).thenReturn(Map.of(
+                PermissionChangePriorityEnum.URGENT, Duration.ofMillis(1500),
+                PermissionChangePriorityEnum.NORMAL, Duration.ZERO,
+                PermissionChangePriorityEnum.BULK, Duration.ofMinutes(2)));
+
+        monitor.sample();
+
+        assertEquals(1.5, lag(meterRegistry, "urgent"));
+        assertEquals(0.0, lag(meterRegistry, "normal"));
+        assertEquals(120.0, lag(meterRegistry, "bulk"));
+    }
+
+    @Test
+    void shouldKeepLastSampleWhenMeasurementFails() {
+        PermissionChangeApplicationService applicationService = mock(PermissionChangeApplicationService.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PermissionChangeLagMonitor monitor = new PermissionChangeLagMonitor(applicationService, meterRegistry);
+        when(applicationService.measureDispatchLag())
+                .thenReturn(Map.of(PermissionChangePriorityEnum.BULK, Duration.ofSeconds(30)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        monitor.sample();
+        monitor.sample();
+
+        assertEquals(30.0, lag(meterRegistry, "bulk"));
+    }
+
+    private double lag(SimpleMeterRegistry meterRegistry, String lane) {
+        return meterRegistry.get("permission.change_dispatch.lag").tag("lane", lane).gauge().value();
+    }
+}
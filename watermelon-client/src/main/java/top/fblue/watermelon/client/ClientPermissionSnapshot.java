@@ -0,0 +1,68 @@
+package top.fblue.watermelon.client;
+
+import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 业务系统本地缓存的用户权限快照。
+ *
+ * <p>快照创建时把全部资源编码放入哈希集合，权限判断为 O(1) 查找；
+ * 编码列表原样保留，供业务系统下发给前端渲染页面和按钮。</p>
+ *
+ * @param userId 用户中心用户 ID
+ * @param userPermissionVersion 用户维度权限版本
+ * @param systemPermissionVersion 系统维度权限版本
+ * @param pageCodes 页面资源编码
+ * @param buttonCodes 按钮资源编码
+ * @param apiCodes 接口资源编码
+ * @param codes 全部资源编码集合
+ */
+public record ClientPermissionSnapshot(Long userId,
+                                       long userPermissionVersion,
+                                       long systemPermissionVersion,
+                                       List<String> pageCodes,
+                                       List<String> buttonCodes,
+                                       List<String> apiCodes,
+                                       Set<String> codes) {
+
+    /**
+     * 根据用户中心返回的完整权限快照构建本地快照。
+     *
+     * @param response 用户中心权限快照
+     * @return 不可变本地权限快照
+     */
+    public static ClientPermissionSnapshot of(PermissionSnapshotResponse response) {
+        List<String> pageCodes = copyOf(response.getPageCodes());
+        List<String> buttonCodes = copyOf(response.getButtonCodes());
+        List<String> apiCodes = copyOf(response.getApiCodes());
+        Set<String> codes = new HashSet<>(pageCodes);
+        codes.addAll(buttonCodes);
+        codes.addAll(apiCodes);
+        return new ClientPermissionSnapshot(response.getUserId(),
+                response.getUserPermissionVersion(), response.getSystemPermissionVersion(),
+                pageCodes, buttonCodes, apiCodes, Set.copyOf(codes));
+    }
+
+    /**
+     * 判断快照中是否包含指定资源编码。
+     *
+     * @param resourceCode 完整资源编码
+     * @return 是否拥有该资源权限
+     */
+    public boolean hasPermission(String resourceCode) {
+        return resourceCode != null && codes.contains(resourceCode);
+    }
+
+    /**
+     * 复制编码列表，空列表视为无权限。
+     *
+     * @param codes 原始编码列表
+     * @return 不可变编码列表
+     */
+    private static List<String> copyOf(List<String> codes) {
+        return codes == null ? List.of() : List.copyOf(codes);
+    }
+}
@@ -0,0 +1,169 @@
+package top.fblue.watermelon.client;
+
+import top.fblue.common.response.ApiResponse;
+import top.fblue.watermelon.api.PermissionRpc;
+import top.fblue.watermelon.api.SystemPermissionChangeRpc;
+import top.fblue.watermelon.api.request.PermissionChangeRequest;
+import top.fblue.watermelon.api.request.PermissionSnapshotRequest;
+import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务系统内嵌的权限缓存客户端。
+ *
+ * <p>客户端按用户缓存权限快照，并实现 {@link SystemPermissionChangeRpc}：业务系统把本对象
+ * 注册为该 Dubbo 回调的服务实现后，用户中心下发的变更通知会按版本号使本地快照失效，
+ * 只有版本变化后的首次访问才会调用 {@link PermissionRpc#getPermissionSnapshot}。</p>
+ *
+ * <p>用户级通知移除版本较旧的用户快照；系统级通知抬高系统版本下限，低于下限的快照在
+ * 下次访问时重新加载。加载期间收到的通知按用户记录最高用户版本，加载结果的两个版本均不低于
+ * 已通知的版本时才写入缓存，否则只返回给调用方；其他用户的通知不影响本次加载的缓存。</p>
+ */
+public class PermissionClient implements SystemPermissionChangeRpc {
+
+    /** 用户中心权限 RPC。 */
+    private final PermissionRpc permissionRpc;
+
+    /** 当前业务系统编码。 */
+    private final String systemCode;
+
+    /** 按访问顺序排列的用户快照；读写均在对象锁内完成。 */
+    private final Map<Long, ClientPermissionSnapshot> snapshots;
+
+    /** 已通知的系统维度权限版本下限。 */
+    private final AtomicLong systemPermissionVersionFloor = new AtomicLong();
+
+    /** 正在加载快照的用户及加载期间通知的最高用户版本；读写均在快照对象锁内完成。 */
+    private final Map<Long, PendingLoad> pendingLoads = new HashMap<>();
+
+    /**
+     * 创建权限缓存客户端。
+     *
+     * @param permissionRpc 用户中心权限 RPC 引用
+     * @param systemCode 当前业务系统编码，必须与 Dubbo 调用方应用名一致
+     * @param maxSize 最多缓存的用户快照数，超过时淘汰最久未访问的用户
+     */
+    public PermissionClient(PermissionRpc permissionRpc, String systemCode, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize 必须大于 0");
+        }
+        this.permissionRpc = permissionRpc;
+        this.systemCode = systemCode;
+        this.snapshots = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ClientPermissionSnapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 判断用户是否拥有当前系统中的指定资源权限。
+     *
+     * @param userId 用户中心用户 ID
+     * @param resourceCode 完整资源编码
+     * @return 是否拥有该资源权限
+     */
+    public boolean hasPermission(Long userId, String resourceCode) {
+        return getSnapshot(userId).hasPermission(resourceCode);
+    }
+
+    /**
+     * 查询用户在当前系统中的权限快照，本地快照仍为最新时不访问用户中心。
+     *
+     * @param userId 用户中心用户 ID
+     * @return 用户权限快照
+     */
+    public ClientPermissionSnapshot getSnapshot(Long userId) {
+        // 1. 命中未被通知失效的本地快照时直接返回，否则登记加载以记录加载期间的用户级通知
+        PendingLoad pendingLoad;
+        synchronized (snapshots) {
+            ClientPermissionSnapshot cached = snapshots.get(userId);
+            if (cached != null && cached.systemPermissionVersion() >= systemPermissionVersionFloor.get()) {
+                return cached;
+            }
+            pendingLoad = pendingLoads.computeIfAbsent(userId, ignored -> new PendingLoad());
+            pendingLoad.loaders++;
+        }
+
+        // 2. 向用户中心拉取完整快照
+        ClientPermissionSnapshot loaded = null;
+        try {
+            loaded = ClientPermissionSnapshot.of(loadSnapshot(userId));
+            return loaded;
+        } finally {
+            // 3. 快照版本不低于加载期间通知的用户版本和系统版本下限时才写入缓存
+            synchronized (snapshots) {
+                if (loaded != null
+                        && loaded.userPermissionVersion() >= pendingLoad.notifiedUserPermissionVersion
+                        && loaded.systemPermissionVersion() >= systemPermissionVersionFloor.get()) {
+                    snapshots.put(userId, loaded);
+                }
+                if (--pendingLoad.loaders == 0) {
+                    pendingLoads.remove(userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按用户中心下发的版本号失效本地快照。
+     *
+     * @param request 权限变更通知；userId 为空表示失效整个系统
+     */
+    @Override
+    public void permissionChanged(PermissionChangeRequest request) {
+        if (request == null || !systemCode.equals(request.getSystemCode())) {
+            return;
+        }
+        synchronized (snapshots) {
+            if (request.getUserId() == null) {
+                systemPermissionVersionFloor.accumulateAndGet(request.getSystemPermissionVersion(), Math::max);
+                return;
+            }
+            PendingLoad pendingLoad = pendingLoads.get(request.getUserId());
+            if (pendingLoad != null) {
+                pendingLoad.notifiedUserPermissionVersion = Math.max(
+                        pendingLoad.notifiedUserPermissionVersion, request.getUserPermissionVersion());
+            }
+            ClientPermissionSnapshot cached = snapshots.get(request.getUserId());
+            if (cached != null && cached.userPermissionVersion() < request.getUserPermissionVersion()) {
+                snapshots.remove(request.getUserId());
+            }
+        }
+    }
+
+    /**
+     * 调用用户中心查询完整权限快照。
+     *
+     * @param userId 用户中心用户 ID
+     * @return 用户中心权限快照
+     */
+    private PermissionSnapshotResponse loadSnapshot(Long userId) {
+        ApiResponse<PermissionSnapshotResponse> response = permissionRpc.getPermissionSnapshot(
+                PermissionSnapshotRequest.builder()
+                        .userId(userId)
+                        .systemCode(systemCode)
+                        .build());
+        if (response == null || response.getData() == null) {
+            throw new IllegalStateException("查询用户 " + userId + " 的权限快照失败");
+        }
+        return response.getData();
+    }
+
+    /**
+     * 同一用户进行中的快照加载。
+     */
+    private static final class PendingLoad {
+
+        /** 进行中的加载数。 */
+        private int loaders;
+
+        /** 加载期间通知的最高用户维度权限版本。 */
+        private long notifiedUserPermissionVersion;
+    }
+}
@@ -0,0 +1,122 @@
+package top.fblue.watermelon.client;
+
+import org.junit.jupiter.api.Test;
+import top.fblue.common.response.ApiResponse;
+import top.fblue.watermelon.api.PermissionRpc;
+import top.fblue.watermelon.api.request.PermissionChangeRequest;
+import top.fblue.watermelon.api.response.PermissionSnapshotResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PermissionClientTest {
+
+    @Test
+    void shouldOnlyCallUserCenterOnceWhileVersionsAreUnchanged() {
+        PermissionRpc permissionRpc = mock(PermissionRpc.class);
+        PermissionClient client = new PermissionClient(permissionRpc, "banana", 10);
+        when(permissionRpc.getPermissionSnapshot(any())).thenReturn(snapshot(3L, 5L, "banana:POST:/api/admin/oss"));
+
+        assertTrue(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        assertFalse(client.hasPermission(7L, "banana:DELETE:/api/admin/oss"));
+        client.permissionChanged(change(7L, 3L, 5L));
+        assertTrue(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+
+        verify(permissionRpc, times(1)).getPermissionSnapshot(any());
+    }
+
+    @Test
+    void shouldReloadAfterNewerUserVersionIsNotified() {
+        PermissionRpc permissionRpc = mock(PermissionRpc.class);
+        PermissionClient client = new PermissionClient(permissionRpc, "banana", 10);
+        when(permissionRpc.getPermissionSnapshot(any())).thenReturn(
+                snapshot(3L, 5L, "banana:POST:/api/admin/oss"),
+                snapshot(4L, 5L));
+
+        assertTrue(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        client.permissionChanged(change(7L, 4L, 5L));
+
+        assertFalse(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        verify(permissionRpc, times(2)).getPermissionSnapshot(any());
+    }
+
+    @Test
+    void shouldReloadAllUsersAfterNewerSystemVersionIsNotified() {
+        PermissionRpc permissionRpc = mock(PermissionRpc.class);
+        PermissionClient client = new PermissionClient(permissionRpc, "banana", 10);
+        when(permissionRpc.getPermissionSnapshot(any())).thenReturn(
+                snapshot(3L, 5L, "banana:POST:/api/admin/oss"),
+                snapshot(3L, 6L));
+
+        client.hasPermission(7L, "banana:POST:/api/admin/oss");
+        client.permissionChanged(change(null, 0L, 6L));
+        client.permissionChanged(PermissionChangeRequest.builder()
+                .systemCode("watermelon")
+                .systemPermissionVersion(7L)
+                .build());
+
+        assertFalse(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        verify(permissionRpc, times(2)).getPermissionSnapshot(any());
+    }
+
+    @Test
+    void shouldCacheLoadedSnapshotWhenOnlyOtherUsersChangeDuringLoad() {
+        PermissionRpc permissionRpc = mock(PermissionRpc.class);
+        PermissionClient client = new PermissionClient(permissionRpc, "banana", 10);
+        when(permissionRpc.getPermissionSnapshot(any())).thenAnswer(invocation -> {
+            client.permissionChanged(change(9L, 8L, 5L));
+            return snapshot(3L, 5L, "banana:POST:/api/admin/oss");
+        });
+
+        client.hasPermission(7L, "banana:POST:/api/admin/oss");
+        client.hasPermission(7L, "banana:POST:/api/admin/oss");
+
+        verify(permissionRpc, times(1)).getPermissionSnapshot(any());
+    }
+
+    @Test
+    void shouldNotCacheSnapshotOlderThanUserVersionNotifiedDuringLoad() {
+        PermissionRpc permissionRpc = mock(PermissionRpc.class);
+        PermissionClient client = new PermissionClient(permissionRpc, "banana", 10);
+        when(permissionRpc.getPermissionSnapshot(any()))
+                .thenAnswer(invocation -> {
+                    client.permissionChanged(change(7L, 4L, 5L));
+                    return snapshot(3L, 5L, "banana:POST:/api/admin/oss");
+                })
+                .thenReturn(snapshot(4L, 5L));
+
+        assertTrue(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        assertFalse(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+        assertFalse(client.hasPermission(7L, "banana:POST:/api/admin/oss"));
+
+        verify(permissionRpc, times(2)).getPermissionSnapshot(any());
+    }
+
+    private static ApiResponse<PermissionSnapshotResponse> snapshot(long userVersion,
+                                                                     long systemVersion,
+                                                                     String... apiCodes) {
+        return ApiResponse.success(PermissionSnapshotResponse.builder()
+                .userId(7L)
+                .systemCode("banana")
+                .userPermissionVersion(userVersion)
+                .systemPermissionVersion(systemVersion)
+                .apiCodes(List.of(apiCodes))
+                .build());
+    }
+
+    private static PermissionChangeRequest change(Long userId, long userVersion, long systemVersion) {
+        return PermissionChangeRequest.builder()
+                .systemCode("banana")
+                .userId(userId)
+                .userPermissionVersion(userVersion)
+                .systemPermissionVersion(systemVersion)
+                .build();
+    }
+}
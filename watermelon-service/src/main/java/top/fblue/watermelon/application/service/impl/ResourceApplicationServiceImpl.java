@@ -16,6 +16,7 @@ import top.fblue.watermelon.application.service.ResourceApplicationService;
 import top.fblue.watermelon.application.service.ResourceExcelService;
 import top.fblue.watermelon.domain.resource.entity.ResourceNode;
 import top.fblue.watermelon.domain.resource.service.ResourceDomainService;
+import top.fblue.watermelon.domain.role.service.RoleDomainService;
 import top.fblue.watermelon.domain.user.service.UserDomainService;
 import top.fblue.watermelon.domain.user.entity.User;
 
@@ -38,6 +39,9 @@ public class ResourceApplicationServiceImpl implements ResourceApplicationServic
     @Resource
     private UserDomainService userDomainService;
 
+    @Resource
+    private RoleDomainService roleDomainService;
+
     @Resource
     private ResourceConverter resourceConverter;
 
@@ -62,7 +66,11 @@ public class ResourceApplicationServiceImpl implements ResourceApplicationServic
         // 2. 通过领域服务创建资源
         ResourceNode createdResourceNode = resourceDomainService.createResourceNode(resourceNode);
 
-        // 3. 转换为VO并返回
+        // 3. 新资源尚未被角色引用，不影响用户权限，只需让所属系统的权限编码字典在提交后失效
+        permissionChangeDomainService.recordResourceChange(
+                Collections.emptyList(), Collections.singletonList(createdResourceNode.systemCode()));
+
+        // 4. 转换为VO并返回
         return resourceConverter.toVO(createdResourceNode);
     }
 
@@ -97,15 +105,18 @@ public class ResourceApplicationServiceImpl implements ResourceApplicationServic
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean updateResource(UpdateResourceDTO updateResourceDTO) {
-        // 1. 转换DTO为Domain实体
+        // 1. 转换DTO为Domain实体，并保留更新前的资源用于确定原所属系统
         ResourceNode resource = resourceConverter.toResourceNode(updateResourceDTO);
+        ResourceNode originalResource = resourceDomainService.getResourceById(resource.getId());
 
         // 2. 通过领域服务更新资源
         boolean updated = resourceDomainService.updateResource(resource);
 
-        // 3. 更新成功后在当前事务中记录系统级权限变更
+        // 3. 更新成功后在当前事务中只为引用该资源的角色记录权限变更，范围限定在资源更新前后所属的系统
         if (updated) {
-            permissionChangeDomainService.recordSystemPermissionChange();
+            permissionChangeDomainService.recordResourceChange(
+                    roleDomainService.getRoleIdsByResourceIds(List.of(resource.getId())),
+                    Arrays.asList(originalResource.systemCode(), resource.systemCode()));
         }
 
         // 4. 返回更新结果
@@ -115,12 +126,15 @@ public class ResourceApplicationServiceImpl implements ResourceApplicationServic
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean deleteResource(Long id) {
-        // 1. 通过领域服务删除资源
+        // 1. 保留删除前的资源用于确定所属系统，再通过领域服务删除资源
+        ResourceNode resource = resourceDomainService.getResourceById(id);
         boolean deleted = resourceDomainService.deleteResource(id);
 
-        // 2. 删除成功后在当前事务中记录系统级权限变更
+        // 2. 删除成功后在当前事务中只为引用该资源的角色记录权限变更，范围限定在资源所属系统
         if (deleted) {
-            permissionChangeDomainService.recordSystemPermissionChange();
+            permissionChangeDomainService.recordResourceChange(
+                    roleDomainService.getRoleIdsByResourceIds(List.of(id)),
+                    Collections.singletonList(resource.systemCode()));
         }
 
         // 3. 返回删除结果
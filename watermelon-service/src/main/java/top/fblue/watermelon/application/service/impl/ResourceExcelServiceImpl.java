@@ -28,6 +28,7 @@ import top.fblue.watermelon.domain.resource.entity.ResourceNode;
 import top.fblue.watermelon.domain.resource.entity.ResourceRelation;
 import top.fblue.watermelon.domain.resource.repository.ResourceRelationRepository;
 import top.fblue.watermelon.domain.resource.repository.ResourceRepository;
+import top.fblue.watermelon.domain.role.service.RoleDomainService;
 
 import jakarta.annotation.Resource;
 
@@ -56,6 +57,9 @@ public class ResourceExcelServiceImpl implements ResourceExcelService {
     /** 分层例外：用于导入前校验待删除资源的关联关系，原因详见类注释。 */
     @Resource
     private ResourceRelationRepository resourceRelationRepository;
+    /** 角色领域服务，用于查询引用变更资源的角色。 */
+    @Resource
+    private RoleDomainService roleDomainService;
     /** 权限变更领域服务，用于在导入事务中写入发件箱记录。 */
     @Resource
     private PermissionChangeDomainService permissionChangeDomainService;
@@ -205,7 +209,9 @@ public class ResourceExcelServiceImpl implements ResourceExcelService {
         Map<String, ResourceNode> existingCodeToResource = existingResources.stream()
                 .collect(Collectors.toMap(ResourceNode::getCode, resource -> resource));
 
-        // 3. 批量新增和更新
+        // 3. 批量新增和更新，记录被更新或删除的资源及新增、更新、删除涉及的系统
+        List<Long> changedResourceIds = new ArrayList<>();
+        Set<String> changedSystemCodes = new HashSet<>();
         for (ResourceImportDTO importDTO : importDTOs) {
             ResourceNode existingResource = existingCodeToResource.get(importDTO.getCode());
 
@@ -218,11 +224,15 @@ public class ResourceExcelServiceImpl implements ResourceExcelService {
                     if (!resourceRepository.update(resourceNode)) {
                         throw new BusinessException(String.format("%s 资源更新失败", importDTO.getName()));
                     }
+                    changedResourceIds.add(existingResource.getId());
+                    changedSystemCodes.add(existingResource.systemCode());
+                    changedSystemCodes.add(resourceNode.systemCode());
                     updatedRows++;
                 }
             } else {
                 // 数据库不存在，Excel存在 -> 新增
                 resourceRepository.save(resourceNode);
+                changedSystemCodes.add(resourceNode.systemCode());
                 insertedRows++;
             }
         }
@@ -234,8 +244,10 @@ public class ResourceExcelServiceImpl implements ResourceExcelService {
         for (Map.Entry<String, ResourceNode> entry : existingCodeToResource.entrySet()) {
             if (!excelCodes.contains(entry.getKey())) {
                 deleteIds.add(entry.getValue().getId());
+                changedSystemCodes.add(entry.getValue().systemCode());
             }
         }
+        changedResourceIds.addAll(deleteIds);
 
         if (!deleteIds.isEmpty()) {
             // 批量删除资源
@@ -246,9 +258,11 @@ public class ResourceExcelServiceImpl implements ResourceExcelService {
             deletedRows = deleteIds.size();
         }
 
-        // 5. 资源更新或删除会影响已有授权，在同一事务中记录系统级权限变更
-        if (updatedRows > 0 || deletedRows > 0) {
-            permissionChangeDomainService.recordSystemPermissionChange();
+        // 5. 资源更新或删除只影响引用这些资源的角色，在同一事务中按角色记录权限变更，范围限定在涉及的系统；
+        // 仅有新增时角色集合为空，只让涉及系统的权限编码字典失效
+        if (insertedRows > 0 || updatedRows > 0 || deletedRows > 0) {
+            permissionChangeDomainService.recordResourceChange(
+                    roleDomainService.getRoleIdsByResourceIds(changedResourceIds), changedSystemCodes);
         }
 
         return ExcelImportResultVO.builder()
@@ -118,18 +118,15 @@ public class RoleApplicationServiceImpl implements RoleApplicationService {
         // 1. 转换DTO为Domain实体
         Role role = roleConverter.toRole(updateRoleDTO);
 
-        // 2. 查询关联该角色的用户
-        List<Long> affectedUserIds = userDomainService.getUserIdsByRoleId(updateRoleDTO.getId());
-
-        // 3. 通过领域服务更新角色
+        // 2. 通过领域服务更新角色
         boolean updated = roleDomainService.updateRole(role);
 
-        // 4. 更新成功后在当前事务中记录关联用户权限变更
+        // 3. 更新成功后在当前事务中记录角色级权限变更，关联用户在下发时展开
         if (updated) {
-            permissionChangeDomainService.recordUserPermissionChanges(affectedUserIds);
+            permissionChangeDomainService.recordRoleChange(updateRoleDTO.getId());
         }
 
-        // 5. 返回更新结果
+        // 4. 返回更新结果
         return updated;
     }
 
@@ -139,39 +136,33 @@ public class RoleApplicationServiceImpl implements RoleApplicationService {
         // 1. 校验资源是否存在
         resourceDomainService.validateResourceIds(updateRoleResourceDTO.getResourceIds());
 
-        // 2. 查询关联该角色的用户
-        List<Long> affectedUserIds = userDomainService.getUserIdsByRoleId(updateRoleResourceDTO.getId());
-
-        // 3. 更新角色资源关系
+        // 2. 更新角色资源关系
         boolean updated = roleDomainService.updateRoleResource(
                 updateRoleResourceDTO.getId(),
                 updateRoleResourceDTO.getResourceIds()
         );
 
-        // 4. 更新成功后在当前事务中记录关联用户权限变更
+        // 3. 更新成功后在当前事务中记录角色级权限变更，关联用户在下发时展开
         if (updated) {
-            permissionChangeDomainService.recordUserPermissionChanges(affectedUserIds);
+            permissionChangeDomainService.recordRoleChange(updateRoleResourceDTO.getId());
         }
 
-        // 5. 返回更新结果
+        // 4. 返回更新结果
         return updated;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean deleteRole(Long id) {
-        // 1. 删除角色前查询关联用户，避免关系删除后无法确定影响范围
-        List<Long> affectedUserIds = userDomainService.getUserIdsByRoleId(id);
-
-        // 2. 通过领域服务删除角色
+        // 1. 通过领域服务删除角色；用户角色关系保留，下发时仍可按角色展开受影响用户
         boolean deleted = roleDomainService.deleteRole(id);
 
-        // 3. 删除成功后在当前事务中记录关联用户权限变更
+        // 2. 删除成功后在当前事务中记录角色级权限变更
         if (deleted) {
-            permissionChangeDomainService.recordUserPermissionChanges(affectedUserIds);
+            permissionChangeDomainService.recordRoleChange(id);
         }
 
-        // 4. 返回删除结果
+        // 3. 返回删除结果
         return deleted;
     }
 }
@@ -10,6 +10,7 @@ import top.fblue.watermelon.application.dto.UpdateUserDTO;
 import top.fblue.watermelon.application.dto.ResetPasswordDTO;
 import top.fblue.watermelon.application.dto.UserQueryDTO;
 import top.fblue.watermelon.application.service.UserApplicationService;
+import top.fblue.watermelon.common.enums.StateEnum;
 import top.fblue.watermelon.common.response.Page;
 import top.fblue.watermelon.application.vo.UserVO;
 import top.fblue.watermelon.domain.role.service.RoleDomainService;
@@ -54,6 +55,9 @@ public class UserApplicationServiceImpl implements UserApplicationService {
         // 创建用户和角色的关联关系
         userDomainService.createUserRole(createUser.getId(), createUserDTO.getRoleIds());
 
+        // 在当前事务中记录用户权限变更，由下发流程生成其有效权限物化数据
+        permissionChangeDomainService.recordUserPermissionChange(createUser.getId());
+
         // 直接转换并返回
         return userConverter.toVO(createUser);
     }
@@ -90,8 +94,12 @@ public class UserApplicationServiceImpl implements UserApplicationService {
         // 4. 更新用户角色关联关系
         userDomainService.updateUserRole(updateUserDTO.getId(), updateUserDTO.getRoleIds());
 
-        // 5. 在当前事务中记录用户级权限变更
-        permissionChangeDomainService.recordUserPermissionChange(updateUserDTO.getId());
+        // 5. 在当前事务中记录用户级权限变更，禁用用户属于权限收回，优先下发
+        if (StateEnum.DISABLE.getCode().equals(updateUserDTO.getState())) {
+            permissionChangeDomainService.recordUserPermissionRevocation(updateUserDTO.getId());
+        } else {
+            permissionChangeDomainService.recordUserPermissionChange(updateUserDTO.getId());
+        }
 
         // 6. 返回更新结果
         return userUpdated;
@@ -110,9 +118,9 @@ public class UserApplicationServiceImpl implements UserApplicationService {
         // 1. 通过领域服务删除用户
         boolean deleted = userDomainService.deleteUser(id);
 
-        // 2. 删除成功后在当前事务中记录用户级权限变更
+        // 2. 删除成功后在当前事务中记录权限收回，优先下发
         if (deleted) {
-            permissionChangeDomainService.recordUserPermissionChange(id);
+            permissionChangeDomainService.recordUserPermissionRevocation(id);
         }
 
         // 3. 返回删除结果
@@ -66,6 +66,17 @@ public class ResourceNode {
      */
     private LocalDateTime updatedTime;
 
+    /**
+     * 获取资源所属业务系统编码，即资源code第一个冒号之前的部分
+     * 资源code不含冒号时无法确定所属系统，返回null
+     */
+    public String systemCode() {
+        if (code == null || code.indexOf(':') <= 0) {
+            return null;
+        }
+        return code.substring(0, code.indexOf(':'));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
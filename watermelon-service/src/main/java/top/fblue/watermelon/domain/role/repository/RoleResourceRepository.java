@@ -21,6 +21,11 @@ public interface RoleResourceRepository {
      * 根据角色ID列表批量查询资源ID列表
      */
     List<Long> findResourceIdsByRoleIds(List<Long> roleIds);
+
+    /**
+     * 根据资源ID列表查询引用这些资源的角色ID列表
+     */
+    List<Long> findRoleIdsByResourceIds(List<Long> resourceIds);
     
     /**
      * 批量删除角色资源关系
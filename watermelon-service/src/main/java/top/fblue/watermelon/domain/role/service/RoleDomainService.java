@@ -58,6 +58,12 @@ public interface RoleDomainService {
      * 用于权限验证，一次查询获取所有角色的资源权限
      */
     List<Long> getRoleResourceIdsByRoleIds(List<Long> roleIds);
+
+    /**
+     * 获取引用指定资源的角色ID列表
+     * 用于计算资源变更影响的角色范围
+     */
+    List<Long> getRoleIdsByResourceIds(List<Long> resourceIds);
     
     /**
      * 删除角色
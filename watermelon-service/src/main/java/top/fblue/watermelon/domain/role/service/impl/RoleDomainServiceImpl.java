@@ -150,6 +150,14 @@ public class RoleDomainServiceImpl implements RoleDomainService {
         return roleResourceRepository.findResourceIdsByRoleIds(roleIds);
     }
 
+    @Override
+    public List<Long> getRoleIdsByResourceIds(List<Long> resourceIds) {
+        if (resourceIds == null || resourceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return roleResourceRepository.findRoleIdsByResourceIds(resourceIds);
+    }
+
     @Override
     public boolean deleteRole(Long id) {
         // 1. 检查角色是否存在
@@ -0,0 +1,354 @@
+package top.fblue.watermelon.infrastructure.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
+import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
+import top.fblue.watermelon.infrastructure.mapper.RoleResourceNodeMapper;
+import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 角色资源位图缓存。
+ *
+ * <p>每个角色缓存一个以资源 ID 为下标的位图，另缓存一份全部启用鉴权资源的
+ * 位图掩码及资源字典。用户有效权限等于其启用角色位图的并集与启用掩码的交集，
+ * 刷新用户有效权限物化数据时不再为每个用户重复执行五表关联查询。</p>
+ *
+ * <p>位图按 Redis Hash 中的代次校验：角色资源关系变化只递增该角色的代次，
+ * 资源变化递增资源代次并使启用掩码重建。变更事务内先同步登记未完成变更计数，
+ * 早于发件箱记录提交，也就早于下发任务可以领取该记录；计数大于 0 期间读取方每次都回源数据库、
+ * 不写入缓存，事务结束后再原子地递增代次并扣减计数。因此下发任务不会在提交与代次递增之间
+ * 读到旧位图，事务内并发重建的未提交数据也不会以新代次缓存下来。</p>
+ *
+ * <p>事务结束后的 Redis 调用失败时计数无法扣减，相关位图持续回源，只损失性能不影响正确性；
+ * 缓存条目另有存活时间兜底，角色位图按最近最少访问淘汰，数量不超过上限。</p>
+ */
+@Slf4j
+@Component
+public class RoleResourceBitmapCache {
+
+    /**
+     * 事务结束后递增代次并扣减未完成变更计数的 Redis Lua 脚本。
+     *
+     * <p>脚本执行 {@code HINCRBY KEYS[1] ARGV[1] 1} 递增代次，再执行
+     * {@code HINCRBY KEYS[1] ARGV[2] -1} 扣减计数，计数归零时删除该字段。
+     * 两步在同一脚本中完成，读取方不会看到计数已扣减而代次尚未递增的中间状态。</p>
+     */
+    private static final DefaultRedisScript<Long> COMPLETE_CHANGE_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('HINCRBY', KEYS[1], ARGV[1], 1)
+            if redis.call('HINCRBY', KEYS[1], ARGV[2], -1) <= 0 then
+                redis.call('HDEL', KEYS[1], ARGV[2])
+            end
+            return generation
+            """, Long.class);
+
+    /** 存在未完成变更、不可使用及写入缓存的代次。 */
+    private static final long UNCACHEABLE_GENERATION = -1L;
+
+    /** 未完成变更计数在 Redis Hash 中的字段名后缀。 */
+    private static final String PENDING_FIELD_SUFFIX = ":pending";
+
+    /** 资源代次在 Redis Hash 中的字段名。 */
+    private static final String RESOURCE_GENERATION_FIELD = "resource";
+
+    /** 角色代次在 Redis Hash 中的字段名前缀。 */
+    private static final String ROLE_GENERATION_FIELD_PREFIX = "role:";
+
+    /** 角色资源关系 Mapper。 */
+    private final RoleResourceNodeMapper roleResourceNodeMapper;
+
+    /** 资源持久化 Mapper。 */
+    private final ResourceNodeMapper resourceNodeMapper;
+
+    /** 权限资源模型转换器。 */
+    private final PermissionResourceConverter permissionResourceConverter;
+
+    /** Redis 字符串操作模板。 */
+    private final StringRedisTemplate redisTemplate;
+
+    /** 位图代次 Redis Hash Key。 */
+    private final String generationKey;
+
+    /** 按角色 ID 缓存、按访问顺序排列的资源位图；读写均在对象锁内完成。 */
+    private final Map<Long, RoleBitmap> roleBitmaps;
+
+    /** 单个缓存位图的存活毫秒数。 */
+    private final long ttlMillis;
+
+    /** 统一提供可测试的当前时间。 */
+    private final Clock clock;
+
+    /** 启用鉴权资源掩码及字典；尚未加载时为 {@code null}。 */
+    private volatile EnabledResources enabledResources;
+
+    /**
+     * 创建角色资源位图缓存。
+     *
+     * @param roleResourceNodeMapper 角色资源关系 Mapper
+     * @param resourceNodeMapper 资源持久化 Mapper
+     * @param permissionResourceConverter 权限资源模型转换器
+     * @param redisTemplate Redis 操作模板
+     * @param keyPrefix 权限相关 Redis Key 前缀
+     * @param maxRoles 最多缓存的角色位图数
+     * @param ttlSeconds 单个缓存位图存活秒数
+     * @param clock 应用统一时钟
+     */
+    public RoleResourceBitmapCache(
+            RoleResourceNodeMapper roleResourceNodeMapper,
+            ResourceNodeMapper resourceNodeMapper,
+            PermissionResourceConverter permissionResourceConverter,
+            StringRedisTemplate redisTemplate,
+            @Value("${permission.redis-key-prefix:permission:}") String keyPrefix,
+            @Value("${permission.bitmap-cache.max-roles:10000}") int maxRoles,
+            @Value("${permission.bitmap-cache.ttl-seconds:600}") long ttlSeconds,
+            Clock clock) {
+        this.roleResourceNodeMapper = roleResourceNodeMapper;
+        this.resourceNodeMapper = resourceNodeMapper;
+        this.permissionResourceConverter = permissionResourceConverter;
+        this.redisTemplate = redisTemplate;
+        this.generationKey = keyPrefix + "bitmap:generation";
+        this.roleBitmaps = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RoleBitmap> eldest) {
+                return size() > maxRoles;
+            }
+        };
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.clock = clock;
+    }
+
+    /**
+     * 计算一组角色在全部业务系统中的有效鉴权资源。
+     *
+     * @param roleIds 启用角色 ID 列表
+     * @return 按资源 ID 升序排列的有效鉴权资源
+     */
+    public List<PermissionResource> findEffectiveResources(List<Long> roleIds) {
+        if (roleIds == null || roleIds.isEmpty()) {
+            return List.of();
+        }
+
+        // 1. 一次读取资源代次和所有角色代次
+        List<Long> generations = readGenerations(roleIds);
+        long now = clock.millis();
+
+        // 2. 取得启用资源掩码，代次不一致、已过期或存在未完成变更时重建
+        EnabledResources resources = loadEnabledResources(generations.get(0), now);
+
+        // 3. 合并各角色位图后与启用掩码求交集
+        BitSet effectiveBits = new BitSet();
+        for (int i = 0; i < roleIds.size(); i++) {
+            effectiveBits.or(loadRoleBitmap(roleIds.get(i), generations.get(i + 1), now).resourceBits());
+        }
+        effectiveBits.and(resources.enabledBits());
+
+        // 4. 按资源 ID 升序映射为鉴权资源
+        List<PermissionResource> result = new ArrayList<>(effectiveBits.cardinality());
+        for (int id = effectiveBits.nextSetBit(0); id >= 0; id = effectiveBits.nextSetBit(id + 1)) {
+            result.add(resources.resourcesById().get(id));
+        }
+        return result;
+    }
+
+    /**
+     * 在当前事务中登记角色的未完成变更，事务结束后递增角色代次，使所有实例重建该角色位图。
+     *
+     * @param roleId 角色 ID
+     */
+    public void markRoleChanged(Long roleId) {
+        markChanged(ROLE_GENERATION_FIELD_PREFIX + roleId);
+    }
+
+    /**
+     * 在当前事务中登记资源的未完成变更，事务结束后递增资源代次，使所有实例重建启用资源掩码。
+     */
+    public void markResourcesChanged() {
+        markChanged(RESOURCE_GENERATION_FIELD);
+    }
+
+    /**
+     * 不在事务中时直接递增代次；否则立即登记未完成变更计数，事务提交或回滚后递增代次并扣减计数。
+     *
+     * <p>登记失败会抛出异常使业务事务回滚；事务结束后的递增失败只记录日志，计数保持大于 0，
+     * 相关位图持续回源数据库。</p>
+     *
+     * @param generationField 代次字段名
+     */
+    private void markChanged(String generationField) {
+        // 1. 不在事务中时数据已经可见，直接递增代次
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            redisTemplate.opsForHash().increment(generationKey, generationField, 1L);
+            return;
+        }
+
+        // 2. 先于发件箱记录提交登记未完成变更，读取方在此期间不使用也不写入缓存
+        String pendingField = generationField + PENDING_FIELD_SUFFIX;
+        redisTemplate.opsForHash().increment(generationKey, pendingField, 1L);
+
+        // 3. 事务结束后递增代次并扣减计数，回滚时多递增一次代次不影响正确性
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    redisTemplate.execute(COMPLETE_CHANGE_SCRIPT, List.of(generationKey),
+                            generationField, pendingField);
+                } catch (RuntimeException exception) {
+                    log.warn("递增角色资源位图代次失败，字段 {} 的位图将持续回源数据库", generationField, exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * 读取资源代次及角色代次；缺失的代次视为 0，存在未完成变更时为不可缓存代次。
+     *
+     * @param roleIds 角色 ID 列表
+     * @return 首个元素为资源代次，其余元素与角色 ID 一一对应
+     */
+    private List<Long> readGenerations(List<Long> roleIds) {
+        // 1. 每个代次字段后紧跟其未完成变更计数字段，一次读取
+        List<Object> fields = new ArrayList<>((roleIds.size() + 1) * 2);
+        fields.add(RESOURCE_GENERATION_FIELD);
+        fields.add(RESOURCE_GENERATION_FIELD + PENDING_FIELD_SUFFIX);
+        for (Long roleId : roleIds) {
+            fields.add(ROLE_GENERATION_FIELD_PREFIX + roleId);
+            fields.add(ROLE_GENERATION_FIELD_PREFIX + roleId + PENDING_FIELD_SUFFIX);
+        }
+        List<Object> values = redisTemplate.opsForHash().multiGet(generationKey, fields);
+
+        // 2. 存在未完成变更的代次标记为不可缓存
+        List<Long> generations = new ArrayList<>(roleIds.size() + 1);
+        for (int i = 0; i < fields.size(); i += 2) {
+            long generation = parseLong(values, i);
+            generations.add(parseLong(values, i + 1) > 0 ? UNCACHEABLE_GENERATION : generation);
+        }
+        return generations;
+    }
+
+    /**
+     * 解析 {@code HMGET} 结果中的指定位置，值不存在时返回 0。
+     *
+     * @param values HMGET 结果；管道或事务中可能为空
+     * @param index 位置
+     * @return long 值
+     */
+    private long parseLong(List<Object> values, int index) {
+        Object value = values == null ? null : values.get(index);
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 读取角色位图，缺失、过期或代次不一致时从角色资源关系重建；代次不可缓存时重建后不写入缓存。
+     *
+     * @param roleId 角色 ID
+     * @param generation 当前角色代次
+     * @param now 当前时间戳
+     * @return 角色资源位图
+     */
+    private RoleBitmap loadRoleBitmap(Long roleId, long generation, long now) {
+        // 1. 命中同代次且未过期的位图时直接返回
+        if (generation != UNCACHEABLE_GENERATION) {
+            RoleBitmap cached;
+            synchronized (roleBitmaps) {
+                cached = roleBitmaps.get(roleId);
+            }
+            if (cached != null && cached.generation() == generation && cached.expireAtMillis() > now) {
+                return cached;
+            }
+        }
+
+        // 2. 锁外回源角色资源关系，只缓存代次确定的位图
+        BitSet resourceBits = new BitSet();
+        for (Long resourceId : roleResourceNodeMapper.selectResourceIdsByRoleId(roleId)) {
+            resourceBits.set(toBitIndex(resourceId));
+        }
+        RoleBitmap bitmap = new RoleBitmap(generation, resourceBits, now + ttlMillis);
+        if (generation != UNCACHEABLE_GENERATION) {
+            synchronized (roleBitmaps) {
+                roleBitmaps.put(roleId, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 读取启用资源掩码，缺失、过期或代次不一致时从资源表重建；代次不可缓存时重建后不写入缓存。
+     *
+     * @param generation 当前资源代次
+     * @param now 当前时间戳
+     * @return 启用资源掩码及字典
+     */
+    private EnabledResources loadEnabledResources(long generation, long now) {
+        EnabledResources cached = enabledResources;
+        if (generation != UNCACHEABLE_GENERATION && cached != null
+                && cached.generation() == generation && cached.expireAtMillis() > now) {
+            return cached;
+        }
+        BitSet enabledBits = new BitSet();
+        Map<Integer, PermissionResource> resourcesById = new HashMap<>();
+        for (ResourceNodePO po : resourceNodeMapper.selectPermissionResources()) {
+            PermissionResource resource = permissionResourceConverter.toPermissionResource(po);
+            if (resource == null) {
+                continue;
+            }
+            int index = toBitIndex(po.getId());
+            enabledBits.set(index);
+            resourcesById.put(index, resource);
+        }
+        EnabledResources loaded = new EnabledResources(
+                generation, enabledBits, Map.copyOf(resourcesById), now + ttlMillis);
+        if (generation != UNCACHEABLE_GENERATION) {
+            enabledResources = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * 将资源 ID 转换为位图下标。
+     *
+     * @param resourceId 资源 ID
+     * @return 位图下标
+     * @throws ArithmeticException 资源 ID 超出 int 范围时抛出
+     */
+    private int toBitIndex(Long resourceId) {
+        return Math.toIntExact(resourceId);
+    }
+
+    /**
+     * 角色资源位图；发布后不再修改。
+     *
+     * @param generation 构建时的角色代次
+     * @param resourceBits 角色关联的资源 ID 位图
+     * @param expireAtMillis 过期时间戳
+     */
+    private record RoleBitmap(long generation, BitSet resourceBits, long expireAtMillis) {
+    }
+
+    /**
+     * 启用资源掩码及字典；发布后不再修改。
+     *
+     * @param generation 构建时的资源代次
+     * @param enabledBits 启用鉴权资源 ID 位图
+     * @param resourcesById 资源 ID 到鉴权资源的映射
+     * @param expireAtMillis 过期时间戳
+     */
+    private record EnabledResources(long generation,
+                                   BitSet enabledBits,
+                                   Map<Integer, PermissionResource> resourcesById,
+                                   long expireAtMillis) {
+    }
+}
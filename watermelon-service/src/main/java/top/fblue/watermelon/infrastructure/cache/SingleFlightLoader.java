@@ -0,0 +1,110 @@
+package top.fblue.watermelon.infrastructure.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按键合并并发加载的单飞加载器。
+ *
+ * <p>同一键同时只执行一次加载：首个调用方执行加载，其余并发调用方等待并共享
+ * 该次结果或异常。加载结束后立即移除在途记录，不缓存结果，因此不会读到
+ * 加载完成之后才发生的数据变化。</p>
+ *
+ * <p>指标 {@code permission.single_flight.loads} 按 {@code result} 标签区分
+ * 实际执行（executed）和被合并（collapsed）的加载次数，
+ * {@code permission.single_flight.in_flight} 为当前在途加载数。</p>
+ *
+ * @param <K> 加载键类型，需正确实现 {@code equals} 和 {@code hashCode}
+ * @param <V> 加载结果类型
+ */
+public class SingleFlightLoader<K, V> {
+
+    /** 在途加载，加载完成后移除。 */
+    private final Map<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /** 实际执行的加载次数。 */
+    private final Counter executedLoads;
+
+    /** 被合并到在途加载的次数。 */
+    private final Counter collapsedLoads;
+
+    /**
+     * 创建单飞加载器并注册指标。
+     *
+     * @param name 加载器名称，作为指标的 {@code loader} 标签
+     * @param meterRegistry 指标注册表
+     */
+    public SingleFlightLoader(String name, MeterRegistry meterRegistry) {
+        this.executedLoads = Counter.builder("permission.single_flight.loads")
+                .description("单飞加载次数")
+                .tag("loader", name)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.collapsedLoads = Counter.builder("permission.single_flight.loads")
+                .description("单飞加载次数")
+                .tag("loader", name)
+                .tag("result", "collapsed")
+                .register(meterRegistry);
+        Gauge.builder("permission.single_flight.in_flight", inFlightLoads, Map::size)
+                .description("单飞在途加载数")
+                .tag("loader", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加载指定键的数据，存在同键在途加载时等待并共享其结果。
+     *
+     * @param key 加载键
+     * @param loader 实际加载逻辑
+     * @return 加载结果
+     */
+    public V load(K key, Supplier<V> loader) {
+        // 1. 已有同键在途加载时直接等待其结果
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            collapsedLoads.increment();
+            return join(inFlight);
+        }
+
+        // 2. 当前线程执行加载，并把结果或异常发布给等待方
+        executedLoads.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error exception) {
+            future.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    /**
+     * 等待在途加载完成，并还原加载线程抛出的原始异常。
+     *
+     * @param future 在途加载
+     * @return 加载结果
+     */
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exception.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw exception;
+        }
+    }
+}
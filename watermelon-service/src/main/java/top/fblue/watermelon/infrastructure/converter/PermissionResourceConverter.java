@@ -1,10 +1,12 @@
 package top.fblue.watermelon.infrastructure.converter;
 
 import org.springframework.stereotype.Component;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionaryEntry;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
 import top.fblue.watermelon.common.enums.ResourceTypeEnum;
 import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
 
 import java.util.List;
 import java.util.Objects;
@@ -42,7 +44,7 @@ public class PermissionResourceConverter {
      * @param resourceNodePO 资源节点持久化对象
      * @return 鉴权资源；目录或空节点返回 {@code null}
      */
-    private PermissionResource toPermissionResource(ResourceNodePO resourceNodePO) {
+    public PermissionResource toPermissionResource(ResourceNodePO resourceNodePO) {
         if (resourceNodePO == null) {
             return null;
         }
@@ -53,6 +55,70 @@ public class PermissionResourceConverter {
         return new PermissionResource(resourceNodePO.getCode(), permissionResourceType);
     }
 
+    /**
+     * 将鉴权资源节点转换为权限编码字典条目，资源 ID 即字典编号。
+     *
+     * @param resourceNodePOs 鉴权资源节点持久化对象
+     * @return 字典条目列表
+     */
+    public List<PermissionDictionaryEntry> toPermissionDictionaryEntries(List<ResourceNodePO> resourceNodePOs) {
+        if (resourceNodePOs == null || resourceNodePOs.isEmpty()) {
+            return List.of();
+        }
+        return resourceNodePOs.stream()
+                .map(po -> new PermissionDictionaryEntry(Math.toIntExact(po.getId()), po.getCode()))
+                .toList();
+    }
+
+    /**
+     * 将用户有效权限物化数据转换为运行时鉴权资源。
+     *
+     * @param permissionPOs 用户有效权限持久化对象
+     * @return 运行时鉴权资源列表
+     */
+    public List<PermissionResource> toEffectivePermissionResources(List<UserEffectivePermissionPO> permissionPOs) {
+        if (permissionPOs == null || permissionPOs.isEmpty()) {
+            return List.of();
+        }
+        return permissionPOs.stream()
+                .map(this::toPermissionResource)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * 将单条用户有效权限物化数据转换为运行时鉴权资源。
+     *
+     * @param permissionPO 用户有效权限持久化对象
+     * @return 鉴权资源；未知类型返回 {@code null}
+     */
+    public PermissionResource toPermissionResource(UserEffectivePermissionPO permissionPO) {
+        PermissionResourceTypeEnum permissionResourceType = toPermissionResourceType(permissionPO.getResourceType());
+        if (permissionResourceType == null) {
+            return null;
+        }
+        return new PermissionResource(permissionPO.getResourceCode(), permissionResourceType);
+    }
+
+    /**
+     * 将运行时鉴权资源转换为用户有效权限持久化对象。
+     *
+     * <p>业务系统编码取资源编码中第一个冒号之前的部分。</p>
+     *
+     * @param userId 用户 ID
+     * @param resource 运行时鉴权资源
+     * @return 用户有效权限持久化对象
+     */
+    public UserEffectivePermissionPO toUserEffectivePermissionPO(Long userId, PermissionResource resource) {
+        String resourceCode = resource.code();
+        return UserEffectivePermissionPO.builder()
+                .userId(userId)
+                .systemCode(resourceCode.substring(0, resourceCode.indexOf(':')))
+                .resourceCode(resourceCode)
+                .resourceType(toResourceType(resource.type()))
+                .build();
+    }
+
     /**
      * 将权限管理资源类型转换为运行时鉴权资源类型。
      *
@@ -71,4 +137,18 @@ public class PermissionResourceConverter {
         }
         return null;
     }
+
+    /**
+     * 将运行时鉴权资源类型转换为权限管理资源类型编码。
+     *
+     * @param type 运行时鉴权资源类型
+     * @return 权限管理资源类型编码
+     */
+    private Integer toResourceType(PermissionResourceTypeEnum type) {
+        return switch (type) {
+            case PAGE -> ResourceTypeEnum.PAGE.getCode();
+            case BUTTON -> ResourceTypeEnum.BUTTON.getCode();
+            case API -> ResourceTypeEnum.API.getCode();
+        };
+    }
 }
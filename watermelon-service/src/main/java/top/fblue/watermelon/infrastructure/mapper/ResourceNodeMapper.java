@@ -16,30 +16,35 @@ import java.util.List;
 public interface ResourceNodeMapper extends BaseMapper<ResourceNodePO> {
 
     /**
-     * 查询用户在指定系统中通过启用角色获得的启用资源。
+     * 查询全部业务系统中参与鉴权的启用资源。
      *
-     * @param userId 用户 ID
-     * @param systemCode 目标系统编码
-     * @return 用户在目标系统中的有效资源持久化对象
+     * @return 启用且带系统编码前缀的页面、按钮和接口资源持久化对象
      */
     @Select("""
-            SELECT DISTINCT rn.*
-            FROM resource_node rn
-            JOIN role_resource_node rrn
-              ON rrn.resource_node_id = rn.id AND rrn.is_deleted = 0
-            JOIN `role` r
-              ON r.id = rrn.role_id AND r.is_deleted = 0 AND r.state = 1
-            JOIN user_role ur
-              ON ur.role_id = r.id AND ur.is_deleted = 0
-            JOIN `user` u
-              ON u.id = ur.user_id AND u.is_deleted = 0 AND u.state = 1
-            WHERE u.id = #{userId}
-              AND rn.is_deleted = 0
-              AND rn.state = 1
-              AND rn.type IN (1, 2, 3)
-              AND rn.code LIKE CONCAT(#{systemCode}, ':%')
-            ORDER BY rn.id
+            SELECT id, type, code
+            FROM resource_node
+            WHERE is_deleted = 0
+              AND state = 1
+              AND type IN (1, 2, 3)
+              AND code LIKE '%:%'
+            ORDER BY id
             """)
-    List<ResourceNodePO> selectEffectiveResources(@Param("userId") Long userId,
-                                                  @Param("systemCode") String systemCode);
+    List<ResourceNodePO> selectPermissionResources();
+
+    /**
+     * 查询指定业务系统中参与鉴权的启用资源。
+     *
+     * @param systemCode 业务系统编码
+     * @return 启用且以系统编码为前缀的页面、按钮和接口资源持久化对象
+     */
+    @Select("""
+            SELECT id, type, code
+            FROM resource_node
+            WHERE is_deleted = 0
+              AND state = 1
+              AND type IN (1, 2, 3)
+              AND code LIKE CONCAT(#{systemCode}, ':%')
+            ORDER BY id
+            """)
+    List<ResourceNodePO> selectPermissionResourcesBySystemCode(@Param("systemCode") String systemCode);
 }
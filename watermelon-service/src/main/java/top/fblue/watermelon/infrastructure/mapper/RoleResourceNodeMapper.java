@@ -2,6 +2,7 @@ package top.fblue.watermelon.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import top.fblue.watermelon.infrastructure.po.RoleResourceNodePO;
 
@@ -18,4 +19,22 @@ public interface RoleResourceNodeMapper extends BaseMapper<RoleResourceNodePO> {
      */
     @Select("SELECT resource_node_id FROM role_resource_node WHERE role_id = #{roleId} AND is_deleted = 0")
     List<Long> selectResourceIdsByRoleId(Long roleId);
-}
\ No newline at end of file
+
+    /**
+     * 根据资源 ID 查询引用这些资源的角色 ID。
+     *
+     * @param resourceIds 资源 ID 列表
+     * @return 去重并按角色 ID 升序排列的角色 ID
+     */
+    @Select("""
+            <script>
+            SELECT DISTINCT role_id
+            FROM role_resource_node
+            WHERE resource_node_id IN
+            <foreach collection="resourceIds" item="resourceId" open="(" separator="," close=")">#{resourceId}</foreach>
+              AND is_deleted = 0
+            ORDER BY role_id
+            </script>
+            """)
+    List<Long> selectRoleIdsByResourceIds(@Param("resourceIds") List<Long> resourceIds);
+}
@@ -0,0 +1,86 @@
+package top.fblue.watermelon.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
+
+import java.util.List;
+
+/**
+ * 用户有效权限Mapper接口
+ */
+@Mapper
+public interface UserEffectivePermissionMapper extends BaseMapper<UserEffectivePermissionPO> {
+
+    /**
+     * 按唯一索引前缀范围扫描用户在指定系统中的有效权限。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 业务系统编码
+     * @return 有效权限持久化对象
+     */
+    @Select("""
+            SELECT resource_code, resource_type
+            FROM user_effective_permission
+            WHERE user_id = #{userId}
+              AND system_code = #{systemCode}
+            ORDER BY resource_code
+            """)
+    List<UserEffectivePermissionPO> selectByUserIdAndSystemCode(@Param("userId") Long userId,
+                                                                @Param("systemCode") String systemCode);
+
+    /**
+     * 查询用户在全部系统中的有效权限。
+     *
+     * @param userId 用户 ID
+     * @return 有效权限持久化对象
+     */
+    @Select("""
+            SELECT id, system_code, resource_code, resource_type
+            FROM user_effective_permission
+            WHERE user_id = #{userId}
+            """)
+    List<UserEffectivePermissionPO> selectByUserId(@Param("userId") Long userId);
+
+    /**
+     * 批量写入有效权限，已存在的行保持不变。
+     *
+     * @param permissions 待写入的有效权限
+     * @return 实际写入行数
+     */
+    @Insert("""
+            <script>
+            INSERT IGNORE INTO user_effective_permission
+                (user_id, system_code, resource_code, resource_type, created_time)
+            VALUES
+            <foreach collection="permissions" item="item" separator=",">
+                (#{item.userId}, #{item.systemCode}, #{item.resourceCode}, #{item.resourceType}, NOW(3))
+            </foreach>
+            </script>
+            """)
+    int insertIgnoreBatch(@Param("permissions") List<UserEffectivePermissionPO> permissions);
+
+    /**
+     * 一条语句删除已删除、禁用或不存在的用户残留的有效权限。
+     *
+     * @param systemCode 限定删除的业务系统编码；为空时删除全部系统
+     * @return 删除行数
+     */
+    @Delete("""
+            <script>
+            DELETE uep
+            FROM user_effective_permission uep
+            LEFT JOIN `user` u
+              ON u.id = uep.user_id
+            WHERE (u.id IS NULL OR u.is_deleted = 1 OR u.state != 1)
+            <if test="systemCode != null">
+              AND uep.system_code = #{systemCode}
+            </if>
+            </script>
+            """)
+    int deleteInactiveUsers(@Param("systemCode") String systemCode);
+}
@@ -6,6 +6,8 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import top.fblue.watermelon.infrastructure.po.UserPO;
 
+import java.util.List;
+
 /**
  * 用户Mapper接口
  */
@@ -20,4 +22,22 @@ public interface UserMapper extends BaseMapper<UserPO> {
      */
     @Select("SELECT id, name FROM `user` WHERE id = #{userId} AND is_deleted = 0")
     UserPO selectSsoUserById(@Param("userId") Long userId);
+
+    /**
+     * 按主键分页查询未删除且启用的用户 ID。
+     *
+     * @param lastId 上一页最后一个用户 ID
+     * @param limit 单页数量
+     * @return 大于 {@code lastId} 的启用用户 ID 列表
+     */
+    @Select("""
+            SELECT id
+            FROM `user`
+            WHERE id > #{lastId}
+              AND is_deleted = 0
+              AND state = 1
+            ORDER BY id
+            LIMIT #{limit}
+            """)
+    List<Long> selectEnabledIdsAfter(@Param("lastId") Long lastId, @Param("limit") int limit);
 }
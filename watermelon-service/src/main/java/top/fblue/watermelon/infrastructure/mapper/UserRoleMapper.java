@@ -2,9 +2,11 @@ package top.fblue.watermelon.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import top.fblue.watermelon.infrastructure.po.UserRolePO;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,4 +30,60 @@ public interface UserRoleMapper extends BaseMapper<UserRolePO> {
      */
     @Select("SELECT DISTINCT user_id FROM user_role WHERE role_id = #{roleId} AND is_deleted = 0")
     List<Long> selectUserIdsByRoleId(Long roleId);
+
+    /**
+     * 按用户 ID 键集分页查询角色成员。
+     *
+     * @param roleId 角色 ID
+     * @param afterUserId 上一页最后一个用户 ID
+     * @param limit 每页数量
+     * @return 去重并按用户 ID 升序排列的成员用户 ID
+     */
+    @Select("""
+            SELECT DISTINCT user_id
+            FROM user_role
+            WHERE role_id = #{roleId}
+              AND user_id > #{afterUserId}
+              AND is_deleted = 0
+            ORDER BY user_id
+            LIMIT #{limit}
+            """)
+    List<Long> selectUserIdsByRoleIdAfter(@Param("roleId") Long roleId,
+                                          @Param("afterUserId") long afterUserId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 查询启用用户所拥有的启用角色 ID 列表。
+     *
+     * @param userId 用户 ID
+     * @return 启用角色 ID 列表；用户被禁用或删除时返回空列表
+     */
+    @Select("""
+            SELECT DISTINCT ur.role_id
+            FROM user_role ur
+            JOIN `role` r
+              ON r.id = ur.role_id AND r.is_deleted = 0 AND r.state = 1
+            JOIN `user` u
+              ON u.id = ur.user_id AND u.is_deleted = 0 AND u.state = 1
+            WHERE ur.user_id = #{userId}
+              AND ur.is_deleted = 0
+            """)
+    List<Long> selectEnabledRoleIdsByUserId(Long userId);
+
+    /**
+     * 统计多个角色去重后的成员数量。
+     *
+     * @param roleIds 角色 ID 列表
+     * @return 去重后的成员用户数量
+     */
+    @Select("""
+            <script>
+            SELECT COUNT(DISTINCT user_id)
+            FROM user_role
+            WHERE role_id IN
+            <foreach collection="roleIds" item="roleId" open="(" separator="," close=")">#{roleId}</foreach>
+              AND is_deleted = 0
+            </script>
+            """)
+    long countDistinctUsersByRoleIds(@Param("roleIds") Collection<Long> roleIds);
 }
@@ -0,0 +1,51 @@
+package top.fblue.watermelon.infrastructure.po;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 用户有效权限持久化对象
+ * 对应数据库表 user_effective_permission，权限变化时物理删除过期行
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("user_effective_permission")
+public class UserEffectivePermissionPO {
+
+    /**
+     * ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 业务系统编码
+     */
+    private String systemCode;
+
+    /**
+     * 完整资源编码
+     */
+    private String resourceCode;
+
+    /**
+     * 资源类型：1页面 2按钮 3接口
+     */
+    private Integer resourceType;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdTime;
+}
@@ -0,0 +1,108 @@
+package top.fblue.watermelon.infrastructure.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.auth.domain.permission.repository.EffectivePermissionRepository;
+import top.fblue.watermelon.infrastructure.cache.RoleResourceBitmapCache;
+import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
+import top.fblue.watermelon.infrastructure.mapper.UserEffectivePermissionMapper;
+import top.fblue.watermelon.infrastructure.mapper.UserMapper;
+import top.fblue.watermelon.infrastructure.mapper.UserRoleMapper;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 用户有效权限物化表仓储适配器。
+ *
+ * <p>用户的期望权限由角色资源位图合并得到，再与物化表现有数据比较，
+ * 只删除失效行、插入新增行；插入使用 {@code INSERT IGNORE}，
+ * 发件箱重试或多实例并发刷新同一用户时保持幂等。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class EffectivePermissionRepositoryImpl implements EffectivePermissionRepository {
+
+    /** 用户有效权限 Mapper。 */
+    private final UserEffectivePermissionMapper userEffectivePermissionMapper;
+
+    /** 用户角色关系 Mapper。 */
+    private final UserRoleMapper userRoleMapper;
+
+    /** 用户 Mapper。 */
+    private final UserMapper userMapper;
+
+    /** 角色资源位图缓存。 */
+    private final RoleResourceBitmapCache roleResourceBitmapCache;
+
+    /** 权限资源模型转换器。 */
+    private final PermissionResourceConverter permissionResourceConverter;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refreshUser(Long userId) {
+        refreshUser(userId, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> refreshUsersAfter(String systemCode, long afterUserId, int limit) {
+        // 1. 首段先一条语句清除已删除或禁用用户的残留权限，之后只需刷新启用用户
+        if (afterUserId == 0L) {
+            userEffectivePermissionMapper.deleteInactiveUsers(systemCode);
+        }
+
+        // 2. 按主键读取本段启用用户并逐个增量刷新
+        List<Long> userIds = userMapper.selectEnabledIdsAfter(afterUserId, limit);
+        for (Long userId : userIds) {
+            refreshUser(userId, systemCode);
+        }
+        return userIds;
+    }
+
+    /**
+     * 重新计算并增量更新用户的有效权限，限定系统时只比较和改写该系统的行。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 限定刷新的业务系统编码；为空时刷新全部系统
+     */
+    private void refreshUser(Long userId, String systemCode) {
+        // 1. 合并启用角色位图，计算用户当前应有的鉴权资源
+        List<Long> roleIds = userRoleMapper.selectEnabledRoleIdsByUserId(userId);
+        Set<PermissionResource> expected = new HashSet<>();
+        for (PermissionResource resource : roleResourceBitmapCache.findEffectiveResources(roleIds)) {
+            if (systemCode == null || resource.code().startsWith(systemCode + ":")) {
+                expected.add(resource);
+            }
+        }
+
+        // 2. 与物化表现有数据比较，找出失效行
+        List<Long> staleIds = new ArrayList<>();
+        for (UserEffectivePermissionPO existing : userEffectivePermissionMapper.selectByUserId(userId)) {
+            if (systemCode != null && !systemCode.equals(existing.getSystemCode())) {
+                continue;
+            }
+            if (!expected.remove(permissionResourceConverter.toPermissionResource(existing))) {
+                staleIds.add(existing.getId());
+            }
+        }
+
+        // 3. 删除失效行并写入新增行
+        if (!staleIds.isEmpty()) {
+            userEffectivePermissionMapper.deleteByIds(staleIds);
+        }
+        if (!expected.isEmpty()) {
+            userEffectivePermissionMapper.insertIgnoreBatch(expected.stream()
+                    .map(resource -> permissionResourceConverter.toUserEffectivePermissionPO(userId, resource))
+                    .toList());
+        }
+    }
+}
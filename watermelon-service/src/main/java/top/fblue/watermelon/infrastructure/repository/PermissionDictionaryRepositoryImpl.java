@@ -0,0 +1,43 @@
+package top.fblue.watermelon.infrastructure.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionDictionaryEntry;
+import top.fblue.watermelon.auth.domain.permission.repository.PermissionDictionaryRepository;
+import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
+import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
+import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+
+import java.util.List;
+
+/**
+ * 权限编码字典仓储适配器。
+ *
+ * <p>以资源节点 ID 作为字典编号：资源 ID 在编码变更后保持不变，
+ * 因此已缓存字典的调用方只需在字典版本变化时重新拉取。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class PermissionDictionaryRepositoryImpl implements PermissionDictionaryRepository {
+
+    /** 资源持久化 Mapper。 */
+    private final ResourceNodeMapper resourceNodeMapper;
+
+    /** 权限资源模型转换器。 */
+    private final PermissionResourceConverter permissionResourceConverter;
+
+    /**
+     * 查询业务系统中全部启用的页面、按钮和接口资源编码。
+     *
+     * @param systemCode 业务系统编码
+     * @return 字典条目
+     */
+    @Override
+    public List<PermissionDictionaryEntry> findSystemDictionaryEntries(String systemCode) {
+        // 1. 按系统编码前缀查询启用的鉴权资源
+        List<ResourceNodePO> resourceNodePOs = resourceNodeMapper.selectPermissionResourcesBySystemCode(systemCode);
+
+        // 2. 转换为以资源 ID 编号的字典条目
+        return permissionResourceConverter.toPermissionDictionaryEntries(resourceNodePOs);
+    }
+}
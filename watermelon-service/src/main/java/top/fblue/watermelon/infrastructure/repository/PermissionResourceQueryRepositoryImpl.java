@@ -1,45 +1,94 @@
 package top.fblue.watermelon.infrastructure.repository;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Repository;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 import top.fblue.watermelon.auth.domain.permission.repository.PermissionResourceQueryRepository;
+import top.fblue.watermelon.infrastructure.cache.SingleFlightLoader;
 import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
-import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
-import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+import top.fblue.watermelon.infrastructure.mapper.UserEffectivePermissionMapper;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
 
 import java.util.List;
 
 /**
  * 运行时鉴权资源查询仓储适配器。
  *
- * <p>auth 模块只依赖查询端口；本适配器通过资源 Mapper 读取权限数据，
- * 从而保持 {@code watermelon-service -> watermelon-auth} 的单向依赖，
+ * <p>auth 模块只依赖查询端口；本适配器通过 Mapper 读取权限变更下发流程维护的
+ * 用户有效权限物化表，从而保持 {@code watermelon-service -> watermelon-auth} 的单向依赖，
  * 并避免 Repository 之间相互调用。</p>
+ *
+ * <p>同一页面的多个并发接口请求会同时查询同一用户的有效资源，查询经单飞加载器合并，
+ * 同一 (userId, systemCode) 在同一权限版本下同时只访问一次数据库。加载键包含调用方读取的权限版本：
+ * 权限变化后读到新版本的调用方不会加入变化前开始的查询，避免把旧资源以新版本写入快照缓存。</p>
  */
 @Repository
-@RequiredArgsConstructor
 public class PermissionResourceQueryRepositoryImpl implements PermissionResourceQueryRepository {
 
-    /** 资源持久化 Mapper。 */
-    private final ResourceNodeMapper resourceNodeMapper;
+    /** 用户有效权限 Mapper。 */
+    private final UserEffectivePermissionMapper userEffectivePermissionMapper;
 
     /** 权限资源模型转换器。 */
     private final PermissionResourceConverter permissionResourceConverter;
 
+    /** 合并并发同键查询的单飞加载器。 */
+    private final SingleFlightLoader<EffectiveResourceKey, List<PermissionResource>> effectiveResourceLoader;
+
+    /**
+     * 创建运行时鉴权资源查询仓储适配器。
+     *
+     * @param userEffectivePermissionMapper 用户有效权限 Mapper
+     * @param permissionResourceConverter 权限资源模型转换器
+     * @param meterRegistry 指标注册表
+     */
+    public PermissionResourceQueryRepositoryImpl(UserEffectivePermissionMapper userEffectivePermissionMapper,
+                                                 PermissionResourceConverter permissionResourceConverter,
+                                                 MeterRegistry meterRegistry) {
+        this.userEffectivePermissionMapper = userEffectivePermissionMapper;
+        this.permissionResourceConverter = permissionResourceConverter;
+        this.effectiveResourceLoader = new SingleFlightLoader<>("effective_resources", meterRegistry);
+    }
+
     /**
      * 查询用户在目标系统中的有效鉴权资源。
      *
      * @param userId 用户 ID
      * @param systemCode 目标系统编码
+     * @param versions 调用方在查询前读取的权限版本
      * @return 有效页面、按钮和接口鉴权资源
      */
     @Override
-    public List<PermissionResource> findEffectiveResources(Long userId, String systemCode) {
-        // 1. 直接通过 Mapper 查询用户拥有的有效资源
-        List<ResourceNodePO> resourceNodePOs = resourceNodeMapper.selectEffectiveResources(userId, systemCode);
+    public List<PermissionResource> findEffectiveResources(Long userId,
+                                                           String systemCode,
+                                                           PermissionVersions versions) {
+        return effectiveResourceLoader.load(new EffectiveResourceKey(userId, systemCode, versions),
+                () -> loadEffectiveResources(userId, systemCode));
+    }
+
+    /**
+     * 从物化表加载用户在目标系统中的有效鉴权资源。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 目标系统编码
+     * @return 有效页面、按钮和接口鉴权资源
+     */
+    private List<PermissionResource> loadEffectiveResources(Long userId, String systemCode) {
+        // 1. 按 (user_id, system_code) 唯一索引前缀范围扫描物化权限
+        List<UserEffectivePermissionPO> permissionPOs =
+                userEffectivePermissionMapper.selectByUserIdAndSystemCode(userId, systemCode);
 
         // 2. 将持久化对象转换为 auth 模块的运行时鉴权资源并返回
-        return permissionResourceConverter.toPermissionResources(resourceNodePOs);
+        return permissionResourceConverter.toEffectivePermissionResources(permissionPOs);
+    }
+
+    /**
+     * 有效资源单飞加载键。
+     *
+     * @param userId 用户 ID
+     * @param systemCode 目标系统编码
+     * @param versions 调用方在查询前读取的权限版本
+     */
+    private record EffectiveResourceKey(Long userId, String systemCode, PermissionVersions versions) {
     }
 }
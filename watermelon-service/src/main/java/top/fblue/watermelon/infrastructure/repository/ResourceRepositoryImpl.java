@@ -10,6 +10,7 @@ import top.fblue.watermelon.common.enums.StateEnum;
 import top.fblue.watermelon.common.utils.StringUtil;
 import top.fblue.watermelon.domain.resource.entity.ResourceNode;
 import top.fblue.watermelon.domain.resource.repository.ResourceRepository;
+import top.fblue.watermelon.infrastructure.cache.RoleResourceBitmapCache;
 import top.fblue.watermelon.infrastructure.converter.ResourceNodePOConverter;
 import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
 import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
@@ -28,11 +29,15 @@ public class ResourceRepositoryImpl implements ResourceRepository {
     private ResourceNodeMapper resourceNodeMapper;
     @Resource
     private ResourceNodePOConverter resourceNodePOConverter;
+    /** 角色资源位图缓存，资源变化后使业务系统资源掩码失效。 */
+    @Resource
+    private RoleResourceBitmapCache roleResourceBitmapCache;
 
     @Override
     public ResourceNode save(ResourceNode resourceNode) {
         ResourceNodePO po = resourceNodePOConverter.toPO(resourceNode);
         resourceNodeMapper.insert(po);
+        roleResourceBitmapCache.markResourcesChanged();
         ResourceNodePO savedPO = resourceNodeMapper.selectById(po.getId());
         return resourceNodePOConverter.toDomain(savedPO);
     }
@@ -70,7 +75,11 @@ public class ResourceRepositoryImpl implements ResourceRepository {
 
     @Override
     public boolean delete(Long id) {
-        return resourceNodeMapper.deleteById(id) > 0;
+        boolean deleted = resourceNodeMapper.deleteById(id) > 0;
+        if (deleted) {
+            roleResourceBitmapCache.markResourcesChanged();
+        }
+        return deleted;
     }
 
     @Override
@@ -78,13 +87,21 @@ public class ResourceRepositoryImpl implements ResourceRepository {
         if (ids == null || ids.isEmpty()) {
             return 0;
         }
-        return resourceNodeMapper.deleteByIds(ids);
+        int deleted = resourceNodeMapper.deleteByIds(ids);
+        if (deleted > 0) {
+            roleResourceBitmapCache.markResourcesChanged();
+        }
+        return deleted;
     }
 
     @Override
     public boolean update(ResourceNode resource) {
         ResourceNodePO po = resourceNodePOConverter.toPO(resource);
-        return resourceNodeMapper.updateById(po) > 0;
+        boolean updated = resourceNodeMapper.updateById(po) > 0;
+        if (updated) {
+            roleResourceBitmapCache.markResourcesChanged();
+        }
+        return updated;
     }
 
     @Override
@@ -0,0 +1,41 @@
+package top.fblue.watermelon.infrastructure.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import top.fblue.watermelon.auth.domain.permission.repository.RoleMemberRepository;
+import top.fblue.watermelon.infrastructure.mapper.UserRoleMapper;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于用户角色关系表的角色成员仓储适配器。
+ *
+ * <p>按 {@code (role_id, user_id)} 索引做键集分页，每段查询的代价与角色总成员数无关。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class RoleMemberRepositoryImpl implements RoleMemberRepository {
+
+    /** 用户角色关系 Mapper。 */
+    private final UserRoleMapper userRoleMapper;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> findUserIdsAfter(Long roleId, long afterUserId, int limit) {
+        return userRoleMapper.selectUserIdsByRoleIdAfter(roleId, afterUserId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countUsersByRoleIds(Collection<Long> roleIds) {
+        if (roleIds == null || roleIds.isEmpty()) {
+            return 0L;
+        }
+        return userRoleMapper.countDistinctUsersByRoleIds(roleIds);
+    }
+}
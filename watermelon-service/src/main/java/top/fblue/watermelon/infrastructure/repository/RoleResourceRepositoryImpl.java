@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Repository;
 import top.fblue.watermelon.domain.role.repository.RoleResourceRepository;
+import top.fblue.watermelon.infrastructure.cache.RoleResourceBitmapCache;
 import top.fblue.watermelon.infrastructure.converter.RoleResourceNodePOConverter;
 import top.fblue.watermelon.infrastructure.mapper.RoleResourceNodeMapper;
 import top.fblue.watermelon.infrastructure.po.RoleResourceNodePO;
@@ -21,6 +22,9 @@ public class RoleResourceRepositoryImpl implements RoleResourceRepository {
     private RoleResourceNodeMapper roleResourceNodeMapper;
     @Resource
     private RoleResourceNodePOConverter roleResourceNodePOConverter;
+    /** 角色资源位图缓存，关系变化后使对应角色位图失效。 */
+    @Resource
+    private RoleResourceBitmapCache roleResourceBitmapCache;
 
     @Override
     public void deleteByRoleId(Long roleId) {
@@ -28,6 +32,7 @@ public class RoleResourceRepositoryImpl implements RoleResourceRepository {
         queryWrapper.eq("role_id", roleId);
 
         roleResourceNodeMapper.delete(queryWrapper);
+        roleResourceBitmapCache.markRoleChanged(roleId);
     }
 
     @Override
@@ -49,6 +54,14 @@ public class RoleResourceRepositoryImpl implements RoleResourceRepository {
         return roleResourceNodePOConverter.toResourceNodeIdList(poList);
     }
 
+    @Override
+    public List<Long> findRoleIdsByResourceIds(List<Long> resourceIds) {
+        if (resourceIds == null || resourceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return roleResourceNodeMapper.selectRoleIdsByResourceIds(resourceIds);
+    }
+
     @Override
     public void deleteBatch(Long roleId, List<Long> resourceIds) {
         if (resourceIds == null || resourceIds.isEmpty()) {
@@ -60,6 +73,7 @@ public class RoleResourceRepositoryImpl implements RoleResourceRepository {
         queryWrapper.in("resource_node_id", resourceIds);
 
         roleResourceNodeMapper.delete(queryWrapper);
+        roleResourceBitmapCache.markRoleChanged(roleId);
     }
 
     @Override
@@ -72,5 +86,6 @@ public class RoleResourceRepositoryImpl implements RoleResourceRepository {
         List<RoleResourceNodePO> poList = roleResourceNodePOConverter.toPOList(roleId, resourceIds);
 
         roleResourceNodeMapper.insert(poList);
+        roleResourceBitmapCache.markRoleChanged(roleId);
     }
 } 
\ No newline at end of file
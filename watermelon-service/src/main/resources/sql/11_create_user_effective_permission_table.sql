@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS user_effective_permission (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT 'ID',
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `system_code` VARCHAR(64) NOT NULL COMMENT '业务系统编码',
+    `resource_code` VARCHAR(255) NOT NULL COMMENT '完整资源编码',
+    `resource_type` TINYINT NOT NULL COMMENT '资源类型;1页面 2按钮 3接口',
+    `created_time` DATETIME(3) NOT NULL COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_user_effective_permission` (`user_id`, `system_code`, `resource_code`)
+) COMMENT = '用户有效权限物化表，由权限变更下发流程维护';
+
+-- 初始化回填；之后可通过 POST /api/admin/permission/effective/rebuild 全量修复
+INSERT IGNORE INTO user_effective_permission
+    (`user_id`, `system_code`, `resource_code`, `resource_type`, `created_time`)
+SELECT DISTINCT u.id, SUBSTRING_INDEX(rn.code, ':', 1), rn.code, rn.type, NOW(3)
+FROM resource_node rn
+JOIN role_resource_node rrn
+  ON rrn.resource_node_id = rn.id AND rrn.is_deleted = 0
+JOIN `role` r
+  ON r.id = rrn.role_id AND r.is_deleted = 0 AND r.state = 1
+JOIN user_role ur
+  ON ur.role_id = r.id AND ur.is_deleted = 0
+JOIN `user` u
+  ON u.id = ur.user_id AND u.is_deleted = 0 AND u.state = 1
+WHERE rn.is_deleted = 0
+  AND rn.state = 1
+  AND rn.type IN (1, 2, 3)
+  AND rn.code LIKE '%:%';
@@ -0,0 +1,4 @@
+ALTER TABLE permission_change_record
+    ADD COLUMN `claim_token` VARCHAR(64) NULL COMMENT '最近一次批量领取令牌' AFTER `processing_started_time`,
+    ADD COLUMN `claim_owner` VARCHAR(128) NULL COMMENT '最近一次领取的实例标识' AFTER `claim_token`,
+    ADD KEY `idx_permission_change_claim_token` (`claim_token`);
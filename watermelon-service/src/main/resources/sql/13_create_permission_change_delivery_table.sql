@@ -0,0 +1,23 @@
+CREATE TABLE IF NOT EXISTS permission_change_delivery (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '投递记录ID',
+    `change_id` BIGINT NOT NULL COMMENT '权限变更记录ID',
+    `event_id` VARCHAR(64) NOT NULL COMMENT '幂等事件ID',
+    `system_code` VARCHAR(64) NOT NULL COMMENT '目标业务系统编码',
+    `user_id` BIGINT NULL COMMENT '受影响用户ID，系统级变更为空',
+    `user_permission_version` BIGINT NOT NULL DEFAULT 0 COMMENT '待通知的用户维度权限版本',
+    `system_permission_version` BIGINT NOT NULL COMMENT '待通知的系统维度权限版本',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'FAILED' COMMENT '投递状态',
+    `retry_count` INT NOT NULL DEFAULT 0 COMMENT '失败重试次数',
+    `next_retry_time` DATETIME(3) NOT NULL COMMENT '下次可投递时间',
+    `processing_started_time` DATETIME(3) NULL COMMENT '本次领取时间',
+    `claim_token` VARCHAR(64) NULL COMMENT '最近一次批量领取令牌',
+    `processed_time` DATETIME(3) NULL COMMENT '投递成功时间',
+    `last_error` VARCHAR(1000) NULL COMMENT '最近失败原因',
+    `created_time` DATETIME(3) NOT NULL COMMENT '创建时间',
+    `updated_time` DATETIME(3) NOT NULL COMMENT '更新时间',
+    `is_deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除：0未删除，1已删除',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_permission_change_delivery` (`change_id`, `system_code`),
+    KEY `idx_permission_change_delivery_dispatch` (`status`, `next_retry_time`),
+    KEY `idx_permission_change_delivery_claim_token` (`claim_token`)
+) COMMENT='权限变更按业务系统的失败投递';
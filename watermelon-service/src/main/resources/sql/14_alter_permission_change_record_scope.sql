@@ -0,0 +1,11 @@
+ALTER TABLE permission_change_record
+    MODIFY COLUMN `change_type` VARCHAR(20) NOT NULL COMMENT '变更范围：USER/ROLE/SYSTEM',
+    ADD COLUMN `scope_id` BIGINT NULL COMMENT '变更范围主键，角色级变更为角色ID' AFTER `user_id`,
+    ADD COLUMN `expand_cursor` BIGINT NOT NULL DEFAULT 0 COMMENT '角色级变更已展开到的最大用户ID' AFTER `scope_id`;
+
+ALTER TABLE permission_change_delivery
+    DROP INDEX `uk_permission_change_delivery`,
+    ADD UNIQUE KEY `uk_permission_change_delivery` (`event_id`, `system_code`);
+
+ALTER TABLE user_role
+    ADD KEY `idx_user_role_role_user` (`role_id`, `user_id`);
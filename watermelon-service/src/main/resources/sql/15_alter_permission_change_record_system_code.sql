@@ -0,0 +1,2 @@
+ALTER TABLE permission_change_record
+    ADD COLUMN `system_code` VARCHAR(64) NULL COMMENT '限定的业务系统编码，为空时涉及全部系统' AFTER `scope_id`;
@@ -0,0 +1,10 @@
+ALTER TABLE permission_change_record
+    ADD COLUMN `priority` VARCHAR(20) NOT NULL DEFAULT 'NORMAL' COMMENT '下发优先级：URGENT/NORMAL/BULK' AFTER `change_type`,
+    DROP INDEX `idx_permission_change_dispatch`,
+    DROP INDEX `idx_permission_change_processing`,
+    ADD KEY `idx_permission_change_dispatch` (`priority`, `status`, `next_retry_time`),
+    ADD KEY `idx_permission_change_processing` (`priority`, `status`, `processing_started_time`);
+
+UPDATE permission_change_record
+SET `priority` = 'BULK'
+WHERE `change_type` IN ('ROLE', 'SYSTEM');
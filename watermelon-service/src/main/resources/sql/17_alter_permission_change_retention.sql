@@ -0,0 +1,5 @@
+ALTER TABLE permission_change_record
+    ADD KEY `idx_permission_change_retention` (`status`, `processed_time`);
+
+ALTER TABLE permission_change_delivery
+    ADD KEY `idx_permission_change_delivery_retention` (`status`, `processed_time`);
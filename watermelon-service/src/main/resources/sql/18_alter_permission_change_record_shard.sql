@@ -0,0 +1,11 @@
+ALTER TABLE permission_change_record
+    ADD COLUMN `shard` SMALLINT NOT NULL DEFAULT 0 COMMENT '发件箱分片号，范围 0-63' AFTER `priority`,
+    DROP INDEX `idx_permission_change_dispatch`,
+    DROP INDEX `idx_permission_change_processing`,
+    ADD KEY `idx_permission_change_dispatch` (`priority`, `shard`, `status`, `next_retry_time`),
+    ADD KEY `idx_permission_change_processing` (`priority`, `shard`, `status`, `processing_started_time`);
+
+-- 未完成记录回填分片号；与写入时规则一致，用户级按用户 ID、角色级按角色 ID，系统级任取稳定值即可
+UPDATE permission_change_record
+SET `shard` = MOD(COALESCE(`user_id`, `scope_id`, `id`), 64)
+WHERE `status` <> 'SUCCEEDED';
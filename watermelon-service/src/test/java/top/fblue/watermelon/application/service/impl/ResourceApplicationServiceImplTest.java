@@ -0,0 +1,101 @@
+package top.fblue.watermelon.application.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import top.fblue.watermelon.application.converter.ResourceConverter;
+import top.fblue.watermelon.application.dto.CreateResourceDTO;
+import top.fblue.watermelon.application.dto.UpdateResourceDTO;
+import top.fblue.watermelon.application.service.ResourceExcelService;
+import top.fblue.watermelon.auth.domain.permission.service.PermissionChangeDomainService;
+import top.fblue.watermelon.domain.resource.entity.ResourceNode;
+import top.fblue.watermelon.domain.resource.service.ResourceDomainService;
+import top.fblue.watermelon.domain.role.service.RoleDomainService;
+import top.fblue.watermelon.domain.user.service.UserDomainService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ResourceApplicationServiceImplTest {
+
+    @Mock
+    private ResourceDomainService resourceDomainService;
+
+    @Mock
+    private UserDomainService userDomainService;
+
+    @Mock
+    private RoleDomainService roleDomainService;
+
+    @Mock
+    private ResourceConverter resourceConverter;
+
+    @Mock
+    private ResourceExcelService resourceExcelService;
+
+    @Mock
+    private PermissionChangeDomainService permissionChangeDomainService;
+
+    @InjectMocks
+    private ResourceApplicationServiceImpl service;
+
+    @Test
+    void shouldRecordChangeForReferencingRolesInOldAndNewSystem() {
+        UpdateResourceDTO request = new UpdateResourceDTO();
+        ResourceNode resource = ResourceNode.builder().id(82L).code("cherry:order:view").build();
+        when(resourceConverter.toResourceNode(request)).thenReturn(resource);
+        when(resourceDomainService.getResourceById(82L))
+                .thenReturn(ResourceNode.builder().id(82L).code("banana:order:view").build());
+        when(resourceDomainService.updateResource(resource)).thenReturn(true);
+        when(roleDomainService.getRoleIdsByResourceIds(List.of(82L))).thenReturn(List.of(2L, 3L));
+
+        boolean result = service.updateResource(request);
+
+        assertTrue(result);
+        verify(permissionChangeDomainService).recordResourceChange(
+                List.of(2L, 3L), Arrays.asList("banana", "cherry"));
+        verify(permissionChangeDomainService, never()).recordSystemPermissionChange();
+    }
+
+    @Test
+    void shouldRecordChangeForReferencingRolesAfterDeletingResource() {
+        when(resourceDomainService.getResourceById(82L))
+                .thenReturn(ResourceNode.builder().id(82L).code("banana:order:view").build());
+        when(resourceDomainService.deleteResource(82L)).thenReturn(true);
+        when(roleDomainService.getRoleIdsByResourceIds(List.of(82L))).thenReturn(List.of(2L));
+
+        boolean result = service.deleteResource(82L);
+
+        assertTrue(result);
+        InOrder inOrder = inOrder(resourceDomainService, permissionChangeDomainService);
+        inOrder.verify(resourceDomainService).deleteResource(82L);
+        inOrder.verify(permissionChangeDomainService).recordResourceChange(
+                List.of(2L), Collections.singletonList("banana"));
+        verify(permissionChangeDomainService, never()).recordSystemPermissionChange();
+    }
+
+    @Test
+    void shouldInvalidateDictionaryOfCreatedResourceSystem() {
+        CreateResourceDTO request = new CreateResourceDTO();
+        ResourceNode resource = ResourceNode.builder().code("banana:order:view").build();
+        when(resourceConverter.toResourceNode(request)).thenReturn(resource);
+        when(resourceDomainService.createResourceNode(resource))
+                .thenReturn(ResourceNode.builder().id(83L).code("banana:order:view").build());
+
+        service.createResource(request);
+
+        verify(permissionChangeDomainService).recordResourceChange(
+                Collections.emptyList(), Collections.singletonList("banana"));
+    }
+}
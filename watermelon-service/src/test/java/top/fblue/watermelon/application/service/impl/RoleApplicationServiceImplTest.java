@@ -16,6 +16,7 @@ import top.fblue.watermelon.domain.user.service.UserDomainService;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -43,34 +44,32 @@ class RoleApplicationServiceImplTest {
     private RoleApplicationServiceImpl service;
 
     @Test
-    void shouldNotifyOnlyUsersAssociatedWithRoleWhenResourcesChange() {
+    void shouldRecordSingleRoleChangeWhenResourcesChange() {
         UpdateRoleResourceDTO request = new UpdateRoleResourceDTO();
         request.setId(2L);
         request.setResourceIds(List.of(82L, 83L));
-        List<Long> affectedUserIds = List.of(7L, 9L);
-        when(userDomainService.getUserIdsByRoleId(2L)).thenReturn(affectedUserIds);
         when(roleDomainService.updateRoleResource(2L, request.getResourceIds())).thenReturn(true);
 
         boolean result = service.updateRoleResource(request);
 
         assertTrue(result);
-        verify(permissionChangeDomainService).recordUserPermissionChanges(affectedUserIds);
+        verify(permissionChangeDomainService).recordRoleChange(2L);
+        verify(userDomainService, never()).getUserIdsByRoleId(2L);
+        verify(permissionChangeDomainService, never()).recordUserPermissionChanges(anyList());
         verify(permissionChangeDomainService, never()).recordSystemPermissionChange();
     }
 
     @Test
-    void shouldCaptureAffectedUsersBeforeDeletingRole() {
-        List<Long> affectedUserIds = List.of(7L, 9L);
-        when(userDomainService.getUserIdsByRoleId(2L)).thenReturn(affectedUserIds);
+    void shouldRecordRoleChangeAfterDeletingRole() {
         when(roleDomainService.deleteRole(2L)).thenReturn(true);
 
         boolean result = service.deleteRole(2L);
 
         assertTrue(result);
-        InOrder inOrder = inOrder(userDomainService, roleDomainService, permissionChangeDomainService);
-        inOrder.verify(userDomainService).getUserIdsByRoleId(2L);
+        InOrder inOrder = inOrder(roleDomainService, permissionChangeDomainService);
         inOrder.verify(roleDomainService).deleteRole(2L);
-        inOrder.verify(permissionChangeDomainService).recordUserPermissionChanges(affectedUserIds);
+        inOrder.verify(permissionChangeDomainService).recordRoleChange(2L);
+        verify(userDomainService, never()).getUserIdsByRoleId(2L);
         verify(permissionChangeDomainService, never()).recordSystemPermissionChange();
     }
 }
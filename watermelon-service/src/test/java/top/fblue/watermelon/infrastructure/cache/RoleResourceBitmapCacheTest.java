@@ -0,0 +1,185 @@
+package top.fblue.watermelon.infrastructure.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
+import top.fblue.watermelon.common.enums.ResourceTypeEnum;
+import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
+import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
+import top.fblue.watermelon.infrastructure.mapper.RoleResourceNodeMapper;
+import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 角色资源位图缓存测试。
+ */
+@ExtendWith(MockitoExtension.class)
+class RoleResourceBitmapCacheTest {
+
+    private static final String GENERATION_KEY = "permission:bitmap:generation";
+
+    @Mock
+    private RoleResourceNodeMapper roleResourceNodeMapper;
+
+    @Mock
+    private ResourceNodeMapper resourceNodeMapper;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private RoleResourceBitmapCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        cache = cache(10_000, Clock.systemUTC());
+    }
+
+    @Test
+    void shouldUnionRoleBitmapsWithinEnabledResources() {
+        stubPermissionData();
+        when(hashOperations.multiGet(eq(GENERATION_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, null, null, null, null, null));
+
+        List<PermissionResource> result = cache.findEffectiveResources(List.of(1L, 2L));
+
+        assertEquals(List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("banana:GET:/api/items", PermissionResourceTypeEnum.API)
+        ), result);
+    }
+
+    @Test
+    void shouldOnlyRebuildRoleWhoseGenerationChanged() {
+        stubPermissionData();
+        when(hashOperations.multiGet(eq(GENERATION_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, null, null, null, null, null))
+                .thenReturn(Arrays.asList(null, null, "1", null, null, null));
+
+        cache.findEffectiveResources(List.of(1L, 2L));
+        cache.findEffectiveResources(List.of(1L, 2L));
+
+        verify(roleResourceNodeMapper, times(2)).selectResourceIdsByRoleId(1L);
+        verify(roleResourceNodeMapper, times(1)).selectResourceIdsByRoleId(2L);
+        verify(resourceNodeMapper, times(1)).selectPermissionResources();
+    }
+
+    @Test
+    void shouldNotCacheRoleBitmapWhileChangeIsPending() {
+        stubPermissionData();
+        when(hashOperations.multiGet(eq(GENERATION_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, null, "1", "1", null, null));
+
+        cache.findEffectiveResources(List.of(1L, 2L));
+        cache.findEffectiveResources(List.of(1L, 2L));
+
+        verify(roleResourceNodeMapper, times(2)).selectResourceIdsByRoleId(1L);
+        verify(roleResourceNodeMapper, times(1)).selectResourceIdsByRoleId(2L);
+    }
+
+    @Test
+    void shouldRebuildExpiredBitmaps() {
+        Clock clock = mock(Clock.class);
+        cache = cache(10_000, clock);
+        stubPermissionData();
+        when(clock.millis()).thenReturn(0L, 599_999L, 600_000L);
+        when(hashOperations.multiGet(eq(GENERATION_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, null, null, null, null, null));
+
+        cache.findEffectiveResources(List.of(1L, 2L));
+        cache.findEffectiveResources(List.of(1L, 2L));
+        cache.findEffectiveResources(List.of(1L, 2L));
+
+        verify(roleResourceNodeMapper, times(2)).selectResourceIdsByRoleId(1L);
+        verify(roleResourceNodeMapper, times(2)).selectResourceIdsByRoleId(2L);
+        verify(resourceNodeMapper, times(2)).selectPermissionResources();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedRoleBitmapBeyondMaxRoles() {
+        cache = cache(1, Clock.systemUTC());
+        stubPermissionData();
+        when(hashOperations.multiGet(eq(GENERATION_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, null, null, null));
+
+        cache.findEffectiveResources(List.of(1L));
+        cache.findEffectiveResources(List.of(2L));
+        cache.findEffectiveResources(List.of(1L));
+
+        verify(roleResourceNodeMapper, times(2)).selectResourceIdsByRoleId(1L);
+        verify(roleResourceNodeMapper, times(1)).selectResourceIdsByRoleId(2L);
+    }
+
+    @Test
+    void shouldIncrementRoleGenerationWithoutTransaction() {
+        cache.markRoleChanged(1L);
+
+        verify(hashOperations).increment(GENERATION_KEY, "role:1", 1L);
+    }
+
+    @Test
+    void shouldMarkChangePendingInTransactionAndBumpGenerationAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.markRoleChanged(1L);
+            verify(hashOperations).increment(GENERATION_KEY, "role:1:pending", 1L);
+            verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(redisTemplate).execute(
+                any(RedisScript.class), eq(List.of(GENERATION_KEY)), eq("role:1"), eq("role:1:pending"));
+        verify(hashOperations, never()).increment(GENERATION_KEY, "role:1", 1L);
+    }
+
+    private RoleResourceBitmapCache cache(int maxRoles, Clock clock) {
+        return new RoleResourceBitmapCache(roleResourceNodeMapper, resourceNodeMapper,
+                new PermissionResourceConverter(), redisTemplate, "permission:", maxRoles, 600L, clock);
+    }
+
+    private void stubPermissionData() {
+        when(resourceNodeMapper.selectPermissionResources()).thenReturn(List.of(
+                resourceNode(3L, "banana:home.page", ResourceTypeEnum.PAGE),
+                resourceNode(5L, "banana:GET:/api/items", ResourceTypeEnum.API)
+        ));
+        when(roleResourceNodeMapper.selectResourceIdsByRoleId(1L)).thenReturn(List.of(5L, 9L));
+        when(roleResourceNodeMapper.selectResourceIdsByRoleId(2L)).thenReturn(List.of(3L));
+    }
+
+    private ResourceNodePO resourceNode(Long id, String code, ResourceTypeEnum type) {
+        return ResourceNodePO.builder()
+                .id(id)
+                .code(code)
+                .type(type.getCode())
+                .build();
+    }
+}
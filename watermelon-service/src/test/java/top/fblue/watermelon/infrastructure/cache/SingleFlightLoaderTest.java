@@ -0,0 +1,80 @@
+package top.fblue.watermelon.infrastructure.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 单飞加载器测试。
+ */
+class SingleFlightLoaderTest {
+
+    @Test
+    void shouldShareInFlightLoadWithConcurrentCaller() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlightLoader<String, String> loader = new SingleFlightLoader<>("test", meterRegistry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loadCount = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> loader.load("7:banana", () -> {
+            loadCount.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "resources";
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(
+                () -> loader.load("7:banana", () -> "unexpected"));
+        while (collapsedCount(meterRegistry) < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loadCount.get());
+        assertEquals(1.0, meterRegistry.get("permission.single_flight.loads")
+                .tag("result", "executed").counter().count());
+    }
+
+    @Test
+    void shouldLoadAgainAfterPreviousLoadFinished() {
+        SingleFlightLoader<String, Integer> loader = new SingleFlightLoader<>("test", new SimpleMeterRegistry());
+        AtomicInteger loadCount = new AtomicInteger();
+
+        loader.load("7:banana", loadCount::incrementAndGet);
+        loader.load("7:banana", loadCount::incrementAndGet);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    void shouldRethrowLoadFailure() {
+        SingleFlightLoader<String, String> loader = new SingleFlightLoader<>("test", new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, () -> loader.load("7:banana", () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("resources", loader.load("7:banana", () -> "resources"));
+    }
+
+    private static double collapsedCount(SimpleMeterRegistry meterRegistry) {
+        return meterRegistry.get("permission.single_flight.loads").tag("result", "collapsed").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package top.fblue.watermelon.infrastructure.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
+import top.fblue.watermelon.common.enums.ResourceTypeEnum;
+import top.fblue.watermelon.infrastructure.cache.RoleResourceBitmapCache;
+import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
+import top.fblue.watermelon.infrastructure.mapper.UserEffectivePermissionMapper;
+import top.fblue.watermelon.infrastructure.mapper.UserMapper;
+import top.fblue.watermelon.infrastructure.mapper.UserRoleMapper;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户有效权限物化表仓储测试。
+ */
+@ExtendWith(MockitoExtension.class)
+class EffectivePermissionRepositoryImplTest {
+
+    @Mock
+    private UserEffectivePermissionMapper userEffectivePermissionMapper;
+
+    @Mock
+    private UserRoleMapper userRoleMapper;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private RoleResourceBitmapCache roleResourceBitmapCache;
+
+    private EffectivePermissionRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new EffectivePermissionRepositoryImpl(userEffectivePermissionMapper, userRoleMapper,
+                userMapper, roleResourceBitmapCache, new PermissionResourceConverter());
+    }
+
+    @Test
+    void shouldOnlyDeleteStaleRowsAndInsertMissingRows() {
+        when(userRoleMapper.selectEnabledRoleIdsByUserId(7L)).thenReturn(List.of(1L));
+        when(roleResourceBitmapCache.findEffectiveResources(List.of(1L))).thenReturn(List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("banana:GET:/api/items", PermissionResourceTypeEnum.API)
+        ));
+        when(userEffectivePermissionMapper.selectByUserId(7L)).thenReturn(List.of(
+                permission(11L, "banana:home.page", ResourceTypeEnum.PAGE),
+                permission(12L, "banana:old.page", ResourceTypeEnum.PAGE)
+        ));
+
+        repository.refreshUser(7L);
+
+        verify(userEffectivePermissionMapper).deleteByIds(List.of(12L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserEffectivePermissionPO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userEffectivePermissionMapper).insertIgnoreBatch(captor.capture());
+        UserEffectivePermissionPO inserted = captor.getValue().get(0);
+        assertEquals(1, captor.getValue().size());
+        assertEquals(7L, inserted.getUserId());
+        assertEquals("banana", inserted.getSystemCode());
+        assertEquals("banana:GET:/api/items", inserted.getResourceCode());
+        assertEquals(ResourceTypeEnum.API.getCode(), inserted.getResourceType());
+    }
+
+    @Test
+    void shouldClearInactiveUsersOnFirstPageAndRefreshEnabledUsers() {
+        when(userMapper.selectEnabledIdsAfter(0L, 500)).thenReturn(List.of(7L, 9L));
+        when(userRoleMapper.selectEnabledRoleIdsByUserId(anyLong())).thenReturn(List.of());
+        when(roleResourceBitmapCache.findEffectiveResources(List.of())).thenReturn(List.of());
+
+        assertEquals(List.of(7L, 9L), repository.refreshUsersAfter(null, 0L, 500));
+        verify(userEffectivePermissionMapper).deleteInactiveUsers(null);
+        verify(userEffectivePermissionMapper).selectByUserId(7L);
+        verify(userEffectivePermissionMapper).selectByUserId(9L);
+    }
+
+    @Test
+    void shouldOnlyRewriteRowsOfRequestedSystemWhenResumingRefresh() {
+        when(userMapper.selectEnabledIdsAfter(9L, 500)).thenReturn(List.of(11L));
+        when(userRoleMapper.selectEnabledRoleIdsByUserId(11L)).thenReturn(List.of(1L));
+        when(roleResourceBitmapCache.findEffectiveResources(List.of(1L))).thenReturn(List.of(
+                new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE),
+                new PermissionResource("apple:home.page", PermissionResourceTypeEnum.PAGE)
+        ));
+        UserEffectivePermissionPO otherSystem = permission(21L, "apple:old.page", ResourceTypeEnum.PAGE);
+        otherSystem.setSystemCode("apple");
+        when(userEffectivePermissionMapper.selectByUserId(11L)).thenReturn(List.of(
+                permission(22L, "banana:home.page", ResourceTypeEnum.PAGE),
+                otherSystem
+        ));
+
+        assertEquals(List.of(11L), repository.refreshUsersAfter("banana", 9L, 500));
+        verify(userEffectivePermissionMapper, never()).deleteInactiveUsers(any());
+        verify(userEffectivePermissionMapper, never()).deleteByIds(any());
+        verify(userEffectivePermissionMapper, never()).insertIgnoreBatch(any());
+    }
+
+    private UserEffectivePermissionPO permission(Long id, String code, ResourceTypeEnum type) {
+        return UserEffectivePermissionPO.builder()
+                .id(id)
+                .systemCode("banana")
+                .resourceCode(code)
+                .resourceType(type.getCode())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package top.fblue.watermelon.infrastructure.repository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,15 +8,19 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResource;
 import top.fblue.watermelon.auth.domain.permission.entity.PermissionResourceTypeEnum;
+import top.fblue.watermelon.auth.domain.permission.entity.PermissionVersions;
 import top.fblue.watermelon.common.enums.ResourceTypeEnum;
 import top.fblue.watermelon.infrastructure.converter.PermissionResourceConverter;
-import top.fblue.watermelon.infrastructure.mapper.ResourceNodeMapper;
-import top.fblue.watermelon.infrastructure.po.ResourceNodePO;
+import top.fblue.watermelon.infrastructure.mapper.UserEffectivePermissionMapper;
+import top.fblue.watermelon.infrastructure.po.UserEffectivePermissionPO;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -25,31 +30,55 @@ import static org.mockito.Mockito.when;
 class PermissionResourceQueryRepositoryImplTest {
 
     @Mock
-    private ResourceNodeMapper resourceNodeMapper;
+    private UserEffectivePermissionMapper userEffectivePermissionMapper;
 
     private PermissionResourceQueryRepositoryImpl repository;
 
     @BeforeEach
     void setUp() {
         repository = new PermissionResourceQueryRepositoryImpl(
-                resourceNodeMapper, new PermissionResourceConverter());
+                userEffectivePermissionMapper, new PermissionResourceConverter(), new SimpleMeterRegistry());
     }
 
     @Test
-    void shouldQueryEffectiveResourcesDirectlyFromMapper() {
-        List<ResourceNodePO> resourceNodePOs = List.of(
-                ResourceNodePO.builder()
-                        .code("banana:home.page")
-                        .type(ResourceTypeEnum.PAGE.getCode())
+    void shouldReadMaterializedEffectivePermissions() {
+        when(userEffectivePermissionMapper.selectByUserIdAndSystemCode(7L, "banana")).thenReturn(List.of(
+                UserEffectivePermissionPO.builder()
+                        .resourceCode("banana:home.page")
+                        .resourceType(ResourceTypeEnum.PAGE.getCode())
                         .build()
-        );
-        when(resourceNodeMapper.selectEffectiveResources(7L, "banana")).thenReturn(resourceNodePOs);
+        ));
 
-        List<PermissionResource> result = repository.findEffectiveResources(7L, "banana");
+        List<PermissionResource> result =
+                repository.findEffectiveResources(7L, "banana", new PermissionVersions(3L, 5L));
 
         assertEquals(List.of(
                 new PermissionResource("banana:home.page", PermissionResourceTypeEnum.PAGE)
         ), result);
-        verify(resourceNodeMapper).selectEffectiveResources(7L, "banana");
+    }
+
+    @Test
+    void shouldNotShareInFlightLoadAcrossPermissionVersions() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loadCount = new AtomicInteger();
+        when(userEffectivePermissionMapper.selectByUserIdAndSystemCode(7L, "banana")).thenAnswer(invocation -> {
+            if (loadCount.incrementAndGet() == 1) {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return List.of();
+        });
+
+        CompletableFuture<List<PermissionResource>> stale = CompletableFuture.supplyAsync(
+                () -> repository.findEffectiveResources(7L, "banana", new PermissionVersions(3L, 5L)));
+        loading.await(5, TimeUnit.SECONDS);
+        List<PermissionResource> fresh =
+                repository.findEffectiveResources(7L, "banana", new PermissionVersions(4L, 5L));
+        release.countDown();
+
+        assertEquals(List.of(), fresh);
+        assertEquals(List.of(), stale.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loadCount.get());
     }
 }